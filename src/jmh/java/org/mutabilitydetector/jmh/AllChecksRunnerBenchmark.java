@@ -0,0 +1,113 @@
+package org.mutabilitydetector.jmh;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import com.google.classpath.ClassPath;
+import com.google.classpath.ClassPathFactory;
+import org.mutabilitydetector.AnalysisResult;
+import org.mutabilitydetector.AnalysisSession;
+import org.mutabilitydetector.Configuration;
+import org.mutabilitydetector.asmoverride.AsmVerifierFactory;
+import org.mutabilitydetector.asmoverride.ClassLoadingVerifierFactory;
+import org.mutabilitydetector.checkers.AllChecksRunner;
+import org.mutabilitydetector.checkers.ClassPathBasedCheckerRunnerFactory;
+import org.mutabilitydetector.checkers.MutabilityCheckerFactory;
+import org.mutabilitydetector.checkers.info.AnalysisDatabase;
+import org.mutabilitydetector.checkers.info.CyclicReferences;
+import org.mutabilitydetector.checkers.info.InformationRetrievalRunner;
+import org.mutabilitydetector.checkers.info.MutableTypeInformation;
+import org.mutabilitydetector.classloading.CachingAnalysisClassLoader;
+import org.mutabilitydetector.classloading.ClassForNameWrapper;
+import org.mutabilitydetector.locations.Dotted;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mutabilitydetector.Configurations.OUT_OF_THE_BOX_CONFIGURATION;
+import static org.mutabilitydetector.DefaultCachingAnalysisSession.createWithCurrentClassPath;
+import static org.mutabilitydetector.checkers.CheckerRunner.ExceptionPolicy.CARRY_ON;
+import static org.mutabilitydetector.checkers.CheckerRunner.createWithCurrentClasspath;
+import static org.mutabilitydetector.checkers.MutabilityCheckerFactory.ReassignedFieldAnalysisChoice.NAIVE_PUT_FIELD_ANALYSIS;
+import static org.mutabilitydetector.checkers.info.AnalysisDatabase.newAnalysisDatabase;
+import static org.mutabilitydetector.checkers.info.AnalysisInProgress.noAnalysisUnderway;
+
+/**
+ * Time taken to run every checker against one fixture class, as the session does for each class it analyses.
+ * <p>
+ * Each invocation checks the next fixture class in turn, against a session which has already analysed every fixture.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AllChecksRunnerBenchmark {
+
+    private final Configuration configuration = OUT_OF_THE_BOX_CONFIGURATION;
+    private final ClassPath classPath = new ClassPathFactory().createFromJVM();
+    private final CyclicReferences cyclicReferences = new CyclicReferences();
+    private final AsmVerifierFactory verifierFactory =
+            new ClassLoadingVerifierFactory(new CachingAnalysisClassLoader(new ClassForNameWrapper()));
+    private final MutabilityCheckerFactory checkerFactory =
+            new MutabilityCheckerFactory(NAIVE_PUT_FIELD_ANALYSIS, configuration.immutableContainerClasses());
+
+    private AnalysisSession session;
+    private AnalysisDatabase database;
+    private List<Dotted> fixtures;
+    private int next = 0;
+
+    @Setup
+    public void warmSession() {
+        fixtures = BenchmarkFixtures.all();
+        session = createWithCurrentClassPath(configuration);
+        for (Dotted fixture : fixtures) {
+            session.resultFor(fixture);
+        }
+        database = newAnalysisDatabase(new InformationRetrievalRunner(session, createWithCurrentClasspath(CARRY_ON)));
+    }
+
+    @Benchmark
+    public AnalysisResult runAllCheckers() {
+        Dotted className = fixtures.get(next);
+        next = (next + 1) % fixtures.size();
+        AllChecksRunner runner = new AllChecksRunner(checkerFactory,
+                new ClassPathBasedCheckerRunnerFactory(classPath, CARRY_ON),
+                verifierFactory,
+                className);
+        return runner.runCheckers(session.getResults(),
+                database,
+                new MutableTypeInformation(session, configuration, cyclicReferences),
+                noAnalysisUnderway());
+    }
+}
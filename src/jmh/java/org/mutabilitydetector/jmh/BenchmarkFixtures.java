@@ -0,0 +1,65 @@
+package org.mutabilitydetector.jmh;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import com.google.classpath.ClassPath;
+import com.google.classpath.ClassPathFactory;
+import com.google.classpath.RegExpResourceFilter;
+import com.google.common.collect.ImmutableList;
+import org.mutabilitydetector.locations.Dotted;
+
+import static com.google.classpath.RegExpResourceFilter.ANY;
+import static com.google.classpath.RegExpResourceFilter.ENDS_WITH_CLASS;
+import static org.mutabilitydetector.locations.Dotted.fromSlashedString;
+
+/**
+ * The test fixture classes analysed by the benchmarks, found on the current classpath.
+ */
+final class BenchmarkFixtures {
+
+    static final String FIXTURE_BASE = "org/mutabilitydetector/benchmarks/";
+
+    private BenchmarkFixtures() { }
+
+    /**
+     * Fixture classes in the given packages, relative to {@code org.mutabilitydetector.benchmarks}, in a stable order.
+     */
+    static ImmutableList<Dotted> inPackages(String... packages) {
+        ClassPath classPath = new ClassPathFactory().createFromJVM();
+        ImmutableList.Builder<Dotted> classes = ImmutableList.builder();
+        for (String fixturePackage : packages) {
+            for (String resource : classPath.findResources(FIXTURE_BASE + fixturePackage, new RegExpResourceFilter(ANY, ENDS_WITH_CLASS))) {
+                classes.add(fromSlashedString(resource.substring(0, resource.length() - ".class".length())));
+            }
+        }
+        ImmutableList<Dotted> found = classes.build();
+        if (found.isEmpty()) {
+            throw new IllegalStateException("No fixture classes found; are the test classes on the classpath?");
+        }
+        return found;
+    }
+
+    static ImmutableList<Dotted> all() {
+        return inPackages("settermethod", "cyclic", "mutabletofield");
+    }
+}
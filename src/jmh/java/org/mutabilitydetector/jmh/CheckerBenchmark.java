@@ -0,0 +1,130 @@
+package org.mutabilitydetector.jmh;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import org.mutabilitydetector.AnalysisSession;
+import org.mutabilitydetector.Configuration;
+import org.mutabilitydetector.asmoverride.AsmVerifierFactory;
+import org.mutabilitydetector.asmoverride.ClassLoadingVerifierFactory;
+import org.mutabilitydetector.checkers.AsmMutabilityChecker;
+import org.mutabilitydetector.checkers.CheckerResult;
+import org.mutabilitydetector.checkers.CheckerRunner;
+import org.mutabilitydetector.checkers.MutabilityCheckerFactory;
+import org.mutabilitydetector.checkers.info.AnalysisDatabase;
+import org.mutabilitydetector.checkers.info.CyclicReferences;
+import org.mutabilitydetector.checkers.info.InformationRetrievalRunner;
+import org.mutabilitydetector.checkers.info.MutableTypeInformation;
+import org.mutabilitydetector.classloading.CachingAnalysisClassLoader;
+import org.mutabilitydetector.classloading.ClassForNameWrapper;
+import org.mutabilitydetector.locations.Dotted;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mutabilitydetector.Configurations.OUT_OF_THE_BOX_CONFIGURATION;
+import static org.mutabilitydetector.DefaultCachingAnalysisSession.createWithCurrentClassPath;
+import static org.mutabilitydetector.checkers.CheckerRunner.ExceptionPolicy.CARRY_ON;
+import static org.mutabilitydetector.checkers.CheckerRunner.createWithCurrentClasspath;
+import static org.mutabilitydetector.checkers.MutabilityCheckerFactory.ReassignedFieldAnalysisChoice.NAIVE_PUT_FIELD_ANALYSIS;
+import static org.mutabilitydetector.checkers.info.AnalysisDatabase.newAnalysisDatabase;
+import static org.mutabilitydetector.checkers.info.AnalysisInProgress.noAnalysisUnderway;
+
+/**
+ * Time taken by a single checker to check one fixture class.
+ * <p>
+ * Each invocation checks the next fixture class in turn. The session is warmed up front by analysing every fixture,
+ * so that the mutability of field types is looked up rather than analysed, and only the checker itself is measured. Checkers keep state for the class they check, so a fresh instance is
+ * created for each invocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CheckerBenchmark {
+
+    @Param({
+        "CanSubclassChecker",
+        "PublishedNonFinalFieldChecker",
+        "NonFinalFieldChecker",
+        "OldSetterMethodChecker",
+        "MutableTypeToFieldChecker",
+        "InherentTypeMutabilityChecker",
+        "ArrayFieldMutabilityChecker",
+        "EscapedThisReferenceChecker",
+        "CollectionWithMutableElementTypeToFieldChecker"
+    })
+    public String checker;
+
+    private final Configuration configuration = OUT_OF_THE_BOX_CONFIGURATION;
+    private final CyclicReferences cyclicReferences = new CyclicReferences();
+    private final AsmVerifierFactory verifierFactory =
+            new ClassLoadingVerifierFactory(new CachingAnalysisClassLoader(new ClassForNameWrapper()));
+    private final MutabilityCheckerFactory checkerFactory =
+            new MutabilityCheckerFactory(NAIVE_PUT_FIELD_ANALYSIS, configuration.immutableContainerClasses());
+    private final CheckerRunner checkerRunner = createWithCurrentClasspath(CARRY_ON);
+
+    private AnalysisSession session;
+    private AnalysisDatabase database;
+    private List<Dotted> fixtures;
+    private int next = 0;
+
+    @Setup
+    public void warmSession() {
+        fixtures = BenchmarkFixtures.all();
+        session = createWithCurrentClassPath(configuration);
+        for (Dotted fixture : fixtures) {
+            session.resultFor(fixture);
+        }
+        database = newAnalysisDatabase(new InformationRetrievalRunner(session, checkerRunner));
+    }
+
+    @Benchmark
+    public CheckerResult checkOneClass() {
+        Dotted className = fixtures.get(next);
+        next = (next + 1) % fixtures.size();
+        return checkerRunner.run(newChecker(), className, session.getResults());
+    }
+
+    private AsmMutabilityChecker newChecker() {
+        MutableTypeInformation mutableTypeInformation = new MutableTypeInformation(session, configuration, cyclicReferences);
+        for (AsmMutabilityChecker candidate : checkerFactory.createInstances(database, verifierFactory, mutableTypeInformation, noAnalysisUnderway())) {
+            if (candidate.getClass().getSimpleName().equals(checker)) {
+                return candidate;
+            }
+        }
+        throw new IllegalArgumentException("No checker named " + checker);
+    }
+}
@@ -0,0 +1,384 @@
+package org.mutabilitydetector.jmh;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import com.google.classpath.ClassPath;
+import com.google.classpath.ClassPathFactory;
+import com.google.classpath.RegExpResourceFilter;
+import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.io.Files;
+import org.mutabilitydetector.AnalysisSession;
+import org.mutabilitydetector.Configuration;
+import org.mutabilitydetector.ConfigurationBuilder;
+import org.mutabilitydetector.asmoverride.AsmVerifierFactory;
+import org.mutabilitydetector.asmoverride.AsmVerifierFactory.ClassloadingOption;
+import org.mutabilitydetector.asmoverride.ClassLoadingVerifierFactory;
+import org.mutabilitydetector.asmoverride.NonClassLoadingVerifierFactory;
+import org.mutabilitydetector.checkers.ClassPathBasedCheckerRunnerFactory;
+import org.mutabilitydetector.checkers.MutabilityCheckerFactory;
+import org.mutabilitydetector.classloading.CachingAnalysisClassLoader;
+import org.mutabilitydetector.classloading.CachingClassPath;
+import org.mutabilitydetector.classloading.ClassForNameWrapper;
+import org.mutabilitydetector.classloading.NonInitialisingClassLoader;
+import org.mutabilitydetector.cli.BatchAnalysisSession;
+import org.mutabilitydetector.cli.NamesFromClassResources;
+import org.mutabilitydetector.cli.URLFallbackClassLoader;
+import org.mutabilitydetector.locations.Dotted;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+
+import static com.google.classpath.RegExpResourceFilter.ANY;
+import static com.google.classpath.RegExpResourceFilter.ENDS_WITH_CLASS;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.mutabilitydetector.Configurations.OUT_OF_THE_BOX_CONFIGURATION;
+import static org.mutabilitydetector.DefaultCachingAnalysisSession.createWithGivenClassPath;
+import static org.mutabilitydetector.checkers.CheckerRunner.ExceptionPolicy.CARRY_ON;
+import static org.mutabilitydetector.checkers.MutabilityCheckerFactory.ReassignedFieldAnalysisChoice.NAIVE_PUT_FIELD_ANALYSIS;
+import static org.mutabilitydetector.classloading.CachingAnalysisClassLoader.weaklyCaching;
+import static org.mutabilitydetector.classloading.CachingClassPath.cachingResourcesOf;
+
+/**
+ * Analyses every class of a fixed corpus in a new session, as the command line does, once for each of a number of
+ * worker threads, to show how throughput scales.
+ * <p>
+ * Each run reports the classes analysed per second, the peak heap used, the time spent in garbage collection, and
+ * how often class content and loaded classes were found in their caches. Runs are written as CSV, one row per
+ * number of threads, so that the results of two builds can be compared. Options are:
+ * <ul>
+ * <li>{@code --corpus jdk|<classpath>}: the classes of {@code java.base}, the default, or of the given class path</li>
+ * <li>{@code --match <regex>}: analyse only classes whose names match</li>
+ * <li>{@code --threads 1,2,4}: numbers of threads to run with; by default 1, 2, 4 and the number of processors</li>
+ * <li>{@code --warmups <n>}: untimed runs, with the most threads, before measuring; by default 1</li>
+ * <li>{@code --classloading ENABLED|WITHOUT_INITIALISATION|DISABLED}: as the command line options</li>
+ * <li>{@code --bottom-up}: analyse classes after the types of their fields</li>
+ * <li>{@code --label <text>}: identifies the build in each row, such as a commit</li>
+ * <li>{@code --output <file>}: by default {@code target/corpus-benchmark.csv}</li>
+ * </ul>
+ * Run with {@code mvn -P benchmarks test-compile exec:exec@corpus -Dcorpus.args="--corpus jdk"}.
+ */
+public final class CorpusBenchmark {
+
+    static final String HEADER = "label,corpus,classloading,bottomUp,threads,classes,errors,seconds,classesPerSecond,"
+            + "peakHeapBytes,gcCount,gcMillis,classContentHitRate,loadedClassHitRate";
+
+    private final String corpus;
+    private final String match;
+    private final List<Integer> threads;
+    private final int warmups;
+    private final ClassloadingOption classloading;
+    private final boolean bottomUp;
+    private final String label;
+    private final File output;
+
+    private CorpusBenchmark(String corpus, String match, List<Integer> threads, int warmups,
+                            ClassloadingOption classloading, boolean bottomUp, String label, File output) {
+        this.corpus = corpus;
+        this.match = match;
+        this.threads = threads;
+        this.warmups = warmups;
+        this.classloading = classloading;
+        this.bottomUp = bottomUp;
+        this.label = label;
+        this.output = output;
+    }
+
+    public static void main(String[] args) throws IOException {
+        fromArgs(args).run();
+    }
+
+    static CorpusBenchmark fromArgs(String[] args) {
+        String corpus = "jdk";
+        String match = ".*";
+        List<Integer> threads = defaultThreads();
+        int warmups = 1;
+        ClassloadingOption classloading = ClassloadingOption.ENABLED;
+        boolean bottomUp = false;
+        String label = "";
+        File output = new File("target/corpus-benchmark.csv");
+
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (option.equals("--bottom-up")) {
+                bottomUp = true;
+                continue;
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+            case "--corpus": corpus = value; break;
+            case "--match": match = value; break;
+            case "--threads": threads = parseThreads(value); break;
+            case "--warmups": warmups = Integer.parseInt(value); break;
+            case "--classloading": classloading = ClassloadingOption.valueOf(value.toUpperCase(Locale.ROOT)); break;
+            case "--label": label = value; break;
+            case "--output": output = new File(value); break;
+            default: throw new IllegalArgumentException("Unknown option " + option);
+            }
+        }
+        return new CorpusBenchmark(corpus, match, threads, warmups, classloading, bottomUp, label, output);
+    }
+
+    private static List<Integer> defaultThreads() {
+        TreeSet<Integer> threads = new TreeSet<Integer>(ImmutableList.of(1, 2, 4));
+        threads.add(Runtime.getRuntime().availableProcessors());
+        return ImmutableList.copyOf(threads);
+    }
+
+    private static List<Integer> parseThreads(String value) {
+        List<Integer> threads = new ArrayList<Integer>();
+        for (String count : value.split(",")) {
+            threads.add(Integer.parseInt(count.trim()));
+        }
+        return threads;
+    }
+
+    void run() throws IOException {
+        List<Dotted> toAnalyse = new NamesFromClassResources(match)
+                .asDotted(corpusClassPath().findResources("", new RegExpResourceFilter(ANY, ENDS_WITH_CLASS)));
+        if (toAnalyse.isEmpty()) {
+            throw new IllegalStateException("No classes in corpus " + corpus + " match " + match);
+        }
+
+        int mostThreads = threads.get(0);
+        for (int count : threads) {
+            mostThreads = Math.max(mostThreads, count);
+        }
+        for (int i = 0; i < warmups; i++) {
+            System.err.printf("Warm up %d of %d with %d threads%n", i + 1, warmups, mostThreads);
+            measure(toAnalyse, mostThreads);
+        }
+
+        List<String> rows = new ArrayList<String>();
+        rows.add(HEADER);
+        for (int count : threads) {
+            Run run = measure(toAnalyse, count);
+            System.err.printf("%d threads: %d classes in %.2fs, %.1f classes/s%n",
+                    count, run.classes, run.seconds(), run.classesPerSecond());
+            rows.add(row(run));
+        }
+
+        File directory = output.getAbsoluteFile().getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        Files.asCharSink(output, UTF_8).writeLines(rows);
+        System.err.println("Results written to " + output);
+    }
+
+    private Run measure(List<Dotted> toAnalyse, int threadCount) {
+        CachingClassPath classPath = cachingResourcesOf(corpusClassPath());
+        Optional<CachingAnalysisClassLoader> classLoader = classLoaderFor(classloading);
+        AsmVerifierFactory verifierFactory = classLoader.isPresent()
+                ? new ClassLoadingVerifierFactory(classLoader.get())
+                : new NonClassLoadingVerifierFactory(classPath);
+        Configuration configuration = new ConfigurationBuilder() {
+            @Override
+            public void configure() {
+                mergeHardcodedResultsFrom(OUT_OF_THE_BOX_CONFIGURATION);
+                setExceptionPolicy(CARRY_ON);
+                setClassloadingPolicy(classloading);
+            }
+        }.build();
+        AnalysisSession session = createWithGivenClassPath(classPath,
+                new ClassPathBasedCheckerRunnerFactory(classPath, CARRY_ON),
+                new MutabilityCheckerFactory(NAIVE_PUT_FIELD_ANALYSIS, configuration.immutableContainerClasses()),
+                verifierFactory,
+                configuration);
+        BatchAnalysisSession batchSession = bottomUp
+                ? BatchAnalysisSession.bottomUp(session, threadCount, classPath)
+                : new BatchAnalysisSession(session, threadCount);
+
+        System.gc();
+        HeapUsage heap = HeapUsage.start();
+        long gcCountBefore = gcCount();
+        long gcMillisBefore = gcMillis();
+        long start = System.nanoTime();
+
+        AnalysisSession completed = batchSession.runAnalysis(toAnalyse);
+
+        long elapsed = System.nanoTime() - start;
+        return new Run(threadCount,
+                toAnalyse.size(),
+                Iterables.size(completed.getErrors()),
+                elapsed,
+                heap.peakBytes(),
+                gcCount() - gcCountBefore,
+                gcMillis() - gcMillisBefore,
+                classPath.stats(),
+                classLoader.isPresent() ? Optional.of(classLoader.get().stats()) : Optional.<CacheStats>absent());
+    }
+
+    private ClassPath corpusClassPath() {
+        return corpus.equals("jdk") ? PathClassPath.javaBase() : new ClassPathFactory().createFromPath(corpus);
+    }
+
+    private Optional<CachingAnalysisClassLoader> classLoaderFor(ClassloadingOption option) {
+        switch (option) {
+        case DISABLED:
+            return Optional.absent();
+        case WITHOUT_INITIALISATION:
+            return Optional.of(weaklyCaching(new NonInitialisingClassLoader(corpusClassLoader())));
+        default:
+            return Optional.of(new CachingAnalysisClassLoader(
+                    new URLFallbackClassLoader(corpusClassLoader(), new ClassForNameWrapper())));
+        }
+    }
+
+    private URLClassLoader corpusClassLoader() {
+        List<URL> urls = new ArrayList<URL>();
+        if (!corpus.equals("jdk")) {
+            for (String entry : new ClassPathFactory().parseClasspath(corpus)) {
+                try {
+                    urls.add(new File(entry).toURI().toURL());
+                } catch (MalformedURLException e) {
+                    throw new IllegalArgumentException("Corpus entry " + entry + " is invalid.", e);
+                }
+            }
+        }
+        return new URLClassLoader(urls.toArray(new URL[urls.size()]));
+    }
+
+    private String row(Run run) {
+        return Joiner.on(',').join(
+                csv(label),
+                csv(corpus.equals("jdk") ? "jrt:/java.base" : corpus),
+                classloading,
+                bottomUp,
+                run.threads,
+                run.classes,
+                run.errors,
+                String.format(Locale.ROOT, "%.3f", run.seconds()),
+                String.format(Locale.ROOT, "%.1f", run.classesPerSecond()),
+                run.peakHeapBytes,
+                run.gcCount,
+                run.gcMillis,
+                String.format(Locale.ROOT, "%.4f", run.classContentStats.hitRate()),
+                run.loadedClassStats.isPresent()
+                        ? String.format(Locale.ROOT, "%.4f", run.loadedClassStats.get().hitRate())
+                        : "");
+    }
+
+    private static String csv(String value) {
+        return value.contains(",") || value.contains("\"")
+                ? "\"" + value.replace("\"", "\"\"") + "\""
+                : value;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+
+    /**
+     * Peak heap use since it was started, taken as the sum of the peak use of each heap memory pool. Pools peak at
+     * different times, so this may overstate the true peak, but it does so consistently between runs.
+     */
+    private static final class HeapUsage {
+        private final List<MemoryPoolMXBean> heapPools;
+
+        private HeapUsage(List<MemoryPoolMXBean> heapPools) {
+            this.heapPools = heapPools;
+        }
+
+        static HeapUsage start() {
+            List<MemoryPoolMXBean> heapPools = new ArrayList<MemoryPoolMXBean>();
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                    pool.resetPeakUsage();
+                    heapPools.add(pool);
+                }
+            }
+            return new HeapUsage(heapPools);
+        }
+
+        long peakBytes() {
+            long peak = 0;
+            for (MemoryPoolMXBean pool : heapPools) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+            return peak;
+        }
+    }
+
+    private static final class Run {
+        final int threads;
+        final int classes;
+        final int errors;
+        final long elapsedNanos;
+        final long peakHeapBytes;
+        final long gcCount;
+        final long gcMillis;
+        final CacheStats classContentStats;
+        final Optional<CacheStats> loadedClassStats;
+
+        Run(int threads, int classes, int errors, long elapsedNanos, long peakHeapBytes, long gcCount, long gcMillis,
+            CacheStats classContentStats, Optional<CacheStats> loadedClassStats) {
+            this.threads = threads;
+            this.classes = classes;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+            this.peakHeapBytes = peakHeapBytes;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+            this.classContentStats = classContentStats;
+            this.loadedClassStats = loadedClassStats;
+        }
+
+        double seconds() {
+            return elapsedNanos / 1e9;
+        }
+
+        double classesPerSecond() {
+            return classes / seconds();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.mutabilitydetector.jmh;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import com.google.classpath.ClassPath;
+import com.google.classpath.ResourceFilter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link ClassPath} over a directory of any {@link java.nio.file.FileSystem}, such as a module of the runtime
+ * image of the JDK, which {@link com.google.classpath.ClassPathFactory} cannot read.
+ */
+final class PathClassPath implements ClassPath {
+
+    private final Path root;
+
+    PathClassPath(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * The classes of the {@code java.base} module of the running JDK, which must be Java 9 or later.
+     */
+    static PathClassPath javaBase() {
+        return new PathClassPath(FileSystems.getFileSystem(URI.create("jrt:/")).getPath("modules", "java.base"));
+    }
+
+    @Override
+    public boolean isResource(String resource) {
+        return Files.isRegularFile(resolve(resource));
+    }
+
+    @Override
+    public boolean isPackage(String packageName) {
+        return Files.isDirectory(resolve(packageName));
+    }
+
+    @Override
+    public String[] listPackages(String packageName) {
+        return list(resolve(packageName), true);
+    }
+
+    @Override
+    public String[] listResources(String packageName) {
+        return list(resolve(packageName), false);
+    }
+
+    @Override
+    public InputStream getResourceAsStream(String resource) {
+        try {
+            Path file = resolve(resource);
+            return Files.isRegularFile(file) ? Files.newInputStream(file) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String[] findResources(String rootPackageName, ResourceFilter resourceFilter) {
+        List<String> found = new ArrayList<String>();
+        findResources(withoutSlashes(rootPackageName), resourceFilter, found);
+        return found.toArray(new String[found.size()]);
+    }
+
+    private void findResources(String packageName, ResourceFilter resourceFilter, List<String> found) {
+        for (String resource : listResources(packageName)) {
+            if (resourceFilter.match(packageName, resource)) {
+                found.add(packageName.isEmpty() ? resource : packageName + "/" + resource);
+            }
+        }
+        for (String subpackage : listPackages(packageName)) {
+            findResources(packageName.isEmpty() ? subpackage : packageName + "/" + subpackage, resourceFilter, found);
+        }
+    }
+
+    private Path resolve(String name) {
+        String relative = withoutSlashes(name);
+        return relative.isEmpty() ? root : root.resolve(relative);
+    }
+
+    private static String[] list(Path directory, boolean directories) {
+        if (!Files.isDirectory(directory)) {
+            return new String[0];
+        }
+        List<String> names = new ArrayList<String>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                if (Files.isDirectory(entry) == directories) {
+                    names.add(stripTrailingSlash(entry.getFileName().toString()));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return names.toArray(new String[names.size()]);
+    }
+
+    private static String withoutSlashes(String name) {
+        int start = 0;
+        while (start < name.length() && name.charAt(start) == '/') {
+            start++;
+        }
+        return stripTrailingSlash(name.substring(start));
+    }
+
+    private static String stripTrailingSlash(String name) {
+        return name.endsWith("/") ? name.substring(0, name.length() - 1) : name;
+    }
+}
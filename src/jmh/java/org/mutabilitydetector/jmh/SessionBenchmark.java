@@ -0,0 +1,86 @@
+package org.mutabilitydetector.jmh;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import org.mutabilitydetector.AnalysisSession;
+import org.mutabilitydetector.locations.Dotted;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mutabilitydetector.Configurations.OUT_OF_THE_BOX_CONFIGURATION;
+import static org.mutabilitydetector.DefaultCachingAnalysisSession.createWithCurrentClassPath;
+
+/**
+ * Time taken for a session to give results for every fixture class.
+ * <p>
+ * A cold session starts empty, and so analyses each fixture and the types its fields refer to. A warm session has
+ * already analysed every fixture, and shows the cost of answering from the results it holds.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionBenchmark {
+
+    private List<Dotted> fixtures;
+    private AnalysisSession warmSession;
+
+    @Setup
+    public void primeWarmSession() {
+        fixtures = BenchmarkFixtures.all();
+        warmSession = createWithCurrentClassPath(OUT_OF_THE_BOX_CONFIGURATION);
+        for (Dotted fixture : fixtures) {
+            warmSession.resultFor(fixture);
+        }
+    }
+
+    @Benchmark
+    public void coldSession(Blackhole blackhole) {
+        analyseAll(createWithCurrentClassPath(OUT_OF_THE_BOX_CONFIGURATION), blackhole);
+    }
+
+    @Benchmark
+    public void warmSession(Blackhole blackhole) {
+        analyseAll(warmSession, blackhole);
+    }
+
+    private void analyseAll(AnalysisSession session, Blackhole blackhole) {
+        for (Dotted fixture : fixtures) {
+            blackhole.consume(session.resultFor(fixture));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.mutabilitydetector.jmh;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import org.mutabilitydetector.AnalysisSession;
+import org.mutabilitydetector.cli.BatchAnalysisSession;
+import org.mutabilitydetector.synthetic.SyntheticCorpus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time taken for a new session to analyse a generated corpus, as its size and shape vary. Time which grows faster
+ * than the number of classes points to analysis which does not scale.
+ * <p>
+ * Run with {@code -prof gc} to also see how allocation grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SyntheticCorpusBenchmark {
+
+    @Param({ "100", "1000", "5000" })
+    public int classCount;
+
+    @Param({ "3" })
+    public int fieldReferenceDepth;
+
+    @Param({ "0", "0.5" })
+    public double cycleDensity;
+
+    @Param({ "0.2" })
+    public double collectionFieldRatio;
+
+    @Param({ "0.1" })
+    public double setterRatio;
+
+    @Param({ "20" })
+    public int methodSize;
+
+    private SyntheticCorpus corpus;
+
+    @Setup
+    public void generateCorpus() {
+        corpus = SyntheticCorpus.builder()
+                .setClassCount(classCount)
+                .setFieldReferenceDepth(fieldReferenceDepth)
+                .setCycleDensity(cycleDensity)
+                .setCollectionFieldRatio(collectionFieldRatio)
+                .setSetterRatio(setterRatio)
+                .setMethodSize(methodSize)
+                .build();
+    }
+
+    @Benchmark
+    public AnalysisSession analyseCorpus() {
+        return new BatchAnalysisSession(corpus.newSession()).runAnalysis(corpus.classNames());
+    }
+}
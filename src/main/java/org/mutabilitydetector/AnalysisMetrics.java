@@ -0,0 +1,227 @@
+package org.mutabilitydetector;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Ordering;
+import org.mutabilitydetector.locations.Dotted;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timings and counters of the work done by an {@link AnalysisSession}: how long each checker and each class took,
+ * how long was spent retrieving information about other classes, how many bytes of class files were read, how often
+ * the mutability of field types was looked up, and how often cyclic references were found.
+ * <p>
+ * Time spent in the analysis of one class which was triggered by the analysis of another, such as the type of one of
+ * its fields, is counted against the class whose analysis it was, rather than the class which asked for it. Time is
+ * measured with {@link System#nanoTime()} on each thread, so the times of concurrent workers add up to more than the
+ * elapsed time.
+ * <p>
+ * Metrics are only collected when enabled with {@link ConfigurationBuilder#setCollectMetrics(boolean)}. Otherwise
+ * every method recording a metric returns without doing anything, and the metrics read as empty.
+ */
+@ThreadSafe
+public final class AnalysisMetrics {
+
+    private static final AnalysisMetrics DISABLED = new AnalysisMetrics(false);
+
+    private final boolean enabled;
+    private final ConcurrentMap<String, Accumulator> checkers = new ConcurrentHashMap<String, Accumulator>();
+    private final ConcurrentMap<String, Accumulator> classes = new ConcurrentHashMap<String, Accumulator>();
+    private final ConcurrentMap<String, Accumulator> informationRetrievals = new ConcurrentHashMap<String, Accumulator>();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder fieldTypeLookups = new LongAdder();
+    private final LongAdder transitiveAnalyses = new LongAdder();
+    private final LongAdder cyclesDetected = new LongAdder();
+
+    /**
+     * Per thread, the time taken by transitive analyses which have finished on that thread, less the same for the
+     * transitive analyses within them. Subtracting it from the time read at the start and end of some work gives the
+     * time taken by that work alone.
+     */
+    private final ThreadLocal<long[]> transitiveNanos = ThreadLocal.withInitial(() -> new long[1]);
+
+    private AnalysisMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public static AnalysisMetrics enabled() {
+        return new AnalysisMetrics(true);
+    }
+
+    public static AnalysisMetrics disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Marks the start of some work on the current thread, to be given to one of the methods recording how long it
+     * took. Only time spent outside of transitive analysis started on this thread after the mark is counted.
+     */
+    public long mark() {
+        return enabled ? System.nanoTime() - transitiveNanos.get()[0] : 0;
+    }
+
+    /**
+     * The time spent on the current thread since the given {@link #mark()}, outside of transitive analysis.
+     */
+    public long nanosSince(long mark) {
+        return enabled ? System.nanoTime() - transitiveNanos.get()[0] - mark : 0;
+    }
+
+    public void recordCheckerRun(String checkerName, long nanos) {
+        if (enabled) {
+            accumulatorFor(checkers, checkerName).add(nanos);
+        }
+    }
+
+    public void recordClassAnalysed(Dotted className, long mark) {
+        if (enabled) {
+            accumulatorFor(classes, className.asString()).add(nanosSince(mark));
+        }
+    }
+
+    public void recordInformationRetrieval(String retrieverName, long mark) {
+        if (enabled) {
+            accumulatorFor(informationRetrievals, retrieverName).add(nanosSince(mark));
+        }
+    }
+
+    public void recordBytesRead(int bytes) {
+        if (enabled) {
+            bytesRead.add(bytes);
+        }
+    }
+
+    public void recordFieldTypeLookup() {
+        if (enabled) {
+            fieldTypeLookups.increment();
+        }
+    }
+
+    /**
+     * Records a transitive analysis which started at the given {@link #mark()}, so that the time it took is left out
+     * of the work which requested it.
+     */
+    public void recordTransitiveAnalysis(long mark) {
+        if (enabled) {
+            transitiveAnalyses.increment();
+            transitiveNanos.get()[0] = System.nanoTime() - mark;
+        }
+    }
+
+    public void recordCycleDetected() {
+        if (enabled) {
+            cyclesDetected.increment();
+        }
+    }
+
+    /**
+     * The time taken by each checker, over all the classes it checked, slowest first.
+     */
+    public List<Timing> checkerTimings() {
+        return slowestFirst(checkers);
+    }
+
+    /**
+     * The time taken to run the checkers over each analysed class, slowest first.
+     */
+    public List<Timing> classTimings() {
+        return slowestFirst(classes);
+    }
+
+    /**
+     * The time taken by each kind of information retrieved about classes for checkers, slowest first.
+     */
+    public List<Timing> informationRetrievalTimings() {
+        return slowestFirst(informationRetrievals);
+    }
+
+    public long bytesRead() {
+        return bytesRead.sum();
+    }
+
+    public long fieldTypeLookups() {
+        return fieldTypeLookups.sum();
+    }
+
+    public long transitiveAnalyses() {
+        return transitiveAnalyses.sum();
+    }
+
+    public long cyclesDetected() {
+        return cyclesDetected.sum();
+    }
+
+    private static Accumulator accumulatorFor(ConcurrentMap<String, Accumulator> accumulators, String name) {
+        Accumulator accumulator = accumulators.get(name);
+        return accumulator != null ? accumulator : accumulators.computeIfAbsent(name, n -> new Accumulator());
+    }
+
+    private static List<Timing> slowestFirst(Map<String, Accumulator> accumulators) {
+        List<Timing> timings = new ArrayList<Timing>(accumulators.size());
+        for (Map.Entry<String, Accumulator> entry : accumulators.entrySet()) {
+            timings.add(new Timing(entry.getKey(), entry.getValue().nanos.sum(), entry.getValue().count.sum()));
+        }
+        return ImmutableList.copyOf(Ordering.natural().reverse().onResultOf((Timing t) -> t.nanos).sortedCopy(timings));
+    }
+
+    private static final class Accumulator {
+        final LongAdder nanos = new LongAdder();
+        final LongAdder count = new LongAdder();
+
+        void add(long elapsed) {
+            nanos.add(elapsed);
+            count.increment();
+        }
+    }
+
+    @Immutable
+    public static final class Timing {
+        public final String name;
+        public final long nanos;
+        public final long count;
+
+        Timing(String name, long nanos, long count) {
+            this.name = name;
+            this.nanos = nanos;
+            this.count = count;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d ns in %d", name, nanos, count);
+        }
+    }
+}
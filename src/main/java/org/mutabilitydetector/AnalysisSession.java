@@ -29,6 +29,20 @@ import org.mutabilitydetector.locations.Dotted;
 
 public interface AnalysisSession {
     AnalysisResult resultFor(Dotted className);
+
+    /**
+     * The result of the given class with every reason it is not immutable, even when this session only finds
+     * enough of the analysis of a class to know its result.
+     * <p>
+     * By default this is the result from {@link #resultFor(Dotted)}, which suits sessions that always run the whole
+     * analysis.
+     *
+     * @see ConfigurationBuilder#setAnalysisMode(org.mutabilitydetector.checkers.AllChecksRunner.AnalysisMode)
+     */
+    default AnalysisResult fullResultFor(Dotted className) {
+        return resultFor(className);
+    }
+
     AnalysisResult processTransitiveAnalysis(Dotted className, AnalysisInProgress analysisInProgress);
 
     Iterable<AnalysisResult> getResults();
@@ -36,4 +50,22 @@ public interface AnalysisSession {
     
     Iterable<AnalysisError> getErrors();
 
+    /**
+     * The classes each analysed class depended on for its result. By default no dependencies are recorded, and the
+     * graph is empty.
+     */
+    default DependencyGraph dependencyGraph() {
+        return new DependencyGraph();
+    }
+
+    /**
+     * Timings and counters of the analysis done by this session, which are empty unless the session was configured
+     * to collect them. By default no metrics are collected.
+     *
+     * @see ConfigurationBuilder#setCollectMetrics(boolean)
+     */
+    default AnalysisMetrics metrics() {
+        return AnalysisMetrics.disabled();
+    }
+
 }
\ No newline at end of file
@@ -21,8 +21,10 @@ package org.mutabilitydetector;
  */
 
 
+import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableSetMultimap;
 import org.mutabilitydetector.asmoverride.AsmVerifierFactory.ClassloadingOption;
+import org.mutabilitydetector.checkers.AllChecksRunner.AnalysisMode;
 import org.mutabilitydetector.checkers.CheckerRunner.ExceptionPolicy;
 import org.mutabilitydetector.checkers.MutabilityCheckerFactory.ReassignedFieldAnalysisChoice;
 import org.mutabilitydetector.checkers.info.CopyMethod;
@@ -30,6 +32,7 @@ import org.mutabilitydetector.config.HardcodedResultsUsage;
 import org.mutabilitydetector.locations.Dotted;
 import org.mutabilitydetector.unittesting.MutabilityAsserter;
 
+import java.io.File;
 import java.util.Map;
 import java.util.Set;
 
@@ -148,4 +151,31 @@ public interface Configuration {
      */
     ImmutableSetMultimap<String, CopyMethod> hardcodedCopyMethods();
 
+    /**
+     * File in which analysis results are kept between runs.
+     * <p>
+     * When present, a result is reused by later runs with the same configuration, as long as neither the analysed
+     * class nor any class its result depended on has changed.
+     *
+     * @return resultStoreLocation - where to keep results, or absent to analyse every class afresh in each run.
+     */
+    Optional<File> resultStoreLocation();
+
+    /**
+     * Whether sessions using this configuration time their analysis, and count the work it does.
+     *
+     * @see AnalysisSession#metrics()
+     * @return collectsMetrics - true to make metrics available from the session
+     */
+    boolean collectsMetrics();
+
+    /**
+     * How much of the analysis of a class is done once its result is known.
+     * <p>
+     * The default is {@link AnalysisMode#FULL}.
+     *
+     * @return analysisMode - whether every reason a class is not immutable is found
+     */
+    AnalysisMode analysisMode();
+
 }
@@ -21,12 +21,14 @@ package org.mutabilitydetector;
  */
 
 
+import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import org.mutabilitydetector.asmoverride.AsmVerifierFactory.ClassloadingOption;
+import org.mutabilitydetector.checkers.AllChecksRunner.AnalysisMode;
 import org.mutabilitydetector.checkers.CheckerRunner.ExceptionPolicy;
 import org.mutabilitydetector.checkers.MethodIs;
 import org.mutabilitydetector.checkers.MutabilityAnalysisException;
@@ -40,6 +42,7 @@ import org.objectweb.asm.Type;
 
 import javax.annotation.concurrent.Immutable;
 import javax.annotation.concurrent.NotThreadSafe;
+import java.io.File;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.util.Arrays;
@@ -127,6 +130,11 @@ public abstract class ConfigurationBuilder {
      * 
      * @see Configurations#OUT_OF_THE_BOX_CONFIGURATION
      */
+    /**
+     * System property giving the default for {@link #setResultStoreLocation(File)}.
+     */
+    public static final String RESULT_STORE_PROPERTY = "org.mutabilitydetector.resultStore";
+
     public abstract void configure();
     
     public final Configuration build() {
@@ -138,7 +146,10 @@ public abstract class ConfigurationBuilder {
                 classloadingOption,
                 reassignedFieldAlgorithm,
                 validCopyMethods.build(),
-                howToUseHardcodedResults);
+                howToUseHardcodedResults,
+                resultStoreLocation == null ? null : resultStoreLocation.getPath(),
+                collectMetrics,
+                analysisMode);
     }
     
     private ImmutableSet.Builder<AnalysisResult> hardcodedResults = ImmutableSet.builder();
@@ -148,6 +159,9 @@ public abstract class ConfigurationBuilder {
     private ReassignedFieldAnalysisChoice reassignedFieldAlgorithm = NAIVE_PUT_FIELD_ANALYSIS;
     private ImmutableSetMultimap.Builder<String,CopyMethod> validCopyMethods = ImmutableSetMultimap.builder();
     private HardcodedResultsUsage howToUseHardcodedResults = LOOKUP_WHEN_REFERENCED;
+    private File resultStoreLocation = defaultResultStoreLocation();
+    private boolean collectMetrics = false;
+    private AnalysisMode analysisMode = AnalysisMode.FULL;
 
     
     /**
@@ -211,6 +225,57 @@ public abstract class ConfigurationBuilder {
         this.classloadingOption = classloadingOption;
     }
 
+    /**
+     * Keeps analysis results in the given file, so later runs can reuse them.
+     * <p>
+     * A stored result is reused only by runs with an equivalent configuration, and only while the analysed class,
+     * and every class its result depended on, is unchanged. The file can be shared between processes.
+     * <p>
+     * The default is the value of the system property {@value #RESULT_STORE_PROPERTY}, which allows results to be
+     * reused by {@link MutabilityAssert} without further configuration. If the property is not set, results are not
+     * kept.
+     *
+     * @see Configuration#resultStoreLocation()
+     * @param resultStoreLocation - file to keep results in, or null to not keep results
+     */
+    protected final void setResultStoreLocation(File resultStoreLocation) {
+        this.resultStoreLocation = resultStoreLocation;
+    }
+
+    /**
+     * Times the analysis done by sessions using this configuration, and counts the work it does, such as bytes of
+     * class files read and transitive analyses. The default is not to collect metrics, which leaves only a
+     * negligible cost in analysis.
+     *
+     * @see Configuration#collectsMetrics()
+     * @see AnalysisSession#metrics()
+     * @param collectMetrics - true to collect metrics
+     */
+    protected final void setCollectMetrics(boolean collectMetrics) {
+        this.collectMetrics = collectMetrics;
+    }
+
+    /**
+     * Configures whether analysis finds every reason a class is not immutable, or stops once it knows a class is
+     * not immutable.
+     * <p>
+     * With {@link AnalysisMode#VERDICT_ONLY}, the cheapest checkers are run first, and the more costly checkers,
+     * including those which analyse the types of fields, are skipped for classes already found to be mutable. This
+     * suits uses which only need to know whether classes are immutable, such as reporting results without reasons.
+     * The default is {@link AnalysisMode#FULL}.
+     *
+     * @see Configuration#analysisMode()
+     * @param analysisMode - how much of the analysis of a class is done once its result is known
+     */
+    protected final void setAnalysisMode(AnalysisMode analysisMode) {
+        this.analysisMode = analysisMode;
+    }
+
+    private static File defaultResultStoreLocation() {
+        String location = System.getProperty(RESULT_STORE_PROPERTY);
+        return location == null || location.isEmpty() ? null : new File(location);
+    }
+
     /**
      * Add a predefined result used during analysis.
      * <p>
@@ -478,6 +543,9 @@ public abstract class ConfigurationBuilder {
         private final ExceptionPolicy exceptionPolicy;
         private final ClassloadingOption classloadingOption;
         private final ReassignedFieldAnalysisChoice reassignedFieldAlgorithm;
+        private final String resultStoreLocation;
+        private final boolean collectMetrics;
+        private final AnalysisMode analysisMode;
 
         private DefaultConfiguration(ImmutableSet<AnalysisResult> predefinedResults,
                                      ImmutableSet<Dotted> immutableContainerClasses,
@@ -485,7 +553,10 @@ public abstract class ConfigurationBuilder {
                                      ClassloadingOption classloadingOption,
                                      ReassignedFieldAnalysisChoice reassignedFieldAlgorithm,
                                      ImmutableSetMultimap<String, CopyMethod> validCopyMethods,
-                                     HardcodedResultsUsage howToUseHardcodedResults) {
+                                     HardcodedResultsUsage howToUseHardcodedResults,
+                                     String resultStoreLocation,
+                                     boolean collectMetrics,
+                                     AnalysisMode analysisMode) {
             this.immutableContainerClasses = immutableContainerClasses;
             this.exceptionPolicy = exceptionPolicy;
             this.hardcodedResults = predefinedResults;
@@ -495,6 +566,9 @@ public abstract class ConfigurationBuilder {
                             .collect(Collectors.toMap(r -> r.className, r -> r)));
             this.reassignedFieldAlgorithm = reassignedFieldAlgorithm;
             this.validCopyMethods = validCopyMethods;
+            this.resultStoreLocation = resultStoreLocation;
+            this.collectMetrics = collectMetrics;
+            this.analysisMode = analysisMode;
         }
 
         @Override
@@ -527,6 +601,23 @@ public abstract class ConfigurationBuilder {
         public ImmutableSetMultimap<String, CopyMethod> hardcodedCopyMethods() {
             return validCopyMethods;
         }
+
+        @Override
+        public Optional<File> resultStoreLocation() {
+            return resultStoreLocation == null
+                    ? Optional.<File>absent()
+                    : Optional.of(new File(resultStoreLocation));
+        }
+
+        @Override
+        public boolean collectsMetrics() {
+            return collectMetrics;
+        }
+
+        @Override
+        public AnalysisMode analysisMode() {
+            return analysisMode;
+        }
         
     }
     
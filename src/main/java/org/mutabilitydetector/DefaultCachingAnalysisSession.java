@@ -23,12 +23,14 @@ package org.mutabilitydetector;
 
 import com.google.classpath.ClassPath;
 import com.google.classpath.ClassPathFactory;
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.collect.ImmutableList;
 import org.mutabilitydetector.asmoverride.AsmVerifierFactory;
 import org.mutabilitydetector.asmoverride.ClassLoadingVerifierFactory;
 import org.mutabilitydetector.checkers.AllChecksRunner;
+import org.mutabilitydetector.checkers.AllChecksRunner.AnalysisMode;
 import org.mutabilitydetector.checkers.CheckerRunnerFactory;
 import org.mutabilitydetector.checkers.ClassPathBasedCheckerRunnerFactory;
 import org.mutabilitydetector.checkers.MutabilityCheckerFactory;
@@ -39,17 +41,48 @@ import org.mutabilitydetector.checkers.info.InformationRetrievalRunner;
 import org.mutabilitydetector.checkers.info.MutableTypeInformation;
 import org.mutabilitydetector.classloading.CachingAnalysisClassLoader;
 import org.mutabilitydetector.classloading.ClassForNameWrapper;
+import org.mutabilitydetector.classloading.NonInitialisingClassLoader;
+import org.mutabilitydetector.classloading.TypeHierarchyIndex;
 import org.mutabilitydetector.locations.Dotted;
+import org.mutabilitydetector.store.ClassesConsulted;
+import org.mutabilitydetector.store.ResultStore;
+import org.mutabilitydetector.store.ResultStores;
 
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
+import static org.mutabilitydetector.asmoverride.AsmVerifierFactory.ClassloadingOption.WITHOUT_INITIALISATION;
 import static org.mutabilitydetector.checkers.info.AnalysisDatabase.newAnalysisDatabase;
+import static org.mutabilitydetector.classloading.CachingAnalysisClassLoader.weaklyCaching;
+import static org.mutabilitydetector.classloading.CachingClassPath.cachingResourcesOf;
 import static org.mutabilitydetector.config.HardcodedResultsUsage.DIRECTLY_IN_ASSERTION;
+import static org.mutabilitydetector.jfr.AnalysisEvents.analysisEvents;
 
-public final class DefaultCachingAnalysisSession implements AnalysisSession {
+/**
+ * An {@link AnalysisSession} which caches the result of every class it analyses.
+ * <p>
+ * Sessions are safe to share between threads. Concurrent requests for the same class wait for a single
+ * analysis rather than repeating it, unless waiting would deadlock because the threads involved are each
+ * waiting for a class the other is analysing. In that case the requesting thread analyses the class itself, and
+ * keeps that result to itself, leaving the first analysis to publish the result of the class.
+ * <p>
+ * A session which uses a {@link ResultStore} should be {@linkplain #close() closed} once analysis is finished.
+ */
+@ThreadSafe
+public final class DefaultCachingAnalysisSession implements AnalysisSession, Closeable {
 
     private final MutabilityCheckerFactory checkerFactory;
     private final CheckerRunnerFactory checkerRunnerFactory;
@@ -58,21 +91,33 @@ public final class DefaultCachingAnalysisSession implements AnalysisSession {
     private final Configuration configuration;
     private final CyclicReferences cyclicReferences;
     private final Cache<Dotted, AnalysisResult> analysedClasses;
+    private final ResultStore resultStore;
+    private final AnalysisMetrics metrics;
+    private final DependencyGraph dependencyGraph = new DependencyGraph();
+    private final ConcurrentMap<Dotted, AnalysisUnderway> underway = new ConcurrentHashMap<Dotted, AnalysisUnderway>();
+
+    @GuardedBy("waitingThreads")
+    private final Map<Thread, AnalysisUnderway> waitingThreads = new HashMap<Thread, AnalysisUnderway>();
 
     private DefaultCachingAnalysisSession(CheckerRunnerFactory checkerRunnerFactory,
                                           MutabilityCheckerFactory checkerFactory,
                                           AsmVerifierFactory verifierFactory,
-                                          Configuration configuration) {
+                                          Configuration configuration,
+                                          ResultStore resultStore,
+                                          Optional<TypeHierarchyIndex> typeHierarchyIndex) {
         this.checkerRunnerFactory = checkerRunnerFactory;
         this.checkerFactory = checkerFactory;
         this.verifierFactory = verifierFactory;
         this.configuration = configuration;
         this.cyclicReferences = new CyclicReferences();
+        this.resultStore = resultStore;
         this.analysedClasses = CacheBuilder.newBuilder().recordStats().build();
         this.analysedClasses.putAll(hardcodedResultsForDirectAssertion(configuration));
+        this.metrics = configuration.collectsMetrics() ? AnalysisMetrics.enabled() : AnalysisMetrics.disabled();
 
-        InformationRetrievalRunner informationRetrievalRunner = new InformationRetrievalRunner(this, checkerRunnerFactory.createRunner());
-        this.database = newAnalysisDatabase(informationRetrievalRunner);
+        InformationRetrievalRunner informationRetrievalRunner =
+                new InformationRetrievalRunner(this, checkerRunnerFactory.createRunner().measuredBy(metrics), metrics);
+        this.database = newAnalysisDatabase(informationRetrievalRunner, typeHierarchyIndex);
     }
 
     private Map<Dotted, AnalysisResult> hardcodedResultsForDirectAssertion(Configuration configuration) {
@@ -86,9 +131,21 @@ public final class DefaultCachingAnalysisSession implements AnalysisSession {
                                                            MutabilityCheckerFactory checkerFactory,
                                                            AsmVerifierFactory verifierFactory,
                                                            Configuration configuration) {
-        return createWithGivenClassPath(classpath, configuration, verifierFactory);
+        return createWithGivenClassPath(classpath, configuration, verifierFactory, Optional.<TypeHierarchyIndex>absent());
     }
 
+    /**
+     * Creates an analysis session which answers questions about the structure of classes from the given index,
+     * built from the same classpath, rather than reading each class as the question arises.
+     *
+     * @see TypeHierarchyIndex#build(ClassPath, int)
+     */
+    public static AnalysisSession createWithIndexedClassPath(ClassPath classpath,
+                                                             TypeHierarchyIndex typeHierarchyIndex,
+                                                             AsmVerifierFactory verifierFactory,
+                                                             Configuration configuration) {
+        return createWithGivenClassPath(classpath, configuration, verifierFactory, Optional.of(typeHierarchyIndex));
+    }
 
     /**
      * Creates an analysis session based suitable for runtime analysis.
@@ -101,18 +158,25 @@ public final class DefaultCachingAnalysisSession implements AnalysisSession {
      */
     public static AnalysisSession createWithCurrentClassPath(Configuration configuration) {
         ClassPath classpath = new ClassPathFactory().createFromJVM();
-        ClassLoadingVerifierFactory verifierFactory = new ClassLoadingVerifierFactory(new CachingAnalysisClassLoader(new ClassForNameWrapper()));
-        return createWithGivenClassPath(classpath, configuration, verifierFactory);
+        ClassLoadingVerifierFactory verifierFactory = new ClassLoadingVerifierFactory(
+                configuration.classloadingOption() == WITHOUT_INITIALISATION
+                        ? weaklyCaching(new NonInitialisingClassLoader())
+                        : new CachingAnalysisClassLoader(new ClassForNameWrapper()));
+        return createWithGivenClassPath(classpath, configuration, verifierFactory, Optional.<TypeHierarchyIndex>absent());
     }
 
     @SuppressWarnings("deprecation")
-    private static AnalysisSession createWithGivenClassPath(ClassPath classpath,
+    private static AnalysisSession createWithGivenClassPath(ClassPath givenClasspath,
                                                             Configuration configuration,
-                                                            AsmVerifierFactory verifierFactory) {
+                                                            AsmVerifierFactory verifierFactory,
+                                                            Optional<TypeHierarchyIndex> typeHierarchyIndex) {
+        ClassPath classpath = cachingResourcesOf(givenClasspath);
         return new DefaultCachingAnalysisSession(new ClassPathBasedCheckerRunnerFactory(classpath, configuration.exceptionPolicy()),
                 new MutabilityCheckerFactory(configuration.reassignedFieldAlgorithm(), configuration.immutableContainerClasses()),
                 verifierFactory,
-                configuration);
+                configuration,
+                ResultStores.forConfiguration(configuration, classpath),
+                typeHierarchyIndex);
     }
 
     @Override
@@ -120,6 +184,25 @@ public final class DefaultCachingAnalysisSession implements AnalysisSession {
         return requestAnalysis(className, AnalysisInProgress.noAnalysisUnderway());
     }
 
+    /**
+     * Results of classes which are not {@link IsImmutable#NOT_IMMUTABLE} are complete in every mode, so only a class
+     * found to be mutable by a session in {@link AnalysisMode#VERDICT_ONLY} mode is analysed again. Only the results
+     * of its field types are needed, so they are taken from this session as usual. The complete result is not kept.
+     */
+    @Override
+    public AnalysisResult fullResultFor(Dotted className) {
+        AnalysisResult result = resultFor(className);
+        if (configuration.analysisMode() == AnalysisMode.FULL
+                || result.isImmutable != IsImmutable.NOT_IMMUTABLE
+                || configuration.hardcodedResults().get(className) == result) {
+            return result;
+        }
+        return analyse(className,
+                AnalysisInProgress.noAnalysisUnderway(),
+                new MutableTypeInformation(this, configuration, cyclicReferences, metrics),
+                AnalysisMode.FULL);
+    }
+
     @Override
     public AnalysisResult processTransitiveAnalysis(Dotted className, AnalysisInProgress analysisInProgress) {
         return requestAnalysis(className, analysisInProgress);
@@ -127,24 +210,125 @@ public final class DefaultCachingAnalysisSession implements AnalysisSession {
 
     private AnalysisResult requestAnalysis(Dotted className, AnalysisInProgress analysisInProgress) {
         AnalysisResult existingResult = analysedClasses.getIfPresent(className);
+        analysisEvents().resultRequested(className, existingResult != null);
         if (existingResult != null) {
             return existingResult;
         }
 
-        MutableTypeInformation mutableTypeInformation = new MutableTypeInformation(this, configuration, cyclicReferences);
+        AnalysisUnderway mine = new AnalysisUnderway(Thread.currentThread());
+        AnalysisUnderway theirs = underway.putIfAbsent(className, mine);
+        if (theirs == null) {
+            return analyseAndPublish(className, analysisInProgress, mine);
+        } else if (canWaitFor(theirs)) {
+            return awaitResultOf(theirs);
+        } else {
+            return analyseWithoutPublishing(className, analysisInProgress);
+        }
+    }
+
+    private AnalysisResult analyseAndPublish(Dotted className, AnalysisInProgress analysisInProgress, AnalysisUnderway mine) {
+        try {
+            AnalysisResult existingResult = analysedClasses.getIfPresent(className);
+            AnalysisResult result = existingResult != null
+                    ? existingResult
+                    : addAnalysisResult(analyseUnlessStored(className, analysisInProgress));
+            mine.result.complete(result);
+            return result;
+        } catch (Throwable e) {
+            mine.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            underway.remove(className, mine);
+        }
+    }
 
+    private AnalysisResult analyseUnlessStored(Dotted className, AnalysisInProgress analysisInProgress) {
+        Optional<AnalysisResult> storedResult = resultStore.lookup(className);
+        if (storedResult.isPresent()) {
+            return storedResult.get();
+        }
+
+        MutableTypeInformation mutableTypeInformation = new MutableTypeInformation(this, configuration, cyclicReferences, metrics);
+        if (resultStore == ResultStores.NO_STORE) {
+            return analyse(className, analysisInProgress, mutableTypeInformation, configuration.analysisMode());
+        }
+        Set<Dotted> classesConsulted = new HashSet<Dotted>();
+        AnalysisResult result = ClassesConsulted.collectingInto(classesConsulted,
+                () -> analyse(className, analysisInProgress, mutableTypeInformation, configuration.analysisMode()));
+        resultStore.record(result, mutableTypeInformation.typesLookedUp(), classesConsulted);
+        return result;
+    }
+
+    /**
+     * Analyses a class which another analysis on this thread, or on a thread waiting for this one, is already
+     * analysing. That analysis publishes the result of the class once it completes, as a sequential analysis would
+     * have found it. This result is found part way through, so is returned only to the analysis which asked for it,
+     * and is neither cached nor stored; a stored result is used if there is one. The analysis is counted in the
+     * metrics of the session as any other.
+     */
+    private AnalysisResult analyseWithoutPublishing(Dotted className, AnalysisInProgress analysisInProgress) {
+        Optional<AnalysisResult> storedResult = resultStore.lookup(className);
+        if (storedResult.isPresent()) {
+            return storedResult.get();
+        }
+        return analyse(className,
+                analysisInProgress,
+                new MutableTypeInformation(this, configuration, cyclicReferences, metrics),
+                configuration.analysisMode());
+    }
+
+    private AnalysisResult analyse(Dotted className,
+                                   AnalysisInProgress analysisInProgress,
+                                   MutableTypeInformation mutableTypeInformation,
+                                   AnalysisMode analysisMode) {
         AllChecksRunner allChecksRunner = new AllChecksRunner(checkerFactory,
                 checkerRunnerFactory,
                 verifierFactory,
-                className);
+                className,
+                metrics,
+                analysisMode);
 
+        long mark = metrics.mark();
         AnalysisResult result = allChecksRunner.runCheckers(
-                ImmutableList.copyOf(getResults()),
+                getResults(),
                 database,
                 mutableTypeInformation,
                 analysisInProgress);
+        metrics.recordClassAnalysed(className, mark);
+        dependencyGraph.recordDependencies(className, mutableTypeInformation.typesLookedUp());
+        return result;
+    }
 
-        return addAnalysisResult(result);
+    /**
+     * Registers the current thread as waiting for the given analysis, unless the thread performing that analysis is,
+     * directly or through other waiting threads, already waiting on the current thread.
+     */
+    private boolean canWaitFor(AnalysisUnderway analysis) {
+        Thread current = Thread.currentThread();
+        synchronized (waitingThreads) {
+            AnalysisUnderway next = analysis;
+            while (next != null) {
+                if (next.owner == current) {
+                    return false;
+                }
+                next = waitingThreads.get(next.owner);
+            }
+            waitingThreads.put(current, analysis);
+            return true;
+        }
+    }
+
+    private AnalysisResult awaitResultOf(AnalysisUnderway analysis) {
+        try {
+            return analysis.result.join();
+        } catch (CompletionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
+        } finally {
+            synchronized (waitingThreads) {
+                waitingThreads.remove(Thread.currentThread());
+            }
+        }
     }
 
     private AnalysisResult addAnalysisResult(AnalysisResult result) {
@@ -152,6 +336,15 @@ public final class DefaultCachingAnalysisSession implements AnalysisSession {
         return result;
     }
 
+    private static final class AnalysisUnderway {
+        final Thread owner;
+        final CompletableFuture<AnalysisResult> result = new CompletableFuture<AnalysisResult>();
+
+        AnalysisUnderway(Thread owner) {
+            this.owner = owner;
+        }
+    }
+
     @Override
     public Collection<AnalysisResult> getResults() {
         return Collections.unmodifiableCollection(this.analysedClasses.asMap().values());
@@ -162,6 +355,24 @@ public final class DefaultCachingAnalysisSession implements AnalysisSession {
         return Collections.unmodifiableMap(analysedClasses.asMap());
     }
 
+    @Override
+    public DependencyGraph dependencyGraph() {
+        return dependencyGraph;
+    }
+
+    @Override
+    public AnalysisMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Closes the session's {@link ResultStore}, after which results are no longer recorded in it.
+     */
+    @Override
+    public void close() throws IOException {
+        resultStore.close();
+    }
+
     @Override
     public Collection<AnalysisError> getErrors() {
         return analysedClasses.asMap().values().stream()
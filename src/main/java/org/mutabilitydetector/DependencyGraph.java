@@ -0,0 +1,124 @@
+package org.mutabilitydetector;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import org.mutabilitydetector.locations.Dotted;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Records which classes the analysis of each class depended on.
+ * <p>
+ * A class depends on another when its analysis asked for the mutability of that other class, for example because
+ * it is the type of one of its fields. Only dependencies found by analysis within the owning session are recorded,
+ * results which were reused from a {@link org.mutabilitydetector.store.ResultStore} or hardcoded in the
+ * {@link Configuration} have none.
+ */
+@ThreadSafe
+public final class DependencyGraph {
+
+    private final ConcurrentMap<Dotted, Set<Dotted>> dependencies = new ConcurrentHashMap<Dotted, Set<Dotted>>();
+    private final ConcurrentMap<Dotted, Set<Dotted>> dependents = new ConcurrentHashMap<Dotted, Set<Dotted>>();
+
+    void recordDependencies(Dotted className, Iterable<Dotted> dependedOn) {
+        Set<Dotted> dependenciesOfClass = edgesFrom(dependencies, className);
+        for (Dotted dependency : dependedOn) {
+            dependenciesOfClass.add(dependency);
+            edgesFrom(dependents, dependency).add(className);
+        }
+    }
+
+    private static Set<Dotted> edgesFrom(ConcurrentMap<Dotted, Set<Dotted>> edges, Dotted className) {
+        return edges.computeIfAbsent(className, k -> ConcurrentHashMap.<Dotted>newKeySet());
+    }
+
+    /**
+     * The classes whose mutability was looked up while analysing the given class.
+     */
+    public Set<Dotted> dependenciesOf(Dotted className) {
+        return snapshot(dependencies, className);
+    }
+
+    /**
+     * The classes whose analysis looked up the mutability of the given class.
+     */
+    public Set<Dotted> dependentsOf(Dotted className) {
+        return snapshot(dependents, className);
+    }
+
+    /**
+     * Every class reachable by following dependencies from the given class. The given class is only included if it
+     * is part of a cycle.
+     */
+    public Set<Dotted> transitiveDependenciesOf(Dotted className) {
+        return reachableFrom(dependencies, className);
+    }
+
+    /**
+     * Every class whose result could change if the result for the given class did. The given class is only
+     * included if it is part of a cycle.
+     */
+    public Set<Dotted> transitiveDependentsOf(Dotted className) {
+        return reachableFrom(dependents, className);
+    }
+
+    /**
+     * A copy of every recorded dependency, keyed by the class which depended on them.
+     */
+    public ImmutableSetMultimap<Dotted, Dotted> dependencies() {
+        ImmutableSetMultimap.Builder<Dotted, Dotted> builder = ImmutableSetMultimap.builder();
+        for (Map.Entry<Dotted, Set<Dotted>> entry : dependencies.entrySet()) {
+            builder.putAll(entry.getKey(), entry.getValue());
+        }
+        return builder.build();
+    }
+
+    private static Set<Dotted> snapshot(ConcurrentMap<Dotted, Set<Dotted>> edges, Dotted className) {
+        Set<Dotted> edgesFromClass = edges.get(className);
+        return edgesFromClass == null ? ImmutableSet.<Dotted>of() : ImmutableSet.copyOf(edgesFromClass);
+    }
+
+    private static Set<Dotted> reachableFrom(ConcurrentMap<Dotted, Set<Dotted>> edges, Dotted start) {
+        Set<Dotted> reached = new LinkedHashSet<Dotted>();
+        Deque<Dotted> toVisit = new ArrayDeque<Dotted>();
+        toVisit.push(start);
+        while (!toVisit.isEmpty()) {
+            Set<Dotted> next = edges.getOrDefault(toVisit.pop(), Collections.<Dotted>emptySet());
+            for (Dotted className : next) {
+                if (reached.add(className)) {
+                    toVisit.push(className);
+                }
+            }
+        }
+        return Collections.unmodifiableSet(reached);
+    }
+}
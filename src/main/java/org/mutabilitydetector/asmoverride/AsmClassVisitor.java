@@ -20,10 +20,17 @@ package org.mutabilitydetector.asmoverride;
  * #L%
  */
 
+import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.Opcodes;
 
 public abstract class AsmClassVisitor extends ClassVisitor {
+
+    /**
+     * Parsing options for a visitor which only reads the declarations of a class, and none of its method code.
+     */
+    protected static final int DECLARATIONS_ONLY = ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
+
     public AsmClassVisitor() {
         super(AsmCompatibility.AsmApiVersion);
     }
@@ -34,6 +41,17 @@ public abstract class AsmClassVisitor extends ClassVisitor {
         return ownerClass;
     }
 
+    /**
+     * The options, such as {@link ClassReader#SKIP_DEBUG}, with which a class may be parsed for this visitor, leaving
+     * out the parts of the class file it does not read. By default the whole class file is read.
+     * <p>
+     * A visitor which leaves out a part must give the same result whether or not that part is visited, as it is
+     * still visited when parsed alongside visitors which read it.
+     */
+    public int parsingOptions() {
+        return 0;
+    }
+
     @Override
     public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
         ownerClass = name;
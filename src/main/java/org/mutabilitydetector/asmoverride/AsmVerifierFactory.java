@@ -29,6 +29,11 @@ public interface AsmVerifierFactory {
     Interpreter<BasicValue> interpreter();
 
     enum ClassloadingOption {
-        ENABLED, DISABLED
+        ENABLED, DISABLED,
+        /**
+         * Load classes, but without initialising them, and without keeping them reachable once analysis no longer
+         * refers to them.
+         */
+        WITHOUT_INITIALISATION
     }
 }
@@ -0,0 +1,110 @@
+package org.mutabilitydetector.asmoverride;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.mutabilitydetector.asm.typehierarchy.TypeHierarchy;
+import org.mutabilitydetector.asm.typehierarchy.TypeHierarchyReader;
+import org.mutabilitydetector.store.ClassesConsulted;
+import org.objectweb.asm.Type;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A {@link TypeHierarchyReader} which remembers the hierarchies read by another, and the answers to assignability
+ * questions asked of it, so that they can be shared by every interpreter created during an analysis session.
+ * <p>
+ * Both caches are bounded, with the least recently used entries evicted first. Every type asked about is reported
+ * to {@link ClassesConsulted}, whether or not the answer was already known.
+ */
+@ThreadSafe
+public final class CachingTypeHierarchyReader extends TypeHierarchyReader {
+
+    public static final long DEFAULT_MAXIMUM_HIERARCHIES = 20000;
+    public static final long DEFAULT_MAXIMUM_ASSIGNABILITIES = 100000;
+
+    private final TypeHierarchyReader baseReader;
+    private final Cache<Type, TypeHierarchy> hierarchies;
+    private final Cache<Assignability, Boolean> assignabilities;
+
+    public CachingTypeHierarchyReader(TypeHierarchyReader baseReader, long maximumHierarchies, long maximumAssignabilities) {
+        this.baseReader = baseReader;
+        this.hierarchies = CacheBuilder.newBuilder().maximumSize(maximumHierarchies).build();
+        this.assignabilities = CacheBuilder.newBuilder().maximumSize(maximumAssignabilities).build();
+    }
+
+    public CachingTypeHierarchyReader(TypeHierarchyReader baseReader) {
+        this(baseReader, DEFAULT_MAXIMUM_HIERARCHIES, DEFAULT_MAXIMUM_ASSIGNABILITIES);
+    }
+
+    @Override
+    public TypeHierarchy hierarchyOf(Type t) {
+        ClassesConsulted.consulted(t);
+        TypeHierarchy hierarchy = hierarchies.getIfPresent(t);
+        if (hierarchy == null) {
+            hierarchy = baseReader.hierarchyOf(t);
+            hierarchies.put(t, hierarchy);
+        }
+        return hierarchy;
+    }
+
+    @Override
+    public boolean isAssignableFrom(Type t, Type u) {
+        ClassesConsulted.consulted(t);
+        ClassesConsulted.consulted(u);
+        Assignability assignability = new Assignability(t, u);
+        Boolean isAssignable = assignabilities.getIfPresent(assignability);
+        if (isAssignable == null) {
+            isAssignable = super.isAssignableFrom(t, u);
+            assignabilities.put(assignability, isAssignable);
+        }
+        return isAssignable;
+    }
+
+    @Immutable
+    private static final class Assignability {
+        private final Type to;
+        private final Type from;
+
+        Assignability(Type to, Type from) {
+            this.to = to;
+            this.from = from;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Assignability)) return false;
+            Assignability other = (Assignability) obj;
+            return Objects.equal(to, other.to) && Objects.equal(from, other.from);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(to, from);
+        }
+    }
+}
@@ -23,10 +23,15 @@ package org.mutabilitydetector.asmoverride;
 
 
 import org.mutabilitydetector.classloading.AnalysisClassLoader;
+import org.mutabilitydetector.jfr.AnalysisEvents.VerifierClassLoad;
+import org.mutabilitydetector.store.ClassesConsulted;
 import org.objectweb.asm.tree.analysis.BasicValue;
 import org.objectweb.asm.tree.analysis.Interpreter;
 import org.objectweb.asm.tree.analysis.SimpleVerifier;
 
+import static org.mutabilitydetector.jfr.AnalysisEvents.analysisEvents;
+import static org.mutabilitydetector.locations.Dotted.dotted;
+
 public class ClassLoadingVerifierFactory implements AsmVerifierFactory {
 
     private final AnalysisClassLoader classLoader;
@@ -41,7 +46,16 @@ public class ClassLoadingVerifierFactory implements AsmVerifierFactory {
         simpleVerifier.setClassLoader(new ClassLoader() {
             @Override
             public Class<?> loadClass(String name) throws ClassNotFoundException {
-                return classLoader.loadClass(name);
+                ClassesConsulted.consulted(dotted(name));
+                VerifierClassLoad event = analysisEvents().beginVerifierClassLoad(name);
+                boolean loaded = false;
+                try {
+                    Class<?> loadedClass = classLoader.loadClass(name);
+                    loaded = true;
+                    return loadedClass;
+                } finally {
+                    event.end(loaded);
+                }
             }
         });
         return simpleVerifier;
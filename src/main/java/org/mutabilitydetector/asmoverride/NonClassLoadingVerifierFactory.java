@@ -22,10 +22,11 @@ package org.mutabilitydetector.asmoverride;
 
 
 import com.google.classpath.ClassPath;
+import com.google.common.base.Optional;
 import org.mutabilitydetector.asm.tree.analysis.NonClassloadingSimpleVerifier;
-import org.mutabilitydetector.asm.typehierarchy.ConcurrentMapCachingTypeHierarchyReader;
-import org.mutabilitydetector.asm.typehierarchy.IsAssignableFromCachingTypeHierarchyReader;
+import org.mutabilitydetector.asm.typehierarchy.TypeHierarchy;
 import org.mutabilitydetector.asm.typehierarchy.TypeHierarchyReader;
+import org.mutabilitydetector.classloading.TypeHierarchyIndex;
 import org.mutabilitydetector.locations.Dotted;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Type;
@@ -33,34 +34,79 @@ import org.objectweb.asm.tree.analysis.BasicValue;
 import org.objectweb.asm.tree.analysis.Interpreter;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mutabilitydetector.classloading.ClassPathResources.bytesOf;
 
 public class NonClassLoadingVerifierFactory implements AsmVerifierFactory {
 
-    private final FromConfiguredClassPathTypeHierarchyReader typeHierarchyReader;
+    private final TypeHierarchyReader typeHierarchyReader;
 
     public NonClassLoadingVerifierFactory(ClassPath classPath) {
-        this.typeHierarchyReader = new FromConfiguredClassPathTypeHierarchyReader(classPath);
+        this(classPath, Optional.<TypeHierarchyIndex>absent());
+    }
+
+    /**
+     * Takes the hierarchies of classes held in the given index from it, only reading classes which are not indexed.
+     */
+    public NonClassLoadingVerifierFactory(ClassPath classPath, TypeHierarchyIndex typeHierarchyIndex) {
+        this(classPath, Optional.of(typeHierarchyIndex));
+    }
+
+    private NonClassLoadingVerifierFactory(ClassPath classPath, Optional<TypeHierarchyIndex> typeHierarchyIndex) {
+        this.typeHierarchyReader = new CachingTypeHierarchyReader(
+            new FromConfiguredClassPathTypeHierarchyReader(classPath, typeHierarchyIndex));
     }
 
     @Override
     public Interpreter<BasicValue> interpreter() {
-        return new NonClassloadingSimpleVerifier(
-            new IsAssignableFromCachingTypeHierarchyReader(
-                new ConcurrentMapCachingTypeHierarchyReader(
-                    typeHierarchyReader)));
+        return new NonClassloadingSimpleVerifier(typeHierarchyReader);
     }
 
     private static final class FromConfiguredClassPathTypeHierarchyReader extends TypeHierarchyReader {
 
         private final ClassPath classPath;
+        private final Optional<TypeHierarchyIndex> typeHierarchyIndex;
 
-        public FromConfiguredClassPathTypeHierarchyReader(ClassPath classPath) {
+        public FromConfiguredClassPathTypeHierarchyReader(ClassPath classPath, Optional<TypeHierarchyIndex> typeHierarchyIndex) {
             this.classPath = classPath;
+            this.typeHierarchyIndex = typeHierarchyIndex;
+        }
+
+        @Override
+        public TypeHierarchy hierarchyOf(Type t) {
+            if (t.getSort() == Type.OBJECT && typeHierarchyIndex.isPresent()) {
+                TypeHierarchyIndex index = typeHierarchyIndex.get();
+                int id = index.idOf(t.getInternalName());
+                if (index.isIndexed(id)) {
+                    return hierarchyFromIndex(index, id);
+                }
+            }
+            return super.hierarchyOf(t);
+        }
+
+        private static TypeHierarchy hierarchyFromIndex(TypeHierarchyIndex index, int id) {
+            boolean isInterface = index.isInterface(id);
+            int superclass = isInterface ? TypeHierarchyIndex.NO_CLASS : index.superclassOf(id);
+            List<Type> interfaces = new ArrayList<Type>();
+            for (int interfaceId : index.interfacesOf(id)) {
+                interfaces.add(Type.getObjectType(index.nameOf(interfaceId)));
+            }
+            return new TypeHierarchy(
+                Type.getObjectType(index.nameOf(id)),
+                superclass == TypeHierarchyIndex.NO_CLASS ? null : Type.getObjectType(index.nameOf(superclass)),
+                interfaces,
+                isInterface);
         }
 
         @Override
         protected ClassReader reader(Type t) throws IOException {
-            return new ClassReader(classPath.getResourceAsStream(Dotted.fromType(t).asResource()));
+            byte[] classFile = bytesOf(classPath, Dotted.fromType(t).asResource());
+            if (classFile == null) {
+                throw new IOException("Class not found: " + t.getClassName());
+            }
+            return new ClassReader(classFile);
         }
     }
 }
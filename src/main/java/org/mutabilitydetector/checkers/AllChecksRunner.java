@@ -21,8 +21,8 @@ package org.mutabilitydetector.checkers;
  */
 
 
-import com.google.common.collect.ImmutableList;
 import org.mutabilitydetector.AnalysisError;
+import org.mutabilitydetector.AnalysisMetrics;
 import org.mutabilitydetector.AnalysisResult;
 import org.mutabilitydetector.IsImmutable;
 import org.mutabilitydetector.MutableReasonDetail;
@@ -30,13 +30,17 @@ import org.mutabilitydetector.asmoverride.AsmVerifierFactory;
 import org.mutabilitydetector.checkers.info.AnalysisDatabase;
 import org.mutabilitydetector.checkers.info.AnalysisInProgress;
 import org.mutabilitydetector.checkers.info.MutableTypeInformation;
+import org.mutabilitydetector.jfr.AnalysisEvents.ClassAnalysis;
 import org.mutabilitydetector.locations.Dotted;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Maps.newHashMap;
+import static java.util.Collections.singletonList;
+import static org.mutabilitydetector.jfr.AnalysisEvents.analysisEvents;
 
 public final class AllChecksRunner {
 
@@ -44,41 +48,89 @@ public final class AllChecksRunner {
     private final CheckerRunnerFactory checkerRunnerFactory;
     private final AsmVerifierFactory verifierFactory;
     private final Dotted toAnalyse;
+    private final AnalysisMetrics metrics;
+    private final AnalysisMode analysisMode;
 
     public AllChecksRunner(MutabilityCheckerFactory checkerFactory,
             CheckerRunnerFactory checkerRunnerFactory,
             AsmVerifierFactory verifierFactory,
             Dotted toAnalyse) {
+        this(checkerFactory, checkerRunnerFactory, verifierFactory, toAnalyse, AnalysisMetrics.disabled());
+    }
+
+    public AllChecksRunner(MutabilityCheckerFactory checkerFactory,
+            CheckerRunnerFactory checkerRunnerFactory,
+            AsmVerifierFactory verifierFactory,
+            Dotted toAnalyse,
+            AnalysisMetrics metrics) {
+        this(checkerFactory, checkerRunnerFactory, verifierFactory, toAnalyse, metrics, AnalysisMode.FULL);
+    }
+
+    public AllChecksRunner(MutabilityCheckerFactory checkerFactory,
+            CheckerRunnerFactory checkerRunnerFactory,
+            AsmVerifierFactory verifierFactory,
+            Dotted toAnalyse,
+            AnalysisMetrics metrics,
+            AnalysisMode analysisMode) {
         this.factory = checkerFactory;
         this.checkerRunnerFactory = checkerRunnerFactory;
         this.verifierFactory = verifierFactory;
         this.toAnalyse = toAnalyse;
+        this.metrics = metrics;
+        this.analysisMode = analysisMode;
     }
 
-    public AnalysisResult runCheckers(ImmutableList<AnalysisResult> knownResultsSoFar,
+    /**
+     * How much of the analysis of a class is done once its result is known.
+     */
+    public enum AnalysisMode {
+        /**
+         * Every checker is run, so the result has every reason the class is not immutable.
+         */
+        FULL,
+        /**
+         * Checkers are run in stages, cheapest first, and no further stage is run once one checker has found the
+         * class to be {@link IsImmutable#NOT_IMMUTABLE}. Any other result is the same as in {@link #FULL} mode, but
+         * a result of NOT_IMMUTABLE may leave out reasons, and errors, of the checkers which were not run.
+         *
+         * @see MutabilityCheckerFactory#createInstancesInStagesOfCost
+         */
+        VERDICT_ONLY
+    }
+
+    /**
+     * Known results are only read to describe an unhandled error, so a live view of the results of a session may be
+     * given rather than a copy.
+     */
+    public AnalysisResult runCheckers(Iterable<AnalysisResult> knownResultsSoFar,
                                       AnalysisDatabase database,
                                       MutableTypeInformation mutableTypeInformation,
                                       AnalysisInProgress analysisInProgress) {
+        ClassAnalysis event = analysisEvents().beginClassAnalysis(toAnalyse);
         Map<IsImmutable, Integer> results = newHashMap();
         Collection<MutableReasonDetail> reasons = newArrayList();
         Collection<AnalysisError> errors = newArrayList();
 
-        Iterable<AsmMutabilityChecker> checkers = factory.createInstances(
-                database,
-                verifierFactory,
-                mutableTypeInformation,
-                analysisInProgress);
-
-        CheckerRunner checkerRunner = checkerRunnerFactory.createRunner();
-
-        for (AsmMutabilityChecker checker : checkers) {
-            CheckerResult checkerResult = checkerRunner.run(checker, toAnalyse, knownResultsSoFar);
-            results.put(checkerResult.isImmutable, getNewCount(results, checkerResult.isImmutable));
-            reasons.addAll(checkerResult.reasons);
-            errors.addAll(checkerResult.errors);
+        CheckerRunner checkerRunner = checkerRunnerFactory.createRunner().measuredBy(metrics).readingEachClassOnce();
+        ClassFeatures features = checkerRunner.featuresOf(toAnalyse);
+
+        List<List<AsmMutabilityChecker>> stages = analysisMode == AnalysisMode.VERDICT_ONLY
+                ? factory.createInstancesInStagesOfCost(database, verifierFactory, mutableTypeInformation, analysisInProgress, features)
+                : singletonList(newArrayList(factory.createInstances(database, verifierFactory, mutableTypeInformation, analysisInProgress, features)));
+
+        for (List<AsmMutabilityChecker> checkers : stages) {
+            for (CheckerResult checkerResult : checkerRunner.run(checkers, toAnalyse, knownResultsSoFar)) {
+                results.put(checkerResult.isImmutable, getNewCount(results, checkerResult.isImmutable));
+                reasons.addAll(checkerResult.reasons);
+                errors.addAll(checkerResult.errors);
+            }
+            if (results.containsKey(IsImmutable.NOT_IMMUTABLE)) {
+                break;
+            }
         }
 
         IsImmutable isImmutable = new ResultCalculator().calculateImmutableStatus(results);
+        event.end(isImmutable);
 
         return AnalysisResult.analysisResult(toAnalyse, isImmutable, reasons, errors);
     }
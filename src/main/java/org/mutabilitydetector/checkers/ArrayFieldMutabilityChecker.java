@@ -33,6 +33,11 @@ import org.objectweb.asm.Type;
 
 public class ArrayFieldMutabilityChecker extends AsmMutabilityChecker {
 
+    @Override
+    public int parsingOptions() {
+        return DECLARATIONS_ONLY;
+    }
+
     @Override
     public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
         /*
@@ -34,6 +34,11 @@ public final class CanSubclassChecker extends AsmMutabilityChecker {
     private boolean isFinal = true;
     private boolean hasOnlyPrivateConstructors = true;
     
+    @Override
+    public int parsingOptions() {
+        return DECLARATIONS_ONLY;
+    }
+
     @Override
     public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
         super.visit(version, access, name, signature, superName, interfaces);
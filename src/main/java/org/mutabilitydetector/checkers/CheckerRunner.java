@@ -24,9 +24,13 @@ package org.mutabilitydetector.checkers;
 import com.google.classpath.ClassPath;
 import com.google.classpath.ClassPathFactory;
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
 import org.mutabilitydetector.AnalysisError;
+import org.mutabilitydetector.AnalysisMetrics;
 import org.mutabilitydetector.AnalysisResult;
 import org.mutabilitydetector.asmoverride.AsmClassVisitor;
+import org.mutabilitydetector.jfr.AnalysisEvents.CheckerRun;
+import org.mutabilitydetector.jfr.AnalysisEvents.ClassBytesRead;
 import org.mutabilitydetector.locations.CodeLocation;
 import org.mutabilitydetector.locations.Dotted;
 import org.objectweb.asm.ClassReader;
@@ -34,54 +38,148 @@ import org.objectweb.asm.ClassVisitor;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static java.lang.String.format;
 import static java.util.Collections.singleton;
 import static org.mutabilitydetector.MutabilityReason.CANNOT_ANALYSE;
 import static org.mutabilitydetector.MutableReasonDetail.newMutableReasonDetail;
 import static org.mutabilitydetector.checkers.CheckerRunner.ExceptionPolicy.FAIL_FAST;
+import static org.mutabilitydetector.classloading.ClassPathResources.bytesOf;
+import static org.mutabilitydetector.jfr.AnalysisEvents.analysisEvents;
 
 public final class CheckerRunner {
 
     private final ClassPath classpath;
     private final UnhandledExceptionBuilder unhandledExceptionBuilder;
     private final ExceptionPolicy exceptionPolicy;
+    private final AnalysisMetrics metrics;
+    private final Optional<Map<Dotted, byte[]>> classFilesRead;
 
-    private CheckerRunner(ClassPath classpath, UnhandledExceptionBuilder unhandledExceptionBuilder, ExceptionPolicy exceptionPolicy) {
+    private CheckerRunner(ClassPath classpath,
+                          UnhandledExceptionBuilder unhandledExceptionBuilder,
+                          ExceptionPolicy exceptionPolicy,
+                          AnalysisMetrics metrics,
+                          Optional<Map<Dotted, byte[]>> classFilesRead) {
         this.classpath = classpath;
         this.unhandledExceptionBuilder = unhandledExceptionBuilder;
         this.exceptionPolicy = exceptionPolicy;
+        this.metrics = metrics;
+        this.classFilesRead = classFilesRead;
     }
 
     public static CheckerRunner createWithClasspath(ClassPath classpath, ExceptionPolicy exceptionPolicy) {
-        return new CheckerRunner(classpath, new UnhandledExceptionBuilder(), exceptionPolicy);
+        return new CheckerRunner(classpath, new UnhandledExceptionBuilder(), exceptionPolicy, AnalysisMetrics.disabled(),
+                Optional.<Map<Dotted, byte[]>>absent());
     }
 
     public static CheckerRunner createWithCurrentClasspath(ExceptionPolicy exceptionPolicy) {
         return createWithClasspath(new ClassPathFactory().createFromJVM(), exceptionPolicy);
     }
     
+    /**
+     * A runner like this one which records the bytes it reads, and the time taken by each checker, in the given metrics.
+     */
+    public CheckerRunner measuredBy(AnalysisMetrics metrics) {
+        return new CheckerRunner(classpath, unhandledExceptionBuilder, exceptionPolicy, metrics, classFilesRead);
+    }
+
+    /**
+     * A runner like this one which reads each class from the class path only once, for the analysis of a single
+     * class, where the class is scanned for its {@link ClassFeatures} and then has checkers run over it in one or
+     * more stages. Unlike other runners, it must not be shared between threads.
+     */
+    public CheckerRunner readingEachClassOnce() {
+        return new CheckerRunner(classpath, unhandledExceptionBuilder, exceptionPolicy, metrics,
+                Optional.<Map<Dotted, byte[]>>of(new HashMap<Dotted, byte[]>()));
+    }
+
     public enum ExceptionPolicy {
         FAIL_FAST, CARRY_ON
     }
 
     public CheckerResult run(AsmMutabilityChecker checker, Dotted className, Iterable<AnalysisResult> resultsSoFar) {
+        CheckerRun event = analysisEvents().beginCheckerRun(className, checker.getClass().getSimpleName());
         Optional<AnalysisError> potentialError = runVisitor(checker, className, resultsSoFar);
 
-        if (potentialError.isPresent()) {
-            return new CheckerResult(
-                    CANNOT_ANALYSE.createsResult(),
-                    singleton(newMutableReasonDetail("Encountered an unhandled error in analysis.", codeLocationOf(className), CANNOT_ANALYSE)),
-                    singleton(potentialError.get()));
-        } else {
-            return checker.checkerResult();
+        CheckerResult result = potentialError.isPresent()
+                ? errorResult(className, potentialError.get())
+                : checker.checkerResult();
+        event.end(result.isImmutable);
+        return result;
+    }
+
+    /**
+     * Runs all the given checkers over a single parse of the class, returning their results in the same order.
+     * <p>
+     * A checker which fails is handled as if it had been run on its own through
+     * {@link #run(AsmMutabilityChecker, Dotted, Iterable)}, without affecting the other checkers.
+     */
+    public List<CheckerResult> run(Iterable<? extends AsmMutabilityChecker> checkers, Dotted className, Iterable<AnalysisResult> resultsSoFar) {
+        List<AsmMutabilityChecker> toRun = ImmutableList.copyOf(checkers);
+        MultiplexingClassVisitor multiplexer = new MultiplexingClassVisitor(toRun, metrics);
+        List<CheckerRun> events = new ArrayList<CheckerRun>(toRun.size());
+        for (AsmMutabilityChecker checker : toRun) {
+            events.add(analysisEvents().beginCheckerRun(className, checker.getClass().getSimpleName()));
+        }
+        Throwable readFailure = null;
+        try {
+            classReaderFor(className).accept(multiplexer, sharedParsingOptions(toRun));
+        } catch (Throwable e) {
+            readFailure = e;
+        }
+
+        ImmutableList.Builder<CheckerResult> results = ImmutableList.builder();
+        for (int i = 0; i < toRun.size(); i++) {
+            AsmMutabilityChecker checker = toRun.get(i);
+            metrics.recordCheckerRun(checker.getClass().getSimpleName(), multiplexer.nanosSpentIn(checker));
+            Throwable failure = readFailure != null ? readFailure : multiplexer.failureOf(checker);
+            CheckerResult result = failure != null
+                    ? errorResult(className, attemptRecovery(checker, className, resultsSoFar, failure))
+                    : checker.checkerResult();
+            events.get(i).end(result.isImmutable);
+            results.add(result);
+        }
+        return results.build();
+    }
+
+    /**
+     * The features of the class, or {@link ClassFeatures#unknown()} if it cannot be read, leaving the failure to be
+     * reported by the checkers run over it.
+     */
+    public ClassFeatures featuresOf(Dotted className) {
+        try {
+            return ClassFeatures.of(classReaderFor(className));
+        } catch (Exception e) {
+            return ClassFeatures.unknown();
         }
     }
 
+    /**
+     * Parts of the class file are only left out of a parse when every checker run over it leaves them out.
+     */
+    private static int sharedParsingOptions(List<AsmMutabilityChecker> checkers) {
+        int options = ~0;
+        for (AsmMutabilityChecker checker : checkers) {
+            options &= checker.parsingOptions();
+        }
+        return checkers.isEmpty() ? 0 : options;
+    }
+
+    private CheckerResult errorResult(Dotted className, AnalysisError error) {
+        return new CheckerResult(
+                CANNOT_ANALYSE.createsResult(),
+                singleton(newMutableReasonDetail("Encountered an unhandled error in analysis.", codeLocationOf(className), CANNOT_ANALYSE)),
+                singleton(error));
+    }
+
     public Optional<AnalysisError> runVisitor(AsmClassVisitor visitor, Dotted className, Iterable<AnalysisResult> resultsSoFar) {
         try {
             try {
-                analyseFromStream(visitor, className);
+                analyseFromClassPath(visitor, className);
             } catch (Exception e) {
                 analyseFromClassLoader(visitor, className);
             }
@@ -97,19 +195,49 @@ public final class CheckerRunner {
                 : CodeLocation.UnknownCodeLocation.UNKNOWN;
     }
 
-    private void analyseFromStream(ClassVisitor checker, Dotted dottedClassPath) throws IOException {
-        InputStream classStream = classpath.getResourceAsStream(dottedClassPath.asResource());
-        analyse(checker, classStream);
+    private void analyseFromClassPath(AsmClassVisitor checker, Dotted className) throws IOException {
+        new ClassReader(fromClassPath(className)).accept(checker, checker.parsingOptions());
     }
 
-    private void analyseFromClassLoader(ClassVisitor checker, Dotted className) throws Exception {
+    private void analyseFromClassLoader(AsmClassVisitor checker, Dotted className) throws Exception {
         InputStream classStream = getClass().getClassLoader().getResourceAsStream(className.asResource());
         analyse(checker, classStream);
     }
 
-    private void analyse(ClassVisitor checker, InputStream classStream) throws IOException {
+    private ClassReader classReaderFor(Dotted className) throws IOException {
+        try {
+            return new ClassReader(fromClassPath(className));
+        } catch (Exception e) {
+            return new ClassReader(getClass().getClassLoader().getResourceAsStream(className.asResource()));
+        }
+    }
+
+    private byte[] fromClassPath(Dotted className) throws IOException {
+        if (!classFilesRead.isPresent()) {
+            return readFromClassPath(className);
+        }
+        byte[] classFile = classFilesRead.get().get(className);
+        if (classFile == null) {
+            classFile = readFromClassPath(className);
+            classFilesRead.get().put(className, classFile);
+        }
+        return classFile;
+    }
+
+    private byte[] readFromClassPath(Dotted className) throws IOException {
+        ClassBytesRead event = analysisEvents().beginClassBytesRead(className);
+        byte[] classFile = bytesOf(classpath, className.asResource());
+        event.end(classFile == null ? 0 : classFile.length);
+        if (classFile == null) {
+            throw new IOException("Class not found on class path: " + className);
+        }
+        metrics.recordBytesRead(classFile.length);
+        return classFile;
+    }
+
+    private void analyse(AsmClassVisitor checker, InputStream classStream) throws IOException {
         ClassReader cr = new ClassReader(classStream);
-        cr.accept(checker, 0);
+        cr.accept(checker, checker.parsingOptions());
     }
 
     private AnalysisError attemptRecovery(ClassVisitor visitor,
@@ -0,0 +1,159 @@
+package org.mutabilitydetector.checkers;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import com.google.common.collect.ImmutableSet;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A summary of what the code of a class may do, found by scanning its constant pool and field table without reading
+ * any of its methods. {@link MutabilityCheckerFactory} uses it to leave out checkers which could not report on the
+ * class.
+ * <p>
+ * Every field instruction refers to a field reference in the constant pool, so a class with no field reference which
+ * could name an instance field cannot assign to one. A field reference names an instance field unless it is a static
+ * field declared by the class itself: any other field could be an instance field of this class, of a superclass, or
+ * of another object.
+ */
+@Immutable
+public final class ClassFeatures {
+
+    private static final ClassFeatures UNKNOWN = new ClassFeatures(true, true, true);
+
+    /**
+     * Final types which cannot have a collection assigned to them.
+     */
+    private static final ImmutableSet<String> CANNOT_HOLD_COLLECTION = ImmutableSet.of(
+            "Ljava/lang/String;",
+            "Ljava/lang/Boolean;",
+            "Ljava/lang/Byte;",
+            "Ljava/lang/Character;",
+            "Ljava/lang/Short;",
+            "Ljava/lang/Integer;",
+            "Ljava/lang/Long;",
+            "Ljava/lang/Float;",
+            "Ljava/lang/Double;");
+
+    private static final int FIELDREF_TAG = 9;
+
+    private final boolean mayAssignFields;
+    private final boolean mayAssignReferenceToField;
+    private final boolean mayAssignCollectionToField;
+
+    private ClassFeatures(boolean mayAssignFields, boolean mayAssignReferenceToField, boolean mayAssignCollectionToField) {
+        this.mayAssignFields = mayAssignFields;
+        this.mayAssignReferenceToField = mayAssignReferenceToField;
+        this.mayAssignCollectionToField = mayAssignCollectionToField;
+    }
+
+    /**
+     * Features to assume of a class which has not been scanned, with which no checker is left out.
+     */
+    public static ClassFeatures unknown() {
+        return UNKNOWN;
+    }
+
+    public static ClassFeatures of(ClassReader classReader) {
+        Set<Integer> ownStaticFields = staticFieldsDeclaredBy(classReader);
+        int thisClass = classReader.readUnsignedShort(classReader.header + 2);
+        char[] buffer = new char[classReader.getMaxStringLength()];
+
+        boolean mayAssignFields = false;
+        boolean mayAssignReferenceToField = false;
+        boolean mayAssignCollectionToField = false;
+
+        for (int item = 1; item < classReader.getItemCount(); item++) {
+            int offset = classReader.getItem(item);
+            if (offset == 0 || classReader.readByte(offset - 1) != FIELDREF_TAG) { continue; }
+
+            int nameAndType = classReader.getItem(classReader.readUnsignedShort(offset + 2));
+            if (classReader.readUnsignedShort(offset) == thisClass
+                    && ownStaticFields.contains(nameAndDescriptorIndices(classReader, nameAndType))) {
+                continue;
+            }
+
+            String desc = classReader.readUTF8(nameAndType + 2, buffer);
+            mayAssignFields = true;
+            mayAssignReferenceToField |= desc.charAt(0) == 'L' || desc.charAt(0) == '[';
+            mayAssignCollectionToField |= desc.charAt(0) == 'L' && !CANNOT_HOLD_COLLECTION.contains(desc);
+        }
+
+        return new ClassFeatures(mayAssignFields, mayAssignReferenceToField, mayAssignCollectionToField);
+    }
+
+    /**
+     * The static fields declared by the class, by the constant pool indices of their name and descriptor. Compilers
+     * share these entries with the field references to the field; where they are not shared, the references are only
+     * taken to name some other field, which may be an instance field.
+     */
+    private static Set<Integer> staticFieldsDeclaredBy(ClassReader classReader) {
+        Set<Integer> staticFields = new HashSet<Integer>();
+        int offset = classReader.header + 6;
+        offset += 2 + 2 * classReader.readUnsignedShort(offset);
+
+        int fieldCount = classReader.readUnsignedShort(offset);
+        offset += 2;
+        for (int field = 0; field < fieldCount; field++) {
+            if ((classReader.readUnsignedShort(offset) & Opcodes.ACC_STATIC) != 0) {
+                staticFields.add(nameAndDescriptorIndices(classReader, offset + 2));
+            }
+            int attributeCount = classReader.readUnsignedShort(offset + 6);
+            offset += 8;
+            for (int attribute = 0; attribute < attributeCount; attribute++) {
+                offset += 6 + classReader.readInt(offset + 2);
+            }
+        }
+        return staticFields;
+    }
+
+    private static Integer nameAndDescriptorIndices(ClassReader classReader, int offset) {
+        return classReader.readInt(offset);
+    }
+
+    /**
+     * Whether any method may assign to an instance field, of this class or of another object.
+     */
+    public boolean mayAssignFields() {
+        return mayAssignFields;
+    }
+
+    /**
+     * Whether any method may assign an object or an array to an instance field.
+     */
+    public boolean mayAssignReferenceToField() {
+        return mayAssignReferenceToField;
+    }
+
+    /**
+     * Whether any method may assign to an instance field of a type which a collection could be assigned to.
+     */
+    public boolean mayAssignCollectionToField() {
+        return mayAssignCollectionToField;
+    }
+
+}
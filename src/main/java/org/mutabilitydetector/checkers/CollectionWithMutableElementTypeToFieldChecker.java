@@ -30,6 +30,7 @@ import org.mutabilitydetector.checkers.info.MutableTypeInformation;
 import org.mutabilitydetector.checkers.info.MutableTypeInformation.MutabilityLookup;
 import org.mutabilitydetector.locations.CodeLocation.ClassLocation;
 import org.mutabilitydetector.locations.Dotted;
+import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.FieldVisitor;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Type;
@@ -48,7 +49,7 @@ import static org.mutabilitydetector.locations.Dotted.dotted;
 public final class CollectionWithMutableElementTypeToFieldChecker extends AsmMutabilityChecker {
 
     private final MutableTypeInformation mutableTypeInfo;
-    private final AsmVerifierFactory verifierFactory;
+    private final MethodFrames methodFrames;
     private final ImmutableSet<Dotted> immutableContainerTypes;
     private final JdkCollectionTypes jdkCollectionTypes = new JdkCollectionTypes();
     
@@ -60,12 +61,25 @@ public final class CollectionWithMutableElementTypeToFieldChecker extends AsmMut
             AsmVerifierFactory verifierFactory,
             ImmutableSet<Dotted> immutableContainerTypes,
             AnalysisInProgress analysisInProgress) {
+        this(mutableTypeInfo, new MethodFrames(verifierFactory), immutableContainerTypes, analysisInProgress);
+    }
+
+    public CollectionWithMutableElementTypeToFieldChecker(
+            MutableTypeInformation mutableTypeInfo,
+            MethodFrames methodFrames,
+            ImmutableSet<Dotted> immutableContainerTypes,
+            AnalysisInProgress analysisInProgress) {
         this.mutableTypeInfo = mutableTypeInfo;
-        this.verifierFactory = verifierFactory;
+        this.methodFrames = methodFrames;
         this.immutableContainerTypes = immutableContainerTypes;
         this.analysisInProgress = analysisInProgress;
     }
 
+    @Override
+    public int parsingOptions() {
+        return ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
+    }
+
     @Override
     public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
         fieldSignatures.put(name, signature);
@@ -74,10 +88,10 @@ public final class CollectionWithMutableElementTypeToFieldChecker extends AsmMut
     
     @Override
     public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
-        return new AssignCollectionToFieldVisitor(ownerClass, access, name, desc, signature, exceptions, verifierFactory);
+        return new AssignCollectionToFieldVisitor(ownerClass, access, name, desc, signature, exceptions, methodFrames);
     }
 
-    class AssignCollectionToFieldVisitor extends FieldAssignmentVisitor {
+    class AssignCollectionToFieldVisitor extends FieldAssignmentTreeVisitor {
 
         public AssignCollectionToFieldVisitor(String owner,
                 int access,
@@ -85,8 +99,8 @@ public final class CollectionWithMutableElementTypeToFieldChecker extends AsmMut
                 String desc,
                 String signature,
                 String[] exceptions, 
-                AsmVerifierFactory verifierFactory) {
-            super(owner, access, name, desc, signature, exceptions, verifierFactory);
+                MethodFrames methodFrames) {
+            super(owner, access, name, desc, signature, exceptions, methodFrames);
         }
 
         @Override
@@ -26,7 +26,6 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.mutabilitydetector.MutabilityReason;
-import org.mutabilitydetector.asmoverride.AsmCompatibility;
 import org.mutabilitydetector.checkers.util.StackPushingOpcodes;
 import org.mutabilitydetector.locations.CodeLocation.ClassLocation;
 import org.objectweb.asm.MethodVisitor;
@@ -40,6 +39,15 @@ import org.objectweb.asm.tree.VarInsnNode;
 
 public final class EscapedThisReferenceChecker extends AsmMutabilityChecker {
 
+    /**
+     * The whole class is read, as the 'this' reference is only found to escape when pushed immediately before the
+     * instruction it is passed to, and line numbers and frames can come between them.
+     */
+    @Override
+    public int parsingOptions() {
+        return 0;
+    }
+
     @Override
     public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
         super.visitMethod(access, name, desc, signature, exceptions);
@@ -48,7 +56,7 @@ public final class EscapedThisReferenceChecker extends AsmMutabilityChecker {
                 : null;
     }
 
-    private final class ThisEscapingFromConstructorVistor extends MethodNode {
+    private final class ThisEscapingFromConstructorVistor extends MethodTreeVisitor {
 
         private final List<MethodInsnNode> methodCalls = new ArrayList<MethodInsnNode>();
         private final List<FieldInsnNode> fieldAssignmentsInConstructor = new ArrayList<FieldInsnNode>();
@@ -60,34 +68,28 @@ public final class EscapedThisReferenceChecker extends AsmMutabilityChecker {
                 String desc,
                 String signature,
                 String[] exceptions) {
-            super(AsmCompatibility.AsmApiVersion, access, name, desc, signature, exceptions);
+            super(access, name, desc, signature, exceptions);
         }
 
         @Override
-        public void visitMethodInsn(int opcode, String owner, String methodName, String methodDesc, boolean isInterface) {
-            super.visitMethodInsn(opcode, owner, methodName, methodDesc, isInterface);
-            if (MethodIs.aConstructor(methodName) && owner.equals("java/lang/Object")) { return; }
-            methodCalls.add((MethodInsnNode) instructions.getLast());
-        }
-
-        @Override
-        public void visitFieldInsn(int opcode, String owner, String fieldName, String fieldDesc) {
-            super.visitFieldInsn(opcode, owner, fieldName, fieldDesc);
-
-            if (opcode == Opcodes.PUTSTATIC || opcode == Opcodes.PUTFIELD) {
-                fieldAssignmentsInConstructor.add((FieldInsnNode) instructions.getLast());
+        protected void visitTree(MethodNode method) {
+            for (AbstractInsnNode instruction = method.instructions.getFirst(); instruction != null; instruction = instruction.getNext()) {
+                if (instruction instanceof MethodInsnNode) {
+                    visitMethodInsn((MethodInsnNode) instruction);
+                } else if (instruction.getOpcode() == Opcodes.PUTSTATIC || instruction.getOpcode() == Opcodes.PUTFIELD) {
+                    fieldAssignmentsInConstructor.add((FieldInsnNode) instruction);
+                }
             }
 
-        }
-
-        @Override
-        public void visitEnd() {
-            super.visitEnd();
-
             checkForPassingThisReferenceAsParameter();
             checkForSettingFieldToThisReference();
         }
 
+        private void visitMethodInsn(MethodInsnNode methodInsnNode) {
+            if (MethodIs.aConstructor(methodInsnNode.name) && methodInsnNode.owner.equals("java/lang/Object")) { return; }
+            methodCalls.add(methodInsnNode);
+        }
+
         private void checkForSettingFieldToThisReference() {
             if (fieldAssignmentsInConstructor.isEmpty()) { return; }
 
@@ -0,0 +1,109 @@
+package org.mutabilitydetector.checkers;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.objectweb.asm.tree.analysis.BasicValue;
+import org.objectweb.asm.tree.analysis.Frame;
+
+/**
+ * Inspects the state of the stack at each assignment to a field in a method, once the method has been visited.
+ * <p>
+ * The data-flow frames of the method come from the given {@link MethodFrames}, so are computed once however many
+ * checkers inspect the method.
+ */
+public abstract class FieldAssignmentTreeVisitor extends MethodTreeVisitor {
+
+    protected final String owner;
+    private final MethodFrames methodFrames;
+
+    public FieldAssignmentTreeVisitor(String owner,
+            int access,
+            String name,
+            String desc,
+            String signature,
+            String[] exceptions,
+            MethodFrames methodFrames) {
+        super(access, name, desc, signature, exceptions);
+        this.owner = owner;
+        this.methodFrames = methodFrames;
+    }
+
+    /**
+     *
+     * At the end of a method, the frames are analysed to be able to inspect
+     * the state of the stack when the field is assigned. This method is
+     * called, giving the frame at the time of the assignment, as well as
+     * the instruction node.
+     *
+     * @param assignmentFrame
+     * @param fieldInsnNode
+     */
+    abstract protected void visitFieldAssignmentFrame(Frame<BasicValue> assignmentFrame, FieldInsnNode fieldInsnNode, BasicValue stackValue);
+
+    @Override
+    protected void visitTree(MethodNode method) {
+        List<FieldInsnNode> fieldAssignments = fieldAssignmentsIn(method);
+        if (fieldAssignments.isEmpty()) { return; }
+
+        Frame<BasicValue>[] frames;
+        try {
+            frames = methodFrames.framesOf(owner, method);
+
+            for (FieldInsnNode fieldInsnNode : fieldAssignments) {
+                Frame<BasicValue> assignmentFrame = frames[method.instructions.indexOf(fieldInsnNode)];
+                int stackSlot = assignmentFrame.getStackSize() - 1;
+                BasicValue stackValue = assignmentFrame.getStack(stackSlot);
+                visitFieldAssignmentFrame(assignmentFrame, fieldInsnNode, stackValue);
+            }
+        } catch (AnalyzerException forwarded) {
+            throw new RuntimeException(forwarded);
+        }
+    }
+
+    private static List<FieldInsnNode> fieldAssignmentsIn(MethodNode method) {
+        List<FieldInsnNode> fieldAssignments = new ArrayList<FieldInsnNode>();
+        for (AbstractInsnNode instruction = method.instructions.getFirst(); instruction != null; instruction = instruction.getNext()) {
+            if (instruction.getOpcode() == Opcodes.PUTFIELD) {
+                fieldAssignments.add((FieldInsnNode) instruction);
+            }
+        }
+        return fieldAssignments;
+    }
+
+    protected boolean isInvalidStackValue(BasicValue stackValue) {
+        return stackValue == null || "Lnull;".equals(stackValue.getType().toString());
+    }
+
+    protected BasicValue getStackValue(Frame<BasicValue> assignmentFrame) {
+        int stackSlot = assignmentFrame.getStackSize() - 1;
+        return assignmentFrame.getStack(stackSlot);
+    }
+}
@@ -30,16 +30,20 @@ import org.mutabilitydetector.asmoverride.AsmVerifierFactory;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.FieldInsnNode;
 import org.objectweb.asm.tree.MethodNode;
-import org.objectweb.asm.tree.analysis.Analyzer;
 import org.objectweb.asm.tree.analysis.AnalyzerException;
 import org.objectweb.asm.tree.analysis.BasicValue;
 import org.objectweb.asm.tree.analysis.Frame;
 
+/**
+ * @deprecated builds its own copy of each method it visits. Extend {@link FieldAssignmentTreeVisitor} instead, so
+ * that checkers run in the same pass share one.
+ */
+@Deprecated
 public abstract class FieldAssignmentVisitor extends MethodNode {
 
     protected List<FieldInsnNode> fieldAssignments = new ArrayList<FieldInsnNode>();
     protected final String owner;
-    private final AsmVerifierFactory verifierFactory;
+    private final MethodFrames methodFrames;
 
     public FieldAssignmentVisitor(String owner,
             int access,
@@ -48,9 +52,19 @@ public abstract class FieldAssignmentVisitor extends MethodNode {
             String signature,
             String[] exceptions,
             AsmVerifierFactory verifierFactory) {
+        this(owner, access, name, desc, signature, exceptions, new MethodFrames(verifierFactory));
+    }
+
+    public FieldAssignmentVisitor(String owner,
+            int access,
+            String name,
+            String desc,
+            String signature,
+            String[] exceptions,
+            MethodFrames methodFrames) {
         super(AsmCompatibility.AsmApiVersion, access, name, desc, signature, exceptions);
         this.owner = owner;
-        this.verifierFactory = verifierFactory;
+        this.methodFrames = methodFrames;
     }
 
     @Override
@@ -80,10 +94,9 @@ public abstract class FieldAssignmentVisitor extends MethodNode {
 
         if (fieldAssignments.isEmpty()) { return; }
 
-        Analyzer<BasicValue> a = new Analyzer<BasicValue>(verifierFactory.interpreter());
         Frame<BasicValue>[] frames;
         try {
-            frames = a.analyze(owner, this);
+            frames = methodFrames.framesOf(owner, this);
 
             for (FieldInsnNode fieldInsnNode : fieldAssignments) {
                 Frame<BasicValue> assignmentFrame = frames[instructions.indexOf(fieldInsnNode)];
@@ -32,7 +32,10 @@ import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.*;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Optional;
+import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static org.mutabilitydetector.checkers.ImmutableCollectionChecker.UnmodifiableWrapResult.UnmodifiableWrapStatus.*;
@@ -219,6 +222,17 @@ public class ImmutableCollectionChecker {
     }
 
     private AbstractInsnNode lastMeaningfulNode(AbstractInsnNode node) {
+        return lastMeaningfulNode(node, Collections.newSetFromMap(new IdentityHashMap<AbstractInsnNode, Boolean>()));
+    }
+
+    /**
+     * Following jumps back to their labels can lead round a loop to a node already visited, in which case there is
+     * no meaningful node to find.
+     */
+    private AbstractInsnNode lastMeaningfulNode(AbstractInsnNode node, Set<AbstractInsnNode> visited) {
+        if (!visited.add(node)) {
+            return null;
+        }
         AbstractInsnNode previous = node.getPrevious();
         if (previous instanceof JumpInsnNode) {
            previous = previous.getPrevious();
@@ -235,7 +249,7 @@ public class ImmutableCollectionChecker {
         }
         return (previous instanceof LabelNode) || 
                 (previous instanceof LineNumberNode)
-                ? lastMeaningfulNode(previous)
+                ? lastMeaningfulNode(previous, visited)
                 : previous;
     }
     
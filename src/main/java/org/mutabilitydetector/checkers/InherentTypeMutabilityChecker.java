@@ -42,6 +42,11 @@ import org.mutabilitydetector.locations.CodeLocation.ClassLocation;
  */
 public final class InherentTypeMutabilityChecker extends AsmMutabilityChecker {
 
+    @Override
+    public int parsingOptions() {
+        return DECLARATIONS_ONLY;
+    }
+
     @Override
     public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
         super.visit(version, access, name, signature, superName, interfaces);
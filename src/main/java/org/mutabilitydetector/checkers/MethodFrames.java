@@ -0,0 +1,60 @@
+package org.mutabilitydetector.checkers;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import org.mutabilitydetector.asmoverride.AsmVerifierFactory;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.analysis.Analyzer;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.objectweb.asm.tree.analysis.BasicValue;
+import org.objectweb.asm.tree.analysis.Frame;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Data-flow frames of the methods visited while checking a class, computed once per method and shared between
+ * the checkers which need them.
+ * <p>
+ * Checkers run in the same pass over a class are given one copy of each method, and all of them inspect it before
+ * the next method is visited, so only the frames of the last copy are kept. Each pass builds its own copy, and the
+ * nodes in it depend on the options the pass parsed the class with, so frames are never shared between copies.
+ */
+@NotThreadSafe
+public final class MethodFrames {
+
+    private final AsmVerifierFactory verifierFactory;
+    private MethodNode lastMethod;
+    private Frame<BasicValue>[] lastFrames;
+
+    public MethodFrames(AsmVerifierFactory verifierFactory) {
+        this.verifierFactory = verifierFactory;
+    }
+
+    public Frame<BasicValue>[] framesOf(String owner, MethodNode method) throws AnalyzerException {
+        if (method != lastMethod) {
+            lastFrames = new Analyzer<BasicValue>(verifierFactory.interpreter()).analyze(owner, method);
+            lastMethod = method;
+        }
+        return lastFrames;
+    }
+}
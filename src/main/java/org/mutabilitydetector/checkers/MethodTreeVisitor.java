@@ -0,0 +1,126 @@
+package org.mutabilitydetector.checkers;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import org.mutabilitydetector.asmoverride.AsmCompatibility;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.Attribute;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.TypePath;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * A method visitor which inspects the whole method at once, as a tree of instructions, rather than event by event.
+ * <p>
+ * Visited on its own, it builds the tree from the events it is given, and passes it to {@link #visitTree(MethodNode)}
+ * at the end of the method. When returned by a checker run in the same pass as others, it is not given the events
+ * of the method: one tree is built for all the tree visitors of the method, and passed to each of them in turn. As
+ * such, subclasses should only override {@link #visitTree(MethodNode)}, and must not change the tree they are given.
+ * <p>
+ * The tree is only built once the first event arrives, so a visitor which is handed a shared tree never builds one
+ * of its own. Events arrive in the order {@link MethodVisitor} documents, so the first is one of those which may
+ * come before {@link #visitCode()}, or {@link #visitEnd()} itself.
+ */
+public abstract class MethodTreeVisitor extends MethodVisitor {
+
+    protected final int access;
+    protected final String name;
+    protected final String desc;
+    private final String signature;
+    private final String[] exceptions;
+
+    public MethodTreeVisitor(int access, String name, String desc, String signature, String[] exceptions) {
+        super(AsmCompatibility.AsmApiVersion);
+        this.access = access;
+        this.name = name;
+        this.desc = desc;
+        this.signature = signature;
+        this.exceptions = exceptions;
+    }
+
+    private void startTree() {
+        if (mv == null) {
+            mv = new MethodNode(api, access, name, desc, signature, exceptions);
+        }
+    }
+
+    @Override
+    public void visitParameter(String parameterName, int parameterAccess) {
+        startTree();
+        super.visitParameter(parameterName, parameterAccess);
+    }
+
+    @Override
+    public AnnotationVisitor visitAnnotationDefault() {
+        startTree();
+        return super.visitAnnotationDefault();
+    }
+
+    @Override
+    public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+        startTree();
+        return super.visitAnnotation(descriptor, visible);
+    }
+
+    @Override
+    public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
+        startTree();
+        return super.visitTypeAnnotation(typeRef, typePath, descriptor, visible);
+    }
+
+    @Override
+    public void visitAnnotableParameterCount(int parameterCount, boolean visible) {
+        startTree();
+        super.visitAnnotableParameterCount(parameterCount, visible);
+    }
+
+    @Override
+    public AnnotationVisitor visitParameterAnnotation(int parameter, String descriptor, boolean visible) {
+        startTree();
+        return super.visitParameterAnnotation(parameter, descriptor, visible);
+    }
+
+    @Override
+    public void visitAttribute(Attribute attribute) {
+        startTree();
+        super.visitAttribute(attribute);
+    }
+
+    @Override
+    public void visitCode() {
+        startTree();
+        super.visitCode();
+    }
+
+    @Override
+    public final void visitEnd() {
+        startTree();
+        super.visitEnd();
+        visitTree((MethodNode) mv);
+    }
+
+    /**
+     * Called once the whole method has been visited. The tree may be shared with other visitors, so is read-only.
+     */
+    protected abstract void visitTree(MethodNode method);
+}
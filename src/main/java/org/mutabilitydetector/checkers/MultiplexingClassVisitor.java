@@ -0,0 +1,624 @@
+package org.mutabilitydetector.checkers;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.mutabilitydetector.AnalysisMetrics;
+import org.mutabilitydetector.asmoverride.AsmCompatibility;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.Attribute;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.ModuleVisitor;
+import org.objectweb.asm.RecordComponentVisitor;
+import org.objectweb.asm.TypePath;
+import org.objectweb.asm.tree.MethodNode;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Drives several {@link ClassVisitor}s from a single parse of a class file.
+ * <p>
+ * Every event is forwarded to each delegate in the order they were given, including the
+ * events of nested method, field, record component and annotation visitors. A delegate which
+ * throws is isolated: it receives no further events, and the failure is kept so that the
+ * caller can handle it as if the delegate had been run on its own.
+ * <p>
+ * Each delegate method visitor is given its own copy of every {@link Label}, as tree based
+ * visitors such as {@link MethodNode} attach state to the labels they are given, and so cannot
+ * share them.
+ * <p>
+ * Delegate method visitors which are {@link MethodTreeVisitor}s are not given the events of the
+ * method. Instead one {@link MethodNode} is built from the events, and given to each of them at
+ * the end of the method, so that only one tree of each method is held however many checkers
+ * inspect it.
+ */
+@NotThreadSafe
+final class MultiplexingClassVisitor extends ClassVisitor {
+
+    private final List<Target<ClassVisitor>> delegates = new ArrayList<Target<ClassVisitor>>();
+    private final AnalysisMetrics metrics;
+
+    MultiplexingClassVisitor(Iterable<? extends ClassVisitor> visitors) {
+        this(visitors, AnalysisMetrics.disabled());
+    }
+
+    /**
+     * When the given metrics are enabled, the time spent in each delegate is measured, and can be read with
+     * {@link #nanosSpentIn(ClassVisitor)}.
+     */
+    MultiplexingClassVisitor(Iterable<? extends ClassVisitor> visitors, AnalysisMetrics metrics) {
+        super(AsmCompatibility.AsmApiVersion);
+        this.metrics = metrics;
+        for (ClassVisitor visitor : visitors) {
+            delegates.add(new Target<ClassVisitor>(new Branch(visitor, metrics), visitor));
+        }
+    }
+
+    boolean hasFailed(ClassVisitor visitor) {
+        return failureOf(visitor) != null;
+    }
+
+    Throwable failureOf(ClassVisitor visitor) {
+        return branchOf(visitor).failure;
+    }
+
+    long nanosSpentIn(ClassVisitor visitor) {
+        return branchOf(visitor).nanos;
+    }
+
+    private Branch branchOf(ClassVisitor visitor) {
+        for (Target<ClassVisitor> delegate : delegates) {
+            if (delegate.visitor == visitor) {
+                return delegate.branch;
+            }
+        }
+        throw new IllegalArgumentException("Not a delegate of this visitor: " + visitor);
+    }
+
+    @Override
+    public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+        dispatch(delegates, v -> v.visit(version, access, name, signature, superName, interfaces));
+    }
+
+    @Override
+    public void visitSource(String source, String debug) {
+        dispatch(delegates, v -> v.visitSource(source, debug));
+    }
+
+    /**
+     * No checker inspects module descriptors, so any visitor returned by a delegate is not driven.
+     */
+    @Override
+    public ModuleVisitor visitModule(String name, int access, String version) {
+        dispatch(delegates, v -> v.visitModule(name, access, version));
+        return null;
+    }
+
+    @Override
+    public void visitNestHost(String nestHost) {
+        dispatch(delegates, v -> v.visitNestHost(nestHost));
+    }
+
+    @Override
+    public void visitOuterClass(String owner, String name, String descriptor) {
+        dispatch(delegates, v -> v.visitOuterClass(owner, name, descriptor));
+    }
+
+    @Override
+    public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+        return annotations(collect(delegates, v -> v.visitAnnotation(descriptor, visible)));
+    }
+
+    @Override
+    public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
+        return annotations(collect(delegates, v -> v.visitTypeAnnotation(typeRef, typePath, descriptor, visible)));
+    }
+
+    @Override
+    public void visitAttribute(Attribute attribute) {
+        dispatch(delegates, v -> v.visitAttribute(attribute));
+    }
+
+    @Override
+    public void visitNestMember(String nestMember) {
+        dispatch(delegates, v -> v.visitNestMember(nestMember));
+    }
+
+    @Override
+    public void visitPermittedSubclass(String permittedSubclass) {
+        dispatch(delegates, v -> v.visitPermittedSubclass(permittedSubclass));
+    }
+
+    @Override
+    public void visitInnerClass(String name, String outerName, String innerName, int access) {
+        dispatch(delegates, v -> v.visitInnerClass(name, outerName, innerName, access));
+    }
+
+    @Override
+    public RecordComponentVisitor visitRecordComponent(String name, String descriptor, String signature) {
+        List<Target<RecordComponentVisitor>> targets = collect(delegates, v -> v.visitRecordComponent(name, descriptor, signature));
+        return targets.isEmpty() ? null : new MultiplexingRecordComponentVisitor(targets);
+    }
+
+    @Override
+    public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+        List<Target<FieldVisitor>> targets = collect(delegates, v -> v.visitField(access, name, descriptor, signature, value));
+        return targets.isEmpty() ? null : new MultiplexingFieldVisitor(targets);
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+        List<Target<MethodVisitor>> targets = collect(delegates, v -> v.visitMethod(access, name, descriptor, signature, exceptions));
+        if (targets.isEmpty()) {
+            return null;
+        }
+        List<MethodTarget> methodTargets = new ArrayList<MethodTarget>(targets.size());
+        List<Target<MethodTreeVisitor>> treeTargets = new ArrayList<Target<MethodTreeVisitor>>(targets.size());
+        for (Target<MethodVisitor> target : targets) {
+            if (target.visitor instanceof MethodTreeVisitor) {
+                treeTargets.add(new Target<MethodTreeVisitor>(target.branch, (MethodTreeVisitor) target.visitor));
+            } else {
+                methodTargets.add(new MethodTarget(target.branch, target.visitor));
+            }
+        }
+        if (treeTargets.isEmpty()) {
+            return new MultiplexingMethodVisitor(methodTargets, null, treeTargets);
+        }
+        MethodTarget tree = new MethodTarget(new Branch(null, metrics),
+                new MethodNode(AsmCompatibility.AsmApiVersion, access, name, descriptor, signature, exceptions));
+        methodTargets.add(tree);
+        return new MultiplexingMethodVisitor(methodTargets, tree, treeTargets);
+    }
+
+    @Override
+    public void visitEnd() {
+        dispatch(delegates, ClassVisitor::visitEnd);
+    }
+
+    private static final class Branch {
+        private final ClassVisitor visitor;
+        private final AnalysisMetrics metrics;
+        private Throwable failure;
+        private long nanos;
+
+        Branch(ClassVisitor visitor, AnalysisMetrics metrics) {
+            this.visitor = visitor;
+            this.metrics = metrics;
+        }
+
+        long mark() {
+            return metrics.mark();
+        }
+
+        void addTimeSince(long mark) {
+            nanos += metrics.nanosSince(mark);
+        }
+
+        @Override
+        public String toString() {
+            return visitor == null ? "MethodNode" : visitor.getClass().getSimpleName();
+        }
+    }
+
+    private static class Target<V> {
+        final Branch branch;
+        final V visitor;
+
+        Target(Branch branch, V visitor) {
+            this.branch = branch;
+            this.visitor = visitor;
+        }
+    }
+
+    private static <V, T extends Target<V>> void dispatch(List<T> targets, Consumer<V> event) {
+        for (int i = 0; i < targets.size(); i++) {
+            T target = targets.get(i);
+            if (target.branch.failure != null) {
+                continue;
+            }
+            long mark = target.branch.mark();
+            try {
+                event.accept(target.visitor);
+            } catch (Throwable e) {
+                target.branch.failure = e;
+            }
+            target.branch.addTimeSince(mark);
+        }
+    }
+
+    private static <V, R, T extends Target<V>> List<Target<R>> collect(List<T> targets, Function<V, R> event) {
+        List<Target<R>> collected = null;
+        for (int i = 0; i < targets.size(); i++) {
+            T target = targets.get(i);
+            if (target.branch.failure != null) {
+                continue;
+            }
+            long mark = target.branch.mark();
+            try {
+                R nested = event.apply(target.visitor);
+                if (nested != null) {
+                    if (collected == null) {
+                        collected = new ArrayList<Target<R>>(targets.size());
+                    }
+                    collected.add(new Target<R>(target.branch, nested));
+                }
+            } catch (Throwable e) {
+                target.branch.failure = e;
+            }
+            target.branch.addTimeSince(mark);
+        }
+        return collected == null ? Collections.<Target<R>>emptyList() : collected;
+    }
+
+    private static AnnotationVisitor annotations(List<Target<AnnotationVisitor>> targets) {
+        return targets.isEmpty() ? null : new MultiplexingAnnotationVisitor(targets);
+    }
+
+    private static final class MultiplexingAnnotationVisitor extends AnnotationVisitor {
+        private final List<Target<AnnotationVisitor>> targets;
+
+        MultiplexingAnnotationVisitor(List<Target<AnnotationVisitor>> targets) {
+            super(AsmCompatibility.AsmApiVersion);
+            this.targets = targets;
+        }
+
+        @Override
+        public void visit(String name, Object value) {
+            dispatch(targets, v -> v.visit(name, value));
+        }
+
+        @Override
+        public void visitEnum(String name, String descriptor, String value) {
+            dispatch(targets, v -> v.visitEnum(name, descriptor, value));
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String name, String descriptor) {
+            return annotations(collect(targets, v -> v.visitAnnotation(name, descriptor)));
+        }
+
+        @Override
+        public AnnotationVisitor visitArray(String name) {
+            return annotations(collect(targets, v -> v.visitArray(name)));
+        }
+
+        @Override
+        public void visitEnd() {
+            dispatch(targets, AnnotationVisitor::visitEnd);
+        }
+    }
+
+    private static final class MultiplexingFieldVisitor extends FieldVisitor {
+        private final List<Target<FieldVisitor>> targets;
+
+        MultiplexingFieldVisitor(List<Target<FieldVisitor>> targets) {
+            super(AsmCompatibility.AsmApiVersion);
+            this.targets = targets;
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+            return annotations(collect(targets, v -> v.visitAnnotation(descriptor, visible)));
+        }
+
+        @Override
+        public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
+            return annotations(collect(targets, v -> v.visitTypeAnnotation(typeRef, typePath, descriptor, visible)));
+        }
+
+        @Override
+        public void visitAttribute(Attribute attribute) {
+            dispatch(targets, v -> v.visitAttribute(attribute));
+        }
+
+        @Override
+        public void visitEnd() {
+            dispatch(targets, FieldVisitor::visitEnd);
+        }
+    }
+
+    private static final class MultiplexingRecordComponentVisitor extends RecordComponentVisitor {
+        private final List<Target<RecordComponentVisitor>> targets;
+
+        MultiplexingRecordComponentVisitor(List<Target<RecordComponentVisitor>> targets) {
+            super(AsmCompatibility.AsmApiVersion);
+            this.targets = targets;
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+            return annotations(collect(targets, v -> v.visitAnnotation(descriptor, visible)));
+        }
+
+        @Override
+        public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
+            return annotations(collect(targets, v -> v.visitTypeAnnotation(typeRef, typePath, descriptor, visible)));
+        }
+
+        @Override
+        public void visitAttribute(Attribute attribute) {
+            dispatch(targets, v -> v.visitAttribute(attribute));
+        }
+
+        @Override
+        public void visitEnd() {
+            dispatch(targets, RecordComponentVisitor::visitEnd);
+        }
+    }
+
+    private static final class MethodTarget extends Target<MethodVisitor> {
+        private final Map<Label, Label> labels = new HashMap<Label, Label>();
+
+        MethodTarget(Branch branch, MethodVisitor visitor) {
+            super(branch, visitor);
+        }
+
+        Label label(Label original) {
+            Label copy = labels.get(original);
+            if (copy == null) {
+                copy = new Label();
+                labels.put(original, copy);
+            }
+            return copy;
+        }
+
+        Label[] labels(Label[] originals) {
+            Label[] copies = new Label[originals.length];
+            for (int i = 0; i < originals.length; i++) {
+                copies[i] = label(originals[i]);
+            }
+            return copies;
+        }
+
+        Object[] frameTypes(Object[] types) {
+            if (types == null) {
+                return null;
+            }
+            Object[] copies = types.clone();
+            for (int i = 0; i < copies.length; i++) {
+                if (copies[i] instanceof Label) {
+                    copies[i] = label((Label) copies[i]);
+                }
+            }
+            return copies;
+        }
+    }
+
+    private static final class MultiplexingMethodVisitor extends MethodVisitor {
+        private final List<MethodTarget> targets;
+        private final MethodTarget tree;
+        private final List<Target<MethodTreeVisitor>> treeTargets;
+
+        MultiplexingMethodVisitor(List<MethodTarget> targets, MethodTarget tree, List<Target<MethodTreeVisitor>> treeTargets) {
+            super(AsmCompatibility.AsmApiVersion);
+            this.targets = targets;
+            this.tree = tree;
+            this.treeTargets = treeTargets;
+        }
+
+        private void dispatchWithLabels(Consumer<MethodTarget> event) {
+            for (int i = 0; i < targets.size(); i++) {
+                MethodTarget target = targets.get(i);
+                if (target.branch.failure != null) {
+                    continue;
+                }
+                long mark = target.branch.mark();
+                try {
+                    event.accept(target);
+                } catch (Throwable e) {
+                    target.branch.failure = e;
+                }
+                target.branch.addTimeSince(mark);
+            }
+        }
+
+        @Override
+        public void visitParameter(String name, int access) {
+            dispatch(targets, v -> v.visitParameter(name, access));
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotationDefault() {
+            return annotations(collect(targets, MethodVisitor::visitAnnotationDefault));
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+            return annotations(collect(targets, v -> v.visitAnnotation(descriptor, visible)));
+        }
+
+        @Override
+        public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
+            return annotations(collect(targets, v -> v.visitTypeAnnotation(typeRef, typePath, descriptor, visible)));
+        }
+
+        @Override
+        public void visitAnnotableParameterCount(int parameterCount, boolean visible) {
+            dispatch(targets, v -> v.visitAnnotableParameterCount(parameterCount, visible));
+        }
+
+        @Override
+        public AnnotationVisitor visitParameterAnnotation(int parameter, String descriptor, boolean visible) {
+            return annotations(collect(targets, v -> v.visitParameterAnnotation(parameter, descriptor, visible)));
+        }
+
+        @Override
+        public void visitAttribute(Attribute attribute) {
+            dispatch(targets, v -> v.visitAttribute(attribute));
+        }
+
+        @Override
+        public void visitCode() {
+            dispatch(targets, MethodVisitor::visitCode);
+        }
+
+        @Override
+        public void visitFrame(int type, int numLocal, Object[] local, int numStack, Object[] stack) {
+            dispatchWithLabels(t -> t.visitor.visitFrame(type, numLocal, t.frameTypes(local), numStack, t.frameTypes(stack)));
+        }
+
+        @Override
+        public void visitInsn(int opcode) {
+            dispatch(targets, v -> v.visitInsn(opcode));
+        }
+
+        @Override
+        public void visitIntInsn(int opcode, int operand) {
+            dispatch(targets, v -> v.visitIntInsn(opcode, operand));
+        }
+
+        @Override
+        public void visitVarInsn(int opcode, int varIndex) {
+            dispatch(targets, v -> v.visitVarInsn(opcode, varIndex));
+        }
+
+        @Override
+        public void visitTypeInsn(int opcode, String type) {
+            dispatch(targets, v -> v.visitTypeInsn(opcode, type));
+        }
+
+        @Override
+        public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+            dispatch(targets, v -> v.visitFieldInsn(opcode, owner, name, descriptor));
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+            dispatch(targets, v -> v.visitMethodInsn(opcode, owner, name, descriptor, isInterface));
+        }
+
+        @Override
+        public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle, Object... bootstrapMethodArguments) {
+            dispatch(targets, v -> v.visitInvokeDynamicInsn(name, descriptor, bootstrapMethodHandle, bootstrapMethodArguments));
+        }
+
+        @Override
+        public void visitJumpInsn(int opcode, Label label) {
+            dispatchWithLabels(t -> t.visitor.visitJumpInsn(opcode, t.label(label)));
+        }
+
+        @Override
+        public void visitLabel(Label label) {
+            dispatchWithLabels(t -> t.visitor.visitLabel(t.label(label)));
+        }
+
+        @Override
+        public void visitLdcInsn(Object value) {
+            dispatch(targets, v -> v.visitLdcInsn(value));
+        }
+
+        @Override
+        public void visitIincInsn(int varIndex, int increment) {
+            dispatch(targets, v -> v.visitIincInsn(varIndex, increment));
+        }
+
+        @Override
+        public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+            dispatchWithLabels(t -> t.visitor.visitTableSwitchInsn(min, max, t.label(dflt), t.labels(labels)));
+        }
+
+        @Override
+        public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+            dispatchWithLabels(t -> t.visitor.visitLookupSwitchInsn(t.label(dflt), keys, t.labels(labels)));
+        }
+
+        @Override
+        public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
+            dispatch(targets, v -> v.visitMultiANewArrayInsn(descriptor, numDimensions));
+        }
+
+        @Override
+        public AnnotationVisitor visitInsnAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
+            return annotations(collect(targets, v -> v.visitInsnAnnotation(typeRef, typePath, descriptor, visible)));
+        }
+
+        @Override
+        public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
+            dispatchWithLabels(t -> t.visitor.visitTryCatchBlock(t.label(start), t.label(end), t.label(handler), type));
+        }
+
+        @Override
+        public AnnotationVisitor visitTryCatchAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
+            return annotations(collect(targets, v -> v.visitTryCatchAnnotation(typeRef, typePath, descriptor, visible)));
+        }
+
+        @Override
+        public void visitLocalVariable(String name, String descriptor, String signature, Label start, Label end, int index) {
+            dispatchWithLabels(t -> t.visitor.visitLocalVariable(name, descriptor, signature, t.label(start), t.label(end), index));
+        }
+
+        @Override
+        public AnnotationVisitor visitLocalVariableAnnotation(int typeRef,
+                                                              TypePath typePath,
+                                                              Label[] start,
+                                                              Label[] end,
+                                                              int[] index,
+                                                              String descriptor,
+                                                              boolean visible) {
+            List<Target<AnnotationVisitor>> collected = new ArrayList<Target<AnnotationVisitor>>();
+            dispatchWithLabels(t -> {
+                AnnotationVisitor nested = t.visitor.visitLocalVariableAnnotation(
+                        typeRef, typePath, t.labels(start), t.labels(end), index, descriptor, visible);
+                if (nested != null) {
+                    collected.add(new Target<AnnotationVisitor>(t.branch, nested));
+                }
+            });
+            return annotations(collected);
+        }
+
+        @Override
+        public void visitLineNumber(int line, Label start) {
+            dispatchWithLabels(t -> t.visitor.visitLineNumber(line, t.label(start)));
+        }
+
+        @Override
+        public void visitMaxs(int maxStack, int maxLocals) {
+            dispatch(targets, v -> v.visitMaxs(maxStack, maxLocals));
+        }
+
+        @Override
+        public void visitEnd() {
+            dispatch(targets, MethodVisitor::visitEnd);
+            if (tree == null) {
+                return;
+            }
+            Throwable treeFailure = tree.branch.failure;
+            for (Target<MethodTreeVisitor> target : treeTargets) {
+                if (treeFailure != null && target.branch.failure == null) {
+                    target.branch.failure = treeFailure;
+                }
+            }
+            MethodNode method = (MethodNode) tree.visitor;
+            dispatch(treeTargets, v -> v.visitTree(method));
+        }
+    }
+}
@@ -30,8 +30,10 @@ import static org.mutabilitydetector.checkers.info.AnalysisDatabase.TYPE_STRUCTU
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import org.mutabilitydetector.asmoverride.AsmVerifierFactory;
 import org.mutabilitydetector.checkers.info.AnalysisDatabase;
@@ -55,40 +57,90 @@ public final class MutabilityCheckerFactory {
             AsmVerifierFactory verifierFactory,
             MutableTypeInformation mutableTypeInformation,
             AnalysisInProgress analysisInProgress) {
+        return createInstances(database, verifierFactory, mutableTypeInformation, analysisInProgress, ClassFeatures.unknown());
+    }
+
+    /**
+     * The checkers which could report on a class with the given features. Those which only inspect assignments to
+     * fields are left out for a class which, going by its constant pool, makes no assignment they could report on.
+     */
+    public Iterable<AsmMutabilityChecker> createInstances(
+            AnalysisDatabase database,
+            AsmVerifierFactory verifierFactory,
+            MutableTypeInformation mutableTypeInformation,
+            AnalysisInProgress analysisInProgress,
+            ClassFeatures features) {
         Collection<AsmMutabilityChecker> checkers = new ArrayList<AsmMutabilityChecker>();
+        MethodFrames methodFrames = new MethodFrames(verifierFactory);
         checkers.add(new CanSubclassChecker());
         checkers.add(new PublishedNonFinalFieldChecker());
         
         if (analysisChoice == NAIVE_PUT_FIELD_ANALYSIS) {
             checkers.add(new NonFinalFieldChecker());
-            checkers.add(OldSetterMethodChecker.newSetterMethodChecker(database.requestInformation(PRIVATE_METHOD_INVOCATION),
-                                                                       verifierFactory));
+            if (features.mayAssignFields()) {
+                checkers.add(OldSetterMethodChecker.newSetterMethodChecker(database.requestInformation(PRIVATE_METHOD_INVOCATION),
+                                                                           methodFrames));
+            }
         } else if (analysisChoice == LAZY_INITIALISATION_ANALYSIS) {
             checkers.add(SetterMethodChecker.newInstance(database.requestInformation(PRIVATE_METHOD_INVOCATION)));
         } else {
             throw new IllegalStateException();
         }
         
-        checkers.add(new MutableTypeToFieldChecker(
-                database.requestInformation(TYPE_STRUCTURE),
-                mutableTypeInformation,
-                verifierFactory,
-                immutableContainerClasses,
-                analysisInProgress));
+        if (features.mayAssignReferenceToField()) {
+            checkers.add(new MutableTypeToFieldChecker(
+                    database.requestInformation(TYPE_STRUCTURE),
+                    mutableTypeInformation,
+                    methodFrames,
+                    immutableContainerClasses,
+                    analysisInProgress));
+        }
 
         checkers.add(new InherentTypeMutabilityChecker());
         checkers.add(new ArrayFieldMutabilityChecker());
         checkers.add(new EscapedThisReferenceChecker());
-        checkers.add(new CollectionWithMutableElementTypeToFieldChecker(
-                mutableTypeInformation,
-                verifierFactory,
-                ImmutableSet.copyOf(immutableContainerClasses),
-                analysisInProgress));
+        if (features.mayAssignCollectionToField()) {
+            checkers.add(new CollectionWithMutableElementTypeToFieldChecker(
+                    mutableTypeInformation,
+                    methodFrames,
+                    ImmutableSet.copyOf(immutableContainerClasses),
+                    analysisInProgress));
+        }
         // checkers.add(new InheritedMutabilityChecker(analysisSession));
         // checkers.add(new NoCopyOfFieldChecker()); - or whatever it's going to be called.
         return Collections.unmodifiableCollection(checkers);
     }
 
+    /**
+     * The same checkers as {@link #createInstances(AnalysisDatabase, AsmVerifierFactory, MutableTypeInformation,
+     * AnalysisInProgress, ClassFeatures)}, in stages ordered by how much they have to read. Checkers in the first
+     * stage only inspect the declarations of a class, so that it can be parsed without its method code, those in the
+     * second read the code of its methods, and those in the last can request the analysis of other classes. The stages
+     * are fixed by the kind of each checker, not measured.
+     */
+    public List<List<AsmMutabilityChecker>> createInstancesInStagesOfCost(
+            AnalysisDatabase database,
+            AsmVerifierFactory verifierFactory,
+            MutableTypeInformation mutableTypeInformation,
+            AnalysisInProgress analysisInProgress,
+            ClassFeatures features) {
+        List<AsmMutabilityChecker> structural = new ArrayList<AsmMutabilityChecker>();
+        List<AsmMutabilityChecker> methodFrames = new ArrayList<AsmMutabilityChecker>();
+        List<AsmMutabilityChecker> transitive = new ArrayList<AsmMutabilityChecker>();
+        for (AsmMutabilityChecker checker : createInstances(database, verifierFactory, mutableTypeInformation, analysisInProgress, features)) {
+            if (checker instanceof MutableTypeToFieldChecker || checker instanceof CollectionWithMutableElementTypeToFieldChecker) {
+                transitive.add(checker);
+            } else if (checker instanceof OldSetterMethodChecker
+                    || checker instanceof SetterMethodChecker
+                    || checker instanceof EscapedThisReferenceChecker) {
+                methodFrames.add(checker);
+            } else {
+                structural.add(checker);
+            }
+        }
+        return ImmutableList.<List<AsmMutabilityChecker>>of(structural, methodFrames, transitive);
+    }
+
     public enum ReassignedFieldAnalysisChoice {
         NAIVE_PUT_FIELD_ANALYSIS, 
         LAZY_INITIALISATION_ANALYSIS
@@ -36,6 +36,7 @@ import org.mutabilitydetector.checkers.info.TypeStructureInformation;
 import org.mutabilitydetector.locations.CodeLocation.ClassLocation;
 import org.mutabilitydetector.locations.CodeLocation.FieldLocation;
 import org.mutabilitydetector.locations.Dotted;
+import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.FieldVisitor;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Type;
@@ -59,7 +60,7 @@ public final class MutableTypeToFieldChecker extends AsmMutabilityChecker {
 
     private final TypeStructureInformation typeStructureInformation;
     private final MutableTypeInformation mutableTypeInfo;
-    private final AsmVerifierFactory verifierFactory;
+    private final MethodFrames methodFrames;
     private final Set<Dotted> immutableContainerClasses;
     private final List<String> genericTypesOfClass = Lists.newLinkedList();
     private final Map<String, String> genericFields = Maps.newHashMap();
@@ -71,13 +72,30 @@ public final class MutableTypeToFieldChecker extends AsmMutabilityChecker {
                                      AsmVerifierFactory verifierFactory,
                                      Set<Dotted> immutableContainerClasses,
                                      AnalysisInProgress analysisInProgress) {
+        this(info, mutableTypeInfo, new MethodFrames(verifierFactory), immutableContainerClasses, analysisInProgress);
+    }
+
+    public MutableTypeToFieldChecker(TypeStructureInformation info,
+                                     MutableTypeInformation mutableTypeInfo,
+                                     MethodFrames methodFrames,
+                                     Set<Dotted> immutableContainerClasses,
+                                     AnalysisInProgress analysisInProgress) {
         this.typeStructureInformation = info;
         this.mutableTypeInfo = mutableTypeInfo;
-        this.verifierFactory = verifierFactory;
+        this.methodFrames = methodFrames;
         this.immutableContainerClasses = immutableContainerClasses;
         this.analysisInProgress = analysisInProgress;
     }
 
+    /**
+     * Stack map frames are read, as {@link ImmutableCollectionChecker} follows them to find how a collection was
+     * created before it was assigned to a field.
+     */
+    @Override
+    public int parsingOptions() {
+        return ClassReader.SKIP_DEBUG;
+    }
+
     @Override
     public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
         super.visit(version, access, name, signature, superName, interfaces);
@@ -134,10 +152,10 @@ public final class MutableTypeToFieldChecker extends AsmMutabilityChecker {
 
     @Override
     public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
-        return new AssignMutableTypeToFieldChecker(ownerClass, access, name, desc, signature, exceptions, verifierFactory);
+        return new AssignMutableTypeToFieldChecker(ownerClass, access, name, desc, signature, exceptions, methodFrames);
     }
 
-    class AssignMutableTypeToFieldChecker extends FieldAssignmentVisitor {
+    class AssignMutableTypeToFieldChecker extends FieldAssignmentTreeVisitor {
 
         public AssignMutableTypeToFieldChecker(String owner,
                 int access,
@@ -145,8 +163,8 @@ public final class MutableTypeToFieldChecker extends AsmMutabilityChecker {
                 String desc,
                 String signature,
                 String[] exceptions,
-                AsmVerifierFactory verifierFactory) {
-            super(owner, access, name, desc, signature, exceptions, verifierFactory);
+                MethodFrames methodFrames) {
+            super(owner, access, name, desc, signature, exceptions, methodFrames);
         }
 
         @Override
@@ -171,10 +189,15 @@ public final class MutableTypeToFieldChecker extends AsmMutabilityChecker {
                     break;
                 }
                 
-                MutabilityLookup mutabilityLookup = mutableTypeInfo.resultOf(dotted(ownerClass), assignedToField,analysisInProgress);
-                
-                if (mutabilityLookup.foundCyclicReference) {
-                    setCyclicReferenceResult(fieldLocation, mutabilityLookup.cyclicReference);
+                /*
+                 * The result of the assigned type only decides the verdict when it is a concrete type, so the
+                 * assigned type is not analysed until that is known.
+                 */
+                Optional<CyclicReferences.CyclicReference> cyclicReference =
+                        mutableTypeInfo.cyclicReferenceBetween(dotted(ownerClass), assignedToField, analysisInProgress);
+
+                if (cyclicReference.isPresent()) {
+                    setCyclicReferenceResult(fieldLocation, cyclicReference.get());
                     break;
                 } else if (isImmutableContainerType(assignedToField)) {
                     /**
@@ -208,7 +231,10 @@ public final class MutableTypeToFieldChecker extends AsmMutabilityChecker {
                         break;
                     }
                 } else {
-                    if (!mutabilityLookup.result.isImmutable.equals(IMMUTABLE)) {
+                    MutabilityLookup mutabilityLookup = mutableTypeInfo.resultOf(dotted(ownerClass), assignedToField, analysisInProgress);
+                    if (mutabilityLookup.foundCyclicReference) {
+                        setCyclicReferenceResult(fieldLocation, mutabilityLookup.cyclicReference);
+                    } else if (!mutabilityLookup.result.isImmutable.equals(IMMUTABLE)) {
                         setMutableFieldAssignmentResult(fieldLocation, assignedToField);
                     } else {
                         break;
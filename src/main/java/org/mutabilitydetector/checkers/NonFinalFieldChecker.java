@@ -32,6 +32,11 @@ import org.objectweb.asm.FieldVisitor;
 
 public final class NonFinalFieldChecker extends AsmMutabilityChecker {
 
+    @Override
+    public int parsingOptions() {
+        return DECLARATIONS_ONLY;
+    }
+
     @Override
     public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
         if (field(access).isNotFinal() && field(access).isNotStatic()) {
@@ -35,4 +35,9 @@ public final class NullMutabilityChecker extends AsmMutabilityChecker {
                 MutabilityReason.CANNOT_ANALYSE);
     }
 
+    @Override
+    public int parsingOptions() {
+        return DECLARATIONS_ONLY;
+    }
+
 }
@@ -35,9 +35,13 @@ import org.mutabilitydetector.checkers.info.MethodIdentifier;
 import org.mutabilitydetector.checkers.info.PrivateMethodInvocationInformation;
 import org.mutabilitydetector.locations.CodeLocation.FieldLocation;
 import org.mutabilitydetector.locations.Dotted;
+import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.VarInsnNode;
 import org.objectweb.asm.tree.analysis.BasicValue;
 import org.objectweb.asm.tree.analysis.Frame;
 
@@ -52,16 +56,25 @@ import org.objectweb.asm.tree.analysis.Frame;
 public final class OldSetterMethodChecker extends AsmMutabilityChecker {
 
     private final PrivateMethodInvocationInformation privateMethodInvocationInfo;
-    private final AsmVerifierFactory verifierFactory;
+    private final MethodFrames methodFrames;
 
     private OldSetterMethodChecker(PrivateMethodInvocationInformation privateMethodInvocationInfo, 
-                                 AsmVerifierFactory verifierFactory) {
+                                 MethodFrames methodFrames) {
         this.privateMethodInvocationInfo = privateMethodInvocationInfo;
-        this.verifierFactory = verifierFactory;
+        this.methodFrames = methodFrames;
     }
 
     public static OldSetterMethodChecker newSetterMethodChecker(PrivateMethodInvocationInformation privateMethodInvocationInfo, AsmVerifierFactory verifierFactory) {
-        return new OldSetterMethodChecker(privateMethodInvocationInfo, verifierFactory);
+        return newSetterMethodChecker(privateMethodInvocationInfo, new MethodFrames(verifierFactory));
+    }
+
+    public static OldSetterMethodChecker newSetterMethodChecker(PrivateMethodInvocationInformation privateMethodInvocationInfo, MethodFrames methodFrames) {
+        return new OldSetterMethodChecker(privateMethodInvocationInfo, methodFrames);
+    }
+
+    @Override
+    public int parsingOptions() {
+        return ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
     }
 
     @Override
@@ -77,10 +90,10 @@ public final class OldSetterMethodChecker extends AsmMutabilityChecker {
                 desc,
                 signature,
                 exceptions, 
-                verifierFactory);
+                methodFrames);
     }
 
-    class SetterAssignmentVisitor extends FieldAssignmentVisitor {
+    class SetterAssignmentVisitor extends FieldAssignmentTreeVisitor {
 
         private final VarStack varStack = new VarStack();
 
@@ -90,8 +103,8 @@ public final class OldSetterMethodChecker extends AsmMutabilityChecker {
                 String desc,
                 String signature,
                 String[] exceptions, 
-                AsmVerifierFactory verifierFactory) {
-            super(ownerName, access, name, desc, signature, exceptions, verifierFactory);
+                MethodFrames methodFrames) {
+            super(ownerName, access, name, desc, signature, exceptions, methodFrames);
         }
 
         @Override
@@ -142,17 +155,15 @@ public final class OldSetterMethodChecker extends AsmMutabilityChecker {
         }
 
         @Override
-        public void visitFieldInsn(int opcode, String fieldsOwner, String fieldName, String fieldDesc) {
-            super.visitFieldInsn(opcode, fieldsOwner, fieldName, fieldDesc);
-            if (opcode == Opcodes.PUTFIELD) {
-                varStack.takeSnapshotOfVarsAtPutfield();
+        protected void visitTree(MethodNode method) {
+            for (AbstractInsnNode instruction = method.instructions.getFirst(); instruction != null; instruction = instruction.getNext()) {
+                if (instruction instanceof VarInsnNode) {
+                    varStack.visitVarInsn(((VarInsnNode) instruction).var);
+                } else if (instruction.getOpcode() == Opcodes.PUTFIELD) {
+                    varStack.takeSnapshotOfVarsAtPutfield();
+                }
             }
-        }
-
-        @Override
-        public void visitVarInsn(int opcode, int var) {
-            super.visitVarInsn(opcode, var);
-            varStack.visitVarInsn(var);
+            super.visitTree(method);
         }
 
         private void setIsImmutableResult(String fieldName, Dotted fieldType) {
@@ -22,9 +22,14 @@ package org.mutabilitydetector.checkers.info;
 
 
 
-import java.util.HashMap;
-import java.util.Map;
+import com.google.common.base.Optional;
+import org.mutabilitydetector.classloading.TypeHierarchyIndex;
 
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+@ThreadSafe
 public final class AnalysisDatabase {
 
     public static final class InfoKey<C> {
@@ -43,44 +48,41 @@ public final class AnalysisDatabase {
 
     public static final InfoKey<TypeStructureInformation> TYPE_STRUCTURE = new InfoKey<TypeStructureInformation>(TypeStructureInformation.class);
 
-    @SuppressWarnings("rawtypes")
-    private final Map infoMap = new HashMap();
+    private final ConcurrentMap<InfoKey<?>, AnalysisInformation> infoMap = new ConcurrentHashMap<InfoKey<?>, AnalysisInformation>();
 
     private final InformationRetrievalRunner sessionCheckerRunner;
+    private final Optional<TypeHierarchyIndex> typeHierarchyIndex;
 
-    private AnalysisDatabase(InformationRetrievalRunner sessionCheckerRunner) {
+    private AnalysisDatabase(InformationRetrievalRunner sessionCheckerRunner, Optional<TypeHierarchyIndex> typeHierarchyIndex) {
         this.sessionCheckerRunner = sessionCheckerRunner;
+        this.typeHierarchyIndex = typeHierarchyIndex;
     }
 
     public static AnalysisDatabase newAnalysisDatabase(InformationRetrievalRunner sessionCheckerRunner) {
-        return new AnalysisDatabase(sessionCheckerRunner);
+        return newAnalysisDatabase(sessionCheckerRunner, Optional.<TypeHierarchyIndex>absent());
+    }
+
+    public static AnalysisDatabase newAnalysisDatabase(InformationRetrievalRunner sessionCheckerRunner,
+                                                       Optional<TypeHierarchyIndex> typeHierarchyIndex) {
+        return new AnalysisDatabase(sessionCheckerRunner, typeHierarchyIndex);
     }
 
     @SuppressWarnings("unchecked")
     public <I extends AnalysisInformation> I requestInformation(InfoKey<I> infoCategory) {
-        return (infoMap.containsKey(infoCategory)) 
-                ? (I) infoMap.get(infoCategory)
-                : createInfoForCategory(infoCategory);
+        return (I) infoMap.computeIfAbsent(infoCategory, this::createInfoForCategory);
     }
 
     private <I> InfoKeyException newException(InfoKey<I> infoCategory) {
         return new InfoKeyException("Programming error in instantiating information class for " + infoCategory.classForInfo().getName());
     }
 
-    @SuppressWarnings("unchecked")
-    private <I extends AnalysisInformation> I createInfoForCategory(InfoKey<I> infoCategory) {
-        I info = null;
+    private AnalysisInformation createInfoForCategory(InfoKey<?> infoCategory) {
         if (infoCategory == PRIVATE_METHOD_INVOCATION) {
-            info = (I) new PrivateMethodInvocationInformation(sessionCheckerRunner);
+            return new PrivateMethodInvocationInformation(sessionCheckerRunner);
         } else if (infoCategory == TYPE_STRUCTURE) {
-            info = (I) new TypeStructureInformation(sessionCheckerRunner);
+            return new TypeStructureInformation(sessionCheckerRunner, typeHierarchyIndex);
         }
 
-        if (info == null) {
-            throw newException(infoCategory);
-        }
-        
-        infoMap.put(infoCategory, info);
-        return info;
+        throw newException(infoCategory);
     }
 }
@@ -21,6 +21,7 @@ package org.mutabilitydetector.checkers.info;
  */
 
 
+import org.mutabilitydetector.AnalysisMetrics;
 import org.mutabilitydetector.AnalysisSession;
 import org.mutabilitydetector.asmoverride.AsmClassVisitor;
 import org.mutabilitydetector.checkers.CheckerRunner;
@@ -30,14 +31,22 @@ public final class InformationRetrievalRunner {
 
     private final CheckerRunner checkerRunner;
     private final AnalysisSession analysisSession;
+    private final AnalysisMetrics metrics;
 
     public InformationRetrievalRunner(AnalysisSession analysisSession, CheckerRunner checkerRunner) {
+        this(analysisSession, checkerRunner, AnalysisMetrics.disabled());
+    }
+
+    public InformationRetrievalRunner(AnalysisSession analysisSession, CheckerRunner checkerRunner, AnalysisMetrics metrics) {
         this.analysisSession = analysisSession;
         this.checkerRunner = checkerRunner;
+        this.metrics = metrics;
     }
 
     public void run(AsmClassVisitor visitor, ClassIdentifier classIdentifier) {
+        long mark = metrics.mark();
         checkerRunner.runVisitor(visitor, classIdentifier.asDotted(), analysisSession.getResults());
+        metrics.recordInformationRetrieval(visitor.getClass().getSimpleName(), mark);
     }
 
 }
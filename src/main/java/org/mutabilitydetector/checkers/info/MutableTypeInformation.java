@@ -23,6 +23,7 @@ package org.mutabilitydetector.checkers.info;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableMultimap;
+import org.mutabilitydetector.AnalysisMetrics;
 import org.mutabilitydetector.AnalysisResult;
 import org.mutabilitydetector.AnalysisSession;
 import org.mutabilitydetector.Configuration;
@@ -30,6 +31,9 @@ import org.mutabilitydetector.checkers.info.CyclicReferences.CyclicReference;
 import org.mutabilitydetector.locations.Dotted;
 
 import javax.annotation.concurrent.Immutable;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -38,13 +42,23 @@ public final class MutableTypeInformation {
     private final AnalysisSession analysisSession;
     private final Configuration configuration;
     private final CyclicReferences cyclicReferences;
+    private final AnalysisMetrics metrics;
+    private final Set<Dotted> typesLookedUp = ConcurrentHashMap.newKeySet();
 
     public MutableTypeInformation(AnalysisSession analysisSession,
                                   Configuration configuration,
                                   CyclicReferences cyclicReferences) {
+        this(analysisSession, configuration, cyclicReferences, AnalysisMetrics.disabled());
+    }
+
+    public MutableTypeInformation(AnalysisSession analysisSession,
+                                  Configuration configuration,
+                                  CyclicReferences cyclicReferences,
+                                  AnalysisMetrics metrics) {
         this.analysisSession = analysisSession;
         this.configuration = configuration;
         this.cyclicReferences = cyclicReferences;
+        this.metrics = metrics;
     }
     
     public ImmutableMultimap<String, CopyMethod> hardcodedCopyMethods() {
@@ -52,6 +66,8 @@ public final class MutableTypeInformation {
     }
 
     public MutabilityLookup resultOf(Dotted ownerClass, Dotted fieldClass, AnalysisInProgress analysisInProgress) {
+        typesLookedUp.add(fieldClass);
+        metrics.recordFieldTypeLookup();
         Optional<AnalysisResult> alreadyComputedResult = existingResult(fieldClass);
 
         return(alreadyComputedResult.isPresent())
@@ -59,17 +75,48 @@ public final class MutableTypeInformation {
                 : requestAnalysisIfNoCyclicReferenceDetected(ownerClass, fieldClass, analysisInProgress);
     }
 
+    /**
+     * The cyclic reference which {@link #resultOf(Dotted, Dotted, AnalysisInProgress)} would find, without analysing
+     * the field type when there is none. This lets a checker which only needs the result of some field types find
+     * cyclic references first, and analyse the field type once it knows the result will decide its verdict.
+     */
+    public Optional<CyclicReference> cyclicReferenceBetween(Dotted ownerClass, Dotted fieldClass, AnalysisInProgress analysisInProgress) {
+        return existingResult(fieldClass).isPresent()
+                ? Optional.<CyclicReference>absent()
+                : detectCyclicReference(ownerClass, fieldClass, analysisInProgress);
+    }
+
+    /**
+     * The types whose mutability has been requested through {@link #resultOf(Dotted, Dotted, AnalysisInProgress)}.
+     */
+    public Set<Dotted> typesLookedUp() {
+        return Collections.unmodifiableSet(typesLookedUp);
+    }
+
     private MutabilityLookup requestAnalysisIfNoCyclicReferenceDetected(Dotted ownerClass, Dotted fieldClass, AnalysisInProgress analysisInProgress) {
-        Optional<CyclicReference> cyclicReference = cyclicReferences.detectedBetween(ownerClass, fieldClass, analysisInProgress);
+        Optional<CyclicReference> cyclicReference = detectCyclicReference(ownerClass, fieldClass, analysisInProgress);
         if (cyclicReference.isPresent()) {
             return MutabilityLookup.foundCyclicReference(cyclicReference.get());
         } else {
-            AnalysisResult result = analysisSession.processTransitiveAnalysis(fieldClass, analysisInProgress.analysisStartedFor(ownerClass));
-            return MutabilityLookup.complete(result);
+            long mark = metrics.mark();
+            try {
+                AnalysisResult result = analysisSession.processTransitiveAnalysis(fieldClass, analysisInProgress.analysisStartedFor(ownerClass));
+                return MutabilityLookup.complete(result);
+            } finally {
+                metrics.recordTransitiveAnalysis(mark);
+            }
         }
 
     }
 
+    private Optional<CyclicReference> detectCyclicReference(Dotted ownerClass, Dotted fieldClass, AnalysisInProgress analysisInProgress) {
+        Optional<CyclicReference> cyclicReference = cyclicReferences.detectedBetween(ownerClass, fieldClass, analysisInProgress);
+        if (cyclicReference.isPresent()) {
+            metrics.recordCycleDetected();
+        }
+        return cyclicReference;
+    }
+
     private Optional<AnalysisResult> existingResult(final Dotted fieldClass) {
         AnalysisResult hardcodedResult = configuration.hardcodedResults().get(fieldClass);
         if (hardcodedResult != null) {
@@ -24,31 +24,41 @@ package org.mutabilitydetector.checkers.info;
 
 import static org.mutabilitydetector.locations.ClassIdentifier.forClass;
 
-import java.util.HashMap;
-import java.util.Map;
+import javax.annotation.concurrent.ThreadSafe;
 
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import org.mutabilitydetector.checkers.util.PrivateMethodInvocationAnalyser;
 import org.mutabilitydetector.locations.Dotted;
 
+@ThreadSafe
 public final class PrivateMethodInvocationInformation implements AnalysisInformation {
 
-    private final Map<Dotted, PrivateMethodInvocationAnalyser> checkerCache = new HashMap<Dotted, PrivateMethodInvocationAnalyser>();
+    private final LoadingCache<Dotted, PrivateMethodInvocationAnalyser> checkerCache;
     private final InformationRetrievalRunner sessionCheckerRunner;
 
     public PrivateMethodInvocationInformation(InformationRetrievalRunner sessionCheckerRunner) {
         this.sessionCheckerRunner = sessionCheckerRunner;
+        this.checkerCache = CacheBuilder.newBuilder().build(CacheLoader.from(this::runAnalyser));
+    }
+
+    private PrivateMethodInvocationAnalyser runAnalyser(Dotted className) {
+        PrivateMethodInvocationAnalyser checker = new PrivateMethodInvocationAnalyser();
+        sessionCheckerRunner.run(checker, forClass(className));
+        return checker;
     }
 
     public boolean isOnlyCalledFromConstructor(MethodIdentifier forMethod) {
-        PrivateMethodInvocationAnalyser checker;
-        if (checkerCache.containsKey(forMethod.dottedClassName())) {
-            checker = checkerCache.get(forMethod.dottedClassName());
-        } else {
-            checker = new PrivateMethodInvocationAnalyser();
-            sessionCheckerRunner.run(checker, forClass(forMethod.dottedClassName()));
-            checkerCache.put(forMethod.dottedClassName(), checker);
+        try {
+            return result(checkerCache.getUnchecked(forMethod.dottedClassName()), forMethod);
+        } catch (UncheckedExecutionException | ExecutionError e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
         }
-        return result(checker, forMethod);
     }
 
     private boolean result(PrivateMethodInvocationAnalyser checker, MethodIdentifier forMethod) {
@@ -22,45 +22,89 @@ package org.mutabilitydetector.checkers.info;
 
 
 
+import static org.mutabilitydetector.checkers.AccessModifierQuery.type;
 import static org.mutabilitydetector.checkers.util.TypeStructureInformationAnalyser.newAnalyser;
 import static org.mutabilitydetector.locations.ClassIdentifier.forClass;
 
-import java.util.HashMap;
-import java.util.Map;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
 
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import org.mutabilitydetector.checkers.util.TypeStructureInformationAnalyser;
+import org.mutabilitydetector.classloading.TypeHierarchyIndex;
 import org.mutabilitydetector.locations.Dotted;
+import org.mutabilitydetector.store.ClassesConsulted;
 
+@ThreadSafe
 public final class TypeStructureInformation implements AnalysisInformation {
 
     private final InformationRetrievalRunner sessionCheckerRunner;
-    private final Map<Dotted, Boolean> isAbstractMap = new HashMap<Dotted, Boolean>();
-    private final Map<Dotted, Boolean> isInterfaceMap = new HashMap<Dotted, Boolean>();
+    private final Optional<TypeHierarchyIndex> typeHierarchyIndex;
+    private final LoadingCache<Dotted, TypeStructure> typeStructures;
 
     public TypeStructureInformation(InformationRetrievalRunner sessionCheckerRunner) {
+        this(sessionCheckerRunner, Optional.<TypeHierarchyIndex>absent());
+    }
+
+    /**
+     * Answers from the given index for the classes it holds, only reading classes which are not indexed.
+     */
+    public TypeStructureInformation(InformationRetrievalRunner sessionCheckerRunner, Optional<TypeHierarchyIndex> typeHierarchyIndex) {
         this.sessionCheckerRunner = sessionCheckerRunner;
+        this.typeHierarchyIndex = typeHierarchyIndex;
+        this.typeStructures = CacheBuilder.newBuilder().build(CacheLoader.from(this::structureOf));
+    }
+
+    private TypeStructure structureOf(Dotted className) {
+        if (typeHierarchyIndex.isPresent()) {
+            int id = typeHierarchyIndex.get().idOf(className.asString().replace('.', '/'));
+            if (typeHierarchyIndex.get().isIndexed(id)) {
+                int access = typeHierarchyIndex.get().accessOf(id);
+                return new TypeStructure(type(access).isAbstract(), type(access).isInterface());
+            }
+        }
+        return runChecker(className);
     }
 
-    private void runCheckerAndPopulateResultMaps(Dotted className) {
+    private TypeStructure runChecker(Dotted className) {
         TypeStructureInformationAnalyser analyser = newAnalyser(className);
         sessionCheckerRunner.run(analyser, forClass(className));
 
-        isAbstractMap.put(className, analyser.isAbstract());
-        isInterfaceMap.put(className, analyser.isInterface());
+        return new TypeStructure(analyser.isAbstract(), analyser.isInterface());
     }
 
-    private Boolean getResultFrom(Dotted className, Map<Dotted, Boolean> resultMap) {
-        if (!resultMap.containsKey(className)) {
-            runCheckerAndPopulateResultMaps(className);
+    private TypeStructure getResultFor(Dotted className) {
+        ClassesConsulted.consulted(className);
+        try {
+            return typeStructures.getUnchecked(className);
+        } catch (UncheckedExecutionException | ExecutionError e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
         }
-        return resultMap.get(className);
     }
 
     public boolean isTypeAbstract(Dotted className) {
-        return getResultFrom(className, isAbstractMap);
+        return getResultFor(className).isAbstract;
     }
 
     public boolean isTypeInterface(Dotted className) {
-        return getResultFrom(className, isInterfaceMap);
+        return getResultFor(className).isInterface;
+    }
+
+    @Immutable
+    private static final class TypeStructure {
+        final boolean isAbstract;
+        final boolean isInterface;
+
+        TypeStructure(boolean isAbstract, boolean isInterface) {
+            this.isAbstract = isAbstract;
+            this.isInterface = isInterface;
+        }
     }
 }
@@ -33,12 +33,14 @@ import javax.annotation.concurrent.NotThreadSafe;
 import org.mutabilitydetector.MutabilityReason;
 import org.mutabilitydetector.Reason;
 import org.mutabilitydetector.checkers.AsmMutabilityChecker;
+import org.mutabilitydetector.checkers.MethodTreeVisitor;
 import org.mutabilitydetector.locations.CodeLocation.ClassLocation;
 import org.mutabilitydetector.locations.CodeLocation.FieldLocation;
 import org.mutabilitydetector.locations.Dotted;
 import org.objectweb.asm.*;
 import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.FieldNode;
+import org.objectweb.asm.tree.MethodNode;
 
 /**
  * @author Juergen Fickel (jufickel@htwg-konstanz.de)
@@ -118,7 +120,12 @@ abstract class AbstractSetterMethodChecker extends AsmMutabilityChecker {
     @Override
     public final MethodVisitor visitMethod(final int access, final String name, final String desc,
             final String signature, final String[] exceptions) {
-        return classNode.visitMethod(access, name, desc, signature, exceptions);
+        return new MethodTreeVisitor(access, name, desc, signature, exceptions) {
+            @Override
+            protected void visitTree(final MethodNode method) {
+                classNode.methods.add(method);
+            }
+        };
     }
 
     @Override
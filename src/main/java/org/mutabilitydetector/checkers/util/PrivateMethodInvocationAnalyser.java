@@ -26,6 +26,7 @@ import org.mutabilitydetector.checkers.MutabilityAnalysisException;
 import org.mutabilitydetector.asmoverride.AsmClassVisitor;
 import org.mutabilitydetector.checkers.info.MethodIdentifier;
 import org.mutabilitydetector.checkers.info.TypeInformationRetriever;
+import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.MethodNode;
@@ -54,6 +55,11 @@ public final class PrivateMethodInvocationAnalyser extends TypeInformationRetrie
         throw new MutabilityAnalysisException(message);
     }
 
+    @Override
+    public int parsingOptions() {
+        return ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
+    }
+
     @Override
     public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
         super.visitMethod(access, name, desc, signature, exceptions);
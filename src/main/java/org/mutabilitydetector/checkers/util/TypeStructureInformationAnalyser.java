@@ -51,6 +51,11 @@ public class TypeStructureInformationAnalyser extends TypeInformationRetriever {
         return isInterface;
     }
 
+    @Override
+    public int parsingOptions() {
+        return DECLARATIONS_ONLY;
+    }
+
     @Override
     public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
         super.visit(version, access, name, signature, superName, interfaces);
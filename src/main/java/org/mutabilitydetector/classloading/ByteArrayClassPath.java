@@ -0,0 +1,37 @@
+package org.mutabilitydetector.classloading;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.google.classpath.ClassPath;
+
+/**
+ * A {@link ClassPath} which can provide the content of a resource as an array, avoiding the copy made when reading
+ * it from a stream.
+ */
+public interface ByteArrayClassPath extends ClassPath {
+
+    /**
+     * The content of the given resource, or null if it cannot be found. The returned array may be shared, and must
+     * not be modified.
+     */
+    byte[] getResourceBytes(String resource);
+}
@@ -23,16 +23,37 @@ package org.mutabilitydetector.classloading;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 
 import java.util.concurrent.ExecutionException;
 
 public final class CachingAnalysisClassLoader implements AnalysisClassLoader {
     
-    private final Cache<String, Class<?>> cache = CacheBuilder.newBuilder().recordStats().build();
+    private final Cache<String, Class<?>> cache;
     private final AnalysisClassLoader classLoader;
     
     public CachingAnalysisClassLoader(AnalysisClassLoader classLoader) {
+        this(classLoader, CacheBuilder.newBuilder());
+    }
+
+    private CachingAnalysisClassLoader(AnalysisClassLoader classLoader, CacheBuilder<Object, Object> cacheBuilder) {
         this.classLoader = classLoader;
+        this.cache = cacheBuilder.recordStats().build();
+    }
+
+    /**
+     * Caches classes only for as long as they are referenced elsewhere, rather than keeping every class loaded for
+     * analysis reachable for the lifetime of the cache.
+     */
+    public static CachingAnalysisClassLoader weaklyCaching(AnalysisClassLoader classLoader) {
+        return new CachingAnalysisClassLoader(classLoader, CacheBuilder.newBuilder().weakValues());
+    }
+
+    /**
+     * Caches at most the given number of classes, evicting the least recently used first.
+     */
+    public static CachingAnalysisClassLoader boundedCaching(AnalysisClassLoader classLoader, long maximumClasses) {
+        return new CachingAnalysisClassLoader(classLoader, CacheBuilder.newBuilder().maximumSize(maximumClasses));
     }
 
     @Override
@@ -44,4 +65,8 @@ public final class CachingAnalysisClassLoader implements AnalysisClassLoader {
         }
     }
 
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
 }
@@ -0,0 +1,119 @@
+package org.mutabilitydetector.classloading;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import com.google.classpath.ClassPath;
+import com.google.classpath.ResourceFilter;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.concurrent.ExecutionException;
+
+import static org.mutabilitydetector.classloading.ClassPathResources.bytesOf;
+
+/**
+ * A {@link ClassPath} which keeps the content of resources read from another, so that reading the same class
+ * repeatedly, for example once for analysis and again to build its type hierarchy, only reads it from the
+ * underlying class path once.
+ * <p>
+ * The total size of cached content is bounded, with the least recently used resources evicted first. Resources
+ * which could not be found are remembered too.
+ */
+@ThreadSafe
+public final class CachingClassPath implements ByteArrayClassPath {
+
+    public static final long DEFAULT_MAXIMUM_BYTES = 64L * 1024 * 1024;
+
+    private final ClassPath classPath;
+    private final Cache<String, Optional<byte[]>> contents;
+
+    public CachingClassPath(ClassPath classPath, long maximumBytes) {
+        this.classPath = classPath;
+        this.contents = CacheBuilder.newBuilder()
+                .maximumWeight(maximumBytes)
+                .weigher((String name, Optional<byte[]> content) -> content.isPresent() ? content.get().length : 0)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Caches resources of the given class path, unless it already does so.
+     */
+    public static CachingClassPath cachingResourcesOf(ClassPath classPath) {
+        return classPath instanceof CachingClassPath
+                ? (CachingClassPath) classPath
+                : new CachingClassPath(classPath, DEFAULT_MAXIMUM_BYTES);
+    }
+
+    @Override
+    public InputStream getResourceAsStream(String resource) {
+        byte[] content = getResourceBytes(resource);
+        return content != null ? new ByteArrayInputStream(content) : null;
+    }
+
+    @Override
+    public byte[] getResourceBytes(String resource) {
+        try {
+            return contents.get(resource, () -> Optional.fromNullable(bytesOf(classPath, resource))).orNull();
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * How often resources were found in the cache, rather than read from the underlying class path.
+     */
+    public CacheStats stats() {
+        return contents.stats();
+    }
+
+    @Override
+    public boolean isResource(String resource) {
+        return classPath.isResource(resource);
+    }
+
+    @Override
+    public boolean isPackage(String packageName) {
+        return classPath.isPackage(packageName);
+    }
+
+    @Override
+    public String[] listPackages(String packageName) {
+        return classPath.listPackages(packageName);
+    }
+
+    @Override
+    public String[] listResources(String packageName) {
+        return classPath.listResources(packageName);
+    }
+
+    @Override
+    public String[] findResources(String rootPackageName, ResourceFilter resourceFilter) {
+        return classPath.findResources(rootPackageName, resourceFilter);
+    }
+}
@@ -0,0 +1,46 @@
+package org.mutabilitydetector.classloading;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.google.classpath.ClassPath;
+import com.google.common.io.ByteStreams;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public final class ClassPathResources {
+
+    private ClassPathResources() { }
+
+    /**
+     * The content of the given resource, or null if it cannot be found on the class path. The returned array may be
+     * shared, and must not be modified.
+     */
+    public static byte[] bytesOf(ClassPath classPath, String resource) throws IOException {
+        if (classPath instanceof ByteArrayClassPath) {
+            return ((ByteArrayClassPath) classPath).getResourceBytes(resource);
+        }
+        try (InputStream resourceStream = classPath.getResourceAsStream(resource)) {
+            return resourceStream == null ? null : ByteStreams.toByteArray(resourceStream);
+        }
+    }
+}
@@ -0,0 +1,454 @@
+package org.mutabilitydetector.classloading;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import com.google.classpath.ClassPath;
+import com.google.classpath.ClassPathFactory;
+import com.google.classpath.ResourceFilter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * A {@link ClassPath} which reads jar files by mapping them into memory, rather than through {@link java.util.jar.JarFile}
+ * streams.
+ * <p>
+ * The central directory of each jar is indexed once, when the class path is created. Reading a resource then
+ * copies or inflates its entry straight from the mapped file into an array of exactly the right size. Classes in
+ * directories are read with a single {@link Files#readAllBytes(Path)}, as mapping files as small as most class
+ * files costs more than reading them. Jars which cannot be mapped, such as those too large to map at once, are
+ * read through streams as before, as are entries of a mapped jar which cannot be read from the mapping. A resource
+ * which cannot be read at all is reported with an {@link UncheckedIOException}, rather than treated as absent.
+ * <p>
+ * Listing resources and packages is left to the class path created by {@link ClassPathFactory}.
+ */
+@ThreadSafe
+public final class MappedClassPath implements ByteArrayClassPath {
+
+    private final ClassPath listing;
+    private final List<ResourceSource> sources;
+
+    private MappedClassPath(ClassPath listing, List<ResourceSource> sources) {
+        this.listing = listing;
+        this.sources = sources;
+    }
+
+    /**
+     * Creates a class path from entries separated by {@link File#pathSeparator}, as accepted by
+     * {@link ClassPathFactory#createFromPath(String)}.
+     */
+    public static MappedClassPath fromPath(String path) {
+        ClassPathFactory factory = new ClassPathFactory();
+        ImmutableList.Builder<ResourceSource> sources = ImmutableList.builder();
+        for (String entry : factory.parseClasspath(path)) {
+            File file = new File(entry);
+            if (file.isFile()) {
+                sources.add(jarSource(file, factory));
+            } else if (file.isDirectory()) {
+                sources.add(new DirectorySource(file.toPath()));
+            }
+        }
+        return new MappedClassPath(factory.createFromPath(path), sources.build());
+    }
+
+    private static ResourceSource jarSource(File jar, ClassPathFactory factory) {
+        try {
+            return MappedJar.open(jar);
+        } catch (IOException e) {
+            return new StreamSource(factory.createFromPath(jar.getPath()));
+        }
+    }
+
+    @Override
+    public byte[] getResourceBytes(String resource) {
+        String name = withoutLeadingSlash(resource);
+        for (ResourceSource source : sources) {
+            try {
+                byte[] content = source.read(name);
+                if (content != null) {
+                    return content;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read " + name, e);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public InputStream getResourceAsStream(String resource) {
+        byte[] content = getResourceBytes(resource);
+        return content != null ? new ByteArrayInputStream(content) : null;
+    }
+
+    @Override
+    public boolean isResource(String resource) {
+        String name = withoutLeadingSlash(resource);
+        for (ResourceSource source : sources) {
+            if (source.contains(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isPackage(String packageName) {
+        return listing.isPackage(packageName);
+    }
+
+    @Override
+    public String[] listPackages(String packageName) {
+        return listing.listPackages(packageName);
+    }
+
+    @Override
+    public String[] listResources(String packageName) {
+        return listing.listResources(packageName);
+    }
+
+    @Override
+    public String[] findResources(String rootPackageName, ResourceFilter resourceFilter) {
+        return listing.findResources(rootPackageName, resourceFilter);
+    }
+
+    private static String withoutLeadingSlash(String resource) {
+        int start = 0;
+        while (start < resource.length() && resource.charAt(start) == '/') {
+            start++;
+        }
+        return resource.substring(start);
+    }
+
+    private interface ResourceSource {
+        boolean contains(String resource);
+
+        /**
+         * The content of the resource, or null if this source does not contain it.
+         */
+        byte[] read(String resource) throws IOException;
+    }
+
+    private static final class DirectorySource implements ResourceSource {
+        private final Path directory;
+
+        DirectorySource(Path directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        public boolean contains(String resource) {
+            return Files.isRegularFile(directory.resolve(resource));
+        }
+
+        @Override
+        public byte[] read(String resource) throws IOException {
+            Path file = directory.resolve(resource);
+            return Files.isRegularFile(file) ? Files.readAllBytes(file) : null;
+        }
+    }
+
+    private static final class StreamSource implements ResourceSource {
+        private final ClassPath classPath;
+
+        StreamSource(ClassPath classPath) {
+            this.classPath = classPath;
+        }
+
+        @Override
+        public boolean contains(String resource) {
+            return classPath.isResource(resource);
+        }
+
+        @Override
+        public byte[] read(String resource) throws IOException {
+            return ClassPathResources.bytesOf(classPath, resource);
+        }
+    }
+
+    /**
+     * A jar file mapped into memory, along with the location of each of its entries.
+     * <p>
+     * Reads use absolute positions, or their own duplicate of the mapped buffer, so can happen concurrently. Positions
+     * are set through {@link Buffer} so that the class runs on Java 8, where {@code ByteBuffer} does not override it.
+     */
+    static final class MappedJar implements ResourceSource {
+        private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+        private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR = 0x07064b50;
+        private static final int ZIP64_END_OF_CENTRAL_DIRECTORY = 0x06064b50;
+        private static final int CENTRAL_DIRECTORY_ENTRY = 0x02014b50;
+        private static final int LOCAL_FILE_HEADER = 0x04034b50;
+        private static final int ZIP64_EXTRA_FIELD = 0x0001;
+        private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+        private static final int MAXIMUM_COMMENT_SIZE = 0xffff;
+        private static final long ZIP64_MARKER = 0xffffffffL;
+        private static final int STORED = 0;
+        private static final int DEFLATED = 8;
+
+        private final File file;
+        private final ByteBuffer mapped;
+        private final Map<String, Entry> entries;
+
+        private MappedJar(File file, ByteBuffer mapped, Map<String, Entry> entries) {
+            this.file = file;
+            this.mapped = mapped;
+            this.entries = entries;
+        }
+
+        static MappedJar open(File jar) throws IOException {
+            try (FileChannel channel = FileChannel.open(jar.toPath(), READ)) {
+                long size = channel.size();
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException("Jar is too large to map: " + jar);
+                }
+                ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+                return new MappedJar(jar, mapped, indexOf(mapped, jar));
+            } catch (RuntimeException e) {
+                throw new IOException("Could not read central directory of " + jar, e);
+            }
+        }
+
+        @Override
+        public boolean contains(String resource) {
+            return entries.containsKey(resource);
+        }
+
+        /**
+         * Entries which cannot be read from the mapping, such as those using a compression method other than
+         * stored or deflated, are read again through a stream over the jar.
+         */
+        @Override
+        public byte[] read(String resource) throws IOException {
+            Entry entry = entries.get(resource);
+            if (entry == null) {
+                return null;
+            }
+            try {
+                return entry.readFrom(mapped);
+            } catch (IOException e) {
+                byte[] streamed;
+                try {
+                    streamed = new StreamSource(new ClassPathFactory().createFromPath(file.getPath())).read(resource);
+                } catch (IOException | RuntimeException streamFailure) {
+                    streamFailure.addSuppressed(e);
+                    throw streamFailure;
+                }
+                if (streamed == null) {
+                    throw e;
+                }
+                return streamed;
+            }
+        }
+
+        private static Map<String, Entry> indexOf(ByteBuffer jar, File file) throws IOException {
+            int endOfCentralDirectory = findEndOfCentralDirectory(jar, file);
+            long numberOfEntries = jar.getShort(endOfCentralDirectory + 10) & 0xffff;
+            long centralDirectorySize = unsignedInt(jar, endOfCentralDirectory + 12);
+            long centralDirectoryOffset = unsignedInt(jar, endOfCentralDirectory + 16);
+            int centralDirectoryEnd = endOfCentralDirectory;
+
+            int zip64Locator = endOfCentralDirectory - 20;
+            if (zip64Locator >= 0 && jar.getInt(zip64Locator) == ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR) {
+                int zip64End = checkedPosition(jar.getLong(zip64Locator + 8), jar, file);
+                if (jar.getInt(zip64End) == ZIP64_END_OF_CENTRAL_DIRECTORY) {
+                    numberOfEntries = jar.getLong(zip64End + 32);
+                    centralDirectorySize = jar.getLong(zip64End + 40);
+                    centralDirectoryOffset = jar.getLong(zip64End + 48);
+                    centralDirectoryEnd = zip64End;
+                }
+            }
+
+            // Data prepended to the archive, such as a launch script, shifts every recorded offset.
+            long prefix = centralDirectoryEnd - centralDirectorySize - centralDirectoryOffset;
+            int position = checkedPosition(centralDirectoryOffset + prefix, jar, file);
+
+            Map<String, Entry> entries = new HashMap<String, Entry>((int) Math.min(numberOfEntries * 4 / 3 + 1, 1 << 20));
+            for (long i = 0; i < numberOfEntries; i++) {
+                if (jar.getInt(position) != CENTRAL_DIRECTORY_ENTRY) {
+                    throw new IOException("Malformed central directory in " + file);
+                }
+                int flags = jar.getShort(position + 8) & 0xffff;
+                int method = jar.getShort(position + 10) & 0xffff;
+                long compressedSize = unsignedInt(jar, position + 20);
+                long size = unsignedInt(jar, position + 24);
+                int nameLength = jar.getShort(position + 28) & 0xffff;
+                int extraLength = jar.getShort(position + 30) & 0xffff;
+                int commentLength = jar.getShort(position + 32) & 0xffff;
+                long localHeaderOffset = unsignedInt(jar, position + 42);
+
+                int extra = position + 46 + nameLength;
+                int extraEnd = extra + extraLength;
+                while (extra + 4 <= extraEnd) {
+                    int id = jar.getShort(extra) & 0xffff;
+                    int dataSize = jar.getShort(extra + 2) & 0xffff;
+                    if (id == ZIP64_EXTRA_FIELD) {
+                        int field = extra + 4;
+                        if (size == ZIP64_MARKER) {
+                            size = jar.getLong(field);
+                            field += 8;
+                        }
+                        if (compressedSize == ZIP64_MARKER) {
+                            compressedSize = jar.getLong(field);
+                            field += 8;
+                        }
+                        if (localHeaderOffset == ZIP64_MARKER) {
+                            localHeaderOffset = jar.getLong(field);
+                        }
+                    }
+                    extra += 4 + dataSize;
+                }
+
+                String name = nameAt(jar, position + 46, nameLength);
+                boolean encrypted = (flags & 1) != 0;
+                if (!name.endsWith("/") && !encrypted && !entries.containsKey(name)) {
+                    entries.put(name, new Entry(method, compressedSize, size, localHeaderOffset + prefix));
+                }
+                position += 46 + nameLength + extraLength + commentLength;
+            }
+            return ImmutableMap.copyOf(entries);
+        }
+
+        private static int findEndOfCentralDirectory(ByteBuffer jar, File file) throws IOException {
+            int last = jar.limit() - END_OF_CENTRAL_DIRECTORY_SIZE;
+            int first = Math.max(0, last - MAXIMUM_COMMENT_SIZE);
+            for (int position = last; position >= first; position--) {
+                if (jar.getInt(position) == END_OF_CENTRAL_DIRECTORY) {
+                    return position;
+                }
+            }
+            throw new IOException("No central directory found in " + file);
+        }
+
+        private static String nameAt(ByteBuffer jar, int position, int length) {
+            byte[] name = new byte[length];
+            ByteBuffer view = jar.duplicate();
+            ((Buffer) view).position(position);
+            view.get(name);
+            return new String(name, UTF_8);
+        }
+
+        private static long unsignedInt(ByteBuffer jar, int position) {
+            return jar.getInt(position) & 0xffffffffL;
+        }
+
+        private static int checkedPosition(long position, ByteBuffer jar, File file) throws IOException {
+            if (position < 0 || position >= jar.limit()) {
+                throw new IOException("Malformed central directory in " + file);
+            }
+            return (int) position;
+        }
+
+        @Immutable
+        private static final class Entry {
+            final int method;
+            final long compressedSize;
+            final long size;
+            final long localHeaderOffset;
+
+            Entry(int method, long compressedSize, long size, long localHeaderOffset) {
+                this.method = method;
+                this.compressedSize = compressedSize;
+                this.size = size;
+                this.localHeaderOffset = localHeaderOffset;
+            }
+
+            byte[] readFrom(ByteBuffer jar) throws IOException {
+                if (size > Integer.MAX_VALUE - 8 || compressedSize > Integer.MAX_VALUE - 8) {
+                    throw new IOException("Entry too large to read into an array");
+                }
+                if (localHeaderOffset < 0 || localHeaderOffset + 30 > jar.limit()
+                        || jar.getInt((int) localHeaderOffset) != LOCAL_FILE_HEADER) {
+                    throw new IOException("Malformed local file header");
+                }
+                int header = (int) localHeaderOffset;
+                int nameLength = jar.getShort(header + 26) & 0xffff;
+                int extraLength = jar.getShort(header + 28) & 0xffff;
+                long data = (long) header + 30 + nameLength + extraLength;
+                if (data + compressedSize > jar.limit()) {
+                    throw new IOException("Entry extends beyond end of jar");
+                }
+
+                ByteBuffer view = jar.duplicate();
+                ((Buffer) view).position((int) data);
+                switch (method) {
+                case STORED:
+                    byte[] stored = new byte[(int) size];
+                    view.get(stored);
+                    return stored;
+                case DEFLATED:
+                    // Inflating without the zlib wrapper needs an extra byte of input after the compressed data.
+                    byte[] compressed = new byte[(int) compressedSize + 1];
+                    view.get(compressed, 0, (int) compressedSize);
+                    return inflate(compressed, (int) size);
+                default:
+                    throw new IOException("Unsupported compression method: " + method);
+                }
+            }
+
+            private static byte[] inflate(byte[] compressed, int size) throws IOException {
+                Inflater inflater = new Inflater(true);
+                try {
+                    inflater.setInput(compressed);
+                    byte[] content = new byte[size];
+                    int inflated = 0;
+                    while (inflated < size) {
+                        int count = inflater.inflate(content, inflated, size - inflated);
+                        if (count == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                            break;
+                        }
+                        inflated += count;
+                    }
+                    if (inflated != size) {
+                        throw new IOException("Entry is shorter than its recorded size");
+                    }
+                    return content;
+                } catch (DataFormatException e) {
+                    throw new IOException("Entry is not correctly compressed", e);
+                } finally {
+                    inflater.end();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.mutabilitydetector.classloading;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+/**
+ * Loads classes without initialising them, so that analysis does not run the static initialisers of the classes
+ * it inspects.
+ */
+public final class NonInitialisingClassLoader implements AnalysisClassLoader {
+
+    private final ClassLoader classLoader;
+
+    public NonInitialisingClassLoader(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * Loads classes through the same class loader as {@link ClassForNameWrapper}.
+     */
+    public NonInitialisingClassLoader() {
+        this(NonInitialisingClassLoader.class.getClassLoader());
+    }
+
+    @Override
+    public Class<?> loadClass(String dottedClass) throws ClassNotFoundException {
+        return Class.forName(dottedClass, false, classLoader);
+    }
+
+}
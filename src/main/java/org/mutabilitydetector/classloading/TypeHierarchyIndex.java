@@ -0,0 +1,331 @@
+package org.mutabilitydetector.classloading;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import com.google.classpath.ClassPath;
+import com.google.common.base.Throwables;
+import org.mutabilitydetector.asmoverride.AsmCompatibility;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Opcodes;
+
+import javax.annotation.concurrent.Immutable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static org.mutabilitydetector.classloading.ClassPathResources.bytesOf;
+
+/**
+ * The headers of every class on a class path, read once up front so that questions about the type hierarchy can be
+ * answered from memory rather than by opening each class as it is needed.
+ * <p>
+ * Each class is given an integer id, and its superclass, interfaces, access flags and generic signature are held in
+ * arrays indexed by that id. Supertypes which are referred to but not on the class path, such as JDK types when
+ * only a project's jars are indexed, are given ids too, but are not {@linkplain #isIndexed(int) indexed}: nothing
+ * is known about their own headers. Class names are in internal form, e.g. {@code java/lang/Object}.
+ */
+@Immutable
+public final class TypeHierarchyIndex {
+
+    public static final int NO_CLASS = -1;
+
+    private static final int NOT_INDEXED = -1;
+
+    private final Map<String, Integer> ids;
+    private final String[] names;
+    private final int[] access;
+    private final int[] superclasses;
+    private final int[] interfacesStart;
+    private final int[] interfaces;
+    private final String[] signatures;
+
+    private TypeHierarchyIndex(Map<String, Integer> ids,
+                               String[] names,
+                               int[] access,
+                               int[] superclasses,
+                               int[] interfacesStart,
+                               int[] interfaces,
+                               String[] signatures) {
+        this.ids = ids;
+        this.names = names;
+        this.access = access;
+        this.superclasses = superclasses;
+        this.interfacesStart = interfacesStart;
+        this.interfaces = interfaces;
+        this.signatures = signatures;
+    }
+
+    /**
+     * Reads the header of every class on the given class path, walking its packages concurrently.
+     * <p>
+     * Class files which cannot be read are left out of the index, as are versioned classes under
+     * {@code META-INF}, whose resource names do not match the classes they contain.
+     */
+    public static TypeHierarchyIndex build(ClassPath classPath, int parallelism) {
+        Queue<ClassHeader> headers = new ConcurrentLinkedQueue<ClassHeader>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(new PackageWalk(classPath, "", headers)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while indexing class path.", e);
+        } catch (ExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return fromHeaders(headers);
+    }
+
+    private static TypeHierarchyIndex fromHeaders(Iterable<ClassHeader> headers) {
+        Map<String, Integer> ids = new HashMap<String, Integer>();
+        List<ClassHeader> indexed = new ArrayList<ClassHeader>();
+        for (ClassHeader header : headers) {
+            if (!ids.containsKey(header.name)) {
+                ids.put(header.name, indexed.size());
+                indexed.add(header);
+            }
+        }
+
+        List<String> names = new ArrayList<String>();
+        for (ClassHeader header : indexed) {
+            names.add(header.name);
+        }
+        int referencedOnly = indexed.size();
+        for (ClassHeader header : indexed) {
+            idOrAssign(header.superName, ids, names);
+            for (String interfaceName : header.interfaces) {
+                idOrAssign(interfaceName, ids, names);
+            }
+        }
+
+        int count = names.size();
+        int[] access = new int[count];
+        int[] superclasses = new int[count];
+        int[] interfacesStart = new int[count + 1];
+        String[] signatures = new String[count];
+        int interfaceCount = 0;
+        for (ClassHeader header : indexed) {
+            interfaceCount += header.interfaces.length;
+        }
+        int[] interfaces = new int[interfaceCount];
+
+        int next = 0;
+        for (int id = 0; id < count; id++) {
+            interfacesStart[id] = next;
+            if (id < referencedOnly) {
+                ClassHeader header = indexed.get(id);
+                access[id] = header.access;
+                superclasses[id] = header.superName == null ? NO_CLASS : ids.get(header.superName);
+                signatures[id] = header.signature;
+                for (String interfaceName : header.interfaces) {
+                    interfaces[next++] = ids.get(interfaceName);
+                }
+            } else {
+                access[id] = NOT_INDEXED;
+                superclasses[id] = NO_CLASS;
+            }
+        }
+        interfacesStart[count] = next;
+
+        return new TypeHierarchyIndex(Collections.unmodifiableMap(ids),
+                names.toArray(new String[count]),
+                access,
+                superclasses,
+                interfacesStart,
+                interfaces,
+                signatures);
+    }
+
+    private static void idOrAssign(String name, Map<String, Integer> ids, List<String> names) {
+        if (name != null && !ids.containsKey(name)) {
+            ids.put(name, names.size());
+            names.add(name);
+        }
+    }
+
+    /**
+     * The id of the named class, or {@link #NO_CLASS} if it is neither on the class path nor a supertype of a class
+     * which is.
+     */
+    public int idOf(String internalName) {
+        Integer id = ids.get(internalName);
+        return id == null ? NO_CLASS : id;
+    }
+
+    /**
+     * Whether the header of the class with the given id was read from the class path.
+     */
+    public boolean isIndexed(int id) {
+        return id != NO_CLASS && access[id] != NOT_INDEXED;
+    }
+
+    public boolean isIndexed(String internalName) {
+        return isIndexed(idOf(internalName));
+    }
+
+    public String nameOf(int id) {
+        return names[id];
+    }
+
+    public int accessOf(int id) {
+        return access[indexed(id)];
+    }
+
+    public boolean isInterface(int id) {
+        return (accessOf(id) & Opcodes.ACC_INTERFACE) != 0;
+    }
+
+    public boolean isAbstract(int id) {
+        return (accessOf(id) & Opcodes.ACC_ABSTRACT) != 0;
+    }
+
+    /**
+     * The id of the superclass of the given class, or {@link #NO_CLASS} for {@code java/lang/Object}.
+     */
+    public int superclassOf(int id) {
+        return superclasses[indexed(id)];
+    }
+
+    public int[] interfacesOf(int id) {
+        indexed(id);
+        return Arrays.copyOfRange(interfaces, interfacesStart[id], interfacesStart[id + 1]);
+    }
+
+    /**
+     * The generic signature of the given class, or null if it does not have one.
+     */
+    public String signatureOf(int id) {
+        return signatures[indexed(id)];
+    }
+
+    /**
+     * The number of ids given out, including those of classes which are only referred to.
+     */
+    public int size() {
+        return names.length;
+    }
+
+    private int indexed(int id) {
+        if (!isIndexed(id)) {
+            throw new IllegalArgumentException("Class is not indexed: " + (id == NO_CLASS ? "no class" : names[id]));
+        }
+        return id;
+    }
+
+    @Immutable
+    private static final class ClassHeader {
+        final String name;
+        final int access;
+        final String superName;
+        final String[] interfaces;
+        final String signature;
+
+        ClassHeader(String name, int access, String superName, String[] interfaces, String signature) {
+            this.name = name;
+            this.access = access;
+            this.superName = superName;
+            this.interfaces = interfaces;
+            this.signature = signature;
+        }
+    }
+
+    private static final class HeaderReader extends ClassVisitor {
+        private ClassHeader header;
+
+        HeaderReader() {
+            super(AsmCompatibility.AsmApiVersion);
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            header = new ClassHeader(name, access, superName, interfaces == null ? new String[0] : interfaces, signature);
+        }
+    }
+
+    private static final class PackageWalk extends RecursiveAction {
+        private final ClassPath classPath;
+        private final String slashedPackage;
+        private final Queue<ClassHeader> headers;
+
+        PackageWalk(ClassPath classPath, String slashedPackage, Queue<ClassHeader> headers) {
+            this.classPath = classPath;
+            this.slashedPackage = slashedPackage;
+            this.headers = headers;
+        }
+
+        @Override
+        protected void compute() {
+            List<PackageWalk> subpackages = new ArrayList<PackageWalk>();
+            for (String subpackage : classPath.listPackages(slashedPackage)) {
+                String slashedSubpackage = pathWithin(slashedPackage, subpackage);
+                if (!slashedSubpackage.equals("META-INF")) {
+                    PackageWalk walk = new PackageWalk(classPath, slashedSubpackage, headers);
+                    walk.fork();
+                    subpackages.add(walk);
+                }
+            }
+
+            for (String resource : classPath.listResources(slashedPackage)) {
+                if (resource.endsWith(".class")) {
+                    readHeader(pathWithin(slashedPackage, resource));
+                }
+            }
+
+            for (int i = subpackages.size() - 1; i >= 0; i--) {
+                subpackages.get(i).join();
+            }
+        }
+
+        private void readHeader(String resource) {
+            try {
+                byte[] classFile = bytesOf(classPath, resource);
+                if (classFile == null) {
+                    return;
+                }
+                HeaderReader reader = new HeaderReader();
+                new ClassReader(classFile).accept(reader, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+                if (reader.header != null && resource.equals(reader.header.name + ".class")) {
+                    headers.add(reader.header);
+                }
+            } catch (IOException | RuntimeException e) {
+                // left out of the index, and read on demand like any other class
+            }
+        }
+
+        private String pathWithin(String slashedPackage, String name) {
+            return slashedPackage.isEmpty() ? name : slashedPackage + "/" + name;
+        }
+    }
+}
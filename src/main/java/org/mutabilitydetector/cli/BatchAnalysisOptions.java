@@ -47,4 +47,18 @@ public interface BatchAnalysisOptions {
     boolean failFast();
 
     ClassloadingOption classloading();
+
+    int threads();
+
+    File incrementalStateFile();
+
+    boolean isIncremental();
+
+    boolean bottomUp();
+
+    boolean mapJars();
+
+    boolean indexHierarchy();
+
+    boolean profile();
 }
@@ -22,20 +22,164 @@ package org.mutabilitydetector.cli;
 
 
 
+import com.google.classpath.ClassPath;
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
 import org.mutabilitydetector.AnalysisSession;
+import org.mutabilitydetector.DefaultCachingAnalysisSession;
+import org.mutabilitydetector.cli.BottomUpSchedule.Component;
 import org.mutabilitydetector.locations.Dotted;
 
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.Lists.newArrayList;
+
+/**
+ * Requests analysis of many classes from an {@link AnalysisSession}.
+ * <p>
+ * With more than one worker, classes are analysed concurrently on a work-stealing {@link ForkJoinPool}.
+ * Any transitive analysis triggered while analysing a class happens on the worker that requested it,
+ * so this needs a session which supports concurrent calls to {@link AnalysisSession#resultFor(Dotted)}.
+ * Only a {@link DefaultCachingAnalysisSession} is known to; any other session is used from a single worker,
+ * whatever number of workers is given.
+ * <p>
+ * A session created with {@link #bottomUp(AnalysisSession, int, ClassPath)} first scans the declared field types
+ * of each class, and analyses classes after the classes their fields refer to. Analysis of a class then finds the
+ * results for its field types already available, rather than having to analyse them first. Classes whose fields
+ * refer to each other are analysed together, and, with more than one worker, unrelated classes are analysed
+ * concurrently. Only the given classes are requested from the session; classes outside them which their fields
+ * refer to are only used to order them, and are analysed only if analysis of a given class needs them. Once the
+ * analysis of any class fails, no further classes are analysed.
+ */
 public final class BatchAnalysisSession {
     private final AnalysisSession session;
+    private final int workers;
+    private final Optional<Function<Dotted, Set<Dotted>>> bottomUpReferences;
 
     public BatchAnalysisSession(AnalysisSession session) {
+        this(session, 1);
+    }
+
+    public BatchAnalysisSession(AnalysisSession session, int workers) {
+        this(session, workersFor(session, workers), Optional.<Function<Dotted, Set<Dotted>>>absent());
+    }
+
+    private BatchAnalysisSession(AnalysisSession session, int workers, Optional<Function<Dotted, Set<Dotted>>> bottomUpReferences) {
         this.session = session;
+        this.workers = workers;
+        this.bottomUpReferences = bottomUpReferences;
+    }
+
+    public static BatchAnalysisSession bottomUp(AnalysisSession session, int workers, ClassPath classpath) {
+        return bottomUp(session, workersFor(session, workers), new FieldTypeScanner(classpath)::fieldTypesOf);
+    }
+
+    /**
+     * Schedules classes after the classes they refer to, as given, and uses the given number of workers whatever
+     * the session.
+     */
+    static BatchAnalysisSession bottomUp(AnalysisSession session, int workers, Function<Dotted, Set<Dotted>> references) {
+        checkArgument(workers > 0, "Number of workers must be positive, was %s", workers);
+        return new BatchAnalysisSession(session, workers, Optional.of(references));
+    }
+
+    private static int workersFor(AnalysisSession session, int workers) {
+        checkArgument(workers > 0, "Number of workers must be positive, was %s", workers);
+        return supportsConcurrentAnalysis(session) ? workers : 1;
+    }
+
+    private static boolean supportsConcurrentAnalysis(AnalysisSession session) {
+        return session instanceof DefaultCachingAnalysisSession;
     }
 
     public AnalysisSession runAnalysis(Iterable<Dotted> classNames) {
-        for (Dotted className : classNames) {
-            session.resultFor(className);
+        if (bottomUpReferences.isPresent()) {
+            runBottomUp(BottomUpSchedule.of(classNames, bottomUpReferences.get()).components());
+        } else if (workers == 1) {
+            for (Dotted className : classNames) {
+                session.resultFor(className);
+            }
+        } else {
+            runInParallel(classNames);
         }
         return session;
     }
+
+    private void runInParallel(Iterable<Dotted> classNames) {
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        try {
+            List<Future<?>> pending = newArrayList();
+            for (Dotted className : classNames) {
+                pending.add(pool.submit(() -> session.resultFor(className)));
+            }
+            for (Future<?> analysis : pending) {
+                analysis.get();
+            }
+        } catch (ExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for analysis to complete.", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void runBottomUp(List<Component> components) {
+        if (workers == 1) {
+            for (Component component : components) {
+                analyse(component);
+            }
+            return;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        Map<Component, CompletableFuture<Void>> scheduled = new IdentityHashMap<Component, CompletableFuture<Void>>();
+        CompletableFuture<Void> firstFailure = new CompletableFuture<Void>();
+        try {
+            for (Component component : components) {
+                CompletableFuture<?>[] dependencies = new CompletableFuture<?>[component.dependencies.size()];
+                for (int i = 0; i < dependencies.length; i++) {
+                    dependencies[i] = scheduled.get(component.dependencies.get(i));
+                }
+                CompletableFuture<Void> analysis = CompletableFuture.allOf(dependencies).thenRunAsync(() -> analyse(component), pool);
+                analysis.whenComplete((ignored, failure) -> {
+                    if (failure != null) {
+                        firstFailure.completeExceptionally(failure instanceof CompletionException ? failure.getCause() : failure);
+                    }
+                });
+                scheduled.put(component, analysis);
+            }
+            CompletableFuture<Void> all = CompletableFuture.allOf(scheduled.values().toArray(new CompletableFuture<?>[scheduled.size()]));
+            CompletableFuture.anyOf(all, firstFailure).get();
+        } catch (ExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for analysis to complete.", e);
+        } finally {
+            for (CompletableFuture<Void> analysis : scheduled.values()) {
+                analysis.cancel(false);
+            }
+            pool.shutdownNow();
+        }
+    }
+
+    private void analyse(Component component) {
+        for (Dotted className : component.given) {
+            session.resultFor(className);
+        }
+    }
 }
@@ -0,0 +1,187 @@
+package org.mutabilitydetector.cli;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import com.google.common.collect.ImmutableList;
+import org.mutabilitydetector.locations.Dotted;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Orders classes so that each class comes after the classes it refers to.
+ * <p>
+ * Classes which refer to each other, directly or indirectly, cannot be ordered this way, so each such group forms
+ * a single {@link Component}. Components are found with Tarjan's algorithm, which lists every component after all
+ * of the components it refers to. Classes referred to by the given classes are included, even if they were not
+ * given themselves, so that given classes which refer to each other only through them are still ordered. The
+ * {@link Component#given} members of each component are those which were given.
+ * <p>
+ * The search does not recurse, so arbitrarily long chains of references can be scheduled.
+ */
+final class BottomUpSchedule {
+
+    static final class Component {
+        final List<Dotted> members;
+        final List<Dotted> given;
+        final List<Component> dependencies;
+
+        Component(List<Dotted> members, List<Dotted> given, List<Component> dependencies) {
+            this.members = members;
+            this.given = given;
+            this.dependencies = dependencies;
+        }
+    }
+
+    private final List<Component> components;
+
+    private BottomUpSchedule(List<Component> components) {
+        this.components = components;
+    }
+
+    static BottomUpSchedule of(Iterable<Dotted> classNames, Function<Dotted, Set<Dotted>> references) {
+        return new Search(references).run(classNames);
+    }
+
+    List<Component> components() {
+        return components;
+    }
+
+    private static final class Search {
+        private final Function<Dotted, Set<Dotted>> references;
+        private final Map<Dotted, Set<Dotted>> referencesOf = new HashMap<Dotted, Set<Dotted>>();
+        private final Map<Dotted, Integer> indexOf = new HashMap<Dotted, Integer>();
+        private final Map<Dotted, Component> componentOf = new HashMap<Dotted, Component>();
+        private final Deque<Dotted> unassigned = new ArrayDeque<Dotted>();
+        private final Set<Dotted> isUnassigned = new HashSet<Dotted>();
+        private final List<Component> components = new ArrayList<Component>();
+        private final Set<Dotted> given = new HashSet<Dotted>();
+
+        Search(Function<Dotted, Set<Dotted>> references) {
+            this.references = references;
+        }
+
+        BottomUpSchedule run(Iterable<Dotted> classNames) {
+            List<Dotted> toSchedule = ImmutableList.copyOf(classNames);
+            given.addAll(toSchedule);
+            for (Dotted className : toSchedule) {
+                if (!indexOf.containsKey(className)) {
+                    searchFrom(className);
+                }
+            }
+            return new BottomUpSchedule(ImmutableList.copyOf(components));
+        }
+
+        private void searchFrom(Dotted root) {
+            Deque<Visit> visits = new ArrayDeque<Visit>();
+            visits.push(visit(root));
+
+            while (!visits.isEmpty()) {
+                Visit current = visits.peek();
+                if (current.referencesToFollow.hasNext()) {
+                    Dotted referenced = current.referencesToFollow.next();
+                    if (!indexOf.containsKey(referenced)) {
+                        visits.push(visit(referenced));
+                    } else if (isUnassigned.contains(referenced)) {
+                        current.lowLink = Math.min(current.lowLink, indexOf.get(referenced));
+                    }
+                } else {
+                    visits.pop();
+                    if (current.lowLink == indexOf.get(current.className)) {
+                        assignComponentUpTo(current.className);
+                    }
+                    if (!visits.isEmpty()) {
+                        Visit parent = visits.peek();
+                        parent.lowLink = Math.min(parent.lowLink, current.lowLink);
+                    }
+                }
+            }
+        }
+
+        private Visit visit(Dotted className) {
+            int index = indexOf.size();
+            indexOf.put(className, index);
+            unassigned.push(className);
+            isUnassigned.add(className);
+
+            Set<Dotted> referenced = references.apply(className);
+            referencesOf.put(className, referenced);
+            return new Visit(className, index, referenced.iterator());
+        }
+
+        private void assignComponentUpTo(Dotted root) {
+            List<Dotted> members = new ArrayList<Dotted>();
+            Dotted member;
+            do {
+                member = unassigned.pop();
+                isUnassigned.remove(member);
+                members.add(member);
+            } while (!member.equals(root));
+
+            Set<Component> dependencies = new LinkedHashSet<Component>();
+            for (Dotted className : members) {
+                for (Dotted referenced : referencesOf.get(className)) {
+                    Component dependency = componentOf.get(referenced);
+                    if (dependency != null) {
+                        dependencies.add(dependency);
+                    }
+                }
+            }
+
+            List<Dotted> givenMembers = new ArrayList<Dotted>();
+            for (Dotted className : members) {
+                if (given.contains(className)) {
+                    givenMembers.add(className);
+                }
+            }
+
+            Component component = new Component(ImmutableList.copyOf(members), ImmutableList.copyOf(givenMembers),
+                    ImmutableList.copyOf(dependencies));
+            for (Dotted className : members) {
+                componentOf.put(className, component);
+            }
+            components.add(component);
+        }
+    }
+
+    private static final class Visit {
+        final Dotted className;
+        final Iterator<Dotted> referencesToFollow;
+        int lowLink;
+
+        Visit(Dotted className, int index, Iterator<Dotted> referencesToFollow) {
+            this.className = className;
+            this.lowLink = index;
+            this.referencesToFollow = referencesToFollow;
+        }
+    }
+}
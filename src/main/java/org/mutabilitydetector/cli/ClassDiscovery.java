@@ -0,0 +1,159 @@
+package org.mutabilitydetector.cli;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import com.google.classpath.ClassPath;
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import org.mutabilitydetector.locations.Dotted;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Finds the classes on a class path which should be analysed, walking its packages concurrently.
+ * <p>
+ * Classes are made available as soon as they are found, so analysis can begin while the rest of the class path is
+ * still being walked. Iterating blocks until the next class is found, or the walk is complete. Packages which
+ * cannot contain a class to analyse are not walked. A discovery can only be iterated once.
+ */
+final class ClassDiscovery implements Iterable<Dotted> {
+
+    private static final Object END = new Object();
+
+    private final ClassPath classpath;
+    private final NamesFromClassResources namesToAnalyse;
+    private final BlockingQueue<Object> found = new LinkedBlockingQueue<Object>();
+    private volatile Throwable failure;
+    private boolean iterated = false;
+
+    private ClassDiscovery(ClassPath classpath, NamesFromClassResources namesToAnalyse) {
+        this.classpath = classpath;
+        this.namesToAnalyse = namesToAnalyse;
+    }
+
+    static ClassDiscovery start(ClassPath classpath, NamesFromClassResources namesToAnalyse, int parallelism) {
+        ClassDiscovery discovery = new ClassDiscovery(classpath, namesToAnalyse);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        pool.execute(() -> {
+            try {
+                discovery.new PackageWalk("").invoke();
+            } catch (Throwable e) {
+                discovery.failure = e;
+            } finally {
+                discovery.found.add(END);
+                pool.shutdown();
+            }
+        });
+        return discovery;
+    }
+
+    @Override
+    public synchronized Iterator<Dotted> iterator() {
+        checkState(!iterated, "Classes can only be discovered once.");
+        iterated = true;
+        return new Iterator<Dotted>() {
+            private Object next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    next = takeNext();
+                }
+                if (next == END) {
+                    if (failure != null) {
+                        Throwables.throwIfUnchecked(failure);
+                        throw new RuntimeException(failure);
+                    }
+                    return false;
+                }
+                return true;
+            }
+
+            @Override
+            public Dotted next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Dotted className = (Dotted) next;
+                next = null;
+                return className;
+            }
+        };
+    }
+
+    private Object takeNext() {
+        try {
+            return found.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for classes to be found.", e);
+        }
+    }
+
+    private final class PackageWalk extends RecursiveAction {
+        private final String slashedPackage;
+
+        PackageWalk(String slashedPackage) {
+            this.slashedPackage = slashedPackage;
+        }
+
+        @Override
+        protected void compute() {
+            List<PackageWalk> subpackages = new ArrayList<PackageWalk>();
+            for (String subpackage : classpath.listPackages(slashedPackage)) {
+                String slashedSubpackage = pathWithin(slashedPackage, subpackage);
+                if (namesToAnalyse.mayMatchWithin(slashedSubpackage)) {
+                    PackageWalk walk = new PackageWalk(slashedSubpackage);
+                    walk.fork();
+                    subpackages.add(walk);
+                }
+            }
+
+            for (String resource : classpath.listResources(slashedPackage)) {
+                if (resource.endsWith(".class")) {
+                    Optional<Dotted> className = namesToAnalyse.classToAnalyse(pathWithin(slashedPackage, resource));
+                    if (className.isPresent()) {
+                        found.add(className.get());
+                    }
+                }
+            }
+
+            for (int i = subpackages.size() - 1; i >= 0; i--) {
+                subpackages.get(i).join();
+            }
+        }
+
+        private String pathWithin(String slashedPackage, String name) {
+            return slashedPackage.isEmpty() ? name : slashedPackage + "/" + name;
+        }
+    }
+}
@@ -47,6 +47,13 @@ public class CommandLineOptions implements BatchAnalysisOptions {
     private boolean reportErrors;
     private boolean failFast = false;
     private boolean showSummary = false;
+    private int threads = 1;
+    private File incrementalStateFile;
+    private boolean isIncremental;
+    private boolean bottomUp = false;
+    private boolean mapJars = false;
+    private boolean indexHierarchy = false;
+    private boolean profile = false;
     
     private final PrintStream errorStream;
     private ClassloadingOption classloadingOption;
@@ -64,6 +71,12 @@ public class CommandLineOptions implements BatchAnalysisOptions {
             extractFailFastOption(line);
             extractShowSummaryOption(line);
             extractUseExperimentalAsmNonClassloadingSimpleVerifier(line);
+            extractThreads(line);
+            extractIncrementalStateFile(line);
+            extractBottomUpOption(line);
+            extractMapJarsOption(line);
+            extractIndexHierarchyOption(line);
+            extractProfileOption(line);
             printHelpIfNoOptionsGiven(line);
         }
     }
@@ -113,8 +126,16 @@ public class CommandLineOptions implements BatchAnalysisOptions {
                         + "the time taken to perform analysis.",
                 "classlist",
                 "cl");
+        createAndAddOption(opts,
+                "filename",
+                "Keep analysis results in <filename>, and reuse them in later runs. A class is only analysed again "
+                        + "if it has changed, or if its result depended on a class which has changed. The file is "
+                        + "created if it does not exist.",
+                "incremental",
+                "i");
         opts.addOption("s", "summary", false, "Show summary of analysis result.");
-        opts.addOption("v", "verbose", false, "Print details of analysis and reasons for results.");
+        opts.addOption("v", "verbose", false, "Print details of analysis and reasons for results. Without this, "
+                + "reportErrors or failFast, analysis of a class stops once it is known not to be immutable.");
         opts.addOption("r",
                 "report",
                 true,
@@ -124,10 +145,26 @@ public class CommandLineOptions implements BatchAnalysisOptions {
         opts.addOption("e", "reportErrors", false, "Reports on errors in the analysis. Defaults to false.");
         opts.addOption("f", "failFast", false, "When true, encountering an unhandled exception will cause analysis to abort immediately. " +
                 "When false, exceptions during analysis of a particular class will be reflected in the result assigned to " +
-                "that class. Defaults to false.");
+                "that class. When true, every class is analysed in full, so that no error is skipped. Defaults to false.");
         opts.addOption("n", "nonClassloading", false, "When supplied, use an implementation of ASM's " +
             "SimpleVerifier that does not load classes. This can help avoid issues encountered with class loading. " +
             "Warning: this is experimental, and has not been tested as thoroughly as the classloading version.");
+        opts.addOption("w", "withoutInitialisation", false, "When supplied, load classes for analysis without running "
+                + "their static initialisers, and without keeping them loaded once analysis no longer needs them. "
+                + "Ignored if nonClassloading is also supplied.");
+        opts.addOption("t", "threads", true, "The number of worker threads used to analyse classes concurrently. " +
+                "Use 0 to have one worker per available processor. Defaults to 1.");
+        opts.addOption("b", "bottomUp", false, "When supplied, scan the field types of each class before analysis, "
+                + "and analyse classes after the classes their fields refer to. This avoids deeply nested analysis "
+                + "of classes with long chains of field types. Defaults to false.");
+        opts.addOption("j", "mapJars", false, "When supplied, read classes from jar files on the classpath by mapping "
+                + "the jars into memory, rather than through streams. Defaults to false.");
+        opts.addOption("x", "indexHierarchy", false, "When supplied, read the header of every class on the classpath "
+                + "before analysis, and answer questions about supertypes and abstract types from that index. "
+                + "Defaults to false.");
+        opts.addOption("p", "profile", false, "When supplied, measure the time taken by each class and each checker, "
+                + "and print the slowest of them after the results, along with counts of the work done in analysis. "
+                + "Defaults to false.");
 
         return opts;
     }
@@ -173,9 +210,30 @@ public class CommandLineOptions implements BatchAnalysisOptions {
     }
 
     private void extractUseExperimentalAsmNonClassloadingSimpleVerifier(CommandLine line) {
-        this.classloadingOption = (line.hasOption("n") || line.hasOption("nonClassloading"))
-            ? ClassloadingOption.DISABLED
-            : ClassloadingOption.ENABLED;
+        if (line.hasOption("n") || line.hasOption("nonClassloading")) {
+            this.classloadingOption = ClassloadingOption.DISABLED;
+        } else if (line.hasOption("withoutInitialisation")) {
+            this.classloadingOption = ClassloadingOption.WITHOUT_INITIALISATION;
+        } else {
+            this.classloadingOption = ClassloadingOption.ENABLED;
+        }
+    }
+
+    private void extractThreads(CommandLine line) {
+        if (line.hasOption("threads")) {
+            String value = line.getOptionValue("threads");
+            try {
+                this.threads = Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                throw new CommandLineOptionsException(format("Number of threads must be a whole number, was [%s].", value));
+            }
+            if (threads < 0) {
+                throw new CommandLineOptionsException(format("Number of threads must not be negative, was [%s].", value));
+            }
+            if (threads == 0) {
+                this.threads = Runtime.getRuntime().availableProcessors();
+            }
+        }
     }
 
     private void extractVerboseOption(CommandLine line) {
@@ -203,6 +261,18 @@ public class CommandLineOptions implements BatchAnalysisOptions {
         }
     }
 
+    private void extractIncrementalStateFile(CommandLine line) {
+        if (line.hasOption("incremental")) {
+            this.incrementalStateFile = new File(line.getOptionValue("incremental"));
+            this.isIncremental = true;
+
+            if (incrementalStateFile.isDirectory()) {
+                throw new CommandLineOptionsException(
+                        format("Could not keep analysis results in [%s]: Specified file is a directory.", incrementalStateFile.getName()));
+            }
+        }
+    }
+
     private void throwExceptionIfClassListFileIsInvalid() {
         StringBuilder reasons = new StringBuilder();
         boolean isInvalid = false;
@@ -242,6 +312,22 @@ public class CommandLineOptions implements BatchAnalysisOptions {
         this.failFast = line.hasOption("failFast");
     }
 
+    private void extractBottomUpOption(CommandLine line) {
+        this.bottomUp = line.hasOption("bottomUp");
+    }
+
+    private void extractMapJarsOption(CommandLine line) {
+        this.mapJars = line.hasOption("mapJars");
+    }
+
+    private void extractIndexHierarchyOption(CommandLine line) {
+        this.indexHierarchy = line.hasOption("indexHierarchy");
+    }
+
+    private void extractProfileOption(CommandLine line) {
+        this.profile = line.hasOption("profile");
+    }
+
     private void printHelpIfRequired(CommandLine line) {
         if (line.hasOption("help")) {
             printHelpAndExit();
@@ -314,4 +400,39 @@ public class CommandLineOptions implements BatchAnalysisOptions {
     public ClassloadingOption classloading() {
         return classloadingOption;
     }
+
+    @Override
+    public int threads() {
+        return threads;
+    }
+
+    @Override
+    public File incrementalStateFile() {
+        return incrementalStateFile;
+    }
+
+    @Override
+    public boolean isIncremental() {
+        return isIncremental;
+    }
+
+    @Override
+    public boolean bottomUp() {
+        return bottomUp;
+    }
+
+    @Override
+    public boolean mapJars() {
+        return mapJars;
+    }
+
+    @Override
+    public boolean indexHierarchy() {
+        return indexHierarchy;
+    }
+
+    @Override
+    public boolean profile() {
+        return profile;
+    }
 }
@@ -0,0 +1,112 @@
+package org.mutabilitydetector.cli;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import com.google.classpath.ClassPath;
+import org.mutabilitydetector.asmoverride.AsmCompatibility;
+import org.mutabilitydetector.locations.Dotted;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.signature.SignatureReader;
+import org.objectweb.asm.signature.SignatureVisitor;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static org.mutabilitydetector.classloading.ClassPathResources.bytesOf;
+import static org.mutabilitydetector.locations.Dotted.fromSlashedString;
+
+/**
+ * Finds the types a class refers to in the declarations of its fields, including type arguments, without
+ * analysing any code.
+ * <p>
+ * These are the types whose mutability analysis of the class is likely to request. Only types which can be read
+ * from the given classpath are scanned or reported, so types from the JDK, for example, are left out.
+ */
+final class FieldTypeScanner {
+
+    private static final int DECLARATIONS_ONLY = ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
+
+    private final ClassPath classpath;
+
+    FieldTypeScanner(ClassPath classpath) {
+        this.classpath = classpath;
+    }
+
+    Set<Dotted> fieldTypesOf(Dotted className) {
+        try {
+            byte[] classFile = bytesOf(classpath, className.asResource());
+            if (classFile == null) {
+                return Collections.emptySet();
+            }
+            FieldTypeCollector collector = new FieldTypeCollector();
+            new ClassReader(classFile).accept(collector, DECLARATIONS_ONLY);
+            Set<Dotted> fieldTypes = new LinkedHashSet<Dotted>();
+            for (Dotted fieldType : collector.fieldTypes) {
+                if (!fieldType.equals(className) && isOnClasspath(fieldType)) {
+                    fieldTypes.add(fieldType);
+                }
+            }
+            return fieldTypes;
+        } catch (IOException | RuntimeException e) {
+            return Collections.emptySet();
+        }
+    }
+
+    private boolean isOnClasspath(Dotted className) {
+        try {
+            return classpath.isResource(className.asResource());
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static final class FieldTypeCollector extends ClassVisitor {
+        final Set<Dotted> fieldTypes = new LinkedHashSet<Dotted>();
+
+        FieldTypeCollector() {
+            super(AsmCompatibility.AsmApiVersion);
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+            Type fieldType = Type.getType(descriptor);
+            if (fieldType.getSort() == Type.OBJECT) {
+                fieldTypes.add(fromSlashedString(fieldType.getInternalName()));
+            }
+            if (signature != null) {
+                new SignatureReader(signature).acceptType(new SignatureVisitor(AsmCompatibility.AsmApiVersion) {
+                    @Override
+                    public void visitClassType(String name) {
+                        fieldTypes.add(fromSlashedString(name));
+                    }
+                });
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.mutabilitydetector.cli;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import org.mutabilitydetector.AnalysisMetrics;
+import org.mutabilitydetector.AnalysisMetrics.Timing;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formats the metrics collected by a session analysed with the profile option: the slowest classes, checkers and
+ * information retrievals, followed by counts of the work done.
+ */
+@Immutable
+public final class MetricsFormatter {
+
+    private final int slowestToShow;
+
+    public MetricsFormatter(int slowestToShow) {
+        this.slowestToShow = slowestToShow;
+    }
+
+    public StringBuilder format(AnalysisMetrics metrics) {
+        StringBuilder output = new StringBuilder();
+        output.append(String.format("%nProfile of analysis:%n"));
+        appendTimings(output, "Slowest classes", metrics.classTimings());
+        appendTimings(output, "Slowest checkers", metrics.checkerTimings());
+        appendTimings(output, "Slowest information retrievals", metrics.informationRetrievalTimings());
+        output.append(String.format("%n\t%d %s%n", metrics.bytesRead(), "bytes of class files read."));
+        output.append(String.format("\t%d %s%n", metrics.fieldTypeLookups(), "field type lookup(s)."));
+        output.append(String.format("\t%d %s%n", metrics.transitiveAnalyses(), "transitive analyses."));
+        output.append(String.format("\t%d %s%n", metrics.cyclesDetected(), "cyclic reference(s) detected."));
+        return output;
+    }
+
+    private void appendTimings(StringBuilder output, String heading, List<Timing> timings) {
+        output.append(String.format("%n\t%s:%n", heading));
+        for (Timing timing : timings.subList(0, Math.min(slowestToShow, timings.size()))) {
+            output.append(String.format("\t%10.3f ms %8d x %s%n", millis(timing.nanos), timing.count, timing.name));
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
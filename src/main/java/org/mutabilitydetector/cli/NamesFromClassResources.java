@@ -21,28 +21,238 @@ package org.mutabilitydetector.cli;
  */
 
 
+
 import static org.mutabilitydetector.locations.ClassNameConverter.CONVERTER;
 
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 import org.mutabilitydetector.locations.Dotted;
 
+import com.google.common.base.Optional;
+
+/**
+ * Selects the class resources to analyse, by matching their class names against a regular expression.
+ * <p>
+ * Before converting a resource name and applying the expression, resources are rejected if they cannot contain a
+ * literal part of the expression which every match must contain. If the expression is anchored at the start, with
+ * {@code ^}, whole packages which cannot hold a match are also skipped during discovery.
+ */
 public final class NamesFromClassResources {
 
+    private static final String CLASS_SUFFIX = ".class";
+
     private final Pattern classNameRegex;
+    private final String requiredLiteral;
+    private final String requiredPrefix;
 
     public NamesFromClassResources(String toAnalyseRegex) {
         this.classNameRegex = Pattern.compile(toAnalyseRegex);
+        RegexLiterals literals = RegexLiterals.of(toAnalyseRegex);
+        this.requiredLiteral = literals.longestRequired;
+        this.requiredPrefix = literals.prefix;
     }
 
     public List<Dotted> asDotted(String[] findResources) {
-        return Arrays.stream(findResources)
-                .map(CONVERTER::dotted)
-                .filter(classNameRegex.asPredicate())
-                .map(Dotted::dotted)
-                .collect(Collectors.toList());
+        List<Dotted> toAnalyse = new ArrayList<>();
+        for (String resource : findResources) {
+            Optional<Dotted> className = classToAnalyse(resource);
+            if (className.isPresent()) {
+                toAnalyse.add(className.get());
+            }
+        }
+        return toAnalyse;
+    }
+
+    /**
+     * The class to analyse from the given slashed class resource, if its name matches.
+     */
+    Optional<Dotted> classToAnalyse(String resource) {
+        String className;
+        if (isPlainClassResource(resource)) {
+            if (!resource.contains(requiredLiteral) || !startsWithPrefix(resource)) {
+                return Optional.absent();
+            }
+            className = resource.substring(0, resource.length() - CLASS_SUFFIX.length()).replace('/', '.');
+        } else {
+            className = CONVERTER.dotted(resource);
+        }
+        return classNameRegex.matcher(className).find()
+                ? Optional.of(Dotted.dotted(className))
+                : Optional.<Dotted>absent();
+    }
+
+    /**
+     * Whether classes in the given slashed package, or packages within it, could match.
+     */
+    boolean mayMatchWithin(String slashedPackage) {
+        if (slashedPackage.isEmpty() || !isPlainClassResource(slashedPackage + "/" + CLASS_SUFFIX)) {
+            return true;
+        }
+        String packagePath = slashedPackage + "/";
+        int comparable = Math.min(packagePath.length(), requiredPrefix.length());
+        return sameClassNameCharacters(packagePath, requiredPrefix, comparable);
+    }
+
+    /**
+     * Resources whose names {@link org.mutabilitydetector.locations.ClassNameConverter} rewrites beyond removing the
+     * suffix and replacing slashes, such as those which look like type descriptors, are converted the slow way,
+     * without filtering on literals first.
+     */
+    private static boolean isPlainClassResource(String resource) {
+        return resource.indexOf(CLASS_SUFFIX) == resource.length() - CLASS_SUFFIX.length()
+                && !resource.startsWith("L")
+                && !resource.startsWith("[")
+                && resource.indexOf(';') < 0
+                && resource.indexOf('[') < 0;
+    }
+
+    private boolean startsWithPrefix(String resource) {
+        return resource.length() >= requiredPrefix.length()
+                && sameClassNameCharacters(resource, requiredPrefix, requiredPrefix.length());
+    }
+
+    private static boolean sameClassNameCharacters(String slashed, String dotted, int length) {
+        for (int i = 0; i < length; i++) {
+            char resourceChar = slashed.charAt(i);
+            char classNameChar = dotted.charAt(i);
+            if (resourceChar != classNameChar && !(resourceChar == '/' && classNameChar == '.')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Literal text which any match of a regular expression must contain. Expressions using features which make this
+     * hard to work out, such as alternation or flags, are treated as having no required literals.
+     */
+    static final class RegexLiterals {
+        private static final RegexLiterals NONE = new RegexLiterals("", "");
+        private static final String SINGLE_LETTER_ESCAPES = "tnrfaedDhHsSvVwWbBAGzZRX";
+
+        final String prefix;
+        final String longestRequired;
+
+        private RegexLiterals(String prefix, String longestRequired) {
+            this.prefix = prefix;
+            this.longestRequired = longestRequired;
+        }
+
+        static RegexLiterals of(String regex) {
+            if (regex.indexOf('|') >= 0 || regex.contains("\\Q") || regex.contains("(?")) {
+                return NONE;
+            }
+
+            StringBuilder prefix = new StringBuilder();
+            boolean prefixOpen = regex.startsWith("^");
+            boolean previousExtendedPrefix = false;
+            StringBuilder run = new StringBuilder();
+            boolean previousExtendedRun = false;
+            String longest = "";
+            int depth = 0;
+
+            int i = prefixOpen ? 1 : 0;
+            while (i < regex.length()) {
+                char c = regex.charAt(i);
+                boolean extendsPrefix = false;
+                boolean extendsRun = false;
+                int next = i + 1;
+
+                if (c == '*' || c == '?' || c == '{') {
+                    // The previous atom may be absent, so it cannot be required.
+                    if (previousExtendedPrefix) {
+                        prefix.setLength(prefix.length() - 1);
+                    }
+                    if (previousExtendedRun) {
+                        run.setLength(run.length() - 1);
+                    }
+                    prefixOpen = false;
+                    longest = longer(longest, run);
+                    if (c == '{') {
+                        int close = regex.indexOf('}', i);
+                        next = close < 0 ? regex.length() : close + 1;
+                    }
+                } else if (c == '\\') {
+                    if (i + 1 < regex.length() && !isTwoCharacterEscape(regex.charAt(i + 1))) {
+                        return NONE;
+                    }
+                    longest = longer(longest, run);
+                    if (i + 1 < regex.length() && regex.charAt(i + 1) == '.' && prefixOpen) {
+                        prefix.append('.');
+                        extendsPrefix = true;
+                    } else {
+                        prefixOpen = false;
+                    }
+                    next = i + 2;
+                } else if (c == '[') {
+                    longest = longer(longest, run);
+                    prefixOpen = false;
+                    next = endOfCharacterClass(regex, i);
+                } else if (c == '(' || c == ')') {
+                    longest = longer(longest, run);
+                    prefixOpen = false;
+                    depth += c == '(' ? 1 : -1;
+                } else if (c == '+' || c == '.' || c == '^' || c == '$') {
+                    longest = longer(longest, run);
+                    prefixOpen = false;
+                } else {
+                    if (depth == 0) {
+                        run.append(c);
+                        extendsRun = true;
+                    }
+                    if (prefixOpen) {
+                        prefix.append(c);
+                        extendsPrefix = true;
+                    }
+                }
+
+                previousExtendedPrefix = extendsPrefix;
+                previousExtendedRun = extendsRun;
+                i = next;
+            }
+            return new RegexLiterals(prefix.toString(), longer(longest, run));
+        }
+
+        /**
+         * Compares, then empties, the current run of literal characters.
+         */
+        private static String longer(String longest, StringBuilder run) {
+            String candidate = run.toString();
+            run.setLength(0);
+            return candidate.length() > longest.length() ? candidate : longest;
+        }
+
+        /**
+         * Whether an escape is the backslash and this one character, leaving what follows to be read as usual. Escapes
+         * with more characters, such as {@code \x24}, {@code \u0024}, {@code \0044} or {@code \p{Lu}}, are not.
+         */
+        private static boolean isTwoCharacterEscape(char escaped) {
+            return !Character.isLetterOrDigit(escaped) || SINGLE_LETTER_ESCAPES.indexOf(escaped) >= 0;
+        }
+
+        /**
+         * The index just after the character class opened at the given index, including any classes nested in it,
+         * such as {@code [a-z&&[^b]]}.
+         */
+        private static int endOfCharacterClass(String regex, int open) {
+            int i = open + 1;
+            if (i < regex.length() && regex.charAt(i) == '^') {
+                i++;
+            }
+            if (i < regex.length() && regex.charAt(i) == ']') {
+                i++;
+            }
+            while (i < regex.length() && regex.charAt(i) != ']') {
+                char c = regex.charAt(i);
+                if (c == '[') {
+                    i = endOfCharacterClass(regex, i);
+                } else {
+                    i += c == '\\' ? 2 : 1;
+                }
+            }
+            return i + 1;
+        }
     }
 }
@@ -20,14 +20,19 @@ package org.mutabilitydetector.cli;
  * #L%
  */
 
-import static com.google.classpath.RegExpResourceFilter.ANY;
-import static com.google.classpath.RegExpResourceFilter.ENDS_WITH_CLASS;
 import static org.mutabilitydetector.Configurations.OUT_OF_THE_BOX_CONFIGURATION;
 import static org.mutabilitydetector.DefaultCachingAnalysisSession.createWithGivenClassPath;
+import static org.mutabilitydetector.DefaultCachingAnalysisSession.createWithIndexedClassPath;
+import static org.mutabilitydetector.checkers.AllChecksRunner.AnalysisMode.FULL;
+import static org.mutabilitydetector.checkers.AllChecksRunner.AnalysisMode.VERDICT_ONLY;
 import static org.mutabilitydetector.checkers.CheckerRunner.ExceptionPolicy.CARRY_ON;
 import static org.mutabilitydetector.checkers.CheckerRunner.ExceptionPolicy.FAIL_FAST;
+import static org.mutabilitydetector.classloading.CachingAnalysisClassLoader.weaklyCaching;
+import static org.mutabilitydetector.classloading.CachingClassPath.cachingResourcesOf;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
@@ -41,18 +46,22 @@ import org.mutabilitydetector.ConfigurationBuilder;
 import org.mutabilitydetector.asmoverride.AsmVerifierFactory;
 import org.mutabilitydetector.asmoverride.AsmVerifierFactory.ClassloadingOption;
 import org.mutabilitydetector.asmoverride.ClassLoadingVerifierFactory;
+import org.mutabilitydetector.checkers.AllChecksRunner.AnalysisMode;
 import org.mutabilitydetector.asmoverride.NonClassLoadingVerifierFactory;
 import org.mutabilitydetector.checkers.ClassPathBasedCheckerRunnerFactory;
 import org.mutabilitydetector.checkers.MutabilityCheckerFactory;
 import org.mutabilitydetector.checkers.MutabilityCheckerFactory.ReassignedFieldAnalysisChoice;
 import org.mutabilitydetector.classloading.CachingAnalysisClassLoader;
 import org.mutabilitydetector.classloading.ClassForNameWrapper;
+import org.mutabilitydetector.classloading.MappedClassPath;
+import org.mutabilitydetector.classloading.NonInitialisingClassLoader;
+import org.mutabilitydetector.classloading.TypeHierarchyIndex;
 import org.mutabilitydetector.locations.Dotted;
 import org.mutabilitydetector.misc.TimingUtil;
 
 import com.google.classpath.ClassPath;
 import com.google.classpath.ClassPathFactory;
-import com.google.classpath.RegExpResourceFilter;
+import com.google.common.base.Optional;
 
 /**
  * Runs an analysis configured by the given classpath and options.
@@ -60,12 +69,14 @@ import com.google.classpath.RegExpResourceFilter;
  */
 public final class RunMutabilityDetector implements Runnable, Callable<String> {
 
+    private static final int SLOWEST_TO_PROFILE = 10;
+
     private final ClassPath classpath;
     private final BatchAnalysisOptions options;
     private final NamesFromClassResources namesFromClassResources;
 
     public RunMutabilityDetector(ClassPath classpath, BatchAnalysisOptions options, NamesFromClassResources namesFromClassResources) {
-        this.classpath = classpath;
+        this.classpath = cachingResourcesOf(classpath);
         this.options = options;
         this.namesFromClassResources = namesFromClassResources;
     }
@@ -88,9 +99,7 @@ public final class RunMutabilityDetector implements Runnable, Callable<String> {
     }
 
     private StringBuilder getResultString() {
-        RegExpResourceFilter regExpResourceFilter = new RegExpResourceFilter(ANY, ENDS_WITH_CLASS);
-        String[] findResources = classpath.findResources("", regExpResourceFilter);
-        List<Dotted> filtered = namesFromClassResources.asDotted(findResources);
+        Iterable<Dotted> toAnalyse = ClassDiscovery.start(classpath, namesFromClassResources, Runtime.getRuntime().availableProcessors());
 
         Configuration configuration = new ConfigurationBuilder() {
             @Override
@@ -98,32 +107,85 @@ public final class RunMutabilityDetector implements Runnable, Callable<String> {
                 mergeHardcodedResultsFrom(OUT_OF_THE_BOX_CONFIGURATION);
                 setExceptionPolicy(options.failFast() ? FAIL_FAST : CARRY_ON);
                 setClassloadingPolicy(options.classloading());
+                setCollectMetrics(options.profile());
+                setAnalysisMode(analysisModeFor(options));
+                if (options.isIncremental()) {
+                    setResultStoreLocation(options.incrementalStateFile());
+                }
             }
         }.build();
 
         String[] classPathFiles = new ClassPathFactory().parseClasspath(options.classpath());
-        AsmVerifierFactory verifierFactory = options.classloading() == ClassloadingOption.ENABLED
-            ? createClassLoadingVerifierFactory(classPathFiles)
-            : new NonClassLoadingVerifierFactory(classpath);
-
-        AnalysisSession newSession = createWithGivenClassPath(classpath,
-                                                            new ClassPathBasedCheckerRunnerFactory(classpath, configuration.exceptionPolicy()),
-                                                            new MutabilityCheckerFactory(ReassignedFieldAnalysisChoice.NAIVE_PUT_FIELD_ANALYSIS, configuration.immutableContainerClasses()),
-                                                            verifierFactory,
-                                                            configuration);
-
-
-        AnalysisSession completedSession = new BatchAnalysisSession(newSession).runAnalysis(filtered);
+        Optional<TypeHierarchyIndex> typeHierarchyIndex = options.indexHierarchy()
+            ? Optional.of(TypeHierarchyIndex.build(classpath, Runtime.getRuntime().availableProcessors()))
+            : Optional.<TypeHierarchyIndex>absent();
+        AsmVerifierFactory verifierFactory = options.classloading() == ClassloadingOption.DISABLED
+            ? createNonClassLoadingVerifierFactory(typeHierarchyIndex)
+            : createClassLoadingVerifierFactory(classPathFiles, options.classloading());
+
+        AnalysisSession newSession = typeHierarchyIndex.isPresent()
+            ? createWithIndexedClassPath(classpath, typeHierarchyIndex.get(), verifierFactory, configuration)
+            : createWithGivenClassPath(classpath,
+                                       new ClassPathBasedCheckerRunnerFactory(classpath, configuration.exceptionPolicy()),
+                                       new MutabilityCheckerFactory(ReassignedFieldAnalysisChoice.NAIVE_PUT_FIELD_ANALYSIS, configuration.immutableContainerClasses()),
+                                       verifierFactory,
+                                       configuration);
+
+
+        int workers = Math.max(1, options.threads());
+        BatchAnalysisSession batchSession = options.bottomUp()
+                ? BatchAnalysisSession.bottomUp(newSession, workers, classpath)
+                : new BatchAnalysisSession(newSession, workers);
+        AnalysisSession completedSession;
+        try {
+            completedSession = batchSession.runAnalysis(toAnalyse);
+        } finally {
+            close(newSession);
+        }
         
         ClassListReaderFactory readerFactory = new ClassListReaderFactory(options.classListFile());
         
         TimingUtil timingUtil = new TimingUtil();
         
-        return new SessionResultsFormatter(options, readerFactory, timingUtil)
+        StringBuilder output = new SessionResultsFormatter(options, readerFactory, timingUtil)
                        .format(completedSession.getResults(), completedSession.getErrors());
+        if (options.profile()) {
+            output.append(new MetricsFormatter(SLOWEST_TO_PROFILE).format(completedSession.metrics()));
+        }
+        return output;
     }
 
-    private ClassLoadingVerifierFactory createClassLoadingVerifierFactory(String[] classPathFiles) {
+    /**
+     * Only the verdict of each class is found, unless the reasons or errors are reported. Analysis fails fast only
+     * on errors it encounters, so the whole analysis is done when failing fast, or an error raised by a part of the
+     * analysis which would be skipped could go unnoticed.
+     */
+    static AnalysisMode analysisModeFor(BatchAnalysisOptions options) {
+        return options.verbose() || options.reportErrors() || options.failFast() ? FULL : VERDICT_ONLY;
+    }
+
+    private static void close(AnalysisSession session) {
+        if (session instanceof Closeable) {
+            try {
+                ((Closeable) session).close();
+            } catch (IOException e) {
+                System.err.printf("Could not close the analysis session: %s%n", e.getMessage());
+            }
+        }
+    }
+
+    private NonClassLoadingVerifierFactory createNonClassLoadingVerifierFactory(Optional<TypeHierarchyIndex> typeHierarchyIndex) {
+        return typeHierarchyIndex.isPresent()
+            ? new NonClassLoadingVerifierFactory(classpath, typeHierarchyIndex.get())
+            : new NonClassLoadingVerifierFactory(classpath);
+    }
+
+    private ClassLoadingVerifierFactory createClassLoadingVerifierFactory(String[] classPathFiles, ClassloadingOption classloadingOption) {
+        if (classloadingOption == ClassloadingOption.WITHOUT_INITIALISATION) {
+            return new ClassLoadingVerifierFactory(
+                    weaklyCaching(
+                            new NonInitialisingClassLoader(getCustomClassLoader(classPathFiles))));
+        }
         return new ClassLoadingVerifierFactory(
                 new CachingAnalysisClassLoader(
                         new URLFallbackClassLoader(getCustomClassLoader(classPathFiles), new ClassForNameWrapper())));
@@ -145,7 +207,9 @@ public final class RunMutabilityDetector implements Runnable, Callable<String> {
 
     public static void main(String[] args) {
         BatchAnalysisOptions options = createOptionsFromArgs(args);
-        ClassPath classpath = new ClassPathFactory().createFromPath(options.classpath());
+        ClassPath classpath = options.mapJars()
+                ? MappedClassPath.fromPath(options.classpath())
+                : new ClassPathFactory().createFromPath(options.classpath());
 
         new RunMutabilityDetector(classpath, options, new NamesFromClassResources(options.match())).run();
     }
@@ -25,16 +25,15 @@ package org.mutabilitydetector.cli;
 import java.net.URLClassLoader;
 
 import org.mutabilitydetector.classloading.AnalysisClassLoader;
-import org.mutabilitydetector.classloading.ClassForNameWrapper;
 
 public final class URLFallbackClassLoader implements AnalysisClassLoader {
 
     private final URLClassLoader urlClassLoader;
-    private final ClassForNameWrapper classForNameWrapper;
+    private final AnalysisClassLoader fallbackClassLoader;
 
-    public URLFallbackClassLoader(URLClassLoader urlClassLoader, ClassForNameWrapper classForNameWrapper) {
+    public URLFallbackClassLoader(URLClassLoader urlClassLoader, AnalysisClassLoader fallbackClassLoader) {
         this.urlClassLoader = urlClassLoader;
-        this.classForNameWrapper = classForNameWrapper;
+        this.fallbackClassLoader = fallbackClassLoader;
     }
 
     @Override
@@ -43,7 +42,7 @@ public final class URLFallbackClassLoader implements AnalysisClassLoader {
         try {
             toReturn = urlClassLoader.loadClass(dottedClass);
         } catch (ClassNotFoundException e) {
-            toReturn = classForNameWrapper.loadClass(dottedClass);
+            toReturn = fallbackClassLoader.loadClass(dottedClass);
         }
         return toReturn;
     }
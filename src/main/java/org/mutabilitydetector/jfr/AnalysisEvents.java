@@ -0,0 +1,122 @@
+package org.mutabilitydetector.jfr;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import org.mutabilitydetector.IsImmutable;
+import org.mutabilitydetector.locations.Dotted;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Describes the activity of analysis to Java Flight Recorder, so that a recording shows which classes, checkers and
+ * dependencies analysis spent its time on.
+ * <p>
+ * Each kind of activity is begun with one of the methods here, and ended with the outcome through the returned
+ * object. Events are only created on a runtime which has Flight Recorder, and only committed while a recording which
+ * enables them is running. On a runtime without Flight Recorder, every method does nothing.
+ */
+@ThreadSafe
+public abstract class AnalysisEvents {
+
+    private static final AnalysisEvents INSTANCE = forRuntime();
+
+    AnalysisEvents() { }
+
+    public static AnalysisEvents analysisEvents() {
+        return INSTANCE;
+    }
+
+    public abstract ClassAnalysis beginClassAnalysis(Dotted className);
+
+    public abstract CheckerRun beginCheckerRun(Dotted className, String checkerName);
+
+    public abstract ClassBytesRead beginClassBytesRead(Dotted className);
+
+    public abstract VerifierClassLoad beginVerifierClassLoad(String className);
+
+    /**
+     * Records a request for the result of a class, and whether it was already known to the session.
+     */
+    public abstract void resultRequested(Dotted className, boolean cached);
+
+    public interface ClassAnalysis {
+        void end(IsImmutable verdict);
+    }
+
+    public interface CheckerRun {
+        void end(IsImmutable verdict);
+    }
+
+    public interface ClassBytesRead {
+        void end(int bytes);
+    }
+
+    public interface VerifierClassLoad {
+        void end(boolean loaded);
+    }
+
+    private static AnalysisEvents forRuntime() {
+        try {
+            Class.forName("jdk.jfr.Event", false, AnalysisEvents.class.getClassLoader());
+            return new FlightRecorderEvents();
+        } catch (ClassNotFoundException | LinkageError e) {
+            return NoEvents.INSTANCE;
+        }
+    }
+
+    static final class NoEvents extends AnalysisEvents implements ClassAnalysis, CheckerRun, ClassBytesRead, VerifierClassLoad {
+        static final NoEvents INSTANCE = new NoEvents();
+
+        @Override
+        public ClassAnalysis beginClassAnalysis(Dotted className) {
+            return this;
+        }
+
+        @Override
+        public CheckerRun beginCheckerRun(Dotted className, String checkerName) {
+            return this;
+        }
+
+        @Override
+        public ClassBytesRead beginClassBytesRead(Dotted className) {
+            return this;
+        }
+
+        @Override
+        public VerifierClassLoad beginVerifierClassLoad(String className) {
+            return this;
+        }
+
+        @Override
+        public void resultRequested(Dotted className, boolean cached) { }
+
+        @Override
+        public void end(IsImmutable verdict) { }
+
+        @Override
+        public void end(int bytes) { }
+
+        @Override
+        public void end(boolean loaded) { }
+    }
+}
@@ -0,0 +1,58 @@
+package org.mutabilitydetector.jfr;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.mutabilitydetector.IsImmutable;
+
+/**
+ * Checkers are run together over a single parse of a class, so the events of the checkers of one class each span
+ * that parse, rather than the time taken by the checker alone.
+ */
+@Name("org.mutabilitydetector.CheckerRun")
+@Label("Checker Run")
+@Category("Mutability Detector")
+@Description("A checker run over a class, sharing a parse of the class with the other checkers")
+final class CheckerRunEvent extends Event implements AnalysisEvents.CheckerRun {
+
+    @Label("Class")
+    String className;
+
+    @Label("Checker")
+    String checker;
+
+    @Label("Verdict")
+    String verdict;
+
+    @Override
+    public void end(IsImmutable verdict) {
+        if (shouldCommit()) {
+            this.verdict = verdict.name();
+            commit();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.mutabilitydetector.jfr;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.mutabilitydetector.ClassBytesRead")
+@Label("Class Bytes Read")
+@Category("Mutability Detector")
+@Description("The class file of a class read from the class path for analysis")
+final class ClassBytesReadEvent extends Event implements AnalysisEvents.ClassBytesRead {
+
+    @Label("Class")
+    String className;
+
+    @Label("Size")
+    @DataAmount
+    int bytes;
+
+    @Override
+    public void end(int bytes) {
+        if (shouldCommit()) {
+            this.bytes = bytes;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.mutabilitydetector.jfr;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import org.mutabilitydetector.locations.Dotted;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Only loaded on a runtime which has Flight Recorder, as the events it creates depend on it.
+ */
+@ThreadSafe
+final class FlightRecorderEvents extends AnalysisEvents {
+
+    @Override
+    public ClassAnalysis beginClassAnalysis(Dotted className) {
+        ClassAnalysisEvent event = new ClassAnalysisEvent();
+        if (!event.isEnabled()) {
+            return NoEvents.INSTANCE;
+        }
+        event.className = className.asString();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public CheckerRun beginCheckerRun(Dotted className, String checkerName) {
+        CheckerRunEvent event = new CheckerRunEvent();
+        if (!event.isEnabled()) {
+            return NoEvents.INSTANCE;
+        }
+        event.className = className.asString();
+        event.checker = checkerName;
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public ClassBytesRead beginClassBytesRead(Dotted className) {
+        ClassBytesReadEvent event = new ClassBytesReadEvent();
+        if (!event.isEnabled()) {
+            return NoEvents.INSTANCE;
+        }
+        event.className = className.asString();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public VerifierClassLoad beginVerifierClassLoad(String className) {
+        VerifierClassLoadEvent event = new VerifierClassLoadEvent();
+        if (!event.isEnabled()) {
+            return NoEvents.INSTANCE;
+        }
+        event.className = className;
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void resultRequested(Dotted className, boolean cached) {
+        ResultRequestEvent event = new ResultRequestEvent();
+        if (event.shouldCommit()) {
+            event.className = className.asString();
+            event.cached = cached;
+            event.commit();
+        }
+    }
+}
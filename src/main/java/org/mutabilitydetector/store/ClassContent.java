@@ -0,0 +1,105 @@
+package org.mutabilitydetector.store;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.google.classpath.ClassPath;
+import com.google.common.base.Optional;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import org.mutabilitydetector.locations.Dotted;
+import org.objectweb.asm.ClassReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.mutabilitydetector.classloading.ClassPathResources.bytesOf;
+import static org.mutabilitydetector.locations.Dotted.fromSlashedString;
+
+/**
+ * Hashes the bytecode of classes, and reads their supertypes, found in the same places {@link org.mutabilitydetector.checkers.CheckerRunner}
+ * looks for them.
+ */
+class ClassContent {
+
+    private static final HashFunction CONTENT_HASH = Hashing.murmur3_128();
+
+    private final ClassPath classpath;
+
+    ClassContent(ClassPath classpath) {
+        this.classpath = classpath;
+    }
+
+    Optional<HashCode> hashOf(Dotted className) {
+        try {
+            byte[] classFile = read(className);
+            return classFile == null
+                    ? Optional.<HashCode>absent()
+                    : Optional.of(CONTENT_HASH.hashBytes(classFile));
+        } catch (IOException e) {
+            return Optional.absent();
+        }
+    }
+
+    /**
+     * The direct superclass and interfaces of the class, or none if it cannot be read.
+     */
+    Set<Dotted> supertypesOf(Dotted className) {
+        byte[] classFile;
+        try {
+            classFile = read(className);
+        } catch (IOException e) {
+            return Collections.emptySet();
+        }
+        if (classFile == null) {
+            return Collections.emptySet();
+        }
+        ClassReader reader = new ClassReader(classFile);
+        Set<Dotted> supertypes = new HashSet<Dotted>();
+        if (reader.getSuperName() != null) {
+            supertypes.add(fromSlashedString(reader.getSuperName()));
+        }
+        for (String interfaceName : reader.getInterfaces()) {
+            supertypes.add(fromSlashedString(interfaceName));
+        }
+        return supertypes;
+    }
+
+    private byte[] read(Dotted className) throws IOException {
+        byte[] classFile = null;
+        try {
+            classFile = bytesOf(classpath, className.asResource());
+        } catch (IOException | RuntimeException e) {
+            // fall through to the class loader, as analysis does
+        }
+        if (classFile != null) {
+            return classFile;
+        }
+        try (InputStream classStream = getClass().getClassLoader().getResourceAsStream(className.asResource())) {
+            return classStream == null ? null : ByteStreams.toByteArray(classStream);
+        }
+    }
+}
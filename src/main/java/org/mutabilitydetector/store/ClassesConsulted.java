@@ -0,0 +1,84 @@
+package org.mutabilitydetector.store;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import org.mutabilitydetector.locations.Dotted;
+import org.objectweb.asm.Type;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.mutabilitydetector.locations.Dotted.dotted;
+
+/**
+ * Collects the classes whose structure, such as their supertypes or whether they are abstract, is consulted while a
+ * class is analysed, so that a stored result can be invalidated when any of them changes.
+ * <p>
+ * These are the classes read through the {@link org.mutabilitydetector.checkers.info.AnalysisDatabase} and the
+ * verifier, rather than those whose mutability was requested. Classes are collected by the thread analysing the
+ * class, and only while that thread is {@linkplain #collectingInto(Set, Supplier) collecting}.
+ */
+@ThreadSafe
+public final class ClassesConsulted {
+
+    private static final ThreadLocal<Set<Dotted>> COLLECTED = new ThreadLocal<Set<Dotted>>();
+
+    private ClassesConsulted() { }
+
+    /**
+     * Runs the given analysis, adding the classes it consults to the given set. An analysis nested within it may
+     * collect into a set of its own, in which case the classes it consults are not added to the given set.
+     */
+    public static <T> T collectingInto(Set<Dotted> classes, Supplier<T> analysis) {
+        Set<Dotted> enclosing = COLLECTED.get();
+        COLLECTED.set(classes);
+        try {
+            return analysis.get();
+        } finally {
+            if (enclosing == null) {
+                COLLECTED.remove();
+            } else {
+                COLLECTED.set(enclosing);
+            }
+        }
+    }
+
+    public static void consulted(Dotted className) {
+        Set<Dotted> classes = COLLECTED.get();
+        if (classes != null) {
+            classes.add(className);
+        }
+    }
+
+    public static void consulted(Type type) {
+        Set<Dotted> classes = COLLECTED.get();
+        if (classes == null) {
+            return;
+        }
+        Type elementType = type.getSort() == Type.ARRAY ? type.getElementType() : type;
+        if (elementType.getSort() == Type.OBJECT) {
+            classes.add(dotted(elementType.getClassName()));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.mutabilitydetector.store;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.google.common.base.MoreObjects;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.mutabilitydetector.AnalysisResult;
+import org.mutabilitydetector.Configuration;
+import org.mutabilitydetector.checkers.info.CopyMethod;
+import org.mutabilitydetector.locations.Dotted;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Summarises everything in a {@link Configuration}, and the version of Mutability Detector, which can change the
+ * result of analysing a class.
+ */
+final class ConfigurationFingerprint {
+
+    private ConfigurationFingerprint() { }
+
+    static long of(Configuration configuration) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        put(hasher, MoreObjects.firstNonNull(Configuration.class.getPackage().getImplementationVersion(), "unversioned"));
+        put(hasher, configuration.howToUseHardcodedResults().name());
+        put(hasher, configuration.exceptionPolicy().name());
+        put(hasher, configuration.classloadingOption().name());
+        put(hasher, configuration.reassignedFieldAlgorithm().name());
+        put(hasher, configuration.analysisMode().name());
+
+        List<String> settings = new ArrayList<String>();
+        for (Dotted containerClass : configuration.immutableContainerClasses()) {
+            settings.add("container " + containerClass.asString());
+        }
+        for (Map.Entry<Dotted, AnalysisResult> hardcoded : configuration.hardcodedResults().entrySet()) {
+            settings.add("result " + hardcoded.getKey().asString() + " " + hardcoded.getValue().isImmutable.name());
+        }
+        for (Map.Entry<String, CopyMethod> copyMethod : configuration.hardcodedCopyMethods().entries()) {
+            CopyMethod method = copyMethod.getValue();
+            settings.add("copy " + copyMethod.getKey() + " " + method.owner.asString() + "." + method.name + method.desc
+                    + (method.isGeneric ? " generic" : ""));
+        }
+
+        Collections.sort(settings);
+        for (String setting : settings) {
+            put(hasher, setting);
+        }
+
+        return hasher.hash().asLong();
+    }
+
+    private static void put(Hasher hasher, String value) {
+        hasher.putInt(value.length()).putString(value, UTF_8);
+    }
+}
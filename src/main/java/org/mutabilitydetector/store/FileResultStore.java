@@ -0,0 +1,498 @@
+package org.mutabilitydetector.store;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.HashCode;
+import org.mutabilitydetector.AnalysisResult;
+import org.mutabilitydetector.Configuration;
+import org.mutabilitydetector.locations.Dotted;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.mutabilitydetector.locations.Dotted.dotted;
+
+/**
+ * A {@link ResultStore} kept in a single local file.
+ * <p>
+ * Each result is stored with a hash of the bytecode of the analysed class, the names of the types it depended on,
+ * and a fingerprint of the {@link Configuration} it was produced with. It is also stored with a hash of each class
+ * whose structure was {@linkplain ClassesConsulted consulted}, and of each of their supertypes, as the result can
+ * depend on the hierarchy of those classes without asking for their mutability. A result is only reused when the
+ * configuration matches, every class whose structure was consulted is unchanged, and every class it transitively
+ * depended on has an unchanged stored result of its own. Types with a hardcoded result in the configuration are
+ * covered by the fingerprint.
+ * <p>
+ * New results are appended to the file as they are recorded, each as a single checksummed record, so that a run which
+ * is cut short keeps what it has already analysed, and several processes can share one file. The file is compacted
+ * without superseded or damaged records when it is next opened. Appending and compacting are done while holding a
+ * lock on the file, and compacting rewrites the file in place, so records appended by another process are kept.
+ * <p>
+ * A file written in an older format of the store is started afresh, but any other existing file is refused rather
+ * than overwritten, in case the store was pointed at the wrong file.
+ */
+@ThreadSafe
+public final class FileResultStore implements ResultStore, Closeable {
+
+    private static final int MAGIC = 0x4d445253;
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_LENGTH = 8;
+    private static final int RECORD_OVERHEAD = 4 + 8;
+    private static final ConcurrentMap<Path, Object> PROCESS_LOCKS = new ConcurrentHashMap<Path, Object>();
+
+    private final Path file;
+    private final long fingerprint;
+    private final ClassContent classContent;
+    private final Set<Dotted> hardcoded;
+
+    private final ConcurrentMap<Dotted, Entry> entries;
+    private final ConcurrentMap<Dotted, Optional<HashCode>> currentHashes = new ConcurrentHashMap<Dotted, Optional<HashCode>>();
+    private final ConcurrentMap<Dotted, Set<Dotted>> currentSupertypes = new ConcurrentHashMap<Dotted, Set<Dotted>>();
+    private final Set<Dotted> validated = ConcurrentHashMap.newKeySet();
+
+    @GuardedBy("this")
+    private FileChannel output;
+    @GuardedBy("this")
+    private boolean writable = true;
+
+    private FileResultStore(Path file, long fingerprint, ClassContent classContent, Set<Dotted> hardcoded, ConcurrentMap<Dotted, Entry> entries) {
+        this.file = file;
+        this.fingerprint = fingerprint;
+        this.classContent = classContent;
+        this.hardcoded = hardcoded;
+        this.entries = entries;
+    }
+
+    /**
+     * @throws IOException if the file exists but is not a result store, rather than overwriting it.
+     */
+    static FileResultStore open(File file, Configuration configuration, ClassContent classContent) throws IOException {
+        long fingerprint = ConfigurationFingerprint.of(configuration);
+        Path path = file.toPath();
+        ConcurrentMap<Dotted, Entry> entries = new ConcurrentHashMap<Dotted, Entry>();
+        try {
+            load(path, fingerprint, entries);
+        } catch (NotAResultStoreException e) {
+            throw e;
+        } catch (IOException e) {
+            entries.clear();
+        }
+        return new FileResultStore(path, fingerprint, classContent, configuration.hardcodedResults().keySet(), entries);
+    }
+
+    @Override
+    public Optional<AnalysisResult> lookup(Dotted className) {
+        Entry entry = entries.get(className);
+        return entry != null && isValid(className)
+                ? Optional.of(entry.result)
+                : Optional.<AnalysisResult>absent();
+    }
+
+    @Override
+    public void record(AnalysisResult result, Set<Dotted> dependencies, Set<Dotted> classesConsulted) {
+        if (!result.errors.isEmpty() || !ResultCodec.canEncode(result)) {
+            return;
+        }
+        Optional<HashCode> classHash = currentHashOf(result.className);
+        if (!classHash.isPresent()) {
+            return;
+        }
+
+        Entry entry = new Entry(result, classHash.get(), ImmutableSet.copyOf(dependencies), structureOf(result.className, classesConsulted));
+        try {
+            append(record(fingerprint, entry));
+            entries.put(result.className, entry);
+        } catch (IOException e) {
+            // the store is only an optimisation, analysis carries on without it
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writable = false;
+        if (output != null) {
+            output.close();
+            output = null;
+        }
+    }
+
+    /**
+     * A stored result is valid if every stored class it can reach through its dependencies, including itself, still
+     * has the bytecode it was analysed from, and so do the classes whose structure each of them consulted.
+     */
+    private boolean isValid(Dotted className) {
+        Set<Dotted> reached = new HashSet<Dotted>();
+        Deque<Dotted> toVisit = new ArrayDeque<Dotted>();
+        toVisit.push(className);
+
+        while (!toVisit.isEmpty()) {
+            Dotted next = toVisit.pop();
+            if (hardcoded.contains(next) || validated.contains(next) || !reached.add(next)) {
+                continue;
+            }
+            Entry entry = entries.get(next);
+            if (entry == null || !currentHashOf(next).equals(Optional.of(entry.classHash)) || hasChanged(entry.structure)) {
+                return false;
+            }
+            for (Dotted dependency : entry.dependencies) {
+                toVisit.push(dependency);
+            }
+        }
+
+        validated.addAll(reached);
+        return true;
+    }
+
+    private boolean hasChanged(Map<Dotted, Optional<HashCode>> structure) {
+        for (Map.Entry<Dotted, Optional<HashCode>> consulted : structure.entrySet()) {
+            if (!currentHashOf(consulted.getKey()).equals(consulted.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Hashes the classes whose structure was consulted, and all of their supertypes, as the structure of a class
+     * includes what it inherits. The analysed class's own supertypes are included, as its result can depend on them.
+     */
+    private ImmutableMap<Dotted, Optional<HashCode>> structureOf(Dotted className, Set<Dotted> classesConsulted) {
+        Map<Dotted, Optional<HashCode>> structure = new HashMap<Dotted, Optional<HashCode>>();
+        Deque<Dotted> toVisit = new ArrayDeque<Dotted>(classesConsulted);
+        toVisit.addAll(currentSupertypesOf(className));
+
+        while (!toVisit.isEmpty()) {
+            Dotted next = toVisit.pop();
+            if (structure.containsKey(next)) {
+                continue;
+            }
+            structure.put(next, currentHashOf(next));
+            toVisit.addAll(currentSupertypesOf(next));
+        }
+        return ImmutableMap.copyOf(structure);
+    }
+
+    private Set<Dotted> currentSupertypesOf(Dotted className) {
+        Set<Dotted> supertypes = currentSupertypes.get(className);
+        if (supertypes == null) {
+            supertypes = classContent.supertypesOf(className);
+            currentSupertypes.putIfAbsent(className, supertypes);
+        }
+        return supertypes;
+    }
+
+    private Optional<HashCode> currentHashOf(Dotted className) {
+        Optional<HashCode> hash = currentHashes.get(className);
+        if (hash == null) {
+            hash = classContent.hashOf(className);
+            currentHashes.putIfAbsent(className, hash);
+        }
+        return hash;
+    }
+
+    private synchronized void append(byte[] record) throws IOException {
+        if (!writable) {
+            return;
+        }
+        try {
+            if (output == null) {
+                Path directory = file.toAbsolutePath().getParent();
+                if (directory != null) {
+                    Files.createDirectories(directory);
+                }
+                output = FileChannel.open(file, CREATE, WRITE, APPEND);
+            }
+            synchronized (lockWithinProcess(file)) {
+                try (FileLock lock = output.lock()) {
+                    if (output.size() == 0) {
+                        writeFully(output, header());
+                    }
+                    writeFully(output, record);
+                }
+            }
+        } catch (IOException e) {
+            writable = false;
+            throw e;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * File locks are held by the whole process, so threads of one process sharing a file also take a lock of their
+     * own before locking the file.
+     */
+    private static Object lockWithinProcess(Path file) {
+        Path key = file.toAbsolutePath().normalize();
+        Object lock = PROCESS_LOCKS.get(key);
+        if (lock == null) {
+            Object newLock = new Object();
+            lock = PROCESS_LOCKS.putIfAbsent(key, newLock);
+            if (lock == null) {
+                lock = newLock;
+            }
+        }
+        return lock;
+    }
+
+    private static void load(Path file, long fingerprint, Map<Dotted, Entry> entries) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+
+        synchronized (lockWithinProcess(file)) {
+            try (FileChannel channel = FileChannel.open(file, READ, WRITE); FileLock lock = channel.lock()) {
+                load(channel, file, fingerprint, entries);
+            }
+        }
+    }
+
+    private static void load(FileChannel channel, Path file, long fingerprint, Map<Dotted, Entry> entries) throws IOException {
+        byte[] contents = readFully(channel);
+        if (contents.length == 0) {
+            return;
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(contents));
+        if (contents.length < 4 || in.readInt() != MAGIC) {
+            throw new NotAResultStoreException(file);
+        }
+        if (contents.length < HEADER_LENGTH || in.readInt() != FORMAT_VERSION) {
+            replaceContents(channel, header());
+            return;
+        }
+
+        List<byte[]> intactRecords = newArrayList();
+        Set<String> seen = new HashSet<String>();
+        int superseded = 0;
+        boolean damaged = false;
+
+        while (in.available() > 0) {
+            if (in.available() < RECORD_OVERHEAD) {
+                damaged = true;
+                break;
+            }
+            int length = in.readInt();
+            if (length < 0 || length > in.available() - 8) {
+                damaged = true;
+                break;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            if (in.readLong() != checksumOf(payload)) {
+                damaged = true;
+                break;
+            }
+
+            DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+            long recordFingerprint = record.readLong();
+            Dotted className = dotted(record.readUTF());
+            intactRecords.add(payload);
+            if (!seen.add(recordFingerprint + " " + className.asString())) {
+                superseded++;
+            }
+            if (recordFingerprint == fingerprint) {
+                try {
+                    entries.put(className, readEntry(record));
+                } catch (IOException | RuntimeException e) {
+                    entries.remove(className);
+                }
+            }
+        }
+
+        if (damaged || superseded > seen.size()) {
+            compact(channel, intactRecords);
+        }
+    }
+
+    private static byte[] readFully(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Result store is too large to read: " + size + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+            // keep reading until the buffer is full
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    /**
+     * Keeps the latest of each record. The file is rewritten in place rather than replaced, so that a process which
+     * has the file open to append to it goes on appending to the compacted file.
+     */
+    private static void compact(FileChannel channel, List<byte[]> payloads) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(header());
+        Map<String, byte[]> latest = new LinkedHashMap<String, byte[]>();
+        for (byte[] payload : payloads) {
+            DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+            String key = record.readLong() + " " + record.readUTF();
+            latest.remove(key);
+            latest.put(key, payload);
+        }
+        for (byte[] payload : latest.values()) {
+            bytes.write(frame(payload));
+        }
+        replaceContents(channel, bytes.toByteArray());
+    }
+
+    /**
+     * Writes the new contents over the start of the file before cutting it short, so that if writing is interrupted
+     * the file still starts with intact records, followed by what is read as a damaged one.
+     */
+    private static void replaceContents(FileChannel channel, byte[] contents) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(contents);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, buffer.position());
+        }
+        channel.truncate(contents.length);
+        channel.force(false);
+    }
+
+    private static byte[] header() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_LENGTH);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] record(long fingerprint, Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(fingerprint);
+        out.writeUTF(entry.result.className.asString());
+        byte[] classHash = entry.classHash.asBytes();
+        out.writeByte(classHash.length);
+        out.write(classHash);
+        out.writeInt(entry.dependencies.size());
+        for (Dotted dependency : entry.dependencies) {
+            out.writeUTF(dependency.asString());
+        }
+        out.writeInt(entry.structure.size());
+        for (Map.Entry<Dotted, Optional<HashCode>> consulted : entry.structure.entrySet()) {
+            out.writeUTF(consulted.getKey().asString());
+            byte[] hash = consulted.getValue().isPresent() ? consulted.getValue().get().asBytes() : new byte[0];
+            out.writeByte(hash.length);
+            out.write(hash);
+        }
+        ResultCodec.write(out, entry.result);
+        return frame(bytes.toByteArray());
+    }
+
+    private static Entry readEntry(DataInputStream in) throws IOException {
+        byte[] classHash = new byte[in.readUnsignedByte()];
+        in.readFully(classHash);
+        int numberOfDependencies = in.readInt();
+        ImmutableSet.Builder<Dotted> dependencies = ImmutableSet.builder();
+        for (int i = 0; i < numberOfDependencies; i++) {
+            dependencies.add(dotted(in.readUTF()));
+        }
+        int numberOfClassesConsulted = in.readInt();
+        ImmutableMap.Builder<Dotted, Optional<HashCode>> structure = ImmutableMap.builder();
+        for (int i = 0; i < numberOfClassesConsulted; i++) {
+            Dotted consulted = dotted(in.readUTF());
+            byte[] hash = new byte[in.readUnsignedByte()];
+            in.readFully(hash);
+            structure.put(consulted, hash.length == 0 ? Optional.<HashCode>absent() : Optional.of(HashCode.fromBytes(hash)));
+        }
+        AnalysisResult result = ResultCodec.read(in);
+        return new Entry(result, HashCode.fromBytes(classHash), dependencies.build(), structure.build());
+    }
+
+    private static byte[] frame(byte[] payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + RECORD_OVERHEAD);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.writeLong(checksumOf(payload));
+        return bytes.toByteArray();
+    }
+
+    private static long checksumOf(byte[] payload) {
+        CRC32 checksum = new CRC32();
+        checksum.update(payload, 0, payload.length);
+        return checksum.getValue();
+    }
+
+    private static final class NotAResultStoreException extends IOException {
+        NotAResultStoreException(Path file) {
+            super(file + " is not a result store, so will not be used to store results");
+        }
+    }
+
+    @Immutable
+    private static final class Entry {
+        final AnalysisResult result;
+        final HashCode classHash;
+        final ImmutableSet<Dotted> dependencies;
+        final ImmutableMap<Dotted, Optional<HashCode>> structure;
+
+        Entry(AnalysisResult result,
+              HashCode classHash,
+              ImmutableSet<Dotted> dependencies,
+              ImmutableMap<Dotted, Optional<HashCode>> structure) {
+            this.result = result;
+            this.classHash = classHash;
+            this.dependencies = dependencies;
+            this.structure = structure;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package org.mutabilitydetector.store;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.mutabilitydetector.AnalysisError;
+import org.mutabilitydetector.AnalysisResult;
+import org.mutabilitydetector.IsImmutable;
+import org.mutabilitydetector.MutableReasonDetail;
+import org.mutabilitydetector.Reason;
+import org.mutabilitydetector.locations.CodeLocation;
+import org.mutabilitydetector.locations.CodeLocation.ClassLocation;
+import org.mutabilitydetector.locations.CodeLocation.FieldLocation;
+import org.mutabilitydetector.locations.CodeLocation.UnknownCodeLocation;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mutabilitydetector.MutableReasonDetail.newMutableReasonDetail;
+import static org.mutabilitydetector.locations.CodeLocation.FieldLocation.fieldLocation;
+import static org.mutabilitydetector.locations.Dotted.dotted;
+
+/**
+ * Binary form of {@link AnalysisResult}.
+ * <p>
+ * Only results whose reasons are enum constants can be encoded, as other {@link Reason}s cannot be recreated.
+ */
+final class ResultCodec {
+
+    private static final byte UNKNOWN_LOCATION = 0;
+    private static final byte CLASS_LOCATION = 1;
+    private static final byte FIELD_LOCATION = 2;
+
+    private ResultCodec() { }
+
+    static boolean canEncode(AnalysisResult result) {
+        for (MutableReasonDetail reasonDetail : result.reasons) {
+            if (!(reasonDetail.reason() instanceof Enum)) {
+                return false;
+            }
+            CodeLocation<?> location = reasonDetail.codeLocation();
+            if (!(location instanceof ClassLocation || location instanceof FieldLocation || location instanceof UnknownCodeLocation)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static void write(DataOutput out, AnalysisResult result) throws IOException {
+        out.writeUTF(result.className.asString());
+        out.writeUTF(result.isImmutable.name());
+
+        out.writeInt(result.reasons.size());
+        for (MutableReasonDetail reasonDetail : result.reasons) {
+            out.writeUTF(reasonDetail.message());
+            writeReason(out, reasonDetail.reason());
+            writeLocation(out, reasonDetail.codeLocation());
+        }
+
+        out.writeInt(result.errors.size());
+        for (AnalysisError error : result.errors) {
+            out.writeUTF(error.onClass.asString());
+            out.writeUTF(error.checkerName);
+            out.writeUTF(error.description);
+        }
+    }
+
+    static AnalysisResult read(DataInput in) throws IOException {
+        String className = in.readUTF();
+        IsImmutable isImmutable = valueOf(IsImmutable.class, in.readUTF());
+
+        int numberOfReasons = in.readInt();
+        List<MutableReasonDetail> reasons = new ArrayList<MutableReasonDetail>(numberOfReasons);
+        for (int i = 0; i < numberOfReasons; i++) {
+            String message = in.readUTF();
+            Reason reason = readReason(in);
+            reasons.add(newMutableReasonDetail(message, readLocation(in), reason));
+        }
+
+        int numberOfErrors = in.readInt();
+        List<AnalysisError> errors = new ArrayList<AnalysisError>(numberOfErrors);
+        for (int i = 0; i < numberOfErrors; i++) {
+            errors.add(new AnalysisError(dotted(in.readUTF()), in.readUTF(), in.readUTF()));
+        }
+
+        return AnalysisResult.analysisResult(dotted(className), isImmutable, reasons, errors);
+    }
+
+    private static void writeReason(DataOutput out, Reason reason) throws IOException {
+        Enum<?> reasonConstant = (Enum<?>) reason;
+        out.writeUTF(reasonConstant.getDeclaringClass().getName());
+        out.writeUTF(reasonConstant.name());
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Reason readReason(DataInput in) throws IOException {
+        String reasonClassName = in.readUTF();
+        String constantName = in.readUTF();
+        try {
+            Class<?> reasonClass = Class.forName(reasonClassName, false, ResultCodec.class.getClassLoader());
+            if (!reasonClass.isEnum() || !Reason.class.isAssignableFrom(reasonClass)) {
+                throw new IOException("Not an enumerated reason: " + reasonClassName);
+            }
+            return (Reason) valueOf((Class) reasonClass, constantName);
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unknown reason type: " + reasonClassName, e);
+        }
+    }
+
+    private static void writeLocation(DataOutput out, CodeLocation<?> location) throws IOException {
+        if (location instanceof FieldLocation) {
+            FieldLocation fieldLocation = (FieldLocation) location;
+            out.writeByte(FIELD_LOCATION);
+            out.writeUTF(fieldLocation.fieldName());
+            out.writeUTF(fieldLocation.typeName());
+            out.writeUTF(fieldLocation.fieldType().asString());
+        } else if (location instanceof ClassLocation) {
+            out.writeByte(CLASS_LOCATION);
+            out.writeUTF(location.typeName());
+        } else {
+            out.writeByte(UNKNOWN_LOCATION);
+        }
+    }
+
+    private static CodeLocation<?> readLocation(DataInput in) throws IOException {
+        byte kind = in.readByte();
+        switch (kind) {
+        case FIELD_LOCATION:
+            String fieldName = in.readUTF();
+            ClassLocation owner = new ClassLocation(in.readUTF());
+            return fieldLocation(fieldName, owner, dotted(in.readUTF()));
+        case CLASS_LOCATION:
+            return new ClassLocation(in.readUTF());
+        case UNKNOWN_LOCATION:
+            return UnknownCodeLocation.UNKNOWN;
+        default:
+            throw new IOException("Unknown code location kind: " + kind);
+        }
+    }
+
+    private static <E extends Enum<E>> E valueOf(Class<E> enumType, String name) throws IOException {
+        try {
+            return Enum.valueOf(enumType, name);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unknown constant " + name + " of " + enumType.getName(), e);
+        }
+    }
+}
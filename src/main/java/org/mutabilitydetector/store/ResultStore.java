@@ -0,0 +1,59 @@
+package org.mutabilitydetector.store;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.google.common.base.Optional;
+import org.mutabilitydetector.AnalysisResult;
+import org.mutabilitydetector.locations.Dotted;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Keeps analysis results beyond the lifetime of a single {@link org.mutabilitydetector.AnalysisSession}.
+ * <p>
+ * Implementations must be safe for concurrent use.
+ *
+ * @see ResultStores
+ */
+public interface ResultStore extends Closeable {
+
+    /**
+     * Returns a previously recorded result, if neither the class nor any of the classes its result depended on have
+     * changed since it was recorded.
+     */
+    Optional<AnalysisResult> lookup(Dotted className);
+
+    /**
+     * Records the result of analysing a class, along with the types whose mutability was consulted to produce it,
+     * and the classes whose structure was consulted, as collected by {@link ClassesConsulted}.
+     */
+    void record(AnalysisResult result, Set<Dotted> dependencies, Set<Dotted> classesConsulted);
+
+    /**
+     * Stops recording results. Results can still be looked up.
+     */
+    @Override
+    void close() throws IOException;
+
+}
@@ -0,0 +1,72 @@
+package org.mutabilitydetector.store;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.google.classpath.ClassPath;
+import com.google.common.base.Optional;
+import org.mutabilitydetector.AnalysisResult;
+import org.mutabilitydetector.Configuration;
+import org.mutabilitydetector.locations.Dotted;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Set;
+
+public final class ResultStores {
+
+    private ResultStores() { }
+
+    public static final ResultStore NO_STORE = new ResultStore() {
+        @Override
+        public Optional<AnalysisResult> lookup(Dotted className) {
+            return Optional.absent();
+        }
+
+        @Override
+        public void record(AnalysisResult result, Set<Dotted> dependencies, Set<Dotted> classesConsulted) {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    /**
+     * Opens the store at the location given by {@link Configuration#resultStoreLocation()}, reading classes from the
+     * given classpath to tell whether stored results are still valid.
+     *
+     * @return {@link #NO_STORE} if no location is configured.
+     * @throws UncheckedIOException if a file at the configured location is not a result store.
+     */
+    public static ResultStore forConfiguration(Configuration configuration, ClassPath classpath) {
+        Optional<File> location = configuration.resultStoreLocation();
+        if (!location.isPresent()) {
+            return NO_STORE;
+        }
+        try {
+            return FileResultStore.open(location.get(), configuration, new ClassContent(classpath));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
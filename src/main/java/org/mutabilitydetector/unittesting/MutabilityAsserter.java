@@ -40,6 +40,7 @@ import org.mutabilitydetector.checkers.MutabilityCheckerFactory;
 import org.mutabilitydetector.checkers.MutabilityCheckerFactory.ReassignedFieldAnalysisChoice;
 import org.mutabilitydetector.classloading.CachingAnalysisClassLoader;
 import org.mutabilitydetector.classloading.ClassForNameWrapper;
+import org.mutabilitydetector.classloading.NonInitialisingClassLoader;
 import org.mutabilitydetector.locations.Dotted;
 import org.mutabilitydetector.unittesting.internal.AssertionReporter;
 import org.mutabilitydetector.unittesting.matchers.reasons.WithAllowedReasonsMatcher;
@@ -49,6 +50,7 @@ import java.util.List;
 
 import static java.util.Arrays.asList;
 import static org.mutabilitydetector.DefaultCachingAnalysisSession.createWithGivenClassPath;
+import static org.mutabilitydetector.classloading.CachingAnalysisClassLoader.weaklyCaching;
 import static org.mutabilitydetector.unittesting.MutabilityMatchers.areImmutable;
 import static org.mutabilitydetector.unittesting.matchers.reasons.WithAllowedReasonsMatcher.withAllowedReasons;
 import static org.mutabilitydetector.unittesting.matchers.reasons.WithAllowedReasonsMatcher.withNoAllowedReasons;
@@ -85,9 +87,7 @@ public class MutabilityAsserter {
     public static MutabilityAsserter configured(Configuration configuration) {
         ClassPath classpath = new ClassPathFactory().createFromJVM();
 
-        AsmVerifierFactory verifierFactory = configuration.classloadingOption() == ClassloadingOption.ENABLED
-            ? new ClassLoadingVerifierFactory(new CachingAnalysisClassLoader(new ClassForNameWrapper()))
-            : new NonClassLoadingVerifierFactory(classpath);
+        AsmVerifierFactory verifierFactory = verifierFactoryFor(configuration.classloadingOption(), classpath);
 
         AnalysisSession analysisSession = createWithGivenClassPath(classpath,
             new ClassPathBasedCheckerRunnerFactory(classpath, configuration.exceptionPolicy()),
@@ -98,6 +98,19 @@ public class MutabilityAsserter {
         return new MutabilityAsserter(new AssertionReporter(), analysisSession);
     }
 
+    private static AsmVerifierFactory verifierFactoryFor(ClassloadingOption classloadingOption, ClassPath classpath) {
+        switch (classloadingOption) {
+            case ENABLED:
+                return new ClassLoadingVerifierFactory(new CachingAnalysisClassLoader(new ClassForNameWrapper()));
+            case WITHOUT_INITIALISATION:
+                return new ClassLoadingVerifierFactory(weaklyCaching(new NonInitialisingClassLoader()));
+            case DISABLED:
+                return new NonClassLoadingVerifierFactory(classpath);
+            default:
+                throw new IllegalStateException("Unknown classloading option: " + classloadingOption);
+        }
+    }
+
     /**
      * Create a new asserter with a {@link Configuration} as built by the given
      * {@link ConfigurationBuilder}.
@@ -206,7 +219,7 @@ public class MutabilityAsserter {
     }
 
     private AnalysisResult getResultFor(Class<?> clazz) {
-        return analysisSession.resultFor(Dotted.fromClass(clazz));
+        return analysisSession.fullResultFor(Dotted.fromClass(clazz));
     }
 
 }
\ No newline at end of file
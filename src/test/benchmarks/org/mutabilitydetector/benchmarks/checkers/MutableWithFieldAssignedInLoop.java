@@ -0,0 +1,15 @@
+package org.mutabilitydetector.benchmarks.checkers;
+
+import java.util.List;
+
+public final class MutableWithFieldAssignedInLoop {
+    private List<String> roles;
+
+    public MutableWithFieldAssignedInLoop(List<String> roles, int times) {
+        int remaining = times;
+        do {
+            this.roles = roles;
+            remaining--;
+        } while (remaining > 0);
+    }
+}
@@ -0,0 +1,109 @@
+package org.mutabilitydetector;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import org.junit.Test;
+import org.mutabilitydetector.AnalysisMetrics.Timing;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.mutabilitydetector.locations.Dotted.dotted;
+
+public class AnalysisMetricsTest {
+
+    @Test
+    public void disabledMetricsRecordNothing() throws Exception {
+        AnalysisMetrics metrics = AnalysisMetrics.disabled();
+
+        metrics.recordCheckerRun("SomeChecker", 10);
+        metrics.recordClassAnalysed(dotted("some.Class"), metrics.mark());
+        metrics.recordBytesRead(100);
+        metrics.recordFieldTypeLookup();
+        metrics.recordCycleDetected();
+
+        assertThat(metrics.isEnabled(), is(false));
+        assertThat(metrics.checkerTimings(), is(empty()));
+        assertThat(metrics.classTimings(), is(empty()));
+        assertThat(metrics.bytesRead(), is(0L));
+        assertThat(metrics.fieldTypeLookups(), is(0L));
+        assertThat(metrics.cyclesDetected(), is(0L));
+    }
+
+    @Test
+    public void accumulatesTimingsByNameSlowestFirst() throws Exception {
+        AnalysisMetrics metrics = AnalysisMetrics.enabled();
+
+        metrics.recordCheckerRun("Quick", 5);
+        metrics.recordCheckerRun("Slow", 20);
+        metrics.recordCheckerRun("Quick", 10);
+
+        List<Timing> timings = metrics.checkerTimings();
+        assertThat(timings.size(), is(2));
+        assertThat(timings.get(0).name, is("Slow"));
+        assertThat(timings.get(0).nanos, is(20L));
+        assertThat(timings.get(1).name, is("Quick"));
+        assertThat(timings.get(1).nanos, is(15L));
+        assertThat(timings.get(1).count, is(2L));
+    }
+
+    @Test
+    public void countsWorkDoneInAnalysis() throws Exception {
+        AnalysisMetrics metrics = AnalysisMetrics.enabled();
+
+        metrics.recordBytesRead(100);
+        metrics.recordBytesRead(50);
+        metrics.recordFieldTypeLookup();
+        metrics.recordTransitiveAnalysis(metrics.mark());
+        metrics.recordCycleDetected();
+
+        assertThat(metrics.bytesRead(), is(150L));
+        assertThat(metrics.fieldTypeLookups(), is(1L));
+        assertThat(metrics.transitiveAnalyses(), is(1L));
+        assertThat(metrics.cyclesDetected(), is(1L));
+    }
+
+    @Test
+    public void timeOfTransitiveAnalysisIsCountedAgainstTheClassAnalysedRatherThanTheClassRequestingIt() throws Exception {
+        AnalysisMetrics metrics = AnalysisMetrics.enabled();
+        long pause = TimeUnit.MILLISECONDS.toNanos(100);
+
+        long requesting = metrics.mark();
+        long transitive = metrics.mark();
+        TimeUnit.NANOSECONDS.sleep(pause);
+        metrics.recordClassAnalysed(dotted("some.FieldType"), transitive);
+        metrics.recordTransitiveAnalysis(transitive);
+        metrics.recordClassAnalysed(dotted("some.Owner"), requesting);
+
+        List<Timing> timings = metrics.classTimings();
+        assertThat(timings.get(0).name, is("some.FieldType"));
+        assertThat(timings.get(0).nanos, greaterThanOrEqualTo(pause));
+        assertThat(timings.get(1).name, is("some.Owner"));
+        assertThat(timings.get(1).nanos, lessThan(pause));
+    }
+}
@@ -23,14 +23,29 @@ package org.mutabilitydetector;
 
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.mutabilitydetector.TestUtil.analysisDatabase;
 import static org.mutabilitydetector.TestUtil.testingVerifierFactory;
 import static org.mutabilitydetector.unittesting.MutabilityMatchers.areImmutable;
 
+import com.google.classpath.ClassPath;
+import com.google.classpath.ClassPathFactory;
+import com.google.classpath.ResourceFilter;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import org.junit.Test;
 import org.mutabilitydetector.benchmarks.ImmutableExample;
+import org.mutabilitydetector.benchmarks.cyclic.ImmutableClassA;
+import org.mutabilitydetector.benchmarks.cyclic.ImmutableClassB;
 import org.mutabilitydetector.checkers.AllChecksRunner;
+import org.mutabilitydetector.checkers.AllChecksRunner.AnalysisMode;
 import org.mutabilitydetector.checkers.CheckerRunnerFactory;
 import org.mutabilitydetector.checkers.ClassPathBasedCheckerRunnerFactory;
 import org.mutabilitydetector.checkers.MutabilityCheckerFactory;
@@ -40,7 +55,19 @@ import org.mutabilitydetector.checkers.info.CyclicReferences;
 import org.mutabilitydetector.checkers.info.MutableTypeInformation;
 import org.mutabilitydetector.locations.Dotted;
 
+import java.io.InputStream;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.google.common.collect.Lists.newArrayList;
 
 public class AnalysisSessionTest {
 
@@ -75,5 +102,236 @@ public class AnalysisSessionTest {
         assertThat(result, areImmutable());
     }
 
-    
+    @Test
+    public void concurrentRequestsForTheSameClassShareOneAnalysis() throws Exception {
+        AnalysisSession analysisSession = TestUtil.testAnalysisSession();
+        List<AnalysisResult> results = requestConcurrently(analysisSession, immutableClass, immutableClass, immutableClass, immutableClass);
+
+        for (AnalysisResult result : results) {
+            assertThat(result, sameInstance(results.get(0)));
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void concurrentRequestsForClassesWhichDependOnEachOtherDoNotDeadlock() throws Exception {
+        Dotted classA = Dotted.fromClass(ImmutableClassA.class);
+        Dotted classB = Dotted.fromClass(ImmutableClassB.class);
+
+        for (int i = 0; i < 20; i++) {
+            requestConcurrently(TestUtil.testAnalysisSession(), classA, classB, classA, classB);
+        }
+    }
+
+    @Test
+    public void resultOfClassRequestedAgainWhileItIsBeingAnalysedIsCountedButNotCached() throws Exception {
+        Dotted owner = Dotted.fromClass(ImmutableClassA.class);
+        AnalysisSession withoutReentry = sessionCollectingMetrics(new ClassPathFactory().createFromJVM());
+        withoutReentry.resultFor(owner);
+        long fieldTypeLookupsOfOneAnalysis = withoutReentry.metrics().fieldTypeLookups();
+        assertThat(fieldTypeLookupsOfOneAnalysis, greaterThan(0L));
+
+        AtomicReference<AnalysisSession> session = new AtomicReference<AnalysisSession>();
+        AtomicReference<AnalysisResult> reentrantResult = new AtomicReference<AnalysisResult>();
+        ClassPath reenteringClassPath = new ReenteringClassPath(new ClassPathFactory().createFromJVM(), owner.asResource(),
+                () -> reentrantResult.set(session.get().resultFor(owner)));
+        session.set(sessionCollectingMetrics(reenteringClassPath));
+
+        AnalysisResult result = session.get().resultFor(owner);
+
+        assertThat(reentrantResult.get().isImmutable, is(result.isImmutable));
+        assertThat(reentrantResult.get(), not(sameInstance(result)));
+        assertThat(session.get().resultFor(owner), sameInstance(result));
+        assertThat(session.get().resultsByClass().get(owner), sameInstance(result));
+        assertThat(session.get().metrics().fieldTypeLookups(), is(2 * fieldTypeLookupsOfOneAnalysis));
+        assertThat(timingOf(owner, session.get().metrics()).count, is(2L));
+    }
+
+    @Test
+    public void recordsTypesLookedUpDuringAnalysisInDependencyGraph() throws Exception {
+        Dotted owner = Dotted.fromClass(ImmutableClassA.class);
+        Dotted fieldType = Dotted.fromClass(ImmutableClassB.class);
+        AnalysisSession analysisSession = TestUtil.testAnalysisSession();
+
+        analysisSession.resultFor(owner);
+
+        assertThat(analysisSession.dependencyGraph().dependenciesOf(owner), contains(fieldType));
+        assertThat(analysisSession.dependencyGraph().dependentsOf(fieldType), hasItem(owner));
+    }
+
+    @Test
+    public void collectsMetricsOfAnalysisWhenConfiguredTo() throws Exception {
+        Dotted owner = Dotted.fromClass(ImmutableClassA.class);
+        AnalysisSession analysisSession = DefaultCachingAnalysisSession.createWithCurrentClassPath(new ConfigurationBuilder() {
+            @Override public void configure() {
+                mergeHardcodedResultsFrom(Configurations.OUT_OF_THE_BOX_CONFIGURATION);
+                setCollectMetrics(true);
+            }
+        }.build());
+
+        analysisSession.resultFor(owner);
+
+        AnalysisMetrics metrics = analysisSession.metrics();
+        assertThat(Lists.transform(metrics.classTimings(), t -> t.name), hasItem(owner.asString()));
+        assertThat(metrics.checkerTimings(), is(not(empty())));
+        assertThat(metrics.bytesRead(), greaterThan(0L));
+        assertThat(metrics.transitiveAnalyses(), greaterThan(0L));
+    }
+
+    @Test
+    public void doesNotCollectMetricsByDefault() throws Exception {
+        AnalysisSession analysisSession = TestUtil.testAnalysisSession();
+
+        analysisSession.resultFor(immutableClass);
+
+        assertThat(analysisSession.metrics().isEnabled(), is(false));
+        assertThat(analysisSession.metrics().classTimings(), is(empty()));
+    }
+
+    @Test
+    public void verdictOnlyAnalysisSkipsCostlyCheckersOnceClassIsFoundToBeMutable() throws Exception {
+        Dotted subclassable = Dotted.fromClass(SubclassableWithMutableField.class);
+        AnalysisSession analysisSession = DefaultCachingAnalysisSession.createWithCurrentClassPath(new ConfigurationBuilder() {
+            @Override public void configure() {
+                mergeHardcodedResultsFrom(Configurations.OUT_OF_THE_BOX_CONFIGURATION);
+                setAnalysisMode(AnalysisMode.VERDICT_ONLY);
+                setCollectMetrics(true);
+            }
+        }.build());
+
+        AnalysisResult result = analysisSession.resultFor(subclassable);
+
+        assertThat(result.isImmutable, is(IsImmutable.NOT_IMMUTABLE));
+        assertThat(reasonsOf(result), not(hasItem(MutabilityReason.MUTABLE_TYPE_TO_FIELD)));
+        assertThat(analysisSession.metrics().transitiveAnalyses(), is(0L));
+
+        AnalysisResult fullResult = analysisSession.fullResultFor(subclassable);
+        assertThat(fullResult.isImmutable, is(IsImmutable.NOT_IMMUTABLE));
+        assertThat(reasonsOf(fullResult), hasItems(MutabilityReason.CAN_BE_SUBCLASSED, MutabilityReason.MUTABLE_TYPE_TO_FIELD));
+    }
+
+    @Test
+    public void fullResultOfSessionDoingFullAnalysisIsItsUsualResult() throws Exception {
+        AnalysisSession analysisSession = TestUtil.testAnalysisSession();
+        Dotted subclassable = Dotted.fromClass(SubclassableWithMutableField.class);
+
+        assertThat(analysisSession.fullResultFor(subclassable), sameInstance(analysisSession.resultFor(subclassable)));
+    }
+
+    @Test
+    public void sessionImplementingOnlyTheOriginalMethodsGetsDefaultsForTheRest() throws Exception {
+        final AnalysisResult result = AnalysisResult.definitelyImmutable(immutableClass);
+        AnalysisSession analysisSession = new AnalysisSession() {
+            @Override public AnalysisResult resultFor(Dotted className) { return result; }
+            @Override public AnalysisResult processTransitiveAnalysis(Dotted className, AnalysisInProgress analysisInProgress) { return result; }
+            @Override public Iterable<AnalysisResult> getResults() { return Collections.singleton(result); }
+            @Override public Map<Dotted, AnalysisResult> resultsByClass() { return Collections.singletonMap(immutableClass, result); }
+            @Override public Iterable<AnalysisError> getErrors() { return Collections.emptyList(); }
+        };
+
+        assertThat(analysisSession.fullResultFor(immutableClass), sameInstance(result));
+        assertThat(analysisSession.dependencyGraph().dependencies().isEmpty(), is(true));
+        assertThat(analysisSession.metrics().isEnabled(), is(false));
+    }
+
+    public static class SubclassableWithMutableField {
+        private final MutableFieldType field;
+
+        public SubclassableWithMutableField(MutableFieldType field) {
+            this.field = field;
+        }
+    }
+
+    public static final class MutableFieldType {
+        public int value;
+    }
+
+    private static List<Reason> reasonsOf(AnalysisResult result) {
+        List<Reason> reasons = newArrayList();
+        for (MutableReasonDetail reason : result.reasons) {
+            reasons.add(reason.reason());
+        }
+        return reasons;
+    }
+
+    private static AnalysisSession sessionCollectingMetrics(ClassPath classPath) {
+        Configuration configuration = new ConfigurationBuilder() {
+            @Override public void configure() {
+                mergeHardcodedResultsFrom(Configurations.OUT_OF_THE_BOX_CONFIGURATION);
+                setCollectMetrics(true);
+            }
+        }.build();
+        return DefaultCachingAnalysisSession.createWithGivenClassPath(classPath,
+                new ClassPathBasedCheckerRunnerFactory(classPath, configuration.exceptionPolicy()),
+                new MutabilityCheckerFactory(configuration.reassignedFieldAlgorithm(), configuration.immutableContainerClasses()),
+                testingVerifierFactory(),
+                configuration);
+    }
+
+    private static AnalysisMetrics.Timing timingOf(Dotted className, AnalysisMetrics metrics) {
+        for (AnalysisMetrics.Timing timing : metrics.classTimings()) {
+            if (timing.name.equals(className.asString())) {
+                return timing;
+            }
+        }
+        throw new AssertionError("No timing of " + className);
+    }
+
+    /**
+     * Runs the given action the first time the given resource is read, as if analysis of a class led back to
+     * the class being analysed.
+     */
+    private static final class ReenteringClassPath implements ClassPath {
+        private final ClassPath delegate;
+        private final String resource;
+        private final Runnable onFirstRead;
+        private boolean read = false;
+
+        ReenteringClassPath(ClassPath delegate, String resource, Runnable onFirstRead) {
+            this.delegate = delegate;
+            this.resource = resource;
+            this.onFirstRead = onFirstRead;
+        }
+
+        @Override public InputStream getResourceAsStream(String resourceName) {
+            if (resourceName.equals(resource) && !read) {
+                read = true;
+                onFirstRead.run();
+            }
+            return delegate.getResourceAsStream(resourceName);
+        }
+
+        @Override public boolean isResource(String resourceName) { return delegate.isResource(resourceName); }
+        @Override public boolean isPackage(String packageName) { return delegate.isPackage(packageName); }
+        @Override public String[] listPackages(String packageName) { return delegate.listPackages(packageName); }
+        @Override public String[] listResources(String packageName) { return delegate.listResources(packageName); }
+        @Override public String[] findResources(String rootPackageName, ResourceFilter filter) {
+            return delegate.findResources(rootPackageName, filter);
+        }
+    }
+
+    private List<AnalysisResult> requestConcurrently(final AnalysisSession analysisSession, Dotted... classNames) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(classNames.length);
+        try {
+            List<Future<AnalysisResult>> futures = newArrayList();
+            for (final Dotted className : classNames) {
+                futures.add(executor.submit(new Callable<AnalysisResult>() {
+                    @Override
+                    public AnalysisResult call() throws Exception {
+                        start.await();
+                        return analysisSession.resultFor(className);
+                    }
+                }));
+            }
+            start.countDown();
+
+            List<AnalysisResult> results = newArrayList();
+            for (Future<AnalysisResult> future : futures) {
+                results.add(future.get(10, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
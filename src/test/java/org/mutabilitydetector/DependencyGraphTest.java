@@ -0,0 +1,88 @@
+package org.mutabilitydetector;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+import org.mutabilitydetector.locations.Dotted;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.mutabilitydetector.locations.Dotted.dotted;
+
+public class DependencyGraphTest {
+
+    private final Dotted a = dotted("some.A");
+    private final Dotted b = dotted("some.B");
+    private final Dotted c = dotted("some.C");
+    private final Dotted d = dotted("some.D");
+
+    private final DependencyGraph graph = new DependencyGraph();
+
+    @Test
+    public void recordsDependenciesInBothDirections() throws Exception {
+        graph.recordDependencies(a, ImmutableSet.of(b, c));
+
+        assertThat(graph.dependenciesOf(a), containsInAnyOrder(b, c));
+        assertThat(graph.dependentsOf(b), containsInAnyOrder(a));
+        assertThat(graph.dependentsOf(c), containsInAnyOrder(a));
+        assertThat(graph.dependenciesOf(b), is(empty()));
+    }
+
+    @Test
+    public void classesNeverAnalysedHaveNoDependenciesOrDependents() throws Exception {
+        assertThat(graph.dependenciesOf(d), is(empty()));
+        assertThat(graph.dependentsOf(d), is(empty()));
+        assertThat(graph.transitiveDependentsOf(d), is(empty()));
+    }
+
+    @Test
+    public void followsDependenciesTransitively() throws Exception {
+        graph.recordDependencies(a, ImmutableSet.of(b));
+        graph.recordDependencies(b, ImmutableSet.of(c));
+        graph.recordDependencies(d, ImmutableSet.of(c));
+
+        assertThat(graph.transitiveDependenciesOf(a), containsInAnyOrder(b, c));
+        assertThat(graph.transitiveDependentsOf(c), containsInAnyOrder(a, b, d));
+    }
+
+    @Test
+    public void classIsItsOwnTransitiveDependencyOnlyWhenPartOfACycle() throws Exception {
+        graph.recordDependencies(a, ImmutableSet.of(b));
+        graph.recordDependencies(b, ImmutableSet.of(a));
+        graph.recordDependencies(c, ImmutableSet.of(a));
+
+        assertThat(graph.transitiveDependenciesOf(a), containsInAnyOrder(a, b));
+        assertThat(graph.transitiveDependenciesOf(c), containsInAnyOrder(a, b));
+    }
+
+    @Test
+    public void copiesAllRecordedDependencies() throws Exception {
+        graph.recordDependencies(a, ImmutableSet.of(b, c));
+        graph.recordDependencies(b, ImmutableSet.of(c));
+
+        assertThat(graph.dependencies().size(), is(3));
+        assertThat(graph.dependencies().get(a), containsInAnyOrder(b, c));
+    }
+}
@@ -0,0 +1,86 @@
+package org.mutabilitydetector.asmoverride;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import org.junit.Test;
+import org.mutabilitydetector.asm.typehierarchy.TypeHierarchyReader;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Type;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class CachingTypeHierarchyReaderTest {
+
+    private final CountingTypeHierarchyReader baseReader = new CountingTypeHierarchyReader();
+
+    @Test
+    public void readsEachTypeFromBaseReaderOnlyOnce() throws Exception {
+        CachingTypeHierarchyReader reader = new CachingTypeHierarchyReader(baseReader);
+
+        reader.hierarchyOf(Type.getType(ArrayList.class));
+        reader.hierarchyOf(Type.getType(ArrayList.class));
+        reader.getSuperClass(Type.getType(ArrayList.class));
+
+        assertThat(baseReader.typesRead, is(1));
+    }
+
+    @Test
+    public void remembersAnswersToAssignabilityQuestions() throws Exception {
+        CachingTypeHierarchyReader reader = new CachingTypeHierarchyReader(baseReader);
+
+        assertThat(reader.isAssignableFrom(Type.getType(List.class), Type.getType(ArrayList.class)), is(true));
+        assertThat(reader.isAssignableFrom(Type.getType(ArrayList.class), Type.getType(List.class)), is(false));
+        int typesReadForFirstQuestions = baseReader.typesRead;
+
+        assertThat(reader.isAssignableFrom(Type.getType(List.class), Type.getType(ArrayList.class)), is(true));
+        assertThat(reader.isAssignableFrom(Type.getType(ArrayList.class), Type.getType(List.class)), is(false));
+
+        assertThat(baseReader.typesRead, is(typesReadForFirstQuestions));
+    }
+
+    @Test
+    public void evictsHierarchiesBeyondMaximum() throws Exception {
+        CachingTypeHierarchyReader reader = new CachingTypeHierarchyReader(baseReader, 1, 1);
+
+        reader.hierarchyOf(Type.getType(ArrayList.class));
+        reader.hierarchyOf(Type.getType(List.class));
+        reader.hierarchyOf(Type.getType(ArrayList.class));
+
+        assertThat(baseReader.typesRead, is(3));
+    }
+
+    private static final class CountingTypeHierarchyReader extends TypeHierarchyReader {
+        int typesRead = 0;
+
+        @Override
+        protected ClassReader reader(Type t) throws IOException {
+            typesRead++;
+            return super.reader(t);
+        }
+    }
+}
@@ -135,6 +135,14 @@ public class MutableTypeToFieldCheckerTest {
         verify(session).processTransitiveAnalysis(mutableExample, analysisInProgressWhenRequestingMutabilityOfField);
     }
 
+    @Test
+    public void doesNotRequestMutableStatusOfAbstractTypeAssignedToField() throws Exception {
+        result = runChecker(checkerWithMockedSession, MutableByAssigningAbstractTypeToField.class);
+
+        assertThat(result, areNotImmutable());
+        verify(session, never()).processTransitiveAnalysis(any(Dotted.class), any(AnalysisInProgress.class));
+    }
+
     private AnalysisInProgress analysisInProgressIncludes(Class<MutableByHavingMutableFieldAssigned> analyzing) {
         return AnalysisInProgress.noAnalysisUnderway().analysisStartedFor(Dotted.fromClass(analyzing));
     }
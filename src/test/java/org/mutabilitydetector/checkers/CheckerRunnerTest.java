@@ -26,20 +26,33 @@ import org.junit.Test;
 import org.mutabilitydetector.AnalysisError;
 import org.mutabilitydetector.AnalysisResult;
 import org.mutabilitydetector.IsImmutable;
+import org.mutabilitydetector.asmoverride.AsmCompatibility;
 import org.mutabilitydetector.benchmarks.ImmutableExample;
+import org.mutabilitydetector.benchmarks.MutableByHavingPublicNonFinalField;
 import org.mutabilitydetector.checkers.CheckerRunner.ExceptionPolicy;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.tree.MethodNode;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mutabilitydetector.checkers.CheckerRunner.ExceptionPolicy.FAIL_FAST;
+import static org.mutabilitydetector.locations.Dotted.dotted;
 import static org.mutabilitydetector.locations.Dotted.fromClass;
 
 public class CheckerRunnerTest {
@@ -139,10 +152,171 @@ public class CheckerRunnerTest {
                         "dependencies outwith the given class path."));
     }
 
+    @Test
+    public void runningCheckersTogetherGivesSameResultsAsRunningEachAlone() {
+        CheckerRunner checkerRunner = CheckerRunner.createWithCurrentClasspath(FAIL_FAST);
+        List<AsmMutabilityChecker> together = Arrays.<AsmMutabilityChecker>asList(
+                new CanSubclassChecker(), new NonFinalFieldChecker(), new PublishedNonFinalFieldChecker());
+        List<AsmMutabilityChecker> alone = Arrays.<AsmMutabilityChecker>asList(
+                new CanSubclassChecker(), new NonFinalFieldChecker(), new PublishedNonFinalFieldChecker());
+
+        List<CheckerResult> results = checkerRunner.run(
+                together, fromClass(MutableByHavingPublicNonFinalField.class), Collections.<AnalysisResult>emptyList());
+
+        assertThat(results, hasSize(alone.size()));
+        for (int i = 0; i < alone.size(); i++) {
+            CheckerResult expected = checkerRunner.run(
+                    alone.get(i), fromClass(MutableByHavingPublicNonFinalField.class), Collections.<AnalysisResult>emptyList());
+            assertThat(results.get(i).isImmutable, is(expected.isImmutable));
+            assertThat(results.get(i).reasons, is(expected.reasons));
+        }
+    }
+
+    @Test
+    public void checkerWhichFailsDoesNotAffectOtherCheckersRunInTheSamePass() {
+        Throwable rootCause = new UnsatisfiedLinkError();
+        Throwable toBeThrown = new Error();
+        toBeThrown.initCause(rootCause);
+
+        CheckerRunner checkerRunner = CheckerRunner.createWithCurrentClasspath(ExceptionPolicy.CARRY_ON);
+        List<CheckerResult> results = checkerRunner.run(
+                Arrays.asList(checkerWhichThrows(toBeThrown), new CanSubclassChecker()),
+                fromClass(ImmutableExample.class),
+                Collections.<AnalysisResult>emptyList());
+
+        assertThat(results.get(0).isImmutable, is(IsImmutable.COULD_NOT_ANALYSE));
+        assertThat(results.get(0).errors, hasSize(1));
+        assertThat(results.get(1).isImmutable, is(IsImmutable.IMMUTABLE));
+        assertThat(results.get(1).errors, is(empty()));
+    }
+
+    @Test
+    public void featuresOfClassWhichCannotBeReadAreUnknown() {
+        CheckerRunner checkerRunner = CheckerRunner.createWithCurrentClasspath(FAIL_FAST);
+
+        assertSame(ClassFeatures.unknown(), checkerRunner.featuresOf(dotted("some.missing.Class")));
+    }
+
+    @Test
+    public void propagatesExceptionFromCheckerRunInTheSamePassWhenConfiguredToFailFast() {
+        Throwable toBeThrown = new NoSuchMethodError();
+
+        CheckerRunner checkerRunner = CheckerRunner.createWithCurrentClasspath(FAIL_FAST);
+
+        try {
+            checkerRunner.run(
+                    Arrays.asList(new CanSubclassChecker(), checkerWhichThrows(toBeThrown)),
+                    fromClass(ImmutableExample.class),
+                    Collections.<AnalysisResult>emptyList());
+            fail("expected exception");
+        } catch (MutabilityAnalysisException expected) {
+            assertSame(toBeThrown, expected.getCause());
+        }
+    }
+
+    @Test
+    public void checkerIsRunWithoutThePartsOfTheClassItLeavesOut() {
+        CheckerRunner checkerRunner = CheckerRunner.createWithCurrentClasspath(FAIL_FAST);
+        LineNumberRecordingChecker withoutDebug = new LineNumberRecordingChecker(ClassReader.SKIP_DEBUG);
+
+        checkerRunner.run(withoutDebug, fromClass(ImmutableExample.class), Collections.<AnalysisResult>emptyList());
+
+        assertThat(withoutDebug.lineNumbersVisited, is(0));
+    }
+
+    @Test
+    public void partsOfTheClassAreReadWhenAnyCheckerRunInTheSamePassReadsThem() {
+        CheckerRunner checkerRunner = CheckerRunner.createWithCurrentClasspath(FAIL_FAST);
+        LineNumberRecordingChecker withoutDebug = new LineNumberRecordingChecker(ClassReader.SKIP_DEBUG);
+        LineNumberRecordingChecker withDebug = new LineNumberRecordingChecker(0);
+
+        checkerRunner.run(Arrays.asList(withoutDebug, withDebug),
+                fromClass(ImmutableExample.class),
+                Collections.<AnalysisResult>emptyList());
+
+        assertThat(withDebug.lineNumbersVisited, is(greaterThan(0)));
+        assertThat(withoutDebug.lineNumbersVisited, is(withDebug.lineNumbersVisited));
+    }
+
+    @Test
+    public void checkersRunInTheSamePassAreGivenTheSameTreeOfEachMethod() {
+        CheckerRunner checkerRunner = CheckerRunner.createWithCurrentClasspath(FAIL_FAST);
+        MethodTreeRecordingChecker first = new MethodTreeRecordingChecker();
+        MethodTreeRecordingChecker second = new MethodTreeRecordingChecker();
+
+        checkerRunner.run(Arrays.asList(first, second),
+                fromClass(ImmutableExample.class),
+                Collections.<AnalysisResult>emptyList());
+
+        assertThat(first.methods, is(not(empty())));
+        assertThat(second.methods, hasSize(first.methods.size()));
+        for (int i = 0; i < first.methods.size(); i++) {
+            assertSame(first.methods.get(i), second.methods.get(i));
+        }
+    }
+
+    @Test
+    public void checkerRunAloneBuildsItsOwnTreeOfEachMethod() {
+        CheckerRunner checkerRunner = CheckerRunner.createWithCurrentClasspath(FAIL_FAST);
+        MethodTreeRecordingChecker alone = new MethodTreeRecordingChecker();
+        MethodTreeRecordingChecker together = new MethodTreeRecordingChecker();
+
+        checkerRunner.run(alone, fromClass(ImmutableExample.class), Collections.<AnalysisResult>emptyList());
+        checkerRunner.run(Arrays.asList(together, new MethodTreeRecordingChecker()),
+                fromClass(ImmutableExample.class),
+                Collections.<AnalysisResult>emptyList());
+
+        assertThat(alone.methods, hasSize(together.methods.size()));
+        for (int i = 0; i < alone.methods.size(); i++) {
+            assertThat(alone.methods.get(i).name, is(together.methods.get(i).name));
+            assertThat(alone.methods.get(i).instructions.size(), is(together.methods.get(i).instructions.size()));
+        }
+    }
+
     private AsmMutabilityChecker checkerWhichThrows(Throwable toBeThrown) {
         return new ExceptionThrowingMutabilityChecker(toBeThrown);
     }
 
+    private static final class LineNumberRecordingChecker extends AsmMutabilityChecker {
+
+        private final int parsingOptions;
+        int lineNumbersVisited = 0;
+
+        LineNumberRecordingChecker(int parsingOptions) {
+            this.parsingOptions = parsingOptions;
+        }
+
+        @Override
+        public int parsingOptions() {
+            return parsingOptions;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+            return new MethodVisitor(AsmCompatibility.AsmApiVersion) {
+                @Override
+                public void visitLineNumber(int line, Label start) {
+                    lineNumbersVisited++;
+                }
+            };
+        }
+    }
+
+    private static final class MethodTreeRecordingChecker extends AsmMutabilityChecker {
+
+        final List<MethodNode> methods = new ArrayList<MethodNode>();
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+            return new MethodTreeVisitor(access, name, desc, signature, exceptions) {
+                @Override
+                protected void visitTree(MethodNode method) {
+                    methods.add(method);
+                }
+            };
+        }
+    }
+
     private static class ExceptionThrowingMutabilityChecker extends AsmMutabilityChecker {
 
         private final Throwable willThrow;
@@ -0,0 +1,143 @@
+package org.mutabilitydetector.checkers;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+
+import java.io.IOException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class ClassFeaturesTest {
+
+    @Test
+    public void classWithoutFieldsAssignsNoFields() throws Exception {
+        ClassFeatures features = featuresOf(WithoutFields.class);
+
+        assertThat(features.mayAssignFields(), is(false));
+        assertThat(features.mayAssignReferenceToField(), is(false));
+        assertThat(features.mayAssignCollectionToField(), is(false));
+    }
+
+    @Test
+    public void referencesToOwnStaticFieldsCannotAssignInstanceFields() throws Exception {
+        assertThat(featuresOf(WithStaticConstant.class).mayAssignFields(), is(false));
+        assertThat(featuresOf(Colour.class).mayAssignFields(), is(false));
+    }
+
+    @Test
+    public void classWithOnlyPrimitiveFieldsAssignsNoReferenceToField() throws Exception {
+        ClassFeatures features = featuresOf(WithFinalPrimitiveField.class);
+
+        assertThat(features.mayAssignFields(), is(true));
+        assertThat(features.mayAssignReferenceToField(), is(false));
+        assertThat(features.mayAssignCollectionToField(), is(false));
+    }
+
+    @Test
+    public void stringFieldCannotHaveCollectionAssignedToIt() throws Exception {
+        ClassFeatures features = featuresOf(WithFinalStringField.class);
+
+        assertThat(features.mayAssignReferenceToField(), is(true));
+        assertThat(features.mayAssignCollectionToField(), is(false));
+    }
+
+    @Test
+    public void objectFieldCanHaveCollectionAssignedToIt() throws Exception {
+        assertThat(featuresOf(WithObjectField.class).mayAssignCollectionToField(), is(true));
+    }
+
+    @Test
+    public void fieldOfAnotherObjectMayBeAssigned() throws Exception {
+        ClassFeatures features = featuresOf(AssignsFieldOfAnotherObject.class);
+
+        assertThat(features.mayAssignFields(), is(true));
+        assertThat(features.mayAssignReferenceToField(), is(false));
+    }
+
+    @Test
+    public void unknownFeaturesLeaveOutNoChecker() {
+        ClassFeatures features = ClassFeatures.unknown();
+
+        assertThat(features.mayAssignFields(), is(true));
+        assertThat(features.mayAssignReferenceToField(), is(true));
+        assertThat(features.mayAssignCollectionToField(), is(true));
+    }
+
+    private static ClassFeatures featuresOf(Class<?> toScan) throws IOException {
+        return ClassFeatures.of(new ClassReader(toScan.getName()));
+    }
+
+    public static final class WithoutFields {
+        public int answer() {
+            return 42;
+        }
+    }
+
+    public static final class WithStaticConstant {
+        private static final Object CONSTANT = new Object();
+
+        public Object constant() {
+            return CONSTANT;
+        }
+    }
+
+    public enum Colour { RED, GREEN }
+
+    public static final class WithFinalPrimitiveField {
+        private final int value;
+
+        public WithFinalPrimitiveField(int value) {
+            this.value = value;
+        }
+    }
+
+    public static final class WithFinalStringField {
+        private final String value;
+
+        public WithFinalStringField(String value) {
+            this.value = value;
+        }
+    }
+
+    public static final class WithObjectField {
+        private final Object value;
+
+        public WithObjectField(Object value) {
+            this.value = value;
+        }
+    }
+
+    public static final class AssignsFieldOfAnotherObject {
+        public void reset(WithCounter other) {
+            other.count = 0;
+        }
+    }
+
+    public static final class WithCounter {
+        public int count;
+    }
+
+}
@@ -0,0 +1,98 @@
+package org.mutabilitydetector.checkers;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+
+import org.junit.Test;
+import org.mutabilitydetector.asmoverride.AsmCompatibility;
+import org.mutabilitydetector.asmoverride.AsmVerifierFactory;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.analysis.BasicValue;
+import org.objectweb.asm.tree.analysis.Frame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mutabilitydetector.TestUtil.testingVerifierFactory;
+
+@SuppressWarnings("deprecation")
+public class FieldAssignmentVisitorTest {
+
+    @Test
+    public void visitorsWrittenAgainstTheMethodNodeApiStillSeeEachFieldAssignment() throws Exception {
+        MethodNode method = method(WithFieldAssignments.class, "setName");
+        RecordingAssignmentVisitor visitor = new RecordingAssignmentVisitor(method, testingVerifierFactory());
+
+        method.accept(visitor);
+
+        assertThat(visitor.fieldAssignments(), hasSize(1));
+        assertThat(visitor.fieldAssignments().get(0).name, is("name"));
+        assertThat(visitor.assignedTypes, contains(Type.getType(String.class)));
+    }
+
+    private static final class RecordingAssignmentVisitor extends FieldAssignmentVisitor {
+        final List<Type> assignedTypes = new ArrayList<Type>();
+
+        RecordingAssignmentVisitor(MethodNode method, AsmVerifierFactory verifierFactory) {
+            super(Type.getInternalName(WithFieldAssignments.class), method.access, method.name, method.desc,
+                    method.signature, null, verifierFactory);
+        }
+
+        List<FieldInsnNode> fieldAssignments() {
+            return fieldAssignments;
+        }
+
+        @Override
+        protected void visitFieldAssignmentFrame(Frame<BasicValue> assignmentFrame, FieldInsnNode fieldInsnNode, BasicValue stackValue) {
+            assignedTypes.add(stackValue.getType());
+        }
+    }
+
+    private static MethodNode method(Class<?> clazz, String name) throws Exception {
+        ClassNode classNode = new ClassNode(AsmCompatibility.AsmApiVersion);
+        new ClassReader(clazz.getName()).accept(classNode, 0);
+        for (MethodNode method : classNode.methods) {
+            if (method.name.equals(name)) {
+                return method;
+            }
+        }
+        throw new AssertionError("No method " + name + " in " + clazz.getName());
+    }
+
+    @SuppressWarnings("unused")
+    private static final class WithFieldAssignments {
+        private String name;
+
+        void setName(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -24,6 +24,7 @@ import org.mutabilitydetector.benchmarks.checkers.ImmutableClassWithTernaryOpera
 import org.mutabilitydetector.benchmarks.checkers.ImmutableClassWithTernaryOperatorAndVarInsn;
 import org.mutabilitydetector.benchmarks.checkers.ImmutableWithIfStatementAndConstantCategoryOpcode;
 import org.mutabilitydetector.benchmarks.checkers.ImmutableWithIfStatementAndVarInsn;
+import org.mutabilitydetector.benchmarks.checkers.MutableWithFieldAssignedInLoop;
 import org.mutabilitydetector.checkers.ImmutableCollectionChecker.UnmodifiableWrapResult;
 import org.mutabilitydetector.checkers.info.CopyMethod;
 import org.mutabilitydetector.locations.ClassName;
@@ -32,6 +33,8 @@ import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.JumpInsnNode;
 import org.objectweb.asm.tree.LabelNode;
 import org.objectweb.asm.tree.LineNumberNode;
 import org.objectweb.asm.tree.MethodInsnNode;
@@ -236,6 +239,28 @@ public class ImmutableCollectionCheckerTest {
         assertThat(result.status, is(WRAPS_AND_COPIES_SAFELY));
         assertThat(checker.checkWrappedInUnmodifiable().getWrappingHint("field"), is(""));
     }
+
+    @Test
+    public void findsThatAssignmentDoesNotWrapWhenLookingBackFromItFollowsALoop() throws Exception {
+        LabelNode loopStart = new LabelNode();
+        FieldInsnNode fieldInsnNode = new FieldInsnNode(Opcodes.PUTFIELD, "some/type/Name", "fieldName", "java/util/List");
+        InsnList instructions = new InsnList();
+        instructions.add(new VarInsnNode(Opcodes.ALOAD, 1));
+        instructions.add(loopStart);
+        instructions.add(new VarInsnNode(Opcodes.ALOAD, 2));
+        instructions.add(new JumpInsnNode(Opcodes.GOTO, loopStart));
+        instructions.add(fieldInsnNode);
+
+        ImmutableCollectionChecker checker = new ImmutableCollectionChecker(fieldInsnNode, Type.getType(List.class), NO_USER_DEFINED_COPY_METHODS);
+
+        assertThat(checker.checkWrappedInUnmodifiable().status, is(DOES_NOT_WRAP_USING_WHITELISTED_METHOD));
+    }
+
+    @Test
+    public void analysesClassAssigningCollectionFieldInsideALoop() {
+        assertInstancesOf(MutableWithFieldAssignedInLoop.class, areNotImmutable());
+    }
+
     @Test
     public void testImmutabilityInBranchesWithConstantCategoryOpCodes() {
         assertInstancesOf(ImmutableClassWithTernaryOperatorAndConstantCategoryOpcode.class, areImmutable());
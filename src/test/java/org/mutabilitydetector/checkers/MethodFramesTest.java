@@ -0,0 +1,132 @@
+package org.mutabilitydetector.checkers;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import org.junit.Test;
+import org.mutabilitydetector.asmoverride.AsmCompatibility;
+import org.mutabilitydetector.asmoverride.AsmVerifierFactory;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.analysis.BasicValue;
+import org.objectweb.asm.tree.analysis.Frame;
+import org.objectweb.asm.tree.analysis.Interpreter;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mutabilitydetector.TestUtil.testingVerifierFactory;
+
+public class MethodFramesTest {
+
+    private final CountingVerifierFactory verifierFactory = new CountingVerifierFactory();
+    private final MethodFrames methodFrames = new MethodFrames(verifierFactory);
+
+    @Test
+    public void analysesACopyOfAMethodOnlyOnce() throws Exception {
+        MethodNode method = method(WithFieldAssignments.class, "setName");
+
+        Frame<BasicValue>[] frames = methodFrames.framesOf(ownerOf(WithFieldAssignments.class), method);
+
+        assertThat(methodFrames.framesOf(ownerOf(WithFieldAssignments.class), method), sameInstance(frames));
+        assertThat(verifierFactory.interpretersCreated, is(1));
+    }
+
+    @Test
+    public void analysesDifferentMethodsSeparately() throws Exception {
+        methodFrames.framesOf(ownerOf(WithFieldAssignments.class), method(WithFieldAssignments.class, "setName"));
+        methodFrames.framesOf(ownerOf(WithFieldAssignments.class), method(WithFieldAssignments.class, "setCount"));
+
+        assertThat(verifierFactory.interpretersCreated, is(2));
+    }
+
+    @Test
+    public void analysesCopiesOfAMethodFromSeparateParsesSeparately() throws Exception {
+        MethodNode withoutFrames = method(WithFieldAssignments.class, "setName", ClassReader.SKIP_FRAMES);
+        MethodNode withoutDebug = method(WithFieldAssignments.class, "setName", ClassReader.SKIP_DEBUG);
+        methodFrames.framesOf(ownerOf(WithFieldAssignments.class), withoutFrames);
+
+        Frame<BasicValue>[] frames = methodFrames.framesOf(ownerOf(WithFieldAssignments.class), withoutDebug);
+
+        assertThat(frames.length, is(withoutDebug.instructions.size()));
+        Frame<BasicValue> assignmentFrame = frames[indexOfPutField(withoutDebug)];
+        BasicValue assigned = assignmentFrame.getStack(assignmentFrame.getStackSize() - 1);
+        assertThat(assigned.getType(), is(Type.getType(String.class)));
+        assertThat(verifierFactory.interpretersCreated, is(2));
+    }
+
+    private static int indexOfPutField(MethodNode method) {
+        for (int i = 0; i < method.instructions.size(); i++) {
+            if (method.instructions.get(i).getOpcode() == Opcodes.PUTFIELD) {
+                return i;
+            }
+        }
+        throw new AssertionError("No field assignment in " + method.name);
+    }
+
+    private static String ownerOf(Class<?> clazz) {
+        return Type.getInternalName(clazz);
+    }
+
+    private static MethodNode method(Class<?> clazz, String name) throws Exception {
+        return method(clazz, name, 0);
+    }
+
+    private static MethodNode method(Class<?> clazz, String name, int parsingOptions) throws Exception {
+        ClassNode classNode = new ClassNode(AsmCompatibility.AsmApiVersion);
+        new ClassReader(clazz.getName()).accept(classNode, parsingOptions);
+        for (MethodNode method : classNode.methods) {
+            if (method.name.equals(name)) {
+                return method;
+            }
+        }
+        throw new AssertionError("No method " + name + " in " + clazz.getName());
+    }
+
+    private static final class CountingVerifierFactory implements AsmVerifierFactory {
+        private final AsmVerifierFactory delegate = testingVerifierFactory();
+        int interpretersCreated = 0;
+
+        @Override
+        public Interpreter<BasicValue> interpreter() {
+            interpretersCreated++;
+            return delegate.interpreter();
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static final class WithFieldAssignments {
+        private String name;
+        private int count;
+
+        void setName(String name) {
+            this.name = name;
+        }
+
+        void setCount(int count) {
+            this.count = count;
+        }
+    }
+}
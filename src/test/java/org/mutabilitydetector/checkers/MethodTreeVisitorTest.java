@@ -0,0 +1,109 @@
+package org.mutabilitydetector.checkers;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+
+import org.junit.Test;
+import org.mutabilitydetector.asmoverride.AsmCompatibility;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class MethodTreeVisitorTest {
+
+    @Test
+    public void buildsTreeFromEventsWhenVisitedOnItsOwn() throws Exception {
+        MethodNode method = method(WithFieldAssignment.class, "setName");
+        RecordingTreeVisitor visitor = new RecordingTreeVisitor(method);
+
+        method.accept(visitor);
+
+        assertThat(visitor.hasBuiltTree(), is(true));
+        assertThat(visitor.visited.instructions.size(), is(method.instructions.size()));
+        assertThat(visitor.visited.name, is("setName"));
+    }
+
+    @Test
+    public void doesNotBuildTreeOfItsOwnWhenGivenOne() throws Exception {
+        MethodNode method = method(WithFieldAssignment.class, "setName");
+        RecordingTreeVisitor visitor = new RecordingTreeVisitor(method);
+
+        visitor.visitTree(method);
+
+        assertThat(visitor.hasBuiltTree(), is(false));
+        assertThat(visitor.visited, sameInstance(method));
+    }
+
+    @Test
+    public void buildsTreeOfMethodWithoutCode() throws Exception {
+        MethodNode method = new MethodNode(AsmCompatibility.AsmApiVersion, Opcodes.ACC_ABSTRACT, "abstractMethod", "()V", null, null);
+        RecordingTreeVisitor visitor = new RecordingTreeVisitor(method);
+
+        visitor.visitEnd();
+
+        assertThat(visitor.visited.name, is("abstractMethod"));
+        assertThat(visitor.visited.instructions.size(), is(0));
+    }
+
+    private static final class RecordingTreeVisitor extends MethodTreeVisitor {
+        MethodNode visited;
+
+        RecordingTreeVisitor(MethodNode method) {
+            super(method.access, method.name, method.desc, method.signature, null);
+        }
+
+        @Override
+        protected void visitTree(MethodNode method) {
+            visited = method;
+        }
+
+        boolean hasBuiltTree() {
+            return mv != null;
+        }
+    }
+
+    private static MethodNode method(Class<?> clazz, String name) throws Exception {
+        ClassNode classNode = new ClassNode(AsmCompatibility.AsmApiVersion);
+        new ClassReader(clazz.getName()).accept(classNode, 0);
+        for (MethodNode method : classNode.methods) {
+            if (method.name.equals(name)) {
+                return method;
+            }
+        }
+        throw new AssertionError("No method " + name + " in " + clazz.getName());
+    }
+
+    @SuppressWarnings("unused")
+    private static final class WithFieldAssignment {
+        private String name;
+
+        void setName(String name) {
+            this.name = name;
+        }
+    }
+}
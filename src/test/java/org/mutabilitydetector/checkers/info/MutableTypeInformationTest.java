@@ -37,6 +37,7 @@ import java.util.Collections;
 
 import static java.util.Collections.singleton;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.sameInstance;
 import static org.mockito.ArgumentMatchers.any;
@@ -111,6 +112,19 @@ public class MutableTypeInformationTest {
         assertThat(mutabilityLookup.foundCyclicReference, is(false));
     }
     
+    @Test
+    public void findsCyclicReferenceWithoutStartingAnalysisOfFieldType() {
+        AnalysisInProgress analysisInProgress = noAnalysisUnderway().analysisStartedFor(needToKnowMutabilityOf);
+        when(session.resultsByClass()).thenReturn(Collections.<Dotted, AnalysisResult>emptyMap());
+
+        MutableTypeInformation information = new MutableTypeInformation(session, NO_CONFIGURATION, CyclicReferences.newEmptyMutableInstance());
+
+        assertThat(information.cyclicReferenceBetween(mutabilityAskedOnBehalfOf, needToKnowMutabilityOf, analysisInProgress).isPresent(), is(true));
+        assertThat(information.cyclicReferenceBetween(mutabilityAskedOnBehalfOf, dotted("e.f.g.H"), analysisInProgress).isPresent(), is(false));
+        assertThat(information.typesLookedUp(), is(empty()));
+        verify(session, never()).processTransitiveAnalysis(any(Dotted.class), any(AnalysisInProgress.class));
+    }
+
     @Test
     public void canConfigureAnalysisSessionToHardcodeResultForClass() throws Exception {
         final AnalysisResult harcodedResult = AnalysisResult.analysisResult("some.type.i.say.is.Immutable", IsImmutable.IMMUTABLE);
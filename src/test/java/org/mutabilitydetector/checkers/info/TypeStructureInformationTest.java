@@ -27,13 +27,26 @@ import static org.junit.Assert.assertTrue;
 import static org.mutabilitydetector.TestUtil.sessionCheckerRunner;
 import static org.mutabilitydetector.locations.Dotted.dotted;
 
+import com.google.classpath.ClassPath;
+import com.google.classpath.ClassPathFactory;
+import com.google.common.base.Optional;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mutabilitydetector.benchmarks.types.AbstractType;
 import org.mutabilitydetector.benchmarks.types.ConcreteType;
 import org.mutabilitydetector.benchmarks.types.InterfaceType;
+import org.mutabilitydetector.classloading.TypeHierarchyIndex;
+
+import java.io.File;
+import java.io.InputStream;
 
 public class TypeStructureInformationTest {
 
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
     @Test
     public void isAbstractReturnsTrueForAbstractType() throws Exception {
         TypeStructureInformation info = new TypeStructureInformation(sessionCheckerRunner());
@@ -57,4 +70,28 @@ public class TypeStructureInformationTest {
         TypeStructureInformation info = new TypeStructureInformation(sessionCheckerRunner());
         assertFalse(info.isTypeInterface(dotted(ConcreteType.class.getName())));
     }
+
+    @Test
+    public void answersFromTypeHierarchyIndexWithoutReadingIndexedClasses() throws Exception {
+        File root = folder.newFolder();
+        copyClassFile(AbstractType.class, root);
+        copyClassFile(InterfaceType.class, root);
+        ClassPath classPath = new ClassPathFactory().createFromPath(root.getPath());
+        InformationRetrievalRunner unusedRunner = null;
+
+        TypeStructureInformation info = new TypeStructureInformation(unusedRunner, Optional.of(TypeHierarchyIndex.build(classPath, 1)));
+
+        assertTrue(info.isTypeAbstract(dotted(AbstractType.class.getName())));
+        assertFalse(info.isTypeInterface(dotted(AbstractType.class.getName())));
+        assertTrue(info.isTypeInterface(dotted(InterfaceType.class.getName())));
+    }
+
+    private static void copyClassFile(Class<?> clazz, File root) throws Exception {
+        String resource = clazz.getName().replace('.', '/') + ".class";
+        File file = new File(root, resource);
+        file.getParentFile().mkdirs();
+        try (InputStream classFile = clazz.getClassLoader().getResourceAsStream(resource)) {
+            Files.write(ByteStreams.toByteArray(classFile), file);
+        }
+    }
 }
@@ -0,0 +1,90 @@
+package org.mutabilitydetector.classloading;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mutabilitydetector.classloading.CachingAnalysisClassLoader.boundedCaching;
+import static org.mutabilitydetector.classloading.CachingAnalysisClassLoader.weaklyCaching;
+
+public class CachingAnalysisClassLoaderTest {
+
+    private final RecordingClassLoader underlying = new RecordingClassLoader();
+
+    @Test
+    public void loadsEachClassOnceAndRecordsHits() throws Exception {
+        CachingAnalysisClassLoader classLoader = new CachingAnalysisClassLoader(underlying);
+
+        Class<?> first = classLoader.loadClass(String.class.getName());
+        Class<?> second = classLoader.loadClass(String.class.getName());
+
+        assertThat(second, sameInstance(first));
+        assertThat(underlying.loaded, contains(String.class.getName()));
+        assertThat(classLoader.stats().hitCount(), is(1L));
+        assertThat(classLoader.stats().missCount(), is(1L));
+    }
+
+    @Test
+    public void boundedCacheEvictsLeastRecentlyUsedClasses() throws Exception {
+        CachingAnalysisClassLoader classLoader = boundedCaching(underlying, 1);
+
+        classLoader.loadClass(String.class.getName());
+        classLoader.loadClass(Integer.class.getName());
+        classLoader.loadClass(String.class.getName());
+
+        assertThat(underlying.loaded, contains(String.class.getName(), Integer.class.getName(), String.class.getName()));
+        assertThat(classLoader.stats().evictionCount(), is(2L));
+    }
+
+    @Test
+    public void weakCacheReturnsClassesWhileTheyAreReferenced() throws Exception {
+        CachingAnalysisClassLoader classLoader = weaklyCaching(underlying);
+
+        Class<?> first = classLoader.loadClass(String.class.getName());
+
+        assertThat(classLoader.loadClass(String.class.getName()), sameInstance(first));
+        assertThat(classLoader.stats().hitCount(), is(1L));
+    }
+
+    @Test(expected = ClassNotFoundException.class)
+    public void reportsClassesWhichCannotBeLoaded() throws Exception {
+        new CachingAnalysisClassLoader(underlying).loadClass("does.not.Exist");
+    }
+
+    private static final class RecordingClassLoader implements AnalysisClassLoader {
+        final List<String> loaded = new ArrayList<String>();
+
+        @Override
+        public Class<?> loadClass(String dottedClass) throws ClassNotFoundException {
+            loaded.add(dottedClass);
+            return Class.forName(dottedClass, false, getClass().getClassLoader());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.mutabilitydetector.classloading;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import com.google.classpath.ClassPath;
+import com.google.common.io.ByteStreams;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CachingClassPathTest {
+
+    private final ClassPath classPath = mock(ClassPath.class);
+
+    @Test
+    public void readsEachResourceFromUnderlyingClassPathOnce() throws Exception {
+        when(classPath.getResourceAsStream("a/B.class")).then(invocation -> new ByteArrayInputStream(new byte[] { 1, 2, 3 }));
+        CachingClassPath caching = new CachingClassPath(classPath, 1024);
+
+        assertThat(contentOf(caching.getResourceAsStream("a/B.class")), is(new byte[] { 1, 2, 3 }));
+        assertThat(contentOf(caching.getResourceAsStream("a/B.class")), is(new byte[] { 1, 2, 3 }));
+
+        verify(classPath, times(1)).getResourceAsStream("a/B.class");
+        assertThat(caching.stats().hitCount(), is(1L));
+        assertThat(caching.stats().missCount(), is(1L));
+    }
+
+    @Test
+    public void remembersResourcesWhichCouldNotBeFound() throws Exception {
+        CachingClassPath caching = new CachingClassPath(classPath, 1024);
+
+        assertThat(caching.getResourceAsStream("a/Missing.class"), is(nullValue()));
+        assertThat(caching.getResourceAsStream("a/Missing.class"), is(nullValue()));
+
+        verify(classPath, times(1)).getResourceAsStream("a/Missing.class");
+    }
+
+    @Test
+    public void evictsResourcesWhenCachedContentExceedsMaximumSize() throws Exception {
+        when(classPath.getResourceAsStream("a/B.class")).then(invocation -> new ByteArrayInputStream(new byte[600]));
+        when(classPath.getResourceAsStream("a/C.class")).then(invocation -> new ByteArrayInputStream(new byte[600]));
+        CachingClassPath caching = new CachingClassPath(classPath, 1000);
+
+        contentOf(caching.getResourceAsStream("a/B.class"));
+        contentOf(caching.getResourceAsStream("a/C.class"));
+        contentOf(caching.getResourceAsStream("a/B.class"));
+
+        verify(classPath, times(2)).getResourceAsStream("a/B.class");
+        assertThat(caching.stats().evictionCount() > 0, is(true));
+    }
+
+    @Test
+    public void doesNotCacheAClassPathWhichIsAlreadyCaching() throws Exception {
+        CachingClassPath caching = CachingClassPath.cachingResourcesOf(classPath);
+
+        assertThat(CachingClassPath.cachingResourcesOf(caching), sameInstance(caching));
+    }
+
+    private static byte[] contentOf(InputStream resource) throws Exception {
+        try (InputStream in = resource) {
+            return ByteStreams.toByteArray(in);
+        }
+    }
+}
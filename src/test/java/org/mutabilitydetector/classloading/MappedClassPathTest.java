@@ -0,0 +1,251 @@
+package org.mutabilitydetector.classloading;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import com.google.classpath.ClassPath;
+import com.google.classpath.ClassPathFactory;
+import com.google.classpath.RegExpResourceFilter;
+import com.google.common.base.Strings;
+import com.google.common.io.ByteStreams;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.google.classpath.RegExpResourceFilter.ANY;
+import static com.google.classpath.RegExpResourceFilter.ENDS_WITH_CLASS;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContainingInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class MappedClassPathTest {
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final byte[] NO_PREFIX = new byte[0];
+
+    private final byte[] compressible = Strings.repeat("the same content, over and over, ", 100).getBytes(UTF_8);
+    private final byte[] random = randomBytes(5000);
+
+    @Test
+    public void readsDeflatedAndStoredEntriesOfJar() throws Exception {
+        File jar = jar(NO_PREFIX, deflated("a/Deflated.class", compressible), stored("a/Stored.class", random));
+
+        MappedClassPath classPath = MappedClassPath.fromPath(jar.getPath());
+
+        assertThat(classPath.getResourceBytes("a/Deflated.class"), is(compressible));
+        assertThat(classPath.getResourceBytes("a/Stored.class"), is(random));
+        assertThat(contentOf(classPath.getResourceAsStream("/a/Deflated.class")), is(compressible));
+    }
+
+    @Test
+    public void readsJarWithDataBeforeArchive() throws Exception {
+        byte[] launchScript = "#!/bin/sh\nexec java -jar \"$0\" \"$@\"\n".getBytes(UTF_8);
+        File jar = jar(launchScript, deflated("a/B.class", compressible));
+
+        assertThat(MappedClassPath.fromPath(jar.getPath()).getResourceBytes("a/B.class"), is(compressible));
+    }
+
+    @Test
+    public void readsJarWithMoreEntriesThanFitInEndOfCentralDirectory() throws Exception {
+        File jar = folder.newFile("many.jar");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+            for (int i = 0; i < 0x10000 + 10; i++) {
+                out.putNextEntry(new ZipEntry("p/C" + i + ".class"));
+                out.write(("content of " + i).getBytes(UTF_8));
+                out.closeEntry();
+            }
+        }
+
+        MappedClassPath classPath = MappedClassPath.fromPath(jar.getPath());
+
+        assertThat(new String(classPath.getResourceBytes("p/C0.class"), UTF_8), is("content of 0"));
+        assertThat(new String(classPath.getResourceBytes("p/C65545.class"), UTF_8), is("content of 65545"));
+    }
+
+    @Test
+    public void readsClassesFromDirectories() throws Exception {
+        File directory = folder.newFolder("classes");
+        new File(directory, "a").mkdir();
+        Files.write(new File(directory, "a/B.class").toPath(), random);
+
+        MappedClassPath classPath = MappedClassPath.fromPath(directory.getPath());
+
+        assertThat(classPath.getResourceBytes("a/B.class"), is(random));
+        assertThat(classPath.isResource("a/B.class"), is(true));
+    }
+
+    @Test
+    public void earlierEntriesOfClassPathTakePrecedence() throws Exception {
+        File first = jar(NO_PREFIX, deflated("a/B.class", compressible));
+        File second = folder.newFolder("classes");
+        new File(second, "a").mkdir();
+        Files.write(new File(second, "a/B.class").toPath(), random);
+
+        MappedClassPath classPath = MappedClassPath.fromPath(first.getPath() + File.pathSeparator + second.getPath());
+
+        assertThat(classPath.getResourceBytes("a/B.class"), is(compressible));
+    }
+
+    @Test
+    public void missingResourcesAreNotFound() throws Exception {
+        File jar = jar(NO_PREFIX, deflated("a/B.class", compressible));
+
+        MappedClassPath classPath = MappedClassPath.fromPath(jar.getPath());
+
+        assertThat(classPath.getResourceBytes("a/Missing.class"), is(nullValue()));
+        assertThat(classPath.getResourceAsStream("a/Missing.class"), is(nullValue()));
+        assertThat(classPath.isResource("a/Missing.class"), is(false));
+    }
+
+    @Test
+    public void readsEntriesWhichCannotBeReadFromTheMappingThroughStreams() throws Exception {
+        File jar = jar(NO_PREFIX, deflated("a/B.class", compressible));
+        overwriteCentralDirectoryEntry(jar, "a/B.class", 24, compressible.length + 1);
+
+        assertThat(MappedClassPath.fromPath(jar.getPath()).getResourceBytes("a/B.class"), is(compressible));
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void failsRatherThanReportingUnreadableEntriesAsMissing() throws Exception {
+        File jar = jar(NO_PREFIX, deflated("a/B.class", compressible));
+        byte[] corrupted = Files.readAllBytes(jar.toPath());
+        int data = 30 + "a/B.class".length();
+        Arrays.fill(corrupted, data, data + 10, (byte) 0xff);
+        Files.write(jar.toPath(), corrupted);
+
+        MappedClassPath.fromPath(jar.getPath()).getResourceBytes("a/B.class");
+    }
+
+    @Test
+    public void listsResourcesAsTheDefaultClassPathDoes() throws Exception {
+        File jar = jar(NO_PREFIX, deflated("a/B.class", compressible), stored("a/c/D.class", random));
+        RegExpResourceFilter classes = new RegExpResourceFilter(ANY, ENDS_WITH_CLASS);
+
+        ClassPath streamed = new ClassPathFactory().createFromPath(jar.getPath());
+        MappedClassPath mapped = MappedClassPath.fromPath(jar.getPath());
+
+        assertThat(mapped.findResources("", classes), arrayContainingInAnyOrder(streamed.findResources("", classes)));
+    }
+
+    @Test
+    public void readsSameBytesAsDefaultClassPathForJarsOfTheRuntime() throws Exception {
+        File runtimeJar = new File(ClassPath.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        ClassPath streamed = new ClassPathFactory().createFromPath(runtimeJar.getPath());
+        MappedClassPath mapped = MappedClassPath.fromPath(runtimeJar.getPath());
+
+        for (String resource : streamed.findResources("", new RegExpResourceFilter(ANY, ENDS_WITH_CLASS))) {
+            assertThat(resource, mapped.getResourceBytes(resource), is(contentOf(streamed.getResourceAsStream(resource))));
+        }
+    }
+
+    private File jar(byte[] prefix, JarEntryContent... entries) throws IOException {
+        File jar = folder.newFile();
+        try (OutputStream file = new FileOutputStream(jar)) {
+            file.write(prefix);
+            ZipOutputStream out = new ZipOutputStream(file);
+            for (JarEntryContent entry : entries) {
+                out.putNextEntry(entry.asZipEntry());
+                out.write(entry.content);
+                out.closeEntry();
+            }
+            out.finish();
+        }
+        return jar;
+    }
+
+    private static void overwriteCentralDirectoryEntry(File jar, String name, int offset, int value) throws IOException {
+        byte[] content = Files.readAllBytes(jar.toPath());
+        ByteBuffer buffer = ByteBuffer.wrap(content).order(ByteOrder.LITTLE_ENDIAN);
+        byte[] entryName = name.getBytes(UTF_8);
+        for (int position = content.length - 46 - entryName.length; position >= 0; position--) {
+            if (buffer.getInt(position) == 0x02014b50
+                    && Arrays.equals(Arrays.copyOfRange(content, position + 46, position + 46 + entryName.length), entryName)) {
+                buffer.putInt(position + offset, value);
+                Files.write(jar.toPath(), content);
+                return;
+            }
+        }
+        throw new IllegalArgumentException("No central directory entry for " + name);
+    }
+
+    private static JarEntryContent deflated(String name, byte[] content) {
+        return new JarEntryContent(name, content, ZipEntry.DEFLATED);
+    }
+
+    private static JarEntryContent stored(String name, byte[] content) {
+        return new JarEntryContent(name, content, ZipEntry.STORED);
+    }
+
+    private static final class JarEntryContent {
+        final String name;
+        final byte[] content;
+        final int method;
+
+        JarEntryContent(String name, byte[] content, int method) {
+            this.name = name;
+            this.content = content;
+            this.method = method;
+        }
+
+        ZipEntry asZipEntry() {
+            ZipEntry entry = new ZipEntry(name);
+            entry.setMethod(method);
+            if (method == ZipEntry.STORED) {
+                CRC32 crc = new CRC32();
+                crc.update(content);
+                entry.setSize(content.length);
+                entry.setCrc(crc.getValue());
+            }
+            return entry;
+        }
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] contentOf(InputStream resource) throws IOException {
+        try (InputStream in = resource) {
+            return ByteStreams.toByteArray(in);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.mutabilitydetector.classloading;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+public class NonInitialisingClassLoaderTest {
+
+    static boolean uninitialisedTypeWasInitialised = false;
+    static boolean initialisedTypeWasInitialised = false;
+
+    @Test
+    public void loadsClassWithoutRunningItsStaticInitialiser() throws Exception {
+        Class<?> loaded = new NonInitialisingClassLoader().loadClass(UninitialisedType.class.getName());
+
+        assertThat(loaded.getName(), equalTo(UninitialisedType.class.getName()));
+        assertThat(uninitialisedTypeWasInitialised, is(false));
+    }
+
+    @Test
+    public void classForNameWrapperDoesRunStaticInitialiser() throws Exception {
+        new ClassForNameWrapper().loadClass(InitialisedType.class.getName());
+
+        assertThat(initialisedTypeWasInitialised, is(true));
+    }
+
+    @Test(expected = ClassNotFoundException.class)
+    public void throwsWhenClassCannotBeFound() throws Exception {
+        new NonInitialisingClassLoader(getClass().getClassLoader()).loadClass("does.not.Exist");
+    }
+
+    static final class UninitialisedType {
+        static {
+            uninitialisedTypeWasInitialised = true;
+        }
+    }
+
+    static final class InitialisedType {
+        static {
+            initialisedTypeWasInitialised = true;
+        }
+    }
+}
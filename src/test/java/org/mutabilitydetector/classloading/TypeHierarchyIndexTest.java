@@ -0,0 +1,133 @@
+package org.mutabilitydetector.classloading;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import com.google.classpath.ClassPath;
+import com.google.classpath.ClassPathFactory;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mutabilitydetector.benchmarks.types.EnumType;
+import org.objectweb.asm.Type;
+
+import java.io.File;
+import java.io.InputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mutabilitydetector.classloading.TypeHierarchyIndex.NO_CLASS;
+
+public class TypeHierarchyIndexTest {
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private TypeHierarchyIndex index;
+
+    @Before
+    public void indexClassPath() throws Exception {
+        File first = folder.newFolder("first");
+        File second = folder.newFolder("second");
+        copyClassFile(Shape.class, first);
+        copyClassFile(AbstractShape.class, first);
+        copyClassFile(Square.class, second);
+        copyClassFile(EnumType.class, second);
+        Files.asCharSink(new File(first, "readme.txt"), UTF_8).write("not a class");
+        Files.asCharSink(new File(first, "Broken.class"), UTF_8).write("not a class either");
+
+        ClassPath classPath = new ClassPathFactory().createFromPath(first.getPath() + File.pathSeparator + second.getPath());
+        index = TypeHierarchyIndex.build(classPath, 4);
+    }
+
+    @Test
+    public void indexesHeadersOfEveryClassOnClassPath() throws Exception {
+        int square = index.idOf(internalName(Square.class));
+        int abstractShape = index.idOf(internalName(AbstractShape.class));
+        int shape = index.idOf(internalName(Shape.class));
+
+        assertThat(index.superclassOf(square), is(abstractShape));
+        assertThat(index.interfacesOf(abstractShape), is(new int[] { shape }));
+        assertThat(index.interfacesOf(square), is(new int[0]));
+        assertThat(index.nameOf(square), is(internalName(Square.class)));
+    }
+
+    @Test
+    public void indexesAccessFlags() throws Exception {
+        assertThat(index.isInterface(index.idOf(internalName(Shape.class))), is(true));
+        assertThat(index.isAbstract(index.idOf(internalName(AbstractShape.class))), is(true));
+        assertThat(index.isInterface(index.idOf(internalName(AbstractShape.class))), is(false));
+        assertThat(index.isAbstract(index.idOf(internalName(Square.class))), is(false));
+    }
+
+    @Test
+    public void indexesGenericSignatures() throws Exception {
+        assertThat(index.signatureOf(index.idOf(internalName(EnumType.class))), is(not(nullValue())));
+        assertThat(index.signatureOf(index.idOf(internalName(Square.class))), is(nullValue()));
+    }
+
+    @Test
+    public void givesIdsToSupertypesWhichAreNotOnClassPathWithoutIndexingThem() throws Exception {
+        int object = index.idOf("java/lang/Object");
+
+        assertThat(object, is(not(NO_CLASS)));
+        assertThat(index.isIndexed(object), is(false));
+        assertThat(index.superclassOf(index.idOf(internalName(AbstractShape.class))), is(object));
+        assertThat(index.isIndexed(internalName(Square.class)), is(true));
+    }
+
+    @Test
+    public void leavesOutUnknownClassesAndUnreadableClassFiles() throws Exception {
+        assertThat(index.idOf("java/util/List"), is(NO_CLASS));
+        assertThat(index.idOf("Broken"), is(NO_CLASS));
+        assertThat(index.size(), is(6));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void refusesToDescribeClassesWhichAreNotIndexed() throws Exception {
+        index.accessOf(index.idOf("java/lang/Object"));
+    }
+
+    private static String internalName(Class<?> clazz) {
+        return Type.getInternalName(clazz);
+    }
+
+    private static void copyClassFile(Class<?> clazz, File root) throws Exception {
+        String resource = internalName(clazz) + ".class";
+        File file = new File(root, resource);
+        file.getParentFile().mkdirs();
+        try (InputStream classFile = clazz.getClassLoader().getResourceAsStream(resource)) {
+            Files.write(ByteStreams.toByteArray(classFile), file);
+        }
+    }
+
+    interface Shape { }
+
+    static abstract class AbstractShape implements Shape { }
+
+    static final class Square extends AbstractShape { }
+}
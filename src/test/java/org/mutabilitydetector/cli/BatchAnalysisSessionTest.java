@@ -23,12 +23,42 @@ package org.mutabilitydetector.cli;
 
 
 import static com.google.common.collect.Lists.newArrayList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mutabilitydetector.Configurations.OUT_OF_THE_BOX_CONFIGURATION;
+import static org.mutabilitydetector.DefaultCachingAnalysisSession.createWithCurrentClassPath;
 import static org.mutabilitydetector.locations.Dotted.dotted;
+import static org.mutabilitydetector.locations.Dotted.fromClass;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.google.classpath.ClassPath;
+import com.google.classpath.ClassPathFactory;
+import com.google.common.collect.ImmutableSet;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 import org.mutabilitydetector.AnalysisSession;
+import org.mutabilitydetector.benchmarks.ImmutableExample;
+import org.mutabilitydetector.benchmarks.ImmutableProvidedOtherClassIsImmutable;
+import org.mutabilitydetector.benchmarks.ImmutableProvidedOtherClassIsImmutable.ThisHasToBeImmutable;
+import org.mutabilitydetector.benchmarks.MutableByExtendingMutableType;
+import org.mutabilitydetector.benchmarks.MutableByHavingPublicNonFinalField;
+import org.mutabilitydetector.benchmarks.MutableByNoCopyOfIndirectlyConstructedField;
+import org.mutabilitydetector.locations.Dotted;
 
 public class BatchAnalysisSessionTest {
 
@@ -43,5 +73,135 @@ public class BatchAnalysisSessionTest {
         verify(underlyingSession).resultFor(dotted("a.b.C"));
         verify(underlyingSession).resultFor(dotted("d.e.F"));
     }
-    
+
+    @Test
+    public void triggersAnalysisForEachGivenClassWhenRunInParallel() throws Exception {
+        AnalysisSession underlyingSession = Mockito.mock(AnalysisSession.class);
+
+        BatchAnalysisSession batchAnalysisSession = new BatchAnalysisSession(underlyingSession, 4);
+
+        batchAnalysisSession.runAnalysis(newArrayList(dotted("a.b.C"), dotted("d.e.F"), dotted("g.h.I")));
+
+        verify(underlyingSession).resultFor(dotted("a.b.C"));
+        verify(underlyingSession).resultFor(dotted("d.e.F"));
+        verify(underlyingSession).resultFor(dotted("g.h.I"));
+    }
+
+    @Test
+    public void analysesOnCallingThreadWhenSessionIsNotKnownToSupportConcurrentAnalysis() throws Exception {
+        AnalysisSession underlyingSession = Mockito.mock(AnalysisSession.class);
+        Set<Thread> analysingThreads = Collections.synchronizedSet(new HashSet<Thread>());
+        when(underlyingSession.resultFor(any(Dotted.class))).thenAnswer(invocation -> {
+            analysingThreads.add(Thread.currentThread());
+            return null;
+        });
+
+        new BatchAnalysisSession(underlyingSession, 4).runAnalysis(
+                newArrayList(dotted("a.b.C"), dotted("d.e.F"), dotted("g.h.I"), dotted("j.k.L")));
+
+        assertThat(analysingThreads, contains(Thread.currentThread()));
+    }
+
+    @Test
+    public void parallelAnalysisGivesSameResultsAsSequentialAnalysis() throws Exception {
+        List<Dotted> classes = newArrayList(
+                fromClass(ImmutableExample.class),
+                fromClass(MutableByHavingPublicNonFinalField.class),
+                fromClass(MutableByExtendingMutableType.class),
+                fromClass(ImmutableProvidedOtherClassIsImmutable.class),
+                fromClass(MutableByNoCopyOfIndirectlyConstructedField.class));
+
+        AnalysisSession sequential = new BatchAnalysisSession(createWithCurrentClassPath(OUT_OF_THE_BOX_CONFIGURATION))
+                .runAnalysis(classes);
+        AnalysisSession parallel = new BatchAnalysisSession(createWithCurrentClassPath(OUT_OF_THE_BOX_CONFIGURATION), 4)
+                .runAnalysis(classes);
+
+        for (Dotted className : classes) {
+            assertThat(parallel.resultsByClass().get(className).isImmutable,
+                    is(sequential.resultsByClass().get(className).isImmutable));
+        }
+    }
+
+    @Test
+    public void bottomUpAnalysisAnalysesFieldTypesBeforeClassesWhichReferToThem() throws Exception {
+        AnalysisSession underlyingSession = Mockito.mock(AnalysisSession.class);
+        Dotted owner = fromClass(ImmutableProvidedOtherClassIsImmutable.class);
+        Dotted fieldType = fromClass(ThisHasToBeImmutable.class);
+
+        BatchAnalysisSession.bottomUp(underlyingSession, 1, currentClassPath()).runAnalysis(newArrayList(owner, fieldType));
+
+        InOrder inOrder = inOrder(underlyingSession);
+        inOrder.verify(underlyingSession).resultFor(fieldType);
+        inOrder.verify(underlyingSession).resultFor(owner);
+    }
+
+    @Test
+    public void bottomUpAnalysisOnlyRequestsGivenClasses() throws Exception {
+        AnalysisSession underlyingSession = Mockito.mock(AnalysisSession.class);
+        Dotted owner = fromClass(ImmutableProvidedOtherClassIsImmutable.class);
+        Dotted fieldType = fromClass(ThisHasToBeImmutable.class);
+
+        BatchAnalysisSession.bottomUp(underlyingSession, 1, currentClassPath()).runAnalysis(newArrayList(owner));
+
+        verify(underlyingSession).resultFor(owner);
+        verify(underlyingSession, never()).resultFor(fieldType);
+    }
+
+    @Test
+    public void bottomUpAnalysisStopsSchedulingClassesOnceAnalysisOfAClassFails() throws Exception {
+        Dotted failing = dotted("a.Failing");
+        Dotted slow = dotted("a.Slow");
+        Dotted dependent = dotted("a.Dependent");
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        CountDownLatch reported = new CountDownLatch(1);
+        AnalysisSession underlyingSession = Mockito.mock(AnalysisSession.class);
+        when(underlyingSession.resultFor(failing)).thenAnswer(invocation -> {
+            slowStarted.await(5, TimeUnit.SECONDS);
+            throw new IllegalStateException("analysis failed");
+        });
+        when(underlyingSession.resultFor(slow)).thenAnswer(invocation -> {
+            slowStarted.countDown();
+            reported.await(5, TimeUnit.SECONDS);
+            return null;
+        });
+        Function<Dotted, Set<Dotted>> references = className ->
+                className.equals(dependent) ? ImmutableSet.of(slow) : ImmutableSet.<Dotted>of();
+
+        try {
+            BatchAnalysisSession.bottomUp(underlyingSession, 2, references).runAnalysis(newArrayList(failing, slow, dependent));
+            fail("Expected analysis to fail");
+        } catch (IllegalStateException expected) {
+            assertThat(expected.getMessage(), is("analysis failed"));
+        } finally {
+            reported.countDown();
+        }
+
+        verify(underlyingSession).resultFor(slow);
+        Thread.sleep(100);
+        verify(underlyingSession, never()).resultFor(dependent);
+    }
+
+    @Test
+    public void bottomUpAnalysisGivesSameResultsAsSequentialAnalysis() throws Exception {
+        List<Dotted> classes = newArrayList(
+                fromClass(ImmutableExample.class),
+                fromClass(MutableByHavingPublicNonFinalField.class),
+                fromClass(MutableByExtendingMutableType.class),
+                fromClass(ImmutableProvidedOtherClassIsImmutable.class),
+                fromClass(MutableByNoCopyOfIndirectlyConstructedField.class));
+
+        AnalysisSession sequential = new BatchAnalysisSession(createWithCurrentClassPath(OUT_OF_THE_BOX_CONFIGURATION))
+                .runAnalysis(classes);
+        AnalysisSession bottomUp = BatchAnalysisSession.bottomUp(createWithCurrentClassPath(OUT_OF_THE_BOX_CONFIGURATION), 4, currentClassPath())
+                .runAnalysis(classes);
+
+        for (Dotted className : classes) {
+            assertThat(bottomUp.resultsByClass().get(className).isImmutable,
+                    is(sequential.resultsByClass().get(className).isImmutable));
+        }
+    }
+
+    private static ClassPath currentClassPath() {
+        return new ClassPathFactory().createFromJVM();
+    }
 }
@@ -0,0 +1,150 @@
+package org.mutabilitydetector.cli;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+import org.mutabilitydetector.cli.BottomUpSchedule.Component;
+import org.mutabilitydetector.locations.Dotted;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.mutabilitydetector.locations.Dotted.dotted;
+
+public class BottomUpScheduleTest {
+
+    private final Dotted a = dotted("some.A");
+    private final Dotted b = dotted("some.B");
+    private final Dotted c = dotted("some.C");
+    private final Dotted d = dotted("some.D");
+
+    private final Map<Dotted, Set<Dotted>> references = new HashMap<Dotted, Set<Dotted>>();
+
+    @Test
+    public void schedulesReferencedClassesBeforeClassesWhichReferToThem() throws Exception {
+        references.put(a, ImmutableSet.of(b));
+        references.put(b, ImmutableSet.of(c));
+
+        List<Dotted> order = membersInOrder(schedule(a));
+
+        assertThat(order, contains(c, b, a));
+    }
+
+    @Test
+    public void includesReferencedClassesWhichWereNotGiven() throws Exception {
+        references.put(a, ImmutableSet.of(d));
+
+        assertThat(membersInOrder(schedule(a, b)), contains(d, a, b));
+    }
+
+    @Test
+    public void distinguishesGivenClassesFromClassesOnlyReferredTo() throws Exception {
+        references.put(a, ImmutableSet.of(d));
+        references.put(d, ImmutableSet.of(b));
+
+        List<Component> components = schedule(a, b);
+
+        assertThat(components.size(), is(3));
+        assertThat(components.get(0).given, contains(b));
+        assertThat(components.get(1).members, contains(d));
+        assertThat(components.get(1).given, is(empty()));
+        assertThat(components.get(2).given, contains(a));
+    }
+
+    @Test
+    public void classesWhichReferToEachOtherFormOneComponent() throws Exception {
+        references.put(a, ImmutableSet.of(b));
+        references.put(b, ImmutableSet.of(c));
+        references.put(c, ImmutableSet.of(a, d));
+
+        List<Component> components = schedule(a);
+
+        assertThat(components.size(), is(2));
+        assertThat(components.get(0).members, contains(d));
+        assertThat(components.get(1).members, containsInAnyOrder(a, b, c));
+        assertThat(components.get(1).dependencies, contains(components.get(0)));
+    }
+
+    @Test
+    public void componentsDependOnlyOnComponentsTheyReferTo() throws Exception {
+        references.put(a, ImmutableSet.of(c));
+        references.put(b, ImmutableSet.of(c));
+
+        List<Component> components = schedule(a, b, d);
+        Component componentOfC = components.get(0);
+
+        assertThat(componentOfC.members, contains(c));
+        assertThat(componentOfC.dependencies, is(empty()));
+        for (Component component : components.subList(1, components.size())) {
+            if (component.members.contains(d)) {
+                assertThat(component.dependencies, is(empty()));
+            } else {
+                assertThat(component.dependencies, contains(componentOfC));
+            }
+        }
+    }
+
+    @Test
+    public void schedulesLongChainsOfReferencesWithoutRecursing() throws Exception {
+        List<Dotted> chain = new ArrayList<Dotted>();
+        for (int i = 0; i < 100000; i++) {
+            chain.add(dotted("some.Link" + i));
+        }
+        for (int i = 0; i < chain.size() - 1; i++) {
+            references.put(chain.get(i), ImmutableSet.of(chain.get(i + 1)));
+        }
+
+        List<Dotted> order = membersInOrder(schedule(chain.get(0)));
+
+        assertThat(order.size(), is(chain.size()));
+        assertThat(order.indexOf(chain.get(1)), lessThan(order.indexOf(chain.get(0))));
+        assertThat(order.get(0), is(chain.get(chain.size() - 1)));
+    }
+
+    private List<Component> schedule(Dotted... classNames) {
+        return BottomUpSchedule.of(newArrayList(classNames), className -> {
+            Set<Dotted> referenced = references.get(className);
+            return referenced == null ? Collections.<Dotted>emptySet() : referenced;
+        }).components();
+    }
+
+    private static List<Dotted> membersInOrder(List<Component> components) {
+        List<Dotted> order = new ArrayList<Dotted>();
+        for (Component component : components) {
+            order.addAll(component.members);
+        }
+        return order;
+    }
+}
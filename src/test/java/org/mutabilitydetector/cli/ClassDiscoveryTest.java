@@ -0,0 +1,104 @@
+package org.mutabilitydetector.cli;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import com.google.classpath.ClassPath;
+import com.google.classpath.ClassPathFactory;
+import com.google.classpath.RegExpResourceFilter;
+import com.google.common.collect.ImmutableList;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mutabilitydetector.locations.Dotted;
+
+import java.io.File;
+import java.util.Iterator;
+
+import static com.google.classpath.RegExpResourceFilter.ANY;
+import static com.google.classpath.RegExpResourceFilter.ENDS_WITH_CLASS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+
+public class ClassDiscoveryTest {
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private ClassPath classpath;
+
+    @Before
+    public void createClassPath() throws Exception {
+        File first = folder.newFolder("first");
+        File second = folder.newFolder("second");
+        createFiles(first, "a/b/C.class", "a/D.class", "x/y/Z.class", "Root.class", "a/b/readme.txt");
+        createFiles(second, "a/b/Other.class", "x/W.class");
+        classpath = new ClassPathFactory().createFromPath(first.getPath() + File.pathSeparator + second.getPath());
+    }
+
+    @Test
+    public void findsTheSameClassesAsSearchingTheWholeClassPath() throws Exception {
+        for (String regex : ImmutableList.of(".*", "a\\.b", "^a\\.", "^x\\.y\\.Z$", "Root", "^nothing")) {
+            NamesFromClassResources names = new NamesFromClassResources(regex);
+            String[] allResources = classpath.findResources("", new RegExpResourceFilter(ANY, ENDS_WITH_CLASS));
+
+            Iterable<Dotted> discovered = ClassDiscovery.start(classpath, names, 4);
+
+            assertThat(regex, ImmutableList.copyOf(discovered),
+                    containsInAnyOrder(names.asDotted(allResources).toArray()));
+        }
+    }
+
+    @Test
+    public void findsNothingOnEmptyClassPath() throws Exception {
+        ClassPath empty = new ClassPathFactory().createFromPath(folder.newFolder("empty").getPath());
+
+        assertThat(ImmutableList.copyOf(ClassDiscovery.start(empty, new NamesFromClassResources(".*"), 2)), is(empty()));
+    }
+
+    @Test
+    public void canOnlyBeIteratedOnce() throws Exception {
+        ClassDiscovery discovery = ClassDiscovery.start(classpath, new NamesFromClassResources(".*"), 2);
+        Iterator<Dotted> classes = discovery.iterator();
+        while (classes.hasNext()) {
+            classes.next();
+        }
+
+        try {
+            discovery.iterator();
+            fail("Expected discovered classes to only be iterable once.");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+    }
+
+    private static void createFiles(File root, String... paths) throws Exception {
+        for (String path : paths) {
+            File file = new File(root, path);
+            file.getParentFile().mkdirs();
+            file.createNewFile();
+        }
+    }
+}
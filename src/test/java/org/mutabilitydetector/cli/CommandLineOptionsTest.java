@@ -33,6 +33,7 @@ import java.io.PrintStream;
 
 import org.junit.After;
 import org.junit.Test;
+import org.mutabilitydetector.asmoverride.AsmVerifierFactory.ClassloadingOption;
 import org.mutabilitydetector.cli.CommandLineOptions.ReportMode;
 
 public class CommandLineOptionsTest {
@@ -146,6 +147,78 @@ public class CommandLineOptionsTest {
         assertTrue(options.failFast());
     }
 
+    @Test
+    public void canSpecifyNumberOfThreads() throws Exception {
+        options = createOptions("-cp", ".");
+        assertEquals("By default, analysis should be sequential.", 1, options.threads());
+
+        options = createOptions("-cp", ".", "-threads", "4");
+        assertEquals(4, options.threads());
+
+        options = createOptions("-cp", ".", "-t", "0");
+        assertEquals(Runtime.getRuntime().availableProcessors(), options.threads());
+    }
+
+    @Test
+    public void canSpecifyFileForIncrementalAnalysis() throws Exception {
+        options = createOptions("-cp", ".");
+        assertFalse("By default, analysis should not be incremental.", options.isIncremental());
+
+        options = createOptions("-cp", ".", "-incremental", "previous-results.bin");
+        assertTrue(options.isIncremental());
+        assertEquals(new File("previous-results.bin"), options.incrementalStateFile());
+    }
+
+    @Test
+    public void canSpecifyBottomUpScheduling() throws Exception {
+        options = createOptions("-cp", ".");
+        assertFalse("By default, classes should be analysed in the order they are found.", options.bottomUp());
+
+        options = createOptions("-cp", ".", "-bottomUp");
+        assertTrue(options.bottomUp());
+    }
+
+    @Test
+    public void canChooseToMapJarFiles() throws Exception {
+        options = createOptions("-cp", ".");
+        assertFalse("By default, jars should be read through streams.", options.mapJars());
+
+        options = createOptions("-cp", ".", "-mapJars");
+        assertTrue(options.mapJars());
+    }
+
+    @Test
+    public void canChooseToLoadClassesWithoutInitialisingThem() throws Exception {
+        options = createOptions("-cp", ".", "-withoutInitialisation");
+        assertEquals(ClassloadingOption.WITHOUT_INITIALISATION, options.classloading());
+
+        options = createOptions("-cp", ".", "-withoutInitialisation", "-nonClassloading");
+        assertEquals(ClassloadingOption.DISABLED, options.classloading());
+    }
+
+    @Test
+    public void canChooseToIndexTypeHierarchyBeforeAnalysis() throws Exception {
+        options = createOptions("-cp", ".");
+        assertFalse("By default, classes should be read as questions about them arise.", options.indexHierarchy());
+
+        options = createOptions("-cp", ".", "-indexHierarchy");
+        assertTrue(options.indexHierarchy());
+    }
+
+    @Test
+    public void canChooseToProfileAnalysis() throws Exception {
+        options = createOptions("-cp", ".");
+        assertFalse("By default, analysis should not be profiled.", options.profile());
+
+        options = createOptions("-cp", ".", "-profile");
+        assertTrue(options.profile());
+    }
+
+    @Test(expected = CommandLineOptionsException.class)
+    public void throwsExceptionIfNumberOfThreadsIsInvalid() throws Exception {
+        createOptions("-cp", ".", "-threads", "many");
+    }
+
     @After
     public void tearDown() {
         removeTestFile();
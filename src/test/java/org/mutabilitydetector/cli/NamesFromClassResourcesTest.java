@@ -25,10 +25,13 @@ package org.mutabilitydetector.cli;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
 import static org.mutabilitydetector.locations.DottedClassNameMatcher.aDottedClassNameOf;
 
 import org.hamcrest.Matchers;
 import org.junit.Test;
+import org.mutabilitydetector.cli.NamesFromClassResources.RegexLiterals;
 import org.mutabilitydetector.locations.Dotted;
 
 public class NamesFromClassResourcesTest {
@@ -50,5 +53,84 @@ public class NamesFromClassResourcesTest {
                 allOf(contains(aDottedClassNameOf("com.some.classfile.FindMe")), 
                       Matchers.<Dotted>iterableWithSize(1)));
     }
-    
+
+    @Test
+    public void matchesAnywhereInClassNameUnlessAnchored() throws Exception {
+        String[] resources = { "com/some/classfile/FindMe.class", "org/other/FindMe.class" };
+
+        assertThat(new NamesFromClassResources("some\\.classfile").asDotted(resources),
+                contains(aDottedClassNameOf("com.some.classfile.FindMe")));
+        assertThat(new NamesFromClassResources("^some\\.classfile").asDotted(resources), is(empty()));
+        assertThat(new NamesFromClassResources("^org\\.other\\.").asDotted(resources),
+                contains(aDottedClassNameOf("org.other.FindMe")));
+    }
+
+    @Test
+    public void convertsResourcesWhichLookLikeTypeDescriptorsAsBefore() throws Exception {
+        String[] resources = { "Lsome/Thing.class", "[[Lother/Thing;.class" };
+        NamesFromClassResources toAnalyse = new NamesFromClassResources("Thing");
+
+        assertThat(toAnalyse.asDotted(resources),
+                contains(aDottedClassNameOf("some.Thing"), aDottedClassNameOf("other.Thing")));
+    }
+
+    @Test
+    public void onlyWalksPackagesWhichCouldContainMatchesOfAnchoredExpression() throws Exception {
+        NamesFromClassResources anchored = new NamesFromClassResources("^org\\.some\\.pack");
+
+        assertThat(anchored.mayMatchWithin("org"), is(true));
+        assertThat(anchored.mayMatchWithin("org/some"), is(true));
+        assertThat(anchored.mayMatchWithin("org/some/package"), is(true));
+        assertThat(anchored.mayMatchWithin("org/other"), is(false));
+        assertThat(anchored.mayMatchWithin("com"), is(false));
+        assertThat(new NamesFromClassResources("org\\.some").mayMatchWithin("com"), is(true));
+    }
+
+    @Test
+    public void findsLiteralTextEveryMatchMustContain() throws Exception {
+        assertThat(RegexLiterals.of(".*FindMe.*").longestRequired, is("FindMe"));
+        assertThat(RegexLiterals.of("org.mutabilitydetector.benchmarks.*").longestRequired, is("mutabilitydetector"));
+        assertThat(RegexLiterals.of("Immutables*").longestRequired, is("Immutable"));
+        assertThat(RegexLiterals.of("(Optional)?Value[A-Z]+Holder").longestRequired, is("Holder"));
+        assertThat(RegexLiterals.of("Find|Other").longestRequired, is(""));
+        assertThat(RegexLiterals.of("(?i)findme").longestRequired, is(""));
+    }
+
+    @Test
+    public void findsLiteralPrefixOfAnchoredExpression() throws Exception {
+        assertThat(RegexLiterals.of("^org\\.some\\.Thing").prefix, is("org.some.Thing"));
+        assertThat(RegexLiterals.of("^org.some").prefix, is("org"));
+        assertThat(RegexLiterals.of("^org\\.somes?").prefix, is("org.some"));
+        assertThat(RegexLiterals.of("^org\\.\\w+").prefix, is("org."));
+        assertThat(RegexLiterals.of("org\\.some").prefix, is(""));
+    }
+
+    @Test
+    public void findsNoRequiredLiteralsWhenEscapeIsLongerThanOneCharacter() throws Exception {
+        assertThat(RegexLiterals.of("Foo\\x24Bar").longestRequired, is(""));
+        assertThat(RegexLiterals.of("Foo\\u0024Bar").longestRequired, is(""));
+        assertThat(RegexLiterals.of("Foo\\0044Bar").longestRequired, is(""));
+        assertThat(RegexLiterals.of("Foo\\p{Lu}Bar").longestRequired, is(""));
+        assertThat(RegexLiterals.of("^Foo\\x24Bar").prefix, is(""));
+        assertThat(RegexLiterals.of("Foo\\$Outer").longestRequired, is("Outer"));
+    }
+
+    @Test
+    public void skipsCharacterClassesNestedInCharacterClasses() throws Exception {
+        assertThat(RegexLiterals.of("[a-z&&[^b]]Holder").longestRequired, is("Holder"));
+        assertThat(RegexLiterals.of("Value[a-z&&[^b]]").longestRequired, is("Value"));
+        assertThat(RegexLiterals.of("[[a-c][x-z]]+").longestRequired, is(""));
+    }
+
+    @Test
+    public void filtersNamesWithEscapesLongerThanOneCharacter() throws Exception {
+        String[] resources = { "com/some/Outer$Inner.class", "com/some/Outer$Other.class" };
+
+        assertThat(new NamesFromClassResources("Outer\\x24Inner").asDotted(resources),
+                contains(aDottedClassNameOf("com.some.Outer$Inner")));
+        assertThat(new NamesFromClassResources("Outer\\u0024Inner").asDotted(resources),
+                contains(aDottedClassNameOf("com.some.Outer$Inner")));
+        assertThat(new NamesFromClassResources("Outer\\044Inner").asDotted(resources),
+                contains(aDottedClassNameOf("com.some.Outer$Inner")));
+    }
 }
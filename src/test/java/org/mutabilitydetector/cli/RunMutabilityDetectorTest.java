@@ -0,0 +1,68 @@
+package org.mutabilitydetector.cli;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mutabilitydetector.checkers.AllChecksRunner.AnalysisMode.FULL;
+import static org.mutabilitydetector.checkers.AllChecksRunner.AnalysisMode.VERDICT_ONLY;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import org.junit.Test;
+import org.mutabilitydetector.checkers.AllChecksRunner.AnalysisMode;
+
+public class RunMutabilityDetectorTest {
+
+    private final PrintStream errorStream = new PrintStream(new OutputStream() {
+        @Override
+        public void write(int b) {
+            // suppress output in tests
+        }
+    });
+
+    @Test
+    public void onlyFindsVerdictsWhenNeitherReasonsNorErrorsAreReported() {
+        assertThat(analysisModeFor(), is(VERDICT_ONLY));
+    }
+
+    @Test
+    public void analysesInFullWhenReasonsOrErrorsAreReported() {
+        assertThat(analysisModeFor("-v"), is(FULL));
+        assertThat(analysisModeFor("-e"), is(FULL));
+    }
+
+    @Test
+    public void analysesInFullWhenFailingFast() {
+        assertThat(analysisModeFor("--failFast"), is(FULL));
+    }
+
+    private AnalysisMode analysisModeFor(String... options) {
+        String[] args = new String[options.length + 2];
+        args[0] = "-cp";
+        args[1] = ".";
+        System.arraycopy(options, 0, args, 2, options.length);
+        return RunMutabilityDetector.analysisModeFor(new CommandLineOptions(errorStream, args));
+    }
+}
@@ -0,0 +1,95 @@
+package org.mutabilitydetector.jfr;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mutabilitydetector.AnalysisSession;
+import org.mutabilitydetector.TestUtil;
+import org.mutabilitydetector.benchmarks.cyclic.ImmutableClassA;
+import org.mutabilitydetector.benchmarks.cyclic.ImmutableClassB;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasItems;
+import static org.mutabilitydetector.locations.Dotted.fromClass;
+
+public class AnalysisEventsTest {
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private final String owner = ImmutableClassA.class.getName();
+    private final String fieldType = ImmutableClassB.class.getName();
+
+    @Test
+    public void recordsAnalysisOfClassesAndTheirDependenciesWithVerdicts() throws Exception {
+        List<RecordedEvent> events = recordAnalysisOf(ImmutableClassA.class);
+
+        assertThat(describe(events, "org.mutabilitydetector.ClassAnalysis", "verdict"),
+                hasItems(owner + " NOT_IMMUTABLE", fieldType + " NOT_IMMUTABLE"));
+        assertThat(describe(events, "org.mutabilitydetector.CheckerRun", "checker"),
+                hasItem(owner + " MutableTypeToFieldChecker"));
+        assertThat(describe(events, "org.mutabilitydetector.ClassBytesRead", "className"), hasItem(owner + " " + owner));
+    }
+
+    @Test
+    public void recordsWhetherRequestedResultsWereAlreadyKnown() throws Exception {
+        List<RecordedEvent> events = recordAnalysisOf(ImmutableClassA.class);
+
+        assertThat(describe(events, "org.mutabilitydetector.ResultRequest", "cached"), hasItem(owner + " false"));
+    }
+
+    private List<RecordedEvent> recordAnalysisOf(Class<?> toAnalyse) throws Exception {
+        File dump = new File(folder.getRoot(), "analysis.jfr");
+        AnalysisSession session = TestUtil.testAnalysisSession();
+        try (Recording recording = new Recording()) {
+            recording.enable(ClassAnalysisEvent.class);
+            recording.enable(CheckerRunEvent.class);
+            recording.enable(ClassBytesReadEvent.class);
+            recording.enable(ResultRequestEvent.class);
+            recording.start();
+            session.resultFor(fromClass(toAnalyse));
+            recording.stop();
+            recording.dump(dump.toPath());
+        }
+        return RecordingFile.readAllEvents(dump.toPath());
+    }
+
+    private static List<String> describe(List<RecordedEvent> events, String eventName, String field) {
+        List<String> described = new ArrayList<String>();
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(eventName)) {
+                described.add(event.getString("className") + " " + event.getValue(field));
+            }
+        }
+        return described;
+    }
+}
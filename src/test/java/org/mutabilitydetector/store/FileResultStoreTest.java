@@ -0,0 +1,345 @@
+package org.mutabilitydetector.store;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.google.common.base.Optional;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.SetMultimap;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mutabilitydetector.AnalysisError;
+import org.mutabilitydetector.AnalysisResult;
+import org.mutabilitydetector.Configuration;
+import org.mutabilitydetector.ConfigurationBuilder;
+import org.mutabilitydetector.locations.CodeLocation.ClassLocation;
+import org.mutabilitydetector.locations.Dotted;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+import static org.mutabilitydetector.AnalysisResult.analysisResult;
+import static org.mutabilitydetector.AnalysisResult.definitelyImmutable;
+import static org.mutabilitydetector.Configurations.NO_CONFIGURATION;
+import static org.mutabilitydetector.IsImmutable.NOT_IMMUTABLE;
+import static org.mutabilitydetector.MutabilityReason.MUTABLE_TYPE_TO_FIELD;
+import static org.mutabilitydetector.MutableReasonDetail.newMutableReasonDetail;
+import static org.mutabilitydetector.locations.CodeLocation.FieldLocation.fieldLocation;
+import static org.mutabilitydetector.locations.Dotted.dotted;
+
+public class FileResultStoreTest {
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Dotted owner = dotted("some.Owner");
+    private final Dotted fieldType = dotted("some.FieldType");
+    private final AnalysisResult mutableOwner = analysisResult(owner, NOT_IMMUTABLE, newMutableReasonDetail(
+            "Field can have a mutable type (some.FieldType) assigned to it.",
+            fieldLocation("field", ClassLocation.from(owner), fieldType),
+            MUTABLE_TYPE_TO_FIELD));
+
+    private final VersionedClassContent classContent = new VersionedClassContent();
+
+    @Test
+    public void reusesResultRecordedByPreviousStore() throws Exception {
+        File file = folder.newFile();
+        classContent.version(owner, 1).version(fieldType, 1);
+
+        FileResultStore first = FileResultStore.open(file, NO_CONFIGURATION, classContent);
+        first.record(mutableOwner, ImmutableSet.of(fieldType), noClassesConsulted());
+        first.record(definitelyImmutable(fieldType), noDependencies(), noClassesConsulted());
+        first.close();
+
+        FileResultStore second = FileResultStore.open(file, NO_CONFIGURATION, classContent);
+        assertThat(second.lookup(owner), is(Optional.of(mutableOwner)));
+        assertThat(second.lookup(fieldType), is(Optional.of(definitelyImmutable(fieldType))));
+    }
+
+    @Test
+    public void doesNotReuseResultWhenClassHasChanged() throws Exception {
+        File file = folder.newFile();
+        classContent.version(fieldType, 1);
+        recordAndClose(file, NO_CONFIGURATION, definitelyImmutable(fieldType));
+
+        classContent.version(fieldType, 2);
+
+        assertThat(FileResultStore.open(file, NO_CONFIGURATION, classContent).lookup(fieldType), is(absent()));
+    }
+
+    @Test
+    public void doesNotReuseResultWhenClassItDependedOnHasChanged() throws Exception {
+        File file = folder.newFile();
+        classContent.version(owner, 1).version(fieldType, 1);
+        FileResultStore first = FileResultStore.open(file, NO_CONFIGURATION, classContent);
+        first.record(definitelyImmutable(owner), ImmutableSet.of(fieldType), noClassesConsulted());
+        first.record(definitelyImmutable(fieldType), noDependencies(), noClassesConsulted());
+        first.close();
+
+        classContent.version(fieldType, 2);
+
+        assertThat(FileResultStore.open(file, NO_CONFIGURATION, classContent).lookup(owner), is(absent()));
+    }
+
+    @Test
+    public void doesNotReuseResultWhenClassItDependedOnWasNeverStored() throws Exception {
+        File file = folder.newFile();
+        classContent.version(owner, 1).version(fieldType, 1);
+        FileResultStore first = FileResultStore.open(file, NO_CONFIGURATION, classContent);
+        first.record(definitelyImmutable(owner), ImmutableSet.of(fieldType), noClassesConsulted());
+        first.close();
+
+        assertThat(FileResultStore.open(file, NO_CONFIGURATION, classContent).lookup(owner), is(absent()));
+    }
+
+    @Test
+    public void hardcodedDependenciesDoNotNeedToBeStored() throws Exception {
+        File file = folder.newFile();
+        Configuration configuration = new ConfigurationBuilder() {
+            @Override public void configure() {
+                hardcodeAsDefinitelyImmutable("some.FieldType");
+            }
+        }.build();
+        classContent.version(owner, 1);
+        FileResultStore first = FileResultStore.open(file, configuration, classContent);
+        first.record(definitelyImmutable(owner), ImmutableSet.of(fieldType), noClassesConsulted());
+        first.close();
+
+        assertThat(FileResultStore.open(file, configuration, classContent).lookup(owner),
+                is(Optional.of(definitelyImmutable(owner))));
+    }
+
+    @Test
+    public void doesNotReuseResultRecordedWithDifferentConfiguration() throws Exception {
+        File file = folder.newFile();
+        classContent.version(fieldType, 1);
+        recordAndClose(file, NO_CONFIGURATION, definitelyImmutable(fieldType));
+
+        Configuration otherConfiguration = new ConfigurationBuilder() {
+            @Override public void configure() {
+                hardcodeAsImmutableContainerType("some.Container");
+            }
+        }.build();
+
+        assertThat(FileResultStore.open(file, otherConfiguration, classContent).lookup(fieldType), is(absent()));
+        assertThat(FileResultStore.open(file, NO_CONFIGURATION, classContent).lookup(fieldType),
+                is(Optional.of(definitelyImmutable(fieldType))));
+    }
+
+    @Test
+    public void keepsIntactResultsWhenFileEndsWithDamagedRecord() throws Exception {
+        File file = folder.newFile();
+        classContent.version(fieldType, 1);
+        recordAndClose(file, NO_CONFIGURATION, definitelyImmutable(fieldType));
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(new byte[] { 0, 0, 1, 0, 42 });
+        }
+
+        FileResultStore reopened = FileResultStore.open(file, NO_CONFIGURATION, classContent);
+        classContent.version(owner, 1);
+        reopened.record(definitelyImmutable(owner), noDependencies(), noClassesConsulted());
+        reopened.close();
+
+        FileResultStore store = FileResultStore.open(file, NO_CONFIGURATION, classContent);
+        assertThat(store.lookup(fieldType), is(Optional.of(definitelyImmutable(fieldType))));
+        assertThat(store.lookup(owner), is(Optional.of(definitelyImmutable(owner))));
+    }
+
+    @Test
+    public void refusesToUseFileWhichIsNotAResultStore() throws Exception {
+        File file = folder.newFile();
+        Files.asCharSink(file, UTF_8).write("not a result store");
+
+        try {
+            FileResultStore.open(file, NO_CONFIGURATION, classContent);
+            fail("expected exception");
+        } catch (IOException expected) {
+            assertThat(expected.getMessage(), containsString("is not a result store"));
+        }
+        assertThat(Files.asCharSource(file, UTF_8).read(), is("not a result store"));
+    }
+
+    @Test
+    public void startsAfreshWhenFileWasWrittenInAnOlderFormat() throws Exception {
+        File file = folder.newFile();
+        classContent.version(fieldType, 1);
+        recordAndClose(file, NO_CONFIGURATION, definitelyImmutable(fieldType));
+        byte[] contents = Files.toByteArray(file);
+        contents[7] = 0;
+        Files.write(contents, file);
+
+        FileResultStore store = FileResultStore.open(file, NO_CONFIGURATION, classContent);
+
+        assertThat(store.lookup(fieldType), is(absent()));
+        assertThat(Files.toByteArray(file).length, is(8));
+    }
+
+    @Test
+    public void usesEmptyFileAsResultStore() throws Exception {
+        File file = folder.newFile();
+        classContent.version(fieldType, 1);
+
+        recordAndClose(file, NO_CONFIGURATION, definitelyImmutable(fieldType));
+
+        assertThat(FileResultStore.open(file, NO_CONFIGURATION, classContent).lookup(fieldType),
+                is(Optional.of(definitelyImmutable(fieldType))));
+    }
+
+    @Test
+    public void doesNotReuseResultWhenClassWhoseStructureWasConsultedHasChanged() throws Exception {
+        File file = folder.newFile();
+        Dotted consulted = dotted("some.AbstractFieldType");
+        classContent.version(owner, 1).version(consulted, 1);
+        FileResultStore first = FileResultStore.open(file, NO_CONFIGURATION, classContent);
+        first.record(definitelyImmutable(owner), noDependencies(), ImmutableSet.of(consulted));
+        first.close();
+
+        classContent.version(consulted, 2);
+
+        assertThat(FileResultStore.open(file, NO_CONFIGURATION, classContent).lookup(owner), is(absent()));
+    }
+
+    @Test
+    public void doesNotReuseResultWhenSupertypeOfClassWhoseStructureWasConsultedHasChanged() throws Exception {
+        File file = folder.newFile();
+        Dotted consulted = dotted("some.FieldTypeImplementation");
+        Dotted supertype = dotted("some.FieldTypeSuperclass");
+        classContent.version(owner, 1).version(consulted, 1).version(supertype, 1).supertype(consulted, supertype);
+        FileResultStore first = FileResultStore.open(file, NO_CONFIGURATION, classContent);
+        first.record(definitelyImmutable(owner), noDependencies(), ImmutableSet.of(consulted));
+        first.close();
+
+        assertThat(FileResultStore.open(file, NO_CONFIGURATION, classContent).lookup(owner),
+                is(Optional.of(definitelyImmutable(owner))));
+
+        classContent.version(supertype, 2);
+
+        assertThat(FileResultStore.open(file, NO_CONFIGURATION, classContent).lookup(owner), is(absent()));
+    }
+
+    @Test
+    public void doesNotReuseResultWhenSupertypeOfAnalysedClassHasChanged() throws Exception {
+        File file = folder.newFile();
+        Dotted supertype = dotted("some.OwnerSuperclass");
+        classContent.version(owner, 1).version(supertype, 1).supertype(owner, supertype);
+        recordAndClose(file, NO_CONFIGURATION, definitelyImmutable(owner));
+
+        classContent.version(supertype, 2);
+
+        assertThat(FileResultStore.open(file, NO_CONFIGURATION, classContent).lookup(owner), is(absent()));
+    }
+
+    @Test
+    public void keepsRecordsAppendedByAnotherStoreWhenCompactingFile() throws Exception {
+        File file = folder.newFile();
+        classContent.version(owner, 1).version(fieldType, 1);
+        FileResultStore appending = FileResultStore.open(file, NO_CONFIGURATION, classContent);
+        for (int i = 0; i < 3; i++) {
+            appending.record(definitelyImmutable(fieldType), noDependencies(), noClassesConsulted());
+        }
+        long sizeBeforeCompacting = file.length();
+
+        FileResultStore.open(file, NO_CONFIGURATION, classContent);
+        assertThat(file.length() < sizeBeforeCompacting, is(true));
+
+        appending.record(definitelyImmutable(owner), noDependencies(), noClassesConsulted());
+        appending.close();
+
+        FileResultStore store = FileResultStore.open(file, NO_CONFIGURATION, classContent);
+        assertThat(store.lookup(fieldType), is(Optional.of(definitelyImmutable(fieldType))));
+        assertThat(store.lookup(owner), is(Optional.of(definitelyImmutable(owner))));
+    }
+
+    @Test
+    public void doesNotRecordResultsWithErrors() throws Exception {
+        File file = folder.newFile();
+        classContent.version(owner, 1);
+        AnalysisResult withError = AnalysisResult.analysisResult(owner, NOT_IMMUTABLE, mutableOwner.reasons,
+                ImmutableSet.of(new AnalysisError(owner, "SomeChecker", "went wrong")));
+        recordAndClose(file, NO_CONFIGURATION, withError);
+
+        assertThat(FileResultStore.open(file, NO_CONFIGURATION, classContent).lookup(owner), is(absent()));
+    }
+
+    private void recordAndClose(File file, Configuration configuration, AnalysisResult result) throws IOException {
+        FileResultStore store = FileResultStore.open(file, configuration, classContent);
+        store.record(result, noDependencies(), noClassesConsulted());
+        store.close();
+    }
+
+    private static Set<Dotted> noDependencies() {
+        return Collections.emptySet();
+    }
+
+    private static Set<Dotted> noClassesConsulted() {
+        return Collections.emptySet();
+    }
+
+    private static Optional<AnalysisResult> absent() {
+        return Optional.absent();
+    }
+
+    private static final class VersionedClassContent extends ClassContent {
+        private final Map<Dotted, Integer> versions = new HashMap<Dotted, Integer>();
+        private final SetMultimap<Dotted, Dotted> supertypes = HashMultimap.create();
+
+        VersionedClassContent() {
+            super(null);
+        }
+
+        VersionedClassContent version(Dotted className, int version) {
+            versions.put(className, version);
+            return this;
+        }
+
+        VersionedClassContent supertype(Dotted className, Dotted supertype) {
+            supertypes.put(className, supertype);
+            return this;
+        }
+
+        @Override
+        Set<Dotted> supertypesOf(Dotted className) {
+            return supertypes.get(className);
+        }
+
+        @Override
+        Optional<HashCode> hashOf(Dotted className) {
+            Integer version = versions.get(className);
+            return version == null
+                    ? Optional.<HashCode>absent()
+                    : Optional.of(Hashing.murmur3_128().hashString(className + "@" + version, UTF_8));
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package org.mutabilitydetector.store;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mutabilitydetector.AnalysisMetrics.Timing;
+import org.mutabilitydetector.AnalysisSession;
+import org.mutabilitydetector.Configuration;
+import org.mutabilitydetector.ConfigurationBuilder;
+import org.mutabilitydetector.IsImmutable;
+import org.mutabilitydetector.asmoverride.AsmVerifierFactory.ClassloadingOption;
+import org.mutabilitydetector.asmoverride.NonClassLoadingVerifierFactory;
+import org.mutabilitydetector.checkers.ClassPathBasedCheckerRunnerFactory;
+import org.mutabilitydetector.checkers.MutabilityCheckerFactory;
+import org.mutabilitydetector.locations.Dotted;
+import org.mutabilitydetector.synthetic.InMemoryClassPath;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.mutabilitydetector.Configurations.OUT_OF_THE_BOX_CONFIGURATION;
+import static org.mutabilitydetector.DefaultCachingAnalysisSession.createWithGivenClassPath;
+import static org.mutabilitydetector.IsImmutable.IMMUTABLE;
+import static org.mutabilitydetector.IsImmutable.NOT_IMMUTABLE;
+import static org.mutabilitydetector.checkers.CheckerRunner.ExceptionPolicy.CARRY_ON;
+import static org.mutabilitydetector.checkers.MutabilityCheckerFactory.ReassignedFieldAnalysisChoice.NAIVE_PUT_FIELD_ANALYSIS;
+import static org.mutabilitydetector.locations.Dotted.dotted;
+import static org.objectweb.asm.Opcodes.ACC_ABSTRACT;
+import static org.objectweb.asm.Opcodes.ACC_FINAL;
+import static org.objectweb.asm.Opcodes.ACC_INTERFACE;
+import static org.objectweb.asm.Opcodes.ACC_PRIVATE;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_SUPER;
+import static org.objectweb.asm.Opcodes.ALOAD;
+import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
+import static org.objectweb.asm.Opcodes.PUTFIELD;
+import static org.objectweb.asm.Opcodes.RETURN;
+import static org.objectweb.asm.Opcodes.V1_8;
+
+/**
+ * Runs whole analyses against the same result store, changing classes between runs, to check which classes are
+ * analysed again and which are taken from the store.
+ */
+public class IncrementalAnalysisTest {
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Dotted leaf = dotted("some.Leaf");
+    private final Dotted holder = dotted("some.Holder");
+    private final Dotted outer = dotted("some.Outer");
+    private final Dotted unrelated = dotted("some.Unrelated");
+    private final Dotted task = dotted("some.Task");
+    private final Dotted taskHolder = dotted("some.TaskHolder");
+    private final List<Dotted> toAnalyse = ImmutableList.of(unrelated, outer, holder, leaf);
+
+    private final Map<String, byte[]> classFiles = new HashMap<String, byte[]>();
+
+    @Test
+    public void analysesOnlyChangedClassesAndTheClassesWhichDependOnThemAgain() throws Exception {
+        File store = folder.newFile();
+        classFiles.put(leaf.asResource(), classWithFields(leaf));
+        classFiles.put(holder.asResource(), classWithFinalFieldOf(holder, leaf));
+        classFiles.put(outer.asResource(), classWithFinalFieldOf(outer, holder));
+        classFiles.put(unrelated.asResource(), classWithFields(unrelated));
+
+        Run first = run(store, toAnalyse);
+        assertThat(first.analysed, containsInAnyOrder(leaf, holder, outer, unrelated));
+        assertThat(first.verdicts.get(outer), is(IMMUTABLE));
+
+        Run unchanged = run(store, toAnalyse);
+        assertThat(unchanged.analysed, is(empty()));
+        assertThat(unchanged.verdicts, is(first.verdicts));
+
+        classFiles.put(leaf.asResource(), classWithFields(leaf, "value"));
+
+        Run afterChange = run(store, toAnalyse);
+        assertThat(afterChange.analysed, containsInAnyOrder(leaf, holder, outer));
+        assertThat(afterChange.verdicts.get(leaf), is(NOT_IMMUTABLE));
+        assertThat(afterChange.verdicts.get(holder), is(NOT_IMMUTABLE));
+        assertThat(afterChange.verdicts.get(outer), is(NOT_IMMUTABLE));
+        assertThat(afterChange.verdicts.get(unrelated), is(IMMUTABLE));
+
+        Run afterChangeAgain = run(store, toAnalyse);
+        assertThat(afterChangeAgain.analysed, is(empty()));
+        assertThat(afterChangeAgain.verdicts, is(afterChange.verdicts));
+    }
+
+    @Test
+    public void reusesResultsOfClassesWithFieldsOfInterfaceTypes() throws Exception {
+        File store = folder.newFile();
+        classFiles.put(task.asResource(), interfaceClass(task));
+        classFiles.put(taskHolder.asResource(), classWithFinalFieldOf(taskHolder, task));
+
+        Run first = run(store, ImmutableList.of(taskHolder));
+        assertThat(first.analysed, containsInAnyOrder(taskHolder));
+        assertThat(first.verdicts.get(taskHolder), is(NOT_IMMUTABLE));
+
+        Run unchanged = run(store, ImmutableList.of(taskHolder));
+        assertThat(unchanged.analysed, is(empty()));
+        assertThat(unchanged.verdicts, is(first.verdicts));
+    }
+
+    private static final class Run {
+        final Map<Dotted, IsImmutable> verdicts = new HashMap<Dotted, IsImmutable>();
+        final Set<Dotted> analysed = new HashSet<Dotted>();
+    }
+
+    private Run run(File store, List<Dotted> classes) throws Exception {
+        Configuration configuration = new ConfigurationBuilder() {
+            @Override
+            public void configure() {
+                mergeHardcodedResultsFrom(OUT_OF_THE_BOX_CONFIGURATION);
+                setExceptionPolicy(CARRY_ON);
+                setClassloadingPolicy(ClassloadingOption.DISABLED);
+                setCollectMetrics(true);
+                setResultStoreLocation(store);
+            }
+        }.build();
+        InMemoryClassPath classPath = new InMemoryClassPath(new HashMap<String, byte[]>(classFiles));
+        AnalysisSession session = createWithGivenClassPath(classPath,
+                new ClassPathBasedCheckerRunnerFactory(classPath, CARRY_ON),
+                new MutabilityCheckerFactory(NAIVE_PUT_FIELD_ANALYSIS, configuration.immutableContainerClasses()),
+                new NonClassLoadingVerifierFactory(classPath),
+                configuration);
+
+        Run run = new Run();
+        try {
+            for (Dotted className : classes) {
+                run.verdicts.put(className, session.resultFor(className).isImmutable);
+            }
+            for (Timing timing : session.metrics().classTimings()) {
+                run.analysed.add(dotted(timing.name));
+            }
+        } finally {
+            ((Closeable) session).close();
+        }
+        return run;
+    }
+
+    private static byte[] classWithFields(Dotted className, String... publicIntFields) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, internalNameOf(className), null, "java/lang/Object", null);
+        for (String field : publicIntFields) {
+            writer.visitField(ACC_PUBLIC, field, "I", null, null).visitEnd();
+        }
+        MethodVisitor constructor = writer.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(ALOAD, 0);
+        constructor.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        constructor.visitInsn(RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static byte[] interfaceClass(Dotted className) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(V1_8, ACC_PUBLIC | ACC_INTERFACE | ACC_ABSTRACT, internalNameOf(className), null, "java/lang/Object", null);
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static byte[] classWithFinalFieldOf(Dotted className, Dotted fieldType) {
+        String owner = internalNameOf(className);
+        String descriptor = "L" + internalNameOf(fieldType) + ";";
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, owner, null, "java/lang/Object", null);
+        writer.visitField(ACC_PRIVATE | ACC_FINAL, "field", descriptor, null, null).visitEnd();
+        MethodVisitor constructor = writer.visitMethod(ACC_PUBLIC, "<init>", "(" + descriptor + ")V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(ALOAD, 0);
+        constructor.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        constructor.visitVarInsn(ALOAD, 0);
+        constructor.visitVarInsn(ALOAD, 1);
+        constructor.visitFieldInsn(PUTFIELD, owner, "field", descriptor);
+        constructor.visitInsn(RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static String internalNameOf(Dotted className) {
+        return className.asString().replace('.', '/');
+    }
+}
@@ -0,0 +1,134 @@
+package org.mutabilitydetector.synthetic;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import com.google.classpath.ResourceFilter;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import org.mutabilitydetector.classloading.ByteArrayClassPath;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A class path of resources held in memory. Resources it does not hold, such as the classes of the JDK, are read
+ * through the system class loader, but only the resources held in memory are listed.
+ */
+public final class InMemoryClassPath implements ByteArrayClassPath {
+
+    private final Map<String, byte[]> resources;
+
+    public InMemoryClassPath(Map<String, byte[]> resources) {
+        this.resources = ImmutableMap.copyOf(resources);
+    }
+
+    @Override
+    public byte[] getResourceBytes(String resource) {
+        String name = withoutLeadingSlash(resource);
+        byte[] content = resources.get(name);
+        if (content != null) {
+            return content;
+        }
+        try (InputStream fromSystem = ClassLoader.getSystemResourceAsStream(name)) {
+            return fromSystem != null ? ByteStreams.toByteArray(fromSystem) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public InputStream getResourceAsStream(String resource) {
+        byte[] content = getResourceBytes(resource);
+        return content != null ? new ByteArrayInputStream(content) : null;
+    }
+
+    @Override
+    public boolean isResource(String resource) {
+        String name = withoutLeadingSlash(resource);
+        return resources.containsKey(name) || ClassLoader.getSystemResource(name) != null;
+    }
+
+    @Override
+    public boolean isPackage(String packageName) {
+        String prefix = asPrefix(packageName);
+        for (String resource : resources.keySet()) {
+            if (resource.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String[] listPackages(String packageName) {
+        String prefix = asPrefix(packageName);
+        TreeSet<String> packages = new TreeSet<String>();
+        for (String resource : resources.keySet()) {
+            int end = resource.indexOf('/', prefix.length());
+            if (resource.startsWith(prefix) && end >= 0) {
+                packages.add(resource.substring(prefix.length(), end));
+            }
+        }
+        return packages.toArray(new String[packages.size()]);
+    }
+
+    @Override
+    public String[] listResources(String packageName) {
+        String prefix = asPrefix(packageName);
+        List<String> inPackage = new ArrayList<String>();
+        for (String resource : resources.keySet()) {
+            if (resource.startsWith(prefix) && resource.indexOf('/', prefix.length()) < 0) {
+                inPackage.add(resource.substring(prefix.length()));
+            }
+        }
+        return inPackage.toArray(new String[inPackage.size()]);
+    }
+
+    @Override
+    public String[] findResources(String rootPackageName, ResourceFilter resourceFilter) {
+        String prefix = asPrefix(rootPackageName);
+        List<String> found = new ArrayList<String>();
+        for (String resource : resources.keySet()) {
+            int lastSlash = resource.lastIndexOf('/');
+            String packageName = lastSlash < 0 ? "" : resource.substring(0, lastSlash);
+            if (resource.startsWith(prefix) && resourceFilter.match(packageName, resource.substring(lastSlash + 1))) {
+                found.add(resource);
+            }
+        }
+        return found.toArray(new String[found.size()]);
+    }
+
+    private static String asPrefix(String packageName) {
+        String name = withoutLeadingSlash(packageName);
+        return name.isEmpty() || name.endsWith("/") ? name : name + "/";
+    }
+
+    private static String withoutLeadingSlash(String name) {
+        return name.startsWith("/") ? name.substring(1) : name;
+    }
+}
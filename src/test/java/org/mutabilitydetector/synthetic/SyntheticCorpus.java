@@ -0,0 +1,327 @@
+package org.mutabilitydetector.synthetic;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.mutabilitydetector.AnalysisSession;
+import org.mutabilitydetector.Configuration;
+import org.mutabilitydetector.ConfigurationBuilder;
+import org.mutabilitydetector.asmoverride.AsmVerifierFactory.ClassloadingOption;
+import org.mutabilitydetector.asmoverride.NonClassLoadingVerifierFactory;
+import org.mutabilitydetector.checkers.ClassPathBasedCheckerRunnerFactory;
+import org.mutabilitydetector.checkers.MutabilityCheckerFactory;
+import org.mutabilitydetector.locations.Dotted;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.mutabilitydetector.Configurations.OUT_OF_THE_BOX_CONFIGURATION;
+import static org.mutabilitydetector.DefaultCachingAnalysisSession.createWithGivenClassPath;
+import static org.mutabilitydetector.checkers.CheckerRunner.ExceptionPolicy.CARRY_ON;
+import static org.mutabilitydetector.checkers.MutabilityCheckerFactory.ReassignedFieldAnalysisChoice.NAIVE_PUT_FIELD_ANALYSIS;
+import static org.mutabilitydetector.locations.Dotted.dotted;
+import static org.objectweb.asm.Opcodes.ACC_FINAL;
+import static org.objectweb.asm.Opcodes.ACC_PRIVATE;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_SUPER;
+import static org.objectweb.asm.Opcodes.ALOAD;
+import static org.objectweb.asm.Opcodes.BIPUSH;
+import static org.objectweb.asm.Opcodes.DUP;
+import static org.objectweb.asm.Opcodes.IADD;
+import static org.objectweb.asm.Opcodes.ILOAD;
+import static org.objectweb.asm.Opcodes.IMUL;
+import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
+import static org.objectweb.asm.Opcodes.INVOKESTATIC;
+import static org.objectweb.asm.Opcodes.IRETURN;
+import static org.objectweb.asm.Opcodes.NEW;
+import static org.objectweb.asm.Opcodes.PUTFIELD;
+import static org.objectweb.asm.Opcodes.RETURN;
+import static org.objectweb.asm.Opcodes.V1_8;
+
+/**
+ * A corpus of generated classes, for finding out how analysis copes as the number and shape of classes grows.
+ * <p>
+ * Classes are generated in chains, where each class has a final field of the type of the next class in its chain.
+ * The field reference depth is the number of such fields followed from the first class in a chain to reach the last.
+ * With the given cycle density, the last class in a chain also refers back to the first, making a cycle. Classes may
+ * also have a final {@link List} field of another class in the corpus, safely copied and wrapped in the constructor,
+ * and a setter method for a non-final field. Every class has a method of the given size, in arithmetic steps, for
+ * the checkers to walk through.
+ * <p>
+ * The same settings and seed always give the same classes.
+ */
+public final class SyntheticCorpus {
+
+    public static final String PACKAGE = "synthetic";
+
+    private final List<SyntheticClass> classes;
+    private final InMemoryClassPath classPath;
+
+    private SyntheticCorpus(List<SyntheticClass> classes, Map<String, byte[]> classFiles) {
+        this.classes = classes;
+        this.classPath = new InMemoryClassPath(classFiles);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public List<SyntheticClass> classes() {
+        return classes;
+    }
+
+    public List<Dotted> classNames() {
+        ImmutableList.Builder<Dotted> names = ImmutableList.builder();
+        for (SyntheticClass syntheticClass : classes) {
+            names.add(syntheticClass.name);
+        }
+        return names.build();
+    }
+
+    public InMemoryClassPath classPath() {
+        return classPath;
+    }
+
+    /**
+     * A new session which reads the generated classes from {@link #classPath()}, without loading them.
+     */
+    public AnalysisSession newSession() {
+        Configuration configuration = new ConfigurationBuilder() {
+            @Override
+            public void configure() {
+                mergeHardcodedResultsFrom(OUT_OF_THE_BOX_CONFIGURATION);
+                setExceptionPolicy(CARRY_ON);
+                setClassloadingPolicy(ClassloadingOption.DISABLED);
+            }
+        }.build();
+        return createWithGivenClassPath(classPath,
+                new ClassPathBasedCheckerRunnerFactory(classPath, CARRY_ON),
+                new MutabilityCheckerFactory(NAIVE_PUT_FIELD_ANALYSIS, configuration.immutableContainerClasses()),
+                new NonClassLoadingVerifierFactory(classPath),
+                configuration);
+    }
+
+    /**
+     * The shape of one generated class.
+     */
+    public static final class SyntheticClass {
+        public final Dotted name;
+        public final List<Dotted> fieldTypes;
+        public final Optional<Dotted> collectionElementType;
+        public final boolean hasSetter;
+
+        SyntheticClass(Dotted name, List<Dotted> fieldTypes, Optional<Dotted> collectionElementType, boolean hasSetter) {
+            this.name = name;
+            this.fieldTypes = fieldTypes;
+            this.collectionElementType = collectionElementType;
+            this.hasSetter = hasSetter;
+        }
+
+        String internalName() {
+            return internalNameOf(name);
+        }
+    }
+
+    public static final class Builder {
+
+        private int classCount = 100;
+        private int fieldReferenceDepth = 3;
+        private double cycleDensity = 0;
+        private double collectionFieldRatio = 0;
+        private double setterRatio = 0;
+        private int methodSize = 10;
+        private long seed = 0;
+
+        private Builder() { }
+
+        public Builder setClassCount(int classCount) {
+            checkArgument(classCount > 0, "Class count must be positive, was %s", classCount);
+            this.classCount = classCount;
+            return this;
+        }
+
+        public Builder setFieldReferenceDepth(int fieldReferenceDepth) {
+            checkArgument(fieldReferenceDepth >= 0, "Field reference depth must not be negative, was %s", fieldReferenceDepth);
+            this.fieldReferenceDepth = fieldReferenceDepth;
+            return this;
+        }
+
+        public Builder setCycleDensity(double cycleDensity) {
+            this.cycleDensity = ratio(cycleDensity);
+            return this;
+        }
+
+        public Builder setCollectionFieldRatio(double collectionFieldRatio) {
+            this.collectionFieldRatio = ratio(collectionFieldRatio);
+            return this;
+        }
+
+        public Builder setSetterRatio(double setterRatio) {
+            this.setterRatio = ratio(setterRatio);
+            return this;
+        }
+
+        public Builder setMethodSize(int methodSize) {
+            checkArgument(methodSize >= 0, "Method size must not be negative, was %s", methodSize);
+            this.methodSize = methodSize;
+            return this;
+        }
+
+        public Builder setSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public SyntheticCorpus build() {
+            Random random = new Random(seed);
+            int chainLength = fieldReferenceDepth + 1;
+            ImmutableList.Builder<SyntheticClass> classes = ImmutableList.builder();
+            ImmutableMap.Builder<String, byte[]> classFiles = ImmutableMap.builder();
+
+            for (int i = 0; i < classCount; i++) {
+                int positionInChain = i % chainLength;
+                int chainStart = i - positionInChain;
+                ImmutableList.Builder<Dotted> fieldTypes = ImmutableList.builder();
+                if (positionInChain < fieldReferenceDepth && i + 1 < classCount) {
+                    fieldTypes.add(nameOf(i + 1));
+                } else if (chainStart != i && random.nextDouble() < cycleDensity) {
+                    fieldTypes.add(nameOf(chainStart));
+                }
+                Optional<Dotted> collectionElementType = random.nextDouble() < collectionFieldRatio
+                        ? Optional.of(nameOf(random.nextInt(classCount)))
+                        : Optional.<Dotted>absent();
+                boolean hasSetter = random.nextDouble() < setterRatio;
+
+                SyntheticClass syntheticClass = new SyntheticClass(nameOf(i), fieldTypes.build(), collectionElementType, hasSetter);
+                classes.add(syntheticClass);
+                classFiles.put(syntheticClass.name.asResource(), generate(syntheticClass));
+            }
+            return new SyntheticCorpus(classes.build(), classFiles.build());
+        }
+
+        private byte[] generate(SyntheticClass syntheticClass) {
+            ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+            String owner = syntheticClass.internalName();
+            writer.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, owner, null, "java/lang/Object", null);
+
+            StringBuilder constructorParameters = new StringBuilder();
+            for (int field = 0; field < syntheticClass.fieldTypes.size(); field++) {
+                String descriptor = descriptorOf(syntheticClass.fieldTypes.get(field));
+                writer.visitField(ACC_PRIVATE | ACC_FINAL, "field" + field, descriptor, null, null).visitEnd();
+                constructorParameters.append(descriptor);
+            }
+            if (syntheticClass.collectionElementType.isPresent()) {
+                String signature = "Ljava/util/List<" + descriptorOf(syntheticClass.collectionElementType.get()) + ">;";
+                writer.visitField(ACC_PRIVATE | ACC_FINAL, "elements", "Ljava/util/List;", signature, null).visitEnd();
+                constructorParameters.append("Ljava/util/List;");
+            }
+            if (syntheticClass.hasSetter) {
+                writer.visitField(ACC_PRIVATE, "value", "I", null, null).visitEnd();
+            }
+
+            generateConstructor(writer, syntheticClass, "(" + constructorParameters + ")V");
+            if (syntheticClass.hasSetter) {
+                generateSetter(writer, owner);
+            }
+            generateArithmetic(writer);
+
+            writer.visitEnd();
+            return writer.toByteArray();
+        }
+
+        private static void generateConstructor(ClassWriter writer, SyntheticClass syntheticClass, String descriptor) {
+            String owner = syntheticClass.internalName();
+            MethodVisitor constructor = writer.visitMethod(ACC_PUBLIC, "<init>", descriptor, null, null);
+            constructor.visitCode();
+            constructor.visitVarInsn(ALOAD, 0);
+            constructor.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+            int parameter = 1;
+            for (int field = 0; field < syntheticClass.fieldTypes.size(); field++) {
+                constructor.visitVarInsn(ALOAD, 0);
+                constructor.visitVarInsn(ALOAD, parameter++);
+                constructor.visitFieldInsn(PUTFIELD, owner, "field" + field, descriptorOf(syntheticClass.fieldTypes.get(field)));
+            }
+            if (syntheticClass.collectionElementType.isPresent()) {
+                constructor.visitVarInsn(ALOAD, 0);
+                constructor.visitTypeInsn(NEW, "java/util/ArrayList");
+                constructor.visitInsn(DUP);
+                constructor.visitVarInsn(ALOAD, parameter);
+                constructor.visitMethodInsn(INVOKESPECIAL, "java/util/ArrayList", "<init>", "(Ljava/util/Collection;)V", false);
+                constructor.visitMethodInsn(INVOKESTATIC, "java/util/Collections", "unmodifiableList", "(Ljava/util/List;)Ljava/util/List;", false);
+                constructor.visitFieldInsn(PUTFIELD, owner, "elements", "Ljava/util/List;");
+            }
+            constructor.visitInsn(RETURN);
+            constructor.visitMaxs(0, 0);
+            constructor.visitEnd();
+        }
+
+        private static void generateSetter(ClassWriter writer, String owner) {
+            MethodVisitor setter = writer.visitMethod(ACC_PUBLIC, "setValue", "(I)V", null, null);
+            setter.visitCode();
+            setter.visitVarInsn(ALOAD, 0);
+            setter.visitVarInsn(ILOAD, 1);
+            setter.visitFieldInsn(PUTFIELD, owner, "value", "I");
+            setter.visitInsn(RETURN);
+            setter.visitMaxs(0, 0);
+            setter.visitEnd();
+        }
+
+        private void generateArithmetic(ClassWriter writer) {
+            MethodVisitor method = writer.visitMethod(ACC_PUBLIC, "compute", "(I)I", null, null);
+            method.visitCode();
+            method.visitVarInsn(ILOAD, 1);
+            for (int step = 0; step < methodSize; step++) {
+                method.visitIntInsn(BIPUSH, 31);
+                method.visitInsn(IMUL);
+                method.visitVarInsn(ILOAD, 1);
+                method.visitInsn(IADD);
+            }
+            method.visitInsn(IRETURN);
+            method.visitMaxs(0, 0);
+            method.visitEnd();
+        }
+
+        private static Dotted nameOf(int index) {
+            return dotted(PACKAGE + ".Class" + index);
+        }
+
+        private static double ratio(double value) {
+            checkArgument(value >= 0 && value <= 1, "Ratio must be between 0 and 1, was %s", value);
+            return value;
+        }
+    }
+
+    private static String internalNameOf(Dotted className) {
+        return className.asString().replace('.', '/');
+    }
+
+    private static String descriptorOf(Dotted className) {
+        return "L" + internalNameOf(className) + ";";
+    }
+}
@@ -0,0 +1,159 @@
+package org.mutabilitydetector.synthetic;
+
+/*
+ * #%L
+ * MutabilityDetector
+ * %%
+ * Copyright (C) 2008 - 2014 Graham Allan
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+
+import com.google.classpath.RegExpResourceFilter;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.mutabilitydetector.AnalysisSession;
+import org.mutabilitydetector.cli.BatchAnalysisSession;
+import org.mutabilitydetector.locations.Dotted;
+import org.mutabilitydetector.synthetic.SyntheticCorpus.SyntheticClass;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.classpath.RegExpResourceFilter.ANY;
+import static com.google.classpath.RegExpResourceFilter.ENDS_WITH_CLASS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.mutabilitydetector.IsImmutable.IMMUTABLE;
+import static org.mutabilitydetector.IsImmutable.NOT_IMMUTABLE;
+
+public class SyntheticCorpusTest {
+
+    @Test
+    public void generatesClassesTheJvmAccepts() throws Exception {
+        final SyntheticCorpus corpus = SyntheticCorpus.builder()
+                .setClassCount(40)
+                .setCycleDensity(0.5)
+                .setCollectionFieldRatio(0.5)
+                .setSetterRatio(0.5)
+                .setMethodSize(20)
+                .build();
+        ClassLoader loader = new ClassLoader(null) {
+            @Override
+            protected Class<?> findClass(String name) throws ClassNotFoundException {
+                byte[] classFile = corpus.classPath().getResourceBytes(name.replace('.', '/') + ".class");
+                if (classFile == null) {
+                    throw new ClassNotFoundException(name);
+                }
+                return defineClass(name, classFile, 0, classFile.length);
+            }
+        };
+
+        for (Dotted className : corpus.classNames()) {
+            assertThat(Class.forName(className.asString(), true, loader).getDeclaredMethods(), notNullValue());
+        }
+    }
+
+    @Test
+    public void listsGeneratedClassesOnItsClassPath() throws Exception {
+        SyntheticCorpus corpus = SyntheticCorpus.builder().setClassCount(25).build();
+
+        String[] resources = corpus.classPath().findResources("", new RegExpResourceFilter(ANY, ENDS_WITH_CLASS));
+
+        assertThat(resources, arrayWithSize(25));
+        assertThat(corpus.classPath().listPackages(""), is(new String[] { SyntheticCorpus.PACKAGE }));
+        assertThat(corpus.classPath().isResource("java/lang/Object.class"), is(true));
+    }
+
+    @Test
+    public void sameSeedGeneratesSameClasses() throws Exception {
+        SyntheticCorpus first = SyntheticCorpus.builder().setClassCount(30).setCycleDensity(0.3).setSetterRatio(0.3).setSeed(7).build();
+        SyntheticCorpus second = SyntheticCorpus.builder().setClassCount(30).setCycleDensity(0.3).setSetterRatio(0.3).setSeed(7).build();
+
+        for (Dotted className : first.classNames()) {
+            assertThat(second.classPath().getResourceBytes(className.asResource()),
+                    is(first.classPath().getResourceBytes(className.asResource())));
+        }
+    }
+
+    @Test
+    public void classesWithoutSettersOrCyclesAreImmutable() throws Exception {
+        SyntheticCorpus corpus = SyntheticCorpus.builder().setClassCount(30).setFieldReferenceDepth(4).build();
+
+        AnalysisSession session = new BatchAnalysisSession(corpus.newSession()).runAnalysis(corpus.classNames());
+
+        for (Dotted className : corpus.classNames()) {
+            assertThat(className.asString(), session.resultsByClass().get(className).isImmutable, is(IMMUTABLE));
+        }
+    }
+
+    @Test
+    public void classesAreMutableWhenTheyOrTheTypesOfTheirFieldsHaveSetters() throws Exception {
+        SyntheticCorpus corpus = SyntheticCorpus.builder()
+                .setClassCount(60)
+                .setFieldReferenceDepth(5)
+                .setSetterRatio(0.2)
+                .setSeed(3)
+                .build();
+
+        AnalysisSession session = new BatchAnalysisSession(corpus.newSession()).runAnalysis(corpus.classNames());
+
+        Map<Dotted, Boolean> mutable = expectedMutability(corpus.classes());
+        for (Dotted className : corpus.classNames()) {
+            assertThat(className.asString(), session.resultsByClass().get(className).isImmutable,
+                    is(mutable.get(className) ? NOT_IMMUTABLE : IMMUTABLE));
+        }
+    }
+
+    @Test
+    public void analysesDenselyCyclicCorpusWithoutErrors() throws Exception {
+        SyntheticCorpus corpus = SyntheticCorpus.builder()
+                .setClassCount(300)
+                .setFieldReferenceDepth(6)
+                .setCycleDensity(1)
+                .setCollectionFieldRatio(0.5)
+                .setSetterRatio(0.1)
+                .setMethodSize(50)
+                .build();
+
+        AnalysisSession session = new BatchAnalysisSession(corpus.newSession(), 4).runAnalysis(corpus.classNames());
+
+        assertThat(Iterables.size(session.getErrors()), is(0));
+        for (Dotted className : corpus.classNames()) {
+            assertThat(session.resultsByClass().get(className), notNullValue());
+        }
+    }
+
+    /**
+     * Without cycles or collections, a class is mutable if it has a setter, or if the class its field refers to, which
+     * is always generated after it, is mutable.
+     */
+    private static Map<Dotted, Boolean> expectedMutability(List<SyntheticClass> classes) {
+        Map<Dotted, Boolean> mutable = new HashMap<Dotted, Boolean>();
+        for (SyntheticClass syntheticClass : Lists.reverse(classes)) {
+            boolean isMutable = syntheticClass.hasSetter;
+            for (Dotted fieldType : syntheticClass.fieldTypes) {
+                isMutable |= mutable.get(fieldType);
+            }
+            mutable.put(syntheticClass.name, isMutable);
+        }
+        return mutable;
+    }
+}